@@ -22,6 +22,7 @@ public enum CircusTrainTableParameter {
   REPLICATION_EVENT("com.hotels.bdp.circustrain.replication.event"),
   LAST_REPLICATED("com.hotels.bdp.circustrain.last.replicated"),
   PARTITION_CHECKSUM("com.hotels.bdp.circustrain.partition.checksum"),
+  PARTITION_CHECKSUM_VERSION("com.hotels.bdp.circustrain.partition.checksum.version"),
   REPLICATION_MODE("com.hotels.bdp.circustrain.replication.mode");
 
   private final String parameterName;
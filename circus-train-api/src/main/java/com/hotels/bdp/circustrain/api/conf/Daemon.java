@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.api.conf;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.validation.Valid;
+
+public class Daemon {
+
+  public static final String DEFAULT_SCHEDULE_GROUP = "default";
+
+  private boolean enabled = false;
+  private @Valid Map<String, DaemonSchedule> schedules = new LinkedHashMap<>();
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Map<String, DaemonSchedule> getSchedules() {
+    return schedules;
+  }
+
+  public void setSchedules(Map<String, DaemonSchedule> schedules) {
+    this.schedules = schedules;
+  }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.api.conf;
+
+public class MetastoreGovernor {
+
+  private boolean enabled = false;
+  private int minInFlight = 1;
+  private int maxInFlight = 16;
+  private int minCallsPerSecond = 1;
+  private int maxCallsPerSecond = 100;
+  private long targetLatency = 2000L;
+  private double backoffRatio = 0.5;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getMinInFlight() {
+    return minInFlight;
+  }
+
+  public void setMinInFlight(int minInFlight) {
+    this.minInFlight = minInFlight;
+  }
+
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  public void setMaxInFlight(int maxInFlight) {
+    this.maxInFlight = maxInFlight;
+  }
+
+  public int getMinCallsPerSecond() {
+    return minCallsPerSecond;
+  }
+
+  public void setMinCallsPerSecond(int minCallsPerSecond) {
+    this.minCallsPerSecond = minCallsPerSecond;
+  }
+
+  public int getMaxCallsPerSecond() {
+    return maxCallsPerSecond;
+  }
+
+  public void setMaxCallsPerSecond(int maxCallsPerSecond) {
+    this.maxCallsPerSecond = maxCallsPerSecond;
+  }
+
+  public long getTargetLatency() {
+    return targetLatency;
+  }
+
+  public void setTargetLatency(long targetLatency) {
+    this.targetLatency = targetLatency;
+  }
+
+  public double getBackoffRatio() {
+    return backoffRatio;
+  }
+
+  public void setBackoffRatio(double backoffRatio) {
+    this.backoffRatio = backoffRatio;
+  }
+
+}
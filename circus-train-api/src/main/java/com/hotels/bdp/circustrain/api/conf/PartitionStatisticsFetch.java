@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.api.conf;
+
+public class PartitionStatisticsFetch {
+
+  private int partitionsPerChunk = 250;
+  private int columnsPerChunk = 100;
+  private int threads = 4;
+  private int retries = 2;
+
+  public int getPartitionsPerChunk() {
+    return partitionsPerChunk;
+  }
+
+  public void setPartitionsPerChunk(int partitionsPerChunk) {
+    this.partitionsPerChunk = partitionsPerChunk;
+  }
+
+  public int getColumnsPerChunk() {
+    return columnsPerChunk;
+  }
+
+  public void setColumnsPerChunk(int columnsPerChunk) {
+    this.columnsPerChunk = columnsPerChunk;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public int getRetries() {
+    return retries;
+  }
+
+  public void setRetries(int retries) {
+    this.retries = retries;
+  }
+
+}
@@ -0,0 +1,26 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.api.conf;
+
+public enum ReplicationOrder {
+
+  /** Tables are replicated in the order in which they are declared. */
+  DECLARED,
+  /** Tables with the most source data are replicated first. */
+  LARGEST_FIRST,
+  /** Tables with a higher {@code priority} are replicated first. */
+  PRIORITY;
+}
@@ -20,6 +20,7 @@ import java.util.Locale;
 import java.util.Map;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import com.google.common.collect.ImmutableMap;
@@ -35,11 +36,20 @@ public class TableReplication {
   private Map<String, Object> transformOptions = new HashMap<>();
   private short partitionIteratorBatchSize = (short) 1000;
   private short partitionFetcherBufferSize = (short) 1000;
+  private boolean mergeJoinPartitionDiff = false;
+  private @Min(1) int partitionBatchSize = 1000;
+  private @Min(1) int partitionWriteConcurrency = 1;
+  private @Min(1) long partitionBatchMaxBytes = 8 * 1024 * 1024;
+  private boolean skipUnchangedPartitions = false;
   private @NotNull ReplicationMode replicationMode = ReplicationMode.FULL;
   private @NotNull ReplicationStrategy replicationStrategy = ReplicationStrategy.UPSERT;
   private @NotNull OrphanedDataStrategy orphanedDataStrategy = OrphanedDataStrategy.HOUSEKEEPING;
   // Only relevant to view replications
   private Map<String, String> tableMappings;
+  // Only relevant in daemon mode
+  private String scheduleGroup = Daemon.DEFAULT_SCHEDULE_GROUP;
+  // Only relevant when replication-order is PRIORITY
+  private int priority = 0;
 
   public SourceTable getSourceTable() {
     return sourceTable;
@@ -126,6 +136,46 @@ public class TableReplication {
     this.partitionFetcherBufferSize = partitionFetcherBufferSize;
   }
 
+  public int getPartitionBatchSize() {
+    return partitionBatchSize;
+  }
+
+  public void setPartitionBatchSize(int partitionBatchSize) {
+    this.partitionBatchSize = partitionBatchSize;
+  }
+
+  public int getPartitionWriteConcurrency() {
+    return partitionWriteConcurrency;
+  }
+
+  public void setPartitionWriteConcurrency(int partitionWriteConcurrency) {
+    this.partitionWriteConcurrency = partitionWriteConcurrency;
+  }
+
+  public long getPartitionBatchMaxBytes() {
+    return partitionBatchMaxBytes;
+  }
+
+  public void setPartitionBatchMaxBytes(long partitionBatchMaxBytes) {
+    this.partitionBatchMaxBytes = partitionBatchMaxBytes;
+  }
+
+  public boolean isMergeJoinPartitionDiff() {
+    return mergeJoinPartitionDiff;
+  }
+
+  public void setMergeJoinPartitionDiff(boolean mergeJoinPartitionDiff) {
+    this.mergeJoinPartitionDiff = mergeJoinPartitionDiff;
+  }
+
+  public boolean isSkipUnchangedPartitions() {
+    return skipUnchangedPartitions;
+  }
+
+  public void setSkipUnchangedPartitions(boolean skipUnchangedPartitions) {
+    this.skipUnchangedPartitions = skipUnchangedPartitions;
+  }
+
   public ReplicationMode getReplicationMode() {
     return replicationMode;
   }
@@ -157,4 +207,20 @@ public class TableReplication {
   public void setOrphanedDataStrategy(OrphanedDataStrategy orphanedDataStrategy) {
     this.orphanedDataStrategy = orphanedDataStrategy;
   }
+
+  public String getScheduleGroup() {
+    return scheduleGroup;
+  }
+
+  public void setScheduleGroup(String scheduleGroup) {
+    this.scheduleGroup = scheduleGroup;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
 }
@@ -15,6 +15,8 @@
  */
 package com.hotels.bdp.circustrain.api.event;
 
+import com.hotels.bdp.circustrain.api.metrics.Metrics;
+
 public interface TableReplicationListener {
 
   void tableReplicationStart(EventTableReplication tableReplication, String eventId);
@@ -23,4 +25,20 @@ public interface TableReplicationListener {
 
   void tableReplicationFailure(EventTableReplication eventTableReplication, String eventId, Throwable t);
 
+  /**
+   * Called with the duration of each phase of the table replication and counters such as metastore calls and batch
+   * sizes, just before {@link #tableReplicationSuccess} or {@link #tableReplicationFailure}. Phase durations are keyed
+   * {@code <phase>_time} and are in milliseconds.
+   */
+  default void tableReplicationPhaseMetrics(
+      EventTableReplication eventTableReplication,
+      String eventId,
+      Metrics phaseMetrics) {}
+
+  /**
+   * Called instead of any other event when a table is not replicated because an earlier run that failed had already
+   * replicated it. {@code eventId} is the event of that earlier replication.
+   */
+  default void tableReplicationSkipped(EventTableReplication eventTableReplication, String eventId) {}
+
 }
@@ -23,6 +23,11 @@ import org.apache.hadoop.hive.metastore.api.Partition;
  * If an external implementation of this interface is found on the classpath then it will be applied to all the
  * partitions of all replicated partitioned tables.
  * </p>
+ * <p>
+ * Each call receives its own copy of a source partition, which may be modified in place, including its column list and
+ * other storage descriptor components. Once returned, equal components of the replica partitions of a table are shared
+ * between them, so a transformation must not keep and later modify the partitions it returns.
+ * </p>
  */
 public interface PartitionTransformation {
 
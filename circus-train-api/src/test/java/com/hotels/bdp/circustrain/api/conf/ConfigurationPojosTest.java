@@ -53,6 +53,11 @@ public class ConfigurationPojosTest {
                 .add(TableReplication.class)
                 .add(TableReplications.class)
                 .add(MetricsReporter.class)
+                .add(MetastoreClientPool.class)
+                .add(MetastoreGovernor.class)
+                .add(PartitionStatisticsFetch.class)
+                .add(Daemon.class)
+                .add(DaemonSchedule.class)
                 .build(), new Function<Class<?>, PojoClass>() {
                   @Override
                   public PojoClass apply(Class<?> input) {
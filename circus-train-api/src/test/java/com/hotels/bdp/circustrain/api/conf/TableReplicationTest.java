@@ -93,6 +93,18 @@ public class TableReplicationTest {
     assertThat(violations.size(), is(1));
   }
 
+  @Test
+  public void invalidPartitionWriteSettings() throws Exception {
+    replicaTable.setTableLocation("tableLocation");
+    tableReplication.setPartitionBatchSize(0);
+    tableReplication.setPartitionWriteConcurrency(0);
+    tableReplication.setPartitionBatchMaxBytes(0L);
+
+    Set<ConstraintViolation<TableReplication>> violations = validator.validate(tableReplication);
+
+    assertThat(violations.size(), is(3));
+  }
+
   @Test
   public void mergeNullOptions() {
     Map<String, Object> mergedCopierOptions = tableReplication.getMergedCopierOptions(null);
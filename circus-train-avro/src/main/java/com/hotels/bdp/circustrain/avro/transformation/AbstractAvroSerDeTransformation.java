@@ -32,12 +32,21 @@ import com.hotels.bdp.circustrain.avro.conf.AvroSerDeConfig;
 public abstract class AbstractAvroSerDeTransformation implements TableReplicationListener {
 
   private final AvroSerDeConfig avroSerDeConfig = new AvroSerDeConfig();
-  private String eventId;
-  private String tableLocation;
-  private Map<String, Object> avroSerdeConfigOverride = Collections.emptyMap();
-  private EventTableReplication tableReplication;
+  private final ThreadLocal<ReplicationState> replicationState = new ThreadLocal<ReplicationState>() {
+    @Override
+    protected ReplicationState initialValue() {
+      return new ReplicationState();
+    }
+  };
   static final String AVRO_SCHEMA_URL_PARAMETER = "avro.schema.url";
 
+  private static class ReplicationState {
+    String eventId;
+    String tableLocation;
+    Map<String, Object> avroSerdeConfigOverride = Collections.emptyMap();
+    EventTableReplication tableReplication;
+  }
+
   protected AbstractAvroSerDeTransformation(TransformOptions transformOptions) {
     if (transformOptions.getTransformOptions() == null) {
       return;
@@ -50,15 +59,15 @@ public abstract class AbstractAvroSerDeTransformation implements TableReplicatio
   }
 
   protected String getEventId() {
-    return eventId;
+    return replicationState.get().eventId;
   }
 
   protected EventTableReplication getTableReplication() {
-    return tableReplication;
+    return replicationState.get().tableReplication;
   }
 
   protected String getTableLocation() {
-    return tableLocation;
+    return replicationState.get().tableLocation;
   }
 
   protected boolean avroTransformationSpecified() {
@@ -66,28 +75,30 @@ public abstract class AbstractAvroSerDeTransformation implements TableReplicatio
   }
 
   protected String getAvroSchemaDestinationFolder() {
-    Object urlOverride = avroSerdeConfigOverride.get(BASE_URL);
+    ReplicationState replicationState = this.replicationState.get();
+    Object urlOverride = replicationState.avroSerdeConfigOverride.get(BASE_URL);
     if (urlOverride != null && StringUtils.isNotBlank(urlOverride.toString())) {
       return urlOverride.toString();
     } else if (avroSerDeConfig.getBaseUrl() != null && StringUtils.isNotBlank(avroSerDeConfig.getBaseUrl())) {
       return avroSerDeConfig.getBaseUrl();
     } else {
-      return tableLocation;
+      return replicationState.tableLocation;
     }
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public void tableReplicationStart(EventTableReplication tableReplication, String eventId) {
-    this.eventId = eventId;
-    this.tableReplication = tableReplication;
-    tableLocation = tableReplication.getReplicaTable().getTableLocation();
-    avroSerdeConfigOverride = Collections.emptyMap();
+    ReplicationState replicationState = new ReplicationState();
+    replicationState.eventId = eventId;
+    replicationState.tableReplication = tableReplication;
+    replicationState.tableLocation = tableReplication.getReplicaTable().getTableLocation();
     Map<String, Object> transformOptions = tableReplication.getTransformOptions();
     Object avroSerDeOverride = transformOptions.get(AVRO_SERDE_OPTIONS);
     if (avroSerDeOverride != null && avroSerDeOverride instanceof Map) {
-      avroSerdeConfigOverride = (Map<String, Object>) avroSerDeOverride;
+      replicationState.avroSerdeConfigOverride = (Map<String, Object>) avroSerDeOverride;
     }
+    this.replicationState.set(replicationState);
   }
 
   @Override
@@ -68,13 +68,22 @@ public class SnsListener implements LocomotiveListener, SourceCatalogListener, R
   private final ObjectWriter startWriter;
   private final Clock clock;
 
-  private Metrics metrics;
-  private List<EventPartition> partitionsToCreate;
-  private List<EventPartition> partitionsToAlter;
-  private String startTime;
   private EventSourceCatalog sourceCatalog;
   private EventReplicaCatalog replicaCatalog;
-  private LinkedHashMap<String, String> partitionKeyTypes;
+  private final ThreadLocal<ReplicationState> replicationState = new ThreadLocal<ReplicationState>() {
+    @Override
+    protected ReplicationState initialValue() {
+      return new ReplicationState();
+    }
+  };
+
+  private static class ReplicationState {
+    Metrics metrics;
+    List<EventPartition> partitionsToCreate;
+    List<EventPartition> partitionsToAlter;
+    String startTime;
+    LinkedHashMap<String, String> partitionKeyTypes;
+  }
 
   @Autowired
   public SnsListener(AmazonSNSAsync sns, ListenerConfig config) {
@@ -101,30 +110,34 @@ public class SnsListener implements LocomotiveListener, SourceCatalogListener, R
 
   @Override
   public void copierEnd(Metrics metrics) {
-    this.metrics = metrics;
+    replicationState.get().metrics = metrics;
   }
 
   @Override
   public void tableReplicationStart(EventTableReplication tableReplication, String eventId) {
-    startTime = clock.getTime();
+    ReplicationState replicationState = this.replicationState.get();
+    replicationState.startTime = clock.getTime();
     EventReplicaTable replicaTable = tableReplication.getReplicaTable();
-    SnsMessage message = new SnsMessage(SnsMessageType.START, config.getHeaders(), startTime, null, eventId,
-        sourceCatalog.getName(), replicaCatalog.getName(), replicaCatalog.getHiveMetastoreUris(),
+    SnsMessage message = new SnsMessage(SnsMessageType.START, config.getHeaders(), replicationState.startTime, null,
+        eventId, sourceCatalog.getName(), replicaCatalog.getName(), replicaCatalog.getHiveMetastoreUris(),
         tableReplication.getSourceTable().getQualifiedName(), tableReplication.getQualifiedReplicaName(),
-        replicaTable.getTableLocation(), partitionKeyTypes, null, null, null);
+        replicaTable.getTableLocation(), replicationState.partitionKeyTypes, null, null, null);
     publish(config.getStartTopic(), message);
   }
 
   @Override
   public void tableReplicationSuccess(EventTableReplication tableReplication, String eventId) {
     try {
+      ReplicationState replicationState = this.replicationState.get();
       String endTime = clock.getTime();
       EventReplicaTable replicaTable = tableReplication.getReplicaTable();
-      SnsMessage message = new SnsMessage(SnsMessageType.SUCCESS, config.getHeaders(), startTime, endTime, eventId,
-          sourceCatalog.getName(), replicaCatalog.getName(), replicaCatalog.getHiveMetastoreUris(),
-          tableReplication.getSourceTable().getQualifiedName(), tableReplication.getQualifiedReplicaName(),
-          replicaTable.getTableLocation(), partitionKeyTypes,
-          getModifiedPartitions(partitionsToAlter, partitionsToCreate), getBytesReplicated(), null);
+      SnsMessage message = new SnsMessage(SnsMessageType.SUCCESS, config.getHeaders(), replicationState.startTime,
+          endTime, eventId, sourceCatalog.getName(), replicaCatalog.getName(),
+          replicaCatalog.getHiveMetastoreUris(), tableReplication.getSourceTable().getQualifiedName(),
+          tableReplication.getQualifiedReplicaName(), replicaTable.getTableLocation(),
+          replicationState.partitionKeyTypes,
+          getModifiedPartitions(replicationState.partitionsToAlter, replicationState.partitionsToCreate),
+          getBytesReplicated(replicationState), null);
       publish(config.getSuccessTopic(), message);
     } finally {
       resetState();
@@ -134,51 +147,51 @@ public class SnsListener implements LocomotiveListener, SourceCatalogListener, R
   @Override
   public void tableReplicationFailure(EventTableReplication tableReplication, String eventId, Throwable t) {
     try {
-      if (startTime == null) {
-        startTime = clock.getTime();
+      ReplicationState replicationState = this.replicationState.get();
+      if (replicationState.startTime == null) {
+        replicationState.startTime = clock.getTime();
       }
       String endTime = clock.getTime();
       EventReplicaTable replicaTable = tableReplication.getReplicaTable();
-      SnsMessage message = new SnsMessage(SnsMessageType.FAILURE, config.getHeaders(), startTime, endTime, eventId,
-          sourceCatalog.getName(), replicaCatalog.getName(), replicaCatalog.getHiveMetastoreUris(),
-          tableReplication.getSourceTable().getQualifiedName(), tableReplication.getQualifiedReplicaName(),
-          replicaTable.getTableLocation(), partitionKeyTypes,
-          getModifiedPartitions(partitionsToAlter, partitionsToCreate), getBytesReplicated(), t.getMessage());
+      SnsMessage message = new SnsMessage(SnsMessageType.FAILURE, config.getHeaders(), replicationState.startTime,
+          endTime, eventId, sourceCatalog.getName(), replicaCatalog.getName(),
+          replicaCatalog.getHiveMetastoreUris(), tableReplication.getSourceTable().getQualifiedName(),
+          tableReplication.getQualifiedReplicaName(), replicaTable.getTableLocation(),
+          replicationState.partitionKeyTypes,
+          getModifiedPartitions(replicationState.partitionsToAlter, replicationState.partitionsToCreate),
+          getBytesReplicated(replicationState), t.getMessage());
       publish(config.getFailTopic(), message);
     } finally {
       resetState();
     }
   }
 
-  private Long getBytesReplicated() {
-    if (metrics != null) {
-      return metrics.getBytesReplicated();
+  private Long getBytesReplicated(ReplicationState replicationState) {
+    if (replicationState.metrics != null) {
+      return replicationState.metrics.getBytesReplicated();
     }
     return 0L;
   }
 
   private void resetState() {
-    partitionsToCreate = null;
-    partitionsToAlter = null;
-    partitionKeyTypes = null;
-    startTime = null;
+    replicationState.remove();
   }
 
   @Override
   public void partitionsToCreate(EventPartitions eventPartitions) {
-    partitionsToCreate = eventPartitions.getEventPartitions();
+    replicationState.get().partitionsToCreate = eventPartitions.getEventPartitions();
     setPartitionKeyTypes(eventPartitions.getPartitionKeyTypes());
   }
 
   @Override
   public void partitionsToAlter(EventPartitions eventPartitions) {
-    partitionsToAlter = eventPartitions.getEventPartitions();
+    replicationState.get().partitionsToAlter = eventPartitions.getEventPartitions();
     setPartitionKeyTypes(eventPartitions.getPartitionKeyTypes());
   }
 
   private void setPartitionKeyTypes(LinkedHashMap<String, String> partitionKeyTypes) {
     if (partitionKeyTypes != null) {
-      this.partitionKeyTypes = partitionKeyTypes;
+      replicationState.get().partitionKeyTypes = partitionKeyTypes;
     }
   }
 
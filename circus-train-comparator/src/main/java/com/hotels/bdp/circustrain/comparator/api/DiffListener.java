@@ -37,4 +37,17 @@ public interface DiffListener {
 
   void onDataChanged(String partitionName, Partition partition);
 
+  /**
+   * Called before {@link #onDataChanged(String, Partition)} with the checksum of the source partition data when it was
+   * computed in the current checksum version, so that it can be reused.
+   */
+  default void onSourceChecksum(String partitionName, Partition partition, String checksum) {}
+
+  /**
+   * Called for a partition whose data is unchanged but whose replica checksum was stored with an older checksum
+   * version, with the checksum of the source partition data in the current checksum version, so that the replica
+   * partition can be upgraded without copying its data again.
+   */
+  default void onChecksumUpgrade(String partitionName, Partition replicaPartition, String checksum) {}
+
 }
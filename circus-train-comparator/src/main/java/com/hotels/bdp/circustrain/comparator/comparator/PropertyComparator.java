@@ -1,10 +1,5 @@
 /**
- * Copyright (C) 2016-2017 Expedia Inc and the original spring-integration contributors.
- *
- * The method PropertyComparator#get(T,String) is a copy of:
- *
- * https://github.com/spring-projects/spring-integration/blob/4.3.x/spring-integration-test/src/main/java/org/
- * springframework/integration/test/util/TestUtils.java#L61
+ * Copyright (C) 2016-2020 Expedia, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,11 +17,8 @@ package com.hotels.bdp.circustrain.comparator.comparator;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 
-import org.springframework.beans.DirectFieldAccessor;
-
 import com.google.common.collect.ImmutableList;
 
 import com.hotels.bdp.circustrain.comparator.ComparatorRegistry;
@@ -37,7 +29,8 @@ import com.hotels.bdp.circustrain.comparator.api.Diff;
 
 public class PropertyComparator<T> extends AbstractComparator<T, Object> {
 
-  private final List<String> properties;
+  private final List<PropertyPath> properties;
+  private final List<CollectionComparator> collectionComparators;
 
   public PropertyComparator(ComparatorType comparatorType, List<String> properties) {
     this(null, comparatorType, properties);
@@ -48,7 +41,14 @@ public class PropertyComparator<T> extends AbstractComparator<T, Object> {
       ComparatorType comparatorType,
       List<String> properties) {
     super(comparatorRegistry, comparatorType);
-    this.properties = properties;
+    ImmutableList.Builder<PropertyPath> propertyPaths = ImmutableList.builder();
+    ImmutableList.Builder<CollectionComparator> comparators = ImmutableList.builder();
+    for (String property : properties) {
+      propertyPaths.add(new PropertyPath(property));
+      comparators.add(new CollectionComparator(comparatorRegistry, comparatorType, property));
+    }
+    this.properties = propertyPaths.build();
+    collectionComparators = comparators.build();
   }
 
   @Override
@@ -70,15 +70,12 @@ public class PropertyComparator<T> extends AbstractComparator<T, Object> {
     }
 
     List<Diff<Object, Object>> diffs = new ArrayList<>(properties.size() + 1);
-    Iterator<String> propertyIterator = properties.iterator();
-    while (carryOn(diffs) && propertyIterator.hasNext()) {
-      String property = propertyIterator.next();
-      Object aVal = get(left, property);
-      Object bVal = get(right, property);
+    for (int i = 0; carryOn(diffs) && i < properties.size(); i++) {
+      PropertyPath property = properties.get(i);
+      Object aVal = property.get(left);
+      Object bVal = property.get(right);
       if (areCollections(aVal, bVal)) {
-        CollectionComparator collectionComparator = new CollectionComparator(comparatorRegistry(), comparatorType(),
-            property);
-        diffs.addAll(collectionComparator.compare((Collection<?>) aVal, (Collection<?>) bVal));
+        diffs.addAll(collectionComparators.get(i).compare((Collection<?>) aVal, (Collection<?>) bVal));
       } else {
         Comparator<Object, Object> comparator = null;
         if (aVal != null) {
@@ -88,8 +85,11 @@ public class PropertyComparator<T> extends AbstractComparator<T, Object> {
           diffs.addAll(comparator.compare(aVal, bVal));
         } else {
           if (checkForInequality(aVal, bVal)) {
-            diffs.add(new BaseDiff<>(
-                "Property " + property + " of class " + left.getClass().getName() + " is different", aVal, bVal));
+            diffs.add(new BaseDiff<>("Property "
+                + property.getPath()
+                + " of class "
+                + left.getClass().getName()
+                + " is different", aVal, bVal));
           }
         }
       }
@@ -105,21 +105,4 @@ public class PropertyComparator<T> extends AbstractComparator<T, Object> {
         && Iterable.class.isAssignableFrom(bVal.getClass());
   }
 
-  private Object get(T object, String propertyPath) {
-    Object value = null;
-    DirectFieldAccessor accessor = new DirectFieldAccessor(object);
-    String[] tokens = propertyPath.split("\\.");
-    for (int i = 0; i < tokens.length; i++) {
-      value = accessor.getPropertyValue(tokens[i]);
-      if (value != null) {
-        accessor = new DirectFieldAccessor(value);
-      } else if (i == tokens.length - 1) {
-        return null;
-      } else {
-        throw new IllegalArgumentException("Intermediate property '" + tokens[i] + "' is null");
-      }
-    }
-    return value;
-  }
-
 }
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2016-2020 Expedia Inc and the original spring-integration contributors.
+ *
+ * The method PropertyPath#get(Object) is derived from:
+ *
+ * https://github.com/spring-projects/spring-integration/blob/4.3.x/spring-integration-test/src/main/java/org/
+ * springframework/integration/test/util/TestUtils.java#L61
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.comparator.comparator;
+
+import java.lang.reflect.Field;
+
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * A dotted property path resolved once against the fields of the objects it is read from. The {@link Field} behind
+ * each step is cached for the last class it was resolved against, which for the Thrift objects compared here is always
+ * the same class.
+ */
+final class PropertyPath {
+
+  private static final class ResolvedField {
+    private final Class<?> type;
+    private final Field field;
+
+    private ResolvedField(Class<?> type, Field field) {
+      this.type = type;
+      this.field = field;
+    }
+  }
+
+  private final String path;
+  private final String[] names;
+  // Races between threads only cause a field to be resolved more than once
+  private final ResolvedField[] resolvedFields;
+
+  PropertyPath(String path) {
+    this.path = path;
+    names = path.split("\\.");
+    resolvedFields = new ResolvedField[names.length];
+  }
+
+  String getPath() {
+    return path;
+  }
+
+  Object get(Object object) {
+    Object value = object;
+    for (int i = 0; i < names.length; i++) {
+      value = ReflectionUtils.getField(field(i, value.getClass()), value);
+      if (value == null) {
+        if (i == names.length - 1) {
+          return null;
+        }
+        throw new IllegalArgumentException("Intermediate property '" + names[i] + "' is null");
+      }
+    }
+    return value;
+  }
+
+  private Field field(int index, Class<?> type) {
+    ResolvedField resolvedField = resolvedFields[index];
+    if (resolvedField == null || resolvedField.type != type) {
+      Field field = ReflectionUtils.findField(type, names[index]);
+      if (field == null) {
+        throw new IllegalArgumentException("Property '" + names[index] + "' not found in class " + type.getName());
+      }
+      ReflectionUtils.makeAccessible(field);
+      resolvedField = new ResolvedField(type, field);
+      resolvedFields[index] = resolvedField;
+    }
+    return resolvedField.field;
+  }
+
+}
@@ -32,8 +32,8 @@ import org.apache.hadoop.hive.metastore.api.Table;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
-import com.google.common.base.Functions;
 import com.google.common.base.Optional;
+import com.google.common.collect.Ordering;
 
 import com.hotels.bdp.circustrain.api.CircusTrainException;
 import com.hotels.bdp.circustrain.api.CircusTrainTableParameter;
@@ -43,8 +43,8 @@ import com.hotels.bdp.circustrain.comparator.api.Diff;
 import com.hotels.bdp.circustrain.comparator.api.DiffListener;
 import com.hotels.bdp.circustrain.comparator.hive.functions.CleanPartitionFunction;
 import com.hotels.bdp.circustrain.comparator.hive.functions.CleanTableFunction;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
 import com.hotels.bdp.circustrain.comparator.hive.functions.PathDigest;
-import com.hotels.bdp.circustrain.comparator.hive.functions.PathToPathMetadata;
 import com.hotels.bdp.circustrain.comparator.hive.wrappers.PartitionAndMetadata;
 import com.hotels.bdp.circustrain.comparator.hive.wrappers.TableAndMetadata;
 import com.hotels.bdp.circustrain.hive.fetcher.PartitionFetcher;
@@ -53,6 +53,7 @@ import com.hotels.bdp.circustrain.hive.fetcher.PartitionNotFoundException;
 public class HiveDifferences {
 
   private static final int UNLIMITED = Integer.MAX_VALUE;
+  private static final int UNKNOWN_CHECKSUM_VERSION = -1;
   private static final Function<TableAndMetadata, TableAndMetadata> CLEAN_TABLE_FUNCTION = new CleanTableFunction();
   private static final Function<PartitionAndMetadata, PartitionAndMetadata> CLEAN_PARTITION_FUNCTION = new CleanPartitionFunction();
 
@@ -94,8 +95,10 @@ public class HiveDifferences {
     private Table sourceTable;
     private Iterator<Partition> sourcePartitionIterator;
     private Optional<Table> replicaTable;
-    private Optional<? extends PartitionFetcher> replicaPartitionFetcher;
-    private Function<Path, String> checksumFunction;
+    private Optional<? extends PartitionFetcher> replicaPartitionFetcher = Optional.absent();
+    private Iterator<Partition> replicaPartitionIterator;
+    private Ordering<String> partitionNameOrdering;
+    private PathChecksumFunction checksumFunction;
     private int partitionLimit = UNLIMITED;
 
     private Builder(DiffListener diffListener) {
@@ -123,11 +126,34 @@ public class HiveDifferences {
       return this;
     }
 
-    public Builder checksumFunction(Function<Path, String> checksumFunction) {
+    /**
+     * Merge-joins the source partitions with the replica partitions instead of fetching each replica partition by
+     * name. Both iterators must return partitions in {@code partitionNameOrdering} of their partition names.
+     */
+    public Builder replica(
+        Optional<Table> replicaTable,
+        Iterator<Partition> replicaPartitionIterator,
+        Ordering<String> partitionNameOrdering) {
+      this.replicaTable = replicaTable;
+      this.replicaPartitionIterator = replicaPartitionIterator;
+      this.partitionNameOrdering = partitionNameOrdering;
+      return this;
+    }
+
+    public Builder checksumFunction(PathChecksumFunction checksumFunction) {
       this.checksumFunction = checksumFunction;
       return this;
     }
 
+    /**
+     * Uses a checksum function that does not record digest versions, its checksums are compared with replica checksums
+     * of {@link PathDigest#SERIALIZED_VERSION}.
+     */
+    public Builder checksumFunction(Function<Path, String> checksumFunction) {
+      this.checksumFunction = PathChecksumFunction.serializedVersion(checksumFunction);
+      return this;
+    }
+
     public Builder partitionLimit(int partitionLimit) {
       this.partitionLimit = partitionLimit;
       return this;
@@ -139,14 +165,18 @@ public class HiveDifferences {
       checkNotNull(sourceConfiguration, "sourceConfiguration is required");
       checkNotNull(sourceTable, "sourceTable is required");
       checkNotNull(sourcePartitionIterator, "sourcePartitionIterable is required");
-      if (replicaTable.isPresent() && !replicaPartitionFetcher.isPresent()) {
-        throw new IllegalStateException("replicaPartitionFetcher is required if replicaTable exists");
+      if (replicaTable.isPresent() && !replicaPartitionFetcher.isPresent() && replicaPartitionIterator == null) {
+        throw new IllegalStateException(
+            "replicaPartitionFetcher or replicaPartitionIterator is required if replicaTable exists");
+      }
+      if (replicaPartitionIterator != null) {
+        checkNotNull(partitionNameOrdering, "partitionNameOrdering is required");
       }
       if (checksumFunction == null) {
-        checksumFunction = Functions.compose(new PathDigest(), new PathToPathMetadata(sourceConfiguration));
+        checksumFunction = new PathChecksumFunction(sourceConfiguration);
       }
       return new HiveDifferences(comparatorRegistry, diffListener, sourceTable, sourcePartitionIterator, replicaTable,
-          replicaPartitionFetcher, checksumFunction, partitionLimit);
+          replicaPartitionFetcher, replicaPartitionIterator, partitionNameOrdering, checksumFunction, partitionLimit);
     }
 
   }
@@ -161,8 +191,13 @@ public class HiveDifferences {
   private final Iterator<Partition> sourcePartitionIterator;
   private final Optional<Table> replicaTable;
   private final Optional<? extends PartitionFetcher> replicaPartitionFetcher;
-  private final Function<Path, String> checksumFunction;
+  private final Iterator<Partition> replicaPartitionIterator;
+  private final Ordering<String> partitionNameOrdering;
+  private final PathChecksumFunction checksumFunction;
   private final int partitionLimit;
+  private String previousSourcePartitionName;
+  private Partition replicaPartitionHead;
+  private String replicaPartitionHeadName;
 
   private HiveDifferences(
       ComparatorRegistry comparatorRegistry,
@@ -171,7 +206,9 @@ public class HiveDifferences {
       Iterator<Partition> sourcePartitionIterator,
       Optional<Table> replicaTable,
       Optional<? extends PartitionFetcher> replicaPartitionFetcher,
-      Function<Path, String> checksumFunction,
+      Iterator<Partition> replicaPartitionIterator,
+      Ordering<String> partitionNameOrdering,
+      PathChecksumFunction checksumFunction,
       int partitionLimit) {
     this.diffListener = diffListener;
     this.comparatorRegistry = comparatorRegistry;
@@ -179,6 +216,8 @@ public class HiveDifferences {
     this.sourcePartitionIterator = sourcePartitionIterator;
     this.replicaTable = replicaTable;
     this.replicaPartitionFetcher = replicaPartitionFetcher;
+    this.replicaPartitionIterator = replicaPartitionIterator;
+    this.partitionNameOrdering = partitionNameOrdering;
     this.checksumFunction = checksumFunction;
     this.partitionLimit = partitionLimit < 0 ? UNLIMITED : partitionLimit;
   }
@@ -203,6 +242,49 @@ public class HiveDifferences {
     }
   }
 
+  private Partition replicaPartition(String sourcePartitionName) {
+    if (replicaPartitionIterator != null) {
+      return mergeReplicaPartition(sourcePartitionName);
+    }
+    try {
+      return replicaPartitionFetcher.get().fetch(sourcePartitionName);
+    } catch (PartitionNotFoundException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Advances the replica partitions up to {@code sourcePartitionName} and returns the replica partition with that name
+   * or {@code null} if there is none. Replica partitions which sort before it do not exist in the source.
+   */
+  private Partition mergeReplicaPartition(String sourcePartitionName) {
+    if (previousSourcePartitionName != null
+        && partitionNameOrdering.compare(previousSourcePartitionName, sourcePartitionName) >= 0) {
+      throw new IllegalStateException("Source partition "
+          + sourcePartitionName
+          + " is out of order after "
+          + previousSourcePartitionName);
+    }
+    previousSourcePartitionName = sourcePartitionName;
+    while (replicaPartitionHeadName == null
+        || partitionNameOrdering.compare(replicaPartitionHeadName, sourcePartitionName) < 0) {
+      if (!replicaPartitionIterator.hasNext()) {
+        replicaPartitionHead = null;
+        replicaPartitionHeadName = null;
+        return null;
+      }
+      replicaPartitionHead = replicaPartitionIterator.next();
+      replicaPartitionHeadName = partitionName(replicaTable.get(), replicaPartitionHead);
+    }
+    if (!replicaPartitionHeadName.equals(sourcePartitionName)) {
+      return null;
+    }
+    Partition replicaPartition = replicaPartitionHead;
+    replicaPartitionHead = null;
+    replicaPartitionHeadName = null;
+    return replicaPartition;
+  }
+
   public void run() {
     int partitionsChanged = 0;
     TableAndMetadata source = CLEAN_TABLE_FUNCTION.apply(sourceTableToTableAndMetadata(sourceTable));
@@ -223,12 +305,8 @@ public class HiveDifferences {
           .apply(sourcePartitionToPartitionAndMetadata(sourcePartition));
 
       Partition replicaPartition = null;
-      try {
-        if (replica.isPresent()) {
-          replicaPartition = replicaPartitionFetcher.get().fetch(sourcePartitionName);
-        }
-      } catch (PartitionNotFoundException e) {
-        // Ignore ...
+      if (replica.isPresent()) {
+        replicaPartition = replicaPartition(sourcePartitionName);
       }
       if (replicaPartition == null) {
         diffListener.onNewPartition(sourcePartitionName, sourcePartition);
@@ -246,18 +324,61 @@ public class HiveDifferences {
         continue;
       }
 
-      String sourceChecksum = checksumFunction.apply(new Path(sourcePartitionAndMetadata.getSourceLocation()));
       String replicaChecksum = replicaPartition
           .getParameters()
           .get(CircusTrainTableParameter.PARTITION_CHECKSUM.parameterName());
-      if (replicaChecksum == null || !sourceChecksum.equals(replicaChecksum)) {
+      if (replicaChecksum == null) {
         diffListener.onDataChanged(sourcePartitionName, sourcePartition);
         partitionsChanged++;
+        continue;
+      }
+      int checksumVersion = checksumVersion(replicaPartition);
+      int currentVersion = checksumFunction.getVersion();
+      Path sourceLocation = new Path(sourcePartitionAndMetadata.getSourceLocation());
+      String sourceChecksum;
+      String currentChecksum;
+      if (checksumVersion == currentVersion || !PathDigest.isSupportedVersion(checksumVersion)) {
+        sourceChecksum = checksumFunction.apply(sourceLocation, checksumVersion);
+        currentChecksum = checksumVersion == currentVersion ? sourceChecksum : null;
+      } else {
+        // Lists the location once for both the comparison and the upgrade of the replica checksum
+        List<String> checksums = checksumFunction.checksums(sourceLocation, checksumVersion, currentVersion);
+        sourceChecksum = checksums.get(0);
+        currentChecksum = checksums.get(1);
+      }
+      if (!replicaChecksum.equals(sourceChecksum)) {
+        if (currentChecksum != null) {
+          diffListener.onSourceChecksum(sourcePartitionName, sourcePartition, currentChecksum);
+        }
+        diffListener.onDataChanged(sourcePartitionName, sourcePartition);
+        partitionsChanged++;
+        continue;
       }
 
       // Partition remains unchanged
+      if (checksumVersion != currentVersion && currentChecksum != null) {
+        diffListener.onChecksumUpgrade(sourcePartitionName, replicaPartition, currentChecksum);
+      }
     }
     diffListener.onDiffEnd();
   }
 
+  /**
+   * @return the digest version the replica checksum was stored with. Replicas written before the version was recorded
+   *         use {@link PathDigest#SERIALIZED_VERSION}.
+   */
+  private static int checksumVersion(Partition replicaPartition) {
+    String version = replicaPartition
+        .getParameters()
+        .get(CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION.parameterName());
+    if (version == null) {
+      return PathDigest.SERIALIZED_VERSION;
+    }
+    try {
+      return Integer.parseInt(version);
+    } catch (NumberFormatException e) {
+      return UNKNOWN_CHECKSUM_VERSION;
+    }
+  }
+
 }
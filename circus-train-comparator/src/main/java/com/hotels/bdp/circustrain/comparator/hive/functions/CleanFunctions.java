@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.comparator.hive.functions;
+
+import java.util.Map;
+
+import org.apache.thrift.TBase;
+import org.apache.thrift.TFieldIdEnum;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import com.hotels.bdp.circustrain.api.CircusTrainTableParameter;
+import com.hotels.bdp.circustrain.comparator.api.ExcludedHiveParameter;
+
+final class CleanFunctions {
+
+  private static final ImmutableSet<String> EXCLUDED_PARAMETERS;
+
+  static {
+    ImmutableSet.Builder<String> excluded = ImmutableSet.builder();
+    for (CircusTrainTableParameter p : CircusTrainTableParameter.values()) {
+      excluded.add(p.parameterName());
+    }
+    for (ExcludedHiveParameter p : ExcludedHiveParameter.values()) {
+      excluded.add(p.parameterName());
+    }
+    EXCLUDED_PARAMETERS = excluded.build();
+  }
+
+  private CleanFunctions() {}
+
+  /**
+   * @return a filtered view of the map passed in without the Circus Train and excluded Hive parameters. Thrift setters
+   *         such as {@code Table.setParameters} intern the map into a copy, so the object it is set on does not follow
+   *         later changes to {@code parameters}.
+   */
+  static Map<String, String> cleanParameters(Map<String, String> parameters) {
+    if (parameters == null) {
+      return null;
+    }
+    return Maps.filterKeys(parameters, Predicates.not(Predicates.in(EXCLUDED_PARAMETERS)));
+  }
+
+  /**
+   * Copies the references held in the set fields of {@code source} into {@code copy}, so nested structures are shared
+   * rather than cloned.
+   */
+  static <T extends TBase<?, F>, F extends TFieldIdEnum> T shallowCopy(T source, T copy, F[] fields) {
+    for (F field : fields) {
+      if (source.isSet(field)) {
+        copy.setFieldValue(field, source.getFieldValue(field));
+      }
+    }
+    return copy;
+  }
+
+}
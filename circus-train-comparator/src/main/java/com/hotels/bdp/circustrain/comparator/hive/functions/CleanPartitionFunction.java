@@ -15,12 +15,13 @@
  */
 package com.hotels.bdp.circustrain.comparator.hive.functions;
 
+import static com.hotels.bdp.circustrain.comparator.hive.functions.CleanFunctions.cleanParameters;
+import static com.hotels.bdp.circustrain.comparator.hive.functions.CleanFunctions.shallowCopy;
+
 import org.apache.hadoop.hive.metastore.api.Partition;
 
 import com.google.common.base.Function;
 
-import com.hotels.bdp.circustrain.api.CircusTrainTableParameter;
-import com.hotels.bdp.circustrain.comparator.api.ExcludedHiveParameter;
 import com.hotels.bdp.circustrain.comparator.hive.wrappers.PartitionAndMetadata;
 
 public class CleanPartitionFunction implements Function<PartitionAndMetadata, PartitionAndMetadata> {
@@ -31,13 +32,9 @@ public class CleanPartitionFunction implements Function<PartitionAndMetadata, Pa
       return null;
     }
 
-    Partition partitionCopy = partitionAndMetadata.getPartition().deepCopy();
-    for (CircusTrainTableParameter p : CircusTrainTableParameter.values()) {
-      partitionCopy.getParameters().remove(p.parameterName());
-    }
-    for (ExcludedHiveParameter p : ExcludedHiveParameter.values()) {
-      partitionCopy.getParameters().remove(p.parameterName());
-    }
+    Partition partition = partitionAndMetadata.getPartition();
+    Partition partitionCopy = shallowCopy(partition, new Partition(), Partition._Fields.values());
+    partitionCopy.setParameters(cleanParameters(partition.getParameters()));
     return new PartitionAndMetadata(partitionAndMetadata.getSourceTable(), partitionAndMetadata.getSourceLocation(),
         partitionCopy);
   }
@@ -15,12 +15,13 @@
  */
 package com.hotels.bdp.circustrain.comparator.hive.functions;
 
+import static com.hotels.bdp.circustrain.comparator.hive.functions.CleanFunctions.cleanParameters;
+import static com.hotels.bdp.circustrain.comparator.hive.functions.CleanFunctions.shallowCopy;
+
 import org.apache.hadoop.hive.metastore.api.Table;
 
 import com.google.common.base.Function;
 
-import com.hotels.bdp.circustrain.api.CircusTrainTableParameter;
-import com.hotels.bdp.circustrain.comparator.api.ExcludedHiveParameter;
 import com.hotels.bdp.circustrain.comparator.hive.wrappers.TableAndMetadata;
 
 public class CleanTableFunction implements Function<TableAndMetadata, TableAndMetadata> {
@@ -31,13 +32,9 @@ public class CleanTableFunction implements Function<TableAndMetadata, TableAndMe
       return null;
     }
 
-    Table tableCopy = tableAndMetadata.getTable().deepCopy();
-    for (CircusTrainTableParameter p : CircusTrainTableParameter.values()) {
-      tableCopy.getParameters().remove(p.parameterName());
-    }
-    for (ExcludedHiveParameter p : ExcludedHiveParameter.values()) {
-      tableCopy.getParameters().remove(p.parameterName());
-    }
+    Table table = tableAndMetadata.getTable();
+    Table tableCopy = shallowCopy(table, new Table(), Table._Fields.values());
+    tableCopy.setParameters(cleanParameters(table.getParameters()));
     return new TableAndMetadata(tableAndMetadata.getSourceTable(), tableAndMetadata.getSourceLocation(), tableCopy);
   }
 
@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.comparator.hive.functions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.fs.FileStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+
+/**
+ * A size capped, least recently used cache of file checksums kept in a local file. An entry is only returned while the
+ * length and modification time of the file match the ones it was cached with, so a file that has been rewritten is
+ * checksummed again. The cache is loaded when it is created and written back, replacing the previous file atomically,
+ * by {@link #save()} and {@link #close()}. An unreadable cache file is ignored. Each entry takes roughly the length of
+ * its path plus 150 bytes of heap.
+ */
+public class FileChecksumCache implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileChecksumCache.class);
+
+  private static final int MAGIC = 0x43544653;
+  private static final int FORMAT_VERSION = 1;
+
+  private static class Entry {
+    private final long length;
+    private final long modificationTime;
+    private final FileChecksum checksum;
+
+    private Entry(long length, long modificationTime, FileChecksum checksum) {
+      this.length = length;
+      this.modificationTime = modificationTime;
+      this.checksum = checksum;
+    }
+  }
+
+  /**
+   * A copy of a checksum that is written and read in the format of the cache file.
+   */
+  private static class CachedFileChecksum extends FileChecksum {
+    private String algorithmName;
+    private int length;
+    private byte[] bytes;
+
+    private CachedFileChecksum() {}
+
+    private CachedFileChecksum(String algorithmName, int length, byte[] bytes) {
+      this.algorithmName = algorithmName;
+      this.length = length;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+      return algorithmName;
+    }
+
+    @Override
+    public int getLength() {
+      return length;
+    }
+
+    @Override
+    public byte[] getBytes() {
+      return bytes.clone();
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      out.writeUTF(algorithmName);
+      out.writeInt(length);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+      algorithmName = in.readUTF();
+      length = in.readInt();
+      bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+    }
+  }
+
+  private final File file;
+  private final int maxEntries;
+  private final Map<String, Entry> entries;
+  private boolean dirty;
+
+  public FileChecksumCache(File file, final int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be greater than 0");
+    }
+    this.file = file;
+    this.maxEntries = maxEntries;
+    entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+    load();
+  }
+
+  private void load() {
+    if (!file.exists()) {
+      return;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        LOG.warn("Ignoring checksum cache {} written in an unknown format", file);
+        return;
+      }
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        String path = in.readUTF();
+        long length = in.readLong();
+        long modificationTime = in.readLong();
+        CachedFileChecksum checksum = new CachedFileChecksum();
+        checksum.readFields(in);
+        entries.put(path, new Entry(length, modificationTime, checksum));
+      }
+    } catch (EOFException e) {
+      LOG.warn("Ignoring truncated checksum cache {}", file);
+      entries.clear();
+      return;
+    } catch (IOException e) {
+      throw new CircusTrainException("Unable to read checksum cache " + file, e);
+    }
+    LOG.info("Loaded {} file checksums from checksum cache {}", entries.size(), file);
+  }
+
+  /**
+   * @return the cached checksum of the file, or {@code null} if it is not cached or the file has changed since.
+   */
+  public synchronized FileChecksum get(FileStatus fileStatus) {
+    String path = fileStatus.getPath().toString();
+    Entry entry = entries.get(path);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.length != fileStatus.getLen() || entry.modificationTime != fileStatus.getModificationTime()) {
+      entries.remove(path);
+      dirty = true;
+      return null;
+    }
+    return entry.checksum;
+  }
+
+  public synchronized void put(FileStatus fileStatus, FileChecksum checksum) {
+    if (checksum == null) {
+      return;
+    }
+    entries.put(fileStatus.getPath().toString(), new Entry(fileStatus.getLen(), fileStatus.getModificationTime(),
+        new CachedFileChecksum(checksum.getAlgorithmName(), checksum.getLength(), checksum.getBytes())));
+    dirty = true;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public synchronized void save() {
+    if (!dirty) {
+      return;
+    }
+    File temp = null;
+    try {
+      // A unique file in the same directory so that concurrent writers do not clash and the move stays atomic
+      temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(entries.size());
+        // Least recently used entries are written first so that the order is kept when the cache is loaded again
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeLong(entry.getValue().length);
+          out.writeLong(entry.getValue().modificationTime);
+          entry.getValue().checksum.write(out);
+        }
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      if (temp != null && !temp.delete()) {
+        LOG.warn("Unable to delete temporary checksum cache {}", temp);
+      }
+      throw new CircusTrainException("Unable to write checksum cache " + file, e);
+    }
+    dirty = false;
+    LOG.info("Saved {} file checksums to checksum cache {}", entries.size(), file);
+  }
+
+  @Override
+  public void close() {
+    save();
+  }
+
+}
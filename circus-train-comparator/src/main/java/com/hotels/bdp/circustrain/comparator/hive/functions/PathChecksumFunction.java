@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.comparator.hive.functions;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+
+import com.hotels.bdp.circustrain.comparator.hive.wrappers.PathMetadata;
+
+/**
+ * Checksums a location and everything below it. {@link #apply(Path)} uses {@link PathDigest#CURRENT_VERSION}, which is
+ * the version that should be stored alongside new checksums. Checksums stored with an older version can be recomputed
+ * with {@link #apply(Path, int)}, and {@link #checksums(Path, int...)} computes several versions from one listing of
+ * the location. {@link #saveChecksumCache()} and closing the function save its {@link FileChecksumCache}, if any.
+ */
+public class PathChecksumFunction implements Function<Path, String>, Closeable {
+
+  private final Function<Path, PathMetadata> pathToPathMetadata;
+  private final Optional<FileChecksumCache> checksumCache;
+  private final PathDigest currentDigest;
+  private final PathDigest serializedDigest;
+
+  public PathChecksumFunction(Configuration conf) {
+    this(conf, Optional.<FileChecksumCache> absent());
+  }
+
+  public PathChecksumFunction(Configuration conf, Optional<FileChecksumCache> checksumCache) {
+    this(new PathToPathMetadata(conf, PathToPathMetadata.DEFAULT_CHECKSUM_THREADS, checksumCache), null,
+        checksumCache);
+  }
+
+  public PathChecksumFunction(Function<Path, PathMetadata> pathToPathMetadata, String algorithm) {
+    this(pathToPathMetadata, algorithm, Optional.<FileChecksumCache> absent());
+  }
+
+  private PathChecksumFunction(
+      Function<Path, PathMetadata> pathToPathMetadata,
+      String algorithm,
+      Optional<FileChecksumCache> checksumCache) {
+    this.pathToPathMetadata = pathToPathMetadata;
+    this.checksumCache = checksumCache;
+    currentDigest = new PathDigest(algorithm, PathDigest.CURRENT_VERSION);
+    serializedDigest = new PathDigest(algorithm, PathDigest.SERIALIZED_VERSION);
+  }
+
+  /**
+   * Adapts a checksum function that does not record digest versions. Its checksums are taken to be
+   * {@link PathDigest#SERIALIZED_VERSION} checksums, the version of replicas written before versions were recorded, and
+   * checksums of any other version are not supported.
+   */
+  public static PathChecksumFunction serializedVersion(final Function<Path, String> checksumFunction) {
+    return new PathChecksumFunction((Function<Path, PathMetadata>) null, null) {
+      @Override
+      public int getVersion() {
+        return PathDigest.SERIALIZED_VERSION;
+      }
+
+      @Override
+      public String apply(Path location) {
+        return checksumFunction.apply(location);
+      }
+
+      @Override
+      public String apply(Path location, int version) {
+        return version == PathDigest.SERIALIZED_VERSION ? checksumFunction.apply(location) : null;
+      }
+
+      @Override
+      public List<String> checksums(Path location, int... versions) {
+        List<String> checksums = new ArrayList<>(versions.length);
+        for (int version : versions) {
+          checksums.add(apply(location, version));
+        }
+        return checksums;
+      }
+    };
+  }
+
+  public int getVersion() {
+    return currentDigest.getVersion();
+  }
+
+  @Override
+  public String apply(Path location) {
+    return currentDigest.apply(pathToPathMetadata.apply(location));
+  }
+
+  /**
+   * @return the checksum of {@code location} in the given digest version, or {@code null} if the version is not
+   *         supported.
+   */
+  public String apply(Path location, int version) {
+    if (version == currentDigest.getVersion()) {
+      return apply(location);
+    }
+    if (version == serializedDigest.getVersion()) {
+      return serializedDigest.apply(pathToPathMetadata.apply(location));
+    }
+    return null;
+  }
+
+  /**
+   * Lists {@code location} once and digests it in each of the given versions.
+   *
+   * @return the checksums of {@code location} in the order of {@code versions}, with {@code null} for versions that are
+   *         not supported.
+   */
+  public List<String> checksums(Path location, int... versions) {
+    PathMetadata metadata = pathToPathMetadata.apply(location);
+    List<String> checksums = new ArrayList<>(versions.length);
+    for (int version : versions) {
+      if (version == currentDigest.getVersion()) {
+        checksums.add(currentDigest.apply(metadata));
+      } else if (version == serializedDigest.getVersion()) {
+        checksums.add(serializedDigest.apply(metadata));
+      } else {
+        checksums.add(null);
+      }
+    }
+    return checksums;
+  }
+
+  public void saveChecksumCache() {
+    if (checksumCache.isPresent()) {
+      checksumCache.get().save();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (checksumCache.isPresent()) {
+      checksumCache.get().close();
+    }
+  }
+
+}
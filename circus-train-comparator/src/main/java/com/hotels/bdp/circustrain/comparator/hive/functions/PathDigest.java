@@ -18,6 +18,7 @@ package com.hotels.bdp.circustrain.comparator.hive.functions;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.zip.GZIPOutputStream;
@@ -30,32 +31,120 @@ import com.google.common.base.Strings;
 import com.hotels.bdp.circustrain.api.CircusTrainException;
 import com.hotels.bdp.circustrain.comparator.hive.wrappers.PathMetadata;
 
+/**
+ * Digests a {@link PathMetadata} tree. Version {@value #SERIALIZED_VERSION} digests the gzipped Java serialization of
+ * the tree and is kept so that checksums stored by earlier releases can still be compared. Version
+ * {@value #STREAMING_VERSION} walks the tree and feeds each location, modification time and checksum straight into a
+ * {@link MessageDigest} that is reused by each calling thread.
+ */
 public class PathDigest implements Function<PathMetadata, String> {
 
   public static final String DEFAULT_MESSAGE_DIGEST_ALGORITHM = "MD5";
+  public static final int SERIALIZED_VERSION = 1;
+  public static final int STREAMING_VERSION = 2;
+  public static final int CURRENT_VERSION = STREAMING_VERSION;
 
-  private final MessageDigest messageDigest;
+  private final String algorithm;
+  private final int version;
+  private final ThreadLocal<MessageDigest> messageDigest = new ThreadLocal<MessageDigest>() {
+    @Override
+    protected MessageDigest initialValue() {
+      return newMessageDigest(algorithm);
+    }
+  };
+  private final ThreadLocal<byte[]> buffer = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[Long.SIZE / Byte.SIZE];
+    }
+  };
 
   public PathDigest() {
     this(null);
   }
 
   public PathDigest(String algorithm) {
+    this(algorithm, CURRENT_VERSION);
+  }
+
+  public PathDigest(String algorithm, int version) {
+    if (!isSupportedVersion(version)) {
+      throw new CircusTrainException("Unsupported PathDigest version " + version);
+    }
     if (Strings.isNullOrEmpty(algorithm)) {
       algorithm = DEFAULT_MESSAGE_DIGEST_ALGORITHM;
     }
+    this.algorithm = algorithm;
+    this.version = version;
+    // Fail fast on unknown algorithms rather than on first use
+    messageDigest.set(newMessageDigest(algorithm));
+  }
 
-    try {
-      messageDigest = MessageDigest.getInstance(algorithm);
-    } catch (NoSuchAlgorithmException e) {
-      throw new CircusTrainException("Unable to find MessageDigest algorithm " + algorithm, e);
-    }
+  public static boolean isSupportedVersion(int version) {
+    return version == SERIALIZED_VERSION || version == STREAMING_VERSION;
+  }
+
+  public int getVersion() {
+    return version;
   }
 
   @Override
   public String apply(PathMetadata pathDescriptor) {
-    byte[] checksum = messageDigest.digest(serialize(pathDescriptor));
-    return Base64.encodeBase64String(checksum);
+    MessageDigest digest = messageDigest.get();
+    digest.reset();
+    if (version == SERIALIZED_VERSION) {
+      digest.update(serialize(pathDescriptor));
+    } else {
+      update(digest, buffer.get(), pathDescriptor);
+    }
+    return Base64.encodeBase64String(digest.digest());
+  }
+
+  private static void update(MessageDigest digest, byte[] buffer, PathMetadata pathDescriptor) {
+    update(digest, buffer, pathDescriptor.getLocation());
+    update(digest, buffer, pathDescriptor.getLastModifiedTimestamp());
+    update(digest, buffer, pathDescriptor.getChecksumAlgorithmName());
+    update(digest, buffer, pathDescriptor.getChecksumLength());
+    update(digest, buffer, pathDescriptor.getChecksumSize());
+    pathDescriptor.updateChecksum(digest);
+    update(digest, buffer, pathDescriptor.getChildrenMetadata().size());
+    for (PathMetadata child : pathDescriptor.getChildrenMetadata()) {
+      update(digest, buffer, child);
+    }
+  }
+
+  private static void update(MessageDigest digest, byte[] buffer, String value) {
+    if (value == null) {
+      update(digest, buffer, -1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    update(digest, buffer, bytes.length);
+    digest.update(bytes);
+  }
+
+  private static void update(MessageDigest digest, byte[] buffer, int value) {
+    for (int i = 3; i >= 0; i--) {
+      buffer[i] = (byte) value;
+      value >>>= Byte.SIZE;
+    }
+    digest.update(buffer, 0, 4);
+  }
+
+  private static void update(MessageDigest digest, byte[] buffer, long value) {
+    for (int i = 7; i >= 0; i--) {
+      buffer[i] = (byte) value;
+      value >>>= Byte.SIZE;
+    }
+    digest.update(buffer, 0, 8);
+  }
+
+  private static MessageDigest newMessageDigest(String algorithm) {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new CircusTrainException("Unable to find MessageDigest algorithm " + algorithm, e);
+    }
   }
 
   public static byte[] serialize(PathMetadata pathDescriptor) {
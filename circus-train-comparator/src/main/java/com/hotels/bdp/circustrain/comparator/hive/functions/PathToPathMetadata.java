@@ -18,6 +18,12 @@ package com.hotels.bdp.circustrain.comparator.hive.functions;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 
@@ -28,44 +34,147 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import com.hotels.bdp.circustrain.api.CircusTrainException;
 import com.hotels.bdp.circustrain.comparator.hive.wrappers.PathMetadata;
 
+/**
+ * Describes a location and everything below it. Directories are listed first, in the order the file system lists them,
+ * and the checksums of the files are then fetched concurrently using up to {@code checksumThreads} threads shared by
+ * all calls. The resulting tree is the same as when every path is visited in turn. If a {@link FileChecksumCache} is
+ * given, files whose length and modification time have not changed since they were cached are not checksummed again.
+ */
 public class PathToPathMetadata implements Function<Path, PathMetadata> {
 
+  public static final int DEFAULT_CHECKSUM_THREADS = 8;
+
+  private static class Entry {
+    private final Path location;
+    private final FileStatus fileStatus;
+    private final List<Entry> children = new ArrayList<>();
+    private Future<FileChecksum> checksum;
+
+    private Entry(Path location, FileStatus fileStatus) {
+      this.location = location;
+      this.fileStatus = fileStatus;
+    }
+  }
+
   private final Configuration conf;
+  private final ThreadPoolExecutor executor;
+  private final Optional<FileChecksumCache> checksumCache;
 
   public PathToPathMetadata(Configuration conf) {
+    this(conf, DEFAULT_CHECKSUM_THREADS);
+  }
+
+  public PathToPathMetadata(Configuration conf, int checksumThreads) {
+    this(conf, checksumThreads, Optional.<FileChecksumCache> absent());
+  }
+
+  public PathToPathMetadata(Configuration conf, int checksumThreads, Optional<FileChecksumCache> checksumCache) {
     this.conf = new Configuration(conf);
+    this.checksumCache = checksumCache;
+    if (checksumThreads > 1) {
+      executor = new ThreadPoolExecutor(checksumThreads, checksumThreads, 1, TimeUnit.MINUTES,
+          new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactoryBuilder().setNameFormat("path-checksum-%d").setDaemon(true).build());
+      executor.allowCoreThreadTimeOut(true);
+    } else {
+      executor = null;
+    }
   }
 
   @Override
   public PathMetadata apply(@Nonnull Path location) {
+    List<Entry> files = new ArrayList<>();
     try {
       FileSystem fs = location.getFileSystem(conf);
-      FileStatus fileStatus = fs.getFileStatus(location);
-      FileChecksum checksum = null;
-      if (fileStatus.isFile()) {
-        checksum = fs.getFileChecksum(location);
+      Entry root = list(fs, location, fs.getFileStatus(location), files);
+      fetchChecksums(fs, files);
+      return toPathMetadata(root);
+    } catch (IOException e) {
+      throw new CircusTrainException("Unable to compute digest for location " + location.toString(), e);
+    } catch (ExecutionException e) {
+      throw new CircusTrainException("Unable to compute digest for location " + location.toString(), e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CircusTrainException("Interrupted while computing digest for location " + location.toString(), e);
+    } finally {
+      for (Entry file : files) {
+        if (file.checksum != null) {
+          file.checksum.cancel(true);
+        }
       }
+    }
+  }
 
-      long modificationTime = 0;
-      List<PathMetadata> childPathDescriptors = new ArrayList<>();
+  private Entry list(FileSystem fs, Path location, FileStatus fileStatus, List<Entry> files) throws IOException {
+    Entry entry = new Entry(location, fileStatus);
+    if (fileStatus.isDirectory()) {
+      for (FileStatus childStatus : fs.listStatus(location)) {
+        entry.children.add(list(fs, childStatus.getPath(), childStatus, files));
+      }
+    } else if (fileStatus.isFile()) {
+      files.add(entry);
+    }
+    return entry;
+  }
 
-      if (fileStatus.isDirectory()) {
-        FileStatus[] childStatuses = fs.listStatus(location);
-        for (FileStatus childStatus : childStatuses) {
-          childPathDescriptors.add(apply(childStatus.getPath()));
-        }
+  private void fetchChecksums(final FileSystem fs, List<Entry> files) throws IOException {
+    List<Entry> uncached = new ArrayList<>(files.size());
+    for (Entry file : files) {
+      FileChecksum cached = checksumCache.isPresent() ? checksumCache.get().get(file.fileStatus) : null;
+      if (cached == null) {
+        uncached.add(file);
       } else {
-        modificationTime = fileStatus.getModificationTime();
+        file.checksum = Futures.immediateFuture(cached);
+      }
+    }
+    if (executor == null || uncached.size() <= 1) {
+      for (Entry file : uncached) {
+        file.checksum = Futures.immediateFuture(fetchChecksum(fs, file));
       }
+      return;
+    }
+    for (final Entry file : uncached) {
+      file.checksum = executor.submit(new Callable<FileChecksum>() {
+        @Override
+        public FileChecksum call() throws IOException {
+          return fetchChecksum(fs, file);
+        }
+      });
+    }
+  }
 
-      return new PathMetadata(location, modificationTime, checksum, childPathDescriptors);
-    } catch (IOException e) {
-      throw new CircusTrainException("Unable to compute digest for location " + location.toString(), e);
+  private FileChecksum fetchChecksum(FileSystem fs, Entry file) throws IOException {
+    FileChecksum checksum = fs.getFileChecksum(file.location);
+    if (checksumCache.isPresent()) {
+      checksumCache.get().put(file.fileStatus, checksum);
+    }
+    return checksum;
+  }
+
+  private PathMetadata toPathMetadata(Entry entry) throws ExecutionException, InterruptedException {
+    FileChecksum checksum = null;
+    if (entry.checksum != null) {
+      checksum = entry.checksum.get();
     }
+
+    long modificationTime = 0;
+    List<PathMetadata> childPathDescriptors = new ArrayList<>(entry.children.size());
+    if (entry.fileStatus.isDirectory()) {
+      for (Entry child : entry.children) {
+        childPathDescriptors.add(toPathMetadata(child));
+      }
+    } else {
+      modificationTime = entry.fileStatus.getModificationTime();
+    }
+
+    return new PathMetadata(entry.location, modificationTime, checksum, childPathDescriptors);
   }
 
 }
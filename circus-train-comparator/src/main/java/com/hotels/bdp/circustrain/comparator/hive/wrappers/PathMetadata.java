@@ -16,6 +16,7 @@
 package com.hotels.bdp.circustrain.comparator.hive.wrappers;
 
 import java.io.Serializable;
+import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.List;
 
@@ -79,6 +80,22 @@ public class PathMetadata implements Serializable {
     }
   }
 
+  /**
+   * @return the number of checksum bytes, or {@code -1} if there is no checksum.
+   */
+  public int getChecksumSize() {
+    return checksum == null ? -1 : checksum.length;
+  }
+
+  /**
+   * Feeds the checksum bytes, if any, into {@code digest} without copying them.
+   */
+  public void updateChecksum(MessageDigest digest) {
+    if (checksum != null) {
+      digest.update(checksum);
+    }
+  }
+
   public List<PathMetadata> getChildrenMetadata() {
     return childrenMetadata;
   }
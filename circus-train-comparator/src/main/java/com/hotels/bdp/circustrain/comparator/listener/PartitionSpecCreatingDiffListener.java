@@ -42,6 +42,7 @@ public class PartitionSpecCreatingDiffListener implements DiffListener {
   private static final String HIVE_STRING_TYPE = "string";
 
   private final Set<List<String>> partitionValues = new LinkedHashSet<>();
+  private final Set<String> partitionNames = new LinkedHashSet<>();
   private List<FieldSchema> partitionKeys;
 
   private final String hiveDefaultPartitionName;
@@ -63,24 +64,34 @@ public class PartitionSpecCreatingDiffListener implements DiffListener {
 
   @Override
   public void onNewPartition(String partitionName, Partition partition) {
-    addPartition(partition);
+    addPartition(partitionName, partition);
   }
 
   @Override
   public void onChangedPartition(String partitionName, Partition partition, List<Diff<Object, Object>> differences) {
-    addPartition(partition);
+    addPartition(partitionName, partition);
   }
 
   @Override
   public void onDataChanged(String partitionName, Partition partition) {
-    addPartition(partition);
+    addPartition(partitionName, partition);
   }
 
   @Override
   public void onDiffEnd() {}
 
-  private void addPartition(Partition partition) {
-    partitionValues.add(partition.getValues());
+  private void addPartition(String partitionName, Partition partition) {
+    if (partitionValues.add(partition.getValues()) && !partition.getValues().contains(hiveDefaultPartitionName)) {
+      partitionNames.add(partitionName);
+    }
+  }
+
+  /**
+   * @return the names of the detected partitions, in the order they were detected, without the partitions that cannot
+   *         be replicated
+   */
+  public List<String> getPartitionNames() {
+    return new ArrayList<>(partitionNames);
   }
 
   public String getPartitionSpecFilter() {
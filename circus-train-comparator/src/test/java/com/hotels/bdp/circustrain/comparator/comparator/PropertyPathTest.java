@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.comparator.comparator;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import static com.hotels.bdp.circustrain.comparator.TestUtils.COLS;
+import static com.hotels.bdp.circustrain.comparator.TestUtils.DATABASE;
+import static com.hotels.bdp.circustrain.comparator.TestUtils.INPUT_FORMAT;
+import static com.hotels.bdp.circustrain.comparator.TestUtils.TABLE;
+import static com.hotels.bdp.circustrain.comparator.TestUtils.newPartitionAndMetadata;
+
+import org.junit.Test;
+
+import com.hotels.bdp.circustrain.comparator.hive.wrappers.PartitionAndMetadata;
+
+public class PropertyPathTest {
+
+  private final PartitionAndMetadata partition = newPartitionAndMetadata(DATABASE, TABLE, "val");
+
+  @Test
+  public void nestedProperty() {
+    PropertyPath path = new PropertyPath("partition.sd.inputFormat");
+    assertThat(path.get(partition), is((Object) INPUT_FORMAT));
+    assertThat(path.get(newPartitionAndMetadata(DATABASE, TABLE, "other")), is((Object) INPUT_FORMAT));
+    assertThat(new PropertyPath("partition.sd.cols").get(partition), is((Object) COLS));
+  }
+
+  @Test
+  public void nullLeafProperty() {
+    partition.getPartition().getSd().setInputFormat(null);
+    assertThat(new PropertyPath("partition.sd.inputFormat").get(partition), is(nullValue()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nullIntermediateProperty() {
+    partition.getPartition().setSd(null);
+    new PropertyPath("partition.sd.inputFormat").get(partition);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownProperty() {
+    new PropertyPath("partition.unknown").get(partition);
+  }
+
+}
@@ -16,6 +16,7 @@
 package com.hotels.bdp.circustrain.comparator.hive;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.never;
@@ -54,7 +55,6 @@ import org.mockito.stubbing.Answer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
 
 import com.hotels.bdp.circustrain.api.CircusTrainTableParameter;
@@ -62,6 +62,8 @@ import com.hotels.bdp.circustrain.comparator.ComparatorRegistry;
 import com.hotels.bdp.circustrain.comparator.api.BaseDiff;
 import com.hotels.bdp.circustrain.comparator.api.Diff;
 import com.hotels.bdp.circustrain.comparator.api.DiffListener;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathDigest;
 import com.hotels.bdp.circustrain.hive.fetcher.BufferedPartitionFetcher;
 import com.hotels.beeju.ThriftHiveMetaStoreJUnitRule;
 import com.hotels.hcommon.hive.metastore.iterator.PartitionIterator;
@@ -86,7 +88,7 @@ public class HiveDifferencesIntegrationTest {
   public @Rule ThriftHiveMetaStoreJUnitRule catalog = new ThriftHiveMetaStoreJUnitRule(DATABASE);
 
   private @Mock DiffListener diffListener;
-  private @Mock Function<Path, String> checksumFunction;
+  private @Mock PathChecksumFunction checksumFunction;
 
   private File sourceWarehouseUri;
   private File sourceTableUri;
@@ -98,7 +100,8 @@ public class HiveDifferencesIntegrationTest {
   @Before
   public void init() throws Exception {
     // We mock the checksum function because LocalFileSystem doesn't compute checksums
-    when(checksumFunction.apply(any(Path.class))).thenAnswer(new Answer<String>() {
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.SERIALIZED_VERSION);
+    when(checksumFunction.apply(any(Path.class), anyInt())).thenAnswer(new Answer<String>() {
       @Override
       public String answer(InvocationOnMock invocation) throws Throwable {
         Path path = (Path) invocation.getArguments()[0];
@@ -294,7 +297,8 @@ public class HiveDifferencesIntegrationTest {
 
     // changed data
     reset(checksumFunction);
-    when(checksumFunction.apply(any(Path.class))).thenAnswer(new Answer<String>() {
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.SERIALIZED_VERSION);
+    when(checksumFunction.apply(any(Path.class), anyInt())).thenAnswer(new Answer<String>() {
       @Override
       public String answer(InvocationOnMock invocation) throws Throwable {
         Path path = (Path) invocation.getArguments()[0];
@@ -346,7 +350,8 @@ public class HiveDifferencesIntegrationTest {
 
     // changed data
     reset(checksumFunction);
-    when(checksumFunction.apply(any(Path.class))).thenAnswer(new Answer<String>() {
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.SERIALIZED_VERSION);
+    when(checksumFunction.apply(any(Path.class), anyInt())).thenAnswer(new Answer<String>() {
       @Override
       public String answer(InvocationOnMock invocation) throws Throwable {
         Path path = (Path) invocation.getArguments()[0];
@@ -491,7 +496,8 @@ public class HiveDifferencesIntegrationTest {
   @Test
   public void partitionDataHaveChanged() throws Exception {
     reset(checksumFunction);
-    when(checksumFunction.apply(any(Path.class))).thenAnswer(new Answer<String>() {
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.SERIALIZED_VERSION);
+    when(checksumFunction.apply(any(Path.class), anyInt())).thenAnswer(new Answer<String>() {
       @Override
       public String answer(InvocationOnMock invocation) throws Throwable {
         Path path = (Path) invocation.getArguments()[0];
@@ -18,6 +18,7 @@ package com.hotels.bdp.circustrain.comparator.hive;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
@@ -48,6 +49,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.collect.Ordering;
 
 import com.hotels.bdp.circustrain.api.CircusTrainTableParameter;
 import com.hotels.bdp.circustrain.comparator.ComparatorRegistry;
@@ -56,6 +58,8 @@ import com.hotels.bdp.circustrain.comparator.api.BaseDiff;
 import com.hotels.bdp.circustrain.comparator.api.Comparator;
 import com.hotels.bdp.circustrain.comparator.api.Diff;
 import com.hotels.bdp.circustrain.comparator.api.DiffListener;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathDigest;
 import com.hotels.bdp.circustrain.comparator.hive.wrappers.PartitionAndMetadata;
 import com.hotels.bdp.circustrain.comparator.hive.wrappers.TableAndMetadata;
 import com.hotels.bdp.circustrain.hive.fetcher.PartitionFetcher;
@@ -86,7 +90,7 @@ public class HiveDifferencesTest {
 
   private @Mock Comparator<TableAndMetadata, Object> tableAndMetadataComparator;
   private @Mock Comparator<PartitionAndMetadata, Object> partitionAndMetadataComparator;
-  private @Mock Function<Path, String> checksumFunction;
+  private @Mock PathChecksumFunction checksumFunction;
 
   private HiveDifferences hiveDifferences;
 
@@ -136,9 +140,13 @@ public class HiveDifferencesTest {
     replicaTable.getParameters().put(CircusTrainTableParameter.SOURCE_LOCATION.parameterName(), SOURCE_TABLE);
     replica01 = newPartition(DATABASE, REPLICA_TABLE, REPLICA_PARTITION_LOCATION);
     replica01.getParameters().put(CircusTrainTableParameter.PARTITION_CHECKSUM.parameterName(), "checksum");
+    replica01.getParameters().put(CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION.parameterName(),
+        String.valueOf(PathDigest.CURRENT_VERSION));
     when(replicaPartitionFetcher.fetch("a=01")).thenReturn(replica01);
 
-    when(checksumFunction.apply(new Path(SOURCE_PARTITION_LOCATION))).thenReturn("checksum");
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.CURRENT_VERSION);
+    when(checksumFunction.apply(new Path(SOURCE_PARTITION_LOCATION), PathDigest.CURRENT_VERSION))
+        .thenReturn("checksum");
 
     when(tableAndMetadataComparator.compare(any(TableAndMetadata.class), any(TableAndMetadata.class)))
         .thenReturn(Collections.<Diff<Object, Object>> emptyList());
@@ -218,7 +226,9 @@ public class HiveDifferencesTest {
   @Test
   public void partitionDataHaveChanged() {
     reset(checksumFunction);
-    when(checksumFunction.apply(new Path(SOURCE_PARTITION_LOCATION))).thenReturn("new checksum");
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.CURRENT_VERSION);
+    when(checksumFunction.apply(new Path(SOURCE_PARTITION_LOCATION), PathDigest.CURRENT_VERSION))
+        .thenReturn("new checksum");
 
     hiveDifferences.run();
     InOrder inOrder = inOrder(diffListener);
@@ -230,6 +240,96 @@ public class HiveDifferencesTest {
     inOrder.verify(diffListener).onDiffEnd();
   }
 
+  @Test
+  public void legacyReplicaChecksumIsComparedWithSerializedDigest() {
+    replica01.getParameters().remove(CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION.parameterName());
+    when(checksumFunction
+        .checksums(new Path(SOURCE_PARTITION_LOCATION), PathDigest.SERIALIZED_VERSION, PathDigest.CURRENT_VERSION))
+            .thenReturn(Arrays.asList("checksum", "current checksum"));
+
+    hiveDifferences.run();
+    verify(diffListener, never()).onDataChanged(anyString(), any(Partition.class));
+    verify(checksumFunction, never()).apply(any(Path.class), anyInt());
+  }
+
+  @Test
+  public void matchingLegacyReplicaChecksumIsUpgraded() {
+    replica01.getParameters().remove(CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION.parameterName());
+    when(checksumFunction
+        .checksums(new Path(SOURCE_PARTITION_LOCATION), PathDigest.SERIALIZED_VERSION, PathDigest.CURRENT_VERSION))
+            .thenReturn(Arrays.asList("checksum", "current checksum"));
+
+    hiveDifferences.run();
+    verify(diffListener, never()).onDataChanged(anyString(), any(Partition.class));
+    verify(diffListener).onChecksumUpgrade("a=01", replica01, "current checksum");
+    verify(checksumFunction, never()).apply(any(Path.class));
+  }
+
+  @Test
+  public void currentReplicaChecksumIsNotUpgraded() {
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.CURRENT_VERSION);
+
+    hiveDifferences.run();
+    verify(diffListener, never()).onDataChanged(anyString(), any(Partition.class));
+    verify(diffListener, never()).onChecksumUpgrade(anyString(), any(Partition.class), anyString());
+  }
+
+  @Test
+  public void unversionedChecksumFunctionIsComparedWithLegacyReplicaChecksums() {
+    Function<Path, String> legacyChecksumFunction = new Function<Path, String>() {
+      @Override
+      public String apply(Path location) {
+        return "checksum";
+      }
+    };
+    replica01.getParameters().remove(CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION.parameterName());
+
+    HiveDifferences
+        .builder(diffListener)
+        .comparatorRegistry(comparatorRegistry)
+        .source(sourceConfiguration, sourceTable, sourcePartitionIterable)
+        .replica(Optional.of(replicaTable), Optional.of(replicaPartitionFetcher))
+        .checksumFunction(legacyChecksumFunction)
+        .build()
+        .run();
+    verify(diffListener, never()).onDataChanged(anyString(), any(Partition.class));
+    verify(diffListener, never()).onChecksumUpgrade(anyString(), any(Partition.class), anyString());
+  }
+
+  @Test
+  public void currentSourceChecksumIsReportedWhenDataChanged() {
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.CURRENT_VERSION);
+    when(checksumFunction.apply(new Path(SOURCE_PARTITION_LOCATION), PathDigest.CURRENT_VERSION))
+        .thenReturn("new checksum");
+
+    hiveDifferences.run();
+    InOrder inOrder = inOrder(diffListener);
+    inOrder.verify(diffListener).onSourceChecksum("a=01", source01, "new checksum");
+    inOrder.verify(diffListener).onDataChanged("a=01", source01);
+  }
+
+  @Test
+  public void currentSourceChecksumIsReportedWhenLegacyReplicaDataChanged() {
+    replica01.getParameters().remove(CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION.parameterName());
+    when(checksumFunction
+        .checksums(new Path(SOURCE_PARTITION_LOCATION), PathDigest.SERIALIZED_VERSION, PathDigest.CURRENT_VERSION))
+            .thenReturn(Arrays.asList("new checksum", "current checksum"));
+
+    hiveDifferences.run();
+    InOrder inOrder = inOrder(diffListener);
+    inOrder.verify(diffListener).onSourceChecksum("a=01", source01, "current checksum");
+    inOrder.verify(diffListener).onDataChanged("a=01", source01);
+    verify(diffListener, never()).onChecksumUpgrade(anyString(), any(Partition.class), anyString());
+  }
+
+  @Test
+  public void unsupportedReplicaChecksumVersion() {
+    replica01.getParameters().put(CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION.parameterName(), "99");
+
+    hiveDifferences.run();
+    verify(diffListener, times(1)).onDataChanged("a=01", source01);
+  }
+
   @Test
   public void sourceTableToTableAndMetadata() {
     Table sourceTable = TestUtils.newTable("sourceDB", "sourceTable");
@@ -276,6 +376,57 @@ public class HiveDifferencesTest {
     assertThat(replicaPartitionAndMetadata.getPartition().getTableName(), is("replicaTable"));
   }
 
+  @Test
+  public void mergeJoinReplicaPartitions() {
+    Partition source02 = newPartition(DATABASE, SOURCE_TABLE, SOURCE_TABLE_LOCATION + "/a=02/");
+    source02.setValues(Arrays.asList("02"));
+    Partition source03 = newPartition(DATABASE, SOURCE_TABLE, SOURCE_TABLE_LOCATION + "/a=03/");
+    source03.setValues(Arrays.asList("03"));
+    Partition replica00 = newPartition(DATABASE, REPLICA_TABLE, REPLICA_TABLE_LOCATION + "/a=00/");
+    replica00.setValues(Arrays.asList("00"));
+    Partition replica02 = newPartition(DATABASE, REPLICA_TABLE, REPLICA_TABLE_LOCATION + "/a=02/");
+    replica02.setValues(Arrays.asList("02"));
+    replica02.getParameters().put(CircusTrainTableParameter.PARTITION_CHECKSUM.parameterName(), "checksum");
+    replica02.getParameters().put(CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION.parameterName(),
+        String.valueOf(PathDigest.CURRENT_VERSION));
+    when(checksumFunction.apply(new Path(SOURCE_TABLE_LOCATION + "/a=02/"), PathDigest.CURRENT_VERSION))
+        .thenReturn("checksum");
+
+    hiveDifferences = HiveDifferences
+        .builder(diffListener)
+        .comparatorRegistry(comparatorRegistry)
+        .source(sourceConfiguration, sourceTable, Arrays.asList(source01, source02, source03).iterator())
+        .replica(Optional.of(replicaTable), Arrays.asList(replica00, replica02).iterator(),
+            Ordering.<String> natural())
+        .checksumFunction(checksumFunction)
+        .build();
+    hiveDifferences.run();
+
+    InOrder inOrder = inOrder(diffListener);
+    inOrder.verify(diffListener).onDiffStart(any(TableAndMetadata.class), any(Optional.class));
+    inOrder.verify(diffListener).onNewPartition("a=01", source01);
+    inOrder.verify(diffListener).onNewPartition("a=03", source03);
+    verify(diffListener, never()).onChangedPartition(anyString(), any(Partition.class), anyList());
+    verify(diffListener, never()).onDataChanged(anyString(), any(Partition.class));
+    inOrder.verify(diffListener).onDiffEnd();
+    verify(replicaPartitionFetcher, never()).fetch(anyString());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void mergeJoinRequiresOrderedSourcePartitions() {
+    Partition source00 = newPartition(DATABASE, SOURCE_TABLE, SOURCE_TABLE_LOCATION + "/a=00/");
+    source00.setValues(Arrays.asList("00"));
+
+    HiveDifferences
+        .builder(diffListener)
+        .comparatorRegistry(comparatorRegistry)
+        .source(sourceConfiguration, sourceTable, Arrays.asList(source01, source00).iterator())
+        .replica(Optional.of(replicaTable), Arrays.asList(replica01).iterator(), Ordering.<String> natural())
+        .checksumFunction(checksumFunction)
+        .build()
+        .run();
+  }
+
   @Test(expected = IllegalStateException.class)
   public void requiredPartitionFetcher() {
     HiveDifferences
@@ -81,4 +81,14 @@ public class CleanPartitionFunctionTest {
     assertThat(partitionCopy.getPartition().getParameters().get("com.company.parameter"), is("abc"));
   }
 
+  @Test
+  public void sourceIsNotModified() {
+    PartitionAndMetadata partition = newPartitionAndMetadata(DATABASE, TABLE, "val");
+    partition.getPartition().getParameters().put(CircusTrainTableParameter.SOURCE_TABLE.parameterName(), "table");
+    PartitionAndMetadata partitionCopy = function.apply(partition);
+
+    assertThat(partitionCopy.getPartition().getParameters().size(), is(1));
+    assertThat(partition.getPartition().getParameters().size(), is(2));
+  }
+
 }
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.comparator.hive.functions;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.MD5MD5CRC32GzipFileChecksum;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.MD5Hash;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileChecksumCacheTest {
+
+  private static final long LENGTH = 100L;
+  private static final long MODIFICATION_TIME = 123456789L;
+
+  public @Rule TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final FileChecksum checksum = new MD5MD5CRC32GzipFileChecksum(512, 1, MD5Hash.digest("data"));
+  private File file;
+
+  @Before
+  public void init() {
+    file = new File(temporaryFolder.getRoot(), "checksums");
+  }
+
+  private static FileStatus fileStatus(String path, long length, long modificationTime) {
+    return new FileStatus(length, false, 1, 128L, modificationTime, new Path(path));
+  }
+
+  private static void assertSameChecksum(FileChecksum actual, FileChecksum expected) {
+    assertThat(actual.getAlgorithmName(), is(expected.getAlgorithmName()));
+    assertThat(actual.getLength(), is(expected.getLength()));
+    assertThat(actual.getBytes(), is(expected.getBytes()));
+  }
+
+  @Test
+  public void emptyWhenFileDoesNotExist() {
+    FileChecksumCache cache = new FileChecksumCache(file, 10);
+    assertThat(cache.get(fileStatus("file:/a", LENGTH, MODIFICATION_TIME)), is(nullValue()));
+    cache.close();
+    assertThat(file.exists(), is(false));
+  }
+
+  @Test
+  public void entriesSurviveRestart() {
+    FileChecksumCache cache = new FileChecksumCache(file, 10);
+    cache.put(fileStatus("file:/a", LENGTH, MODIFICATION_TIME), checksum);
+    cache.close();
+
+    FileChecksumCache restarted = new FileChecksumCache(file, 10);
+    assertThat(restarted.size(), is(1));
+    assertSameChecksum(restarted.get(fileStatus("file:/a", LENGTH, MODIFICATION_TIME)), checksum);
+  }
+
+  @Test
+  public void changedFileIsNotReturned() {
+    FileChecksumCache cache = new FileChecksumCache(file, 10);
+    cache.put(fileStatus("file:/a", LENGTH, MODIFICATION_TIME), checksum);
+    cache.put(fileStatus("file:/b", LENGTH, MODIFICATION_TIME), checksum);
+
+    assertThat(cache.get(fileStatus("file:/a", LENGTH, MODIFICATION_TIME + 1)), is(nullValue()));
+    assertThat(cache.get(fileStatus("file:/b", LENGTH + 1, MODIFICATION_TIME)), is(nullValue()));
+    assertThat(cache.size(), is(0));
+  }
+
+  @Test
+  public void leastRecentlyUsedEntryIsEvicted() {
+    FileChecksumCache cache = new FileChecksumCache(file, 2);
+    cache.put(fileStatus("file:/a", LENGTH, MODIFICATION_TIME), checksum);
+    cache.put(fileStatus("file:/b", LENGTH, MODIFICATION_TIME), checksum);
+    cache.get(fileStatus("file:/a", LENGTH, MODIFICATION_TIME));
+    cache.put(fileStatus("file:/c", LENGTH, MODIFICATION_TIME), checksum);
+    cache.close();
+
+    FileChecksumCache restarted = new FileChecksumCache(file, 2);
+    assertThat(restarted.size(), is(2));
+    assertThat(restarted.get(fileStatus("file:/b", LENGTH, MODIFICATION_TIME)), is(nullValue()));
+    assertSameChecksum(restarted.get(fileStatus("file:/a", LENGTH, MODIFICATION_TIME)), checksum);
+    assertSameChecksum(restarted.get(fileStatus("file:/c", LENGTH, MODIFICATION_TIME)), checksum);
+  }
+
+  @Test
+  public void saveReplacesFileWithoutLeavingTemporaryFiles() {
+    FileChecksumCache cache = new FileChecksumCache(file, 10);
+    cache.put(fileStatus("file:/a", LENGTH, MODIFICATION_TIME), checksum);
+    cache.save();
+    cache.put(fileStatus("file:/b", LENGTH, MODIFICATION_TIME), checksum);
+    cache.save();
+
+    assertThat(temporaryFolder.getRoot().list(), is(new String[] { file.getName() }));
+    assertThat(new FileChecksumCache(file, 10).size(), is(2));
+  }
+
+  @Test
+  public void cachedChecksumIsWritable() throws Exception {
+    FileChecksum other = new MD5MD5CRC32GzipFileChecksum(1024, 2, MD5Hash.digest("other"));
+    FileChecksumCache cache = new FileChecksumCache(file, 10);
+    cache.put(fileStatus("file:/a", LENGTH, MODIFICATION_TIME), checksum);
+    cache.put(fileStatus("file:/b", LENGTH, MODIFICATION_TIME), other);
+    FileChecksum cached = cache.get(fileStatus("file:/a", LENGTH, MODIFICATION_TIME));
+    FileChecksum target = cache.get(fileStatus("file:/b", LENGTH, MODIFICATION_TIME));
+
+    DataOutputBuffer out = new DataOutputBuffer();
+    cached.write(out);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    target.readFields(in);
+
+    assertSameChecksum(target, checksum);
+  }
+
+  @Test
+  public void truncatedFileIsIgnored() throws Exception {
+    FileChecksumCache cache = new FileChecksumCache(file, 10);
+    cache.put(fileStatus("file:/a", LENGTH, MODIFICATION_TIME), checksum);
+    cache.close();
+    byte[] content = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(content, content.length - 1));
+
+    assertThat(new FileChecksumCache(file, 10).size(), is(0));
+  }
+
+  @Test
+  public void unknownFormatIsIgnored() throws Exception {
+    Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+
+    assertThat(new FileChecksumCache(file, 10).size(), is(0));
+  }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.comparator.hive.functions;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+
+import com.hotels.bdp.circustrain.comparator.hive.wrappers.PathMetadata;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PathChecksumFunctionTest {
+
+  private static final long LAST_MODIFIED = 123456789L;
+
+  private final Path location = new Path("file:/abc");
+  private @Mock Function<Path, PathMetadata> pathToPathMetadata;
+
+  private PathMetadata pathMetadata;
+  private PathChecksumFunction function;
+
+  @Before
+  public void init() {
+    pathMetadata = new PathMetadata(location, LAST_MODIFIED, null, ImmutableList.<PathMetadata> of());
+    when(pathToPathMetadata.apply(location)).thenReturn(pathMetadata);
+    function = new PathChecksumFunction(pathToPathMetadata, null);
+  }
+
+  @Test
+  public void currentVersion() {
+    assertThat(function.getVersion(), is(PathDigest.CURRENT_VERSION));
+    assertThat(function.apply(location), is(new PathDigest().apply(pathMetadata)));
+    assertThat(function.apply(location, PathDigest.CURRENT_VERSION), is(function.apply(location)));
+  }
+
+  @Test
+  public void serializedVersion() {
+    assertThat(function.apply(location, PathDigest.SERIALIZED_VERSION),
+        is(new PathDigest(null, PathDigest.SERIALIZED_VERSION).apply(pathMetadata)));
+  }
+
+  @Test
+  public void unsupportedVersion() {
+    assertThat(function.apply(location, 99), is(nullValue()));
+  }
+
+  @Test
+  public void checksumsOfSeveralVersionsListTheLocationOnce() {
+    assertThat(function.checksums(location, PathDigest.SERIALIZED_VERSION, PathDigest.CURRENT_VERSION, 99),
+        is(Arrays.asList(new PathDigest(null, PathDigest.SERIALIZED_VERSION).apply(pathMetadata),
+            new PathDigest().apply(pathMetadata), null)));
+    verify(pathToPathMetadata, times(1)).apply(location);
+  }
+
+}
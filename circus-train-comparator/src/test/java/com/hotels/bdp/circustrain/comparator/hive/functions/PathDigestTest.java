@@ -16,6 +16,7 @@
 package com.hotels.bdp.circustrain.comparator.hive.functions;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 
@@ -73,4 +74,45 @@ public class PathDigestTest {
     new PathDigest("ABCBCBC");
   }
 
+  @Test(expected = CircusTrainException.class)
+  public void unknownVersion() throws Exception {
+    new PathDigest(MD5, 99);
+  }
+
+  @Test
+  public void streamingDigestIsStable() throws Exception {
+    when(path.toUri()).thenReturn(new URI(FILE_LOCATION));
+    when(checksum.getAlgorithmName()).thenReturn(MD5);
+    when(checksum.getLength()).thenReturn(2);
+    when(checksum.getBytes()).thenReturn(new byte[] { 1, 2 });
+
+    PathMetadata pathDescriptor = new PathMetadata(path, LAST_MODIFIED, checksum, ImmutableList.<PathMetadata> of());
+    String base64Digest = function.apply(pathDescriptor);
+    assertThat(function.getVersion(), is(PathDigest.STREAMING_VERSION));
+    assertThat(function.apply(pathDescriptor), is(base64Digest));
+    assertThat(new PathDigest(MD5, PathDigest.STREAMING_VERSION).apply(pathDescriptor), is(base64Digest));
+    assertThat(new PathDigest(MD5, PathDigest.SERIALIZED_VERSION).apply(pathDescriptor), is(not(base64Digest)));
+  }
+
+  @Test
+  public void streamingDigestCoversTree() throws Exception {
+    when(path.toUri()).thenReturn(new URI(FILE_LOCATION));
+    when(checksum.getAlgorithmName()).thenReturn(MD5);
+    when(checksum.getLength()).thenReturn(1);
+    when(checksum.getBytes()).thenReturn(new byte[] { 1 }, new byte[] { 2 });
+
+    PathMetadata child = new PathMetadata(path, LAST_MODIFIED, checksum, ImmutableList.<PathMetadata> of());
+    PathMetadata changedChild = new PathMetadata(path, LAST_MODIFIED, checksum, ImmutableList.<PathMetadata> of());
+    PathMetadata emptyChild = new PathMetadata(path, LAST_MODIFIED, null, ImmutableList.<PathMetadata> of());
+
+    String digest = function.apply(new PathMetadata(path, LAST_MODIFIED, null, ImmutableList.of(child)));
+    assertThat(function.apply(new PathMetadata(path, LAST_MODIFIED, null, ImmutableList.of(changedChild))),
+        is(not(digest)));
+    assertThat(function.apply(new PathMetadata(path, LAST_MODIFIED, null, ImmutableList.of(emptyChild))),
+        is(not(digest)));
+    assertThat(function.apply(new PathMetadata(path, LAST_MODIFIED + 1, null, ImmutableList.of(child))),
+        is(not(digest)));
+    assertThat(function.apply(new PathMetadata(path, LAST_MODIFIED, null, ImmutableList.of(child))), is(digest));
+  }
+
 }
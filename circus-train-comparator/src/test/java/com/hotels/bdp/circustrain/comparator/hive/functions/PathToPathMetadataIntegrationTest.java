@@ -84,6 +84,20 @@ public class PathToPathMetadataIntegrationTest {
     }
   }
 
+  @Test
+  public void concurrentChecksumsDescribeSameTree() throws Exception {
+    new File(baseDir, "empty").mkdir();
+    File subDir = new File(baseDir, "sub");
+    subDir.mkdir();
+    Files.asCharSink(new File(subDir, "part-m00000"), StandardCharsets.UTF_8).writeLines(Arrays.asList("sub data"));
+    Path path = new Path(baseDir.toURI());
+
+    PathDigest digest = new PathDigest();
+    String sequential = digest.apply(new PathToPathMetadata(new Configuration(), 1).apply(path));
+
+    assertThat(digest.apply(function.apply(path)), is(sequential));
+  }
+
   private PathMetadata getChildMetadata(List<PathMetadata> childrenMetadata, File dataFile) {
     String dataFileLocation = dataFile.getAbsolutePath().toString();
     for (PathMetadata childMetadata : childrenMetadata) {
@@ -38,6 +38,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.base.Optional;
+
 import com.hotels.bdp.circustrain.comparator.hive.wrappers.PathMetadata;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -91,6 +93,34 @@ public class PathToPathMetadataTest {
     verify(fs, never()).listStatus(any(Path.class));
   }
 
+  @Test
+  public void cachedChecksumIsNotFetched() throws Exception {
+    when(fileStatus.isFile()).thenReturn(true);
+    when(fileStatus.isDirectory()).thenReturn(false);
+    FileChecksumCache checksumCache = mock(FileChecksumCache.class);
+    when(checksumCache.get(fileStatus)).thenReturn(fileChecksum);
+    function = new PathToPathMetadata(new Configuration(), 1, Optional.of(checksumCache));
+
+    PathMetadata metadata = function.apply(path);
+
+    assertThat(metadata.getChecksum(), is(CHECKSUM_BYTES));
+    verify(fs, never()).getFileChecksum(any(Path.class));
+  }
+
+  @Test
+  public void fetchedChecksumIsCached() throws Exception {
+    when(fileStatus.isFile()).thenReturn(true);
+    when(fileStatus.isDirectory()).thenReturn(false);
+    when(fs.getFileChecksum(path)).thenReturn(fileChecksum);
+    FileChecksumCache checksumCache = mock(FileChecksumCache.class);
+    function = new PathToPathMetadata(new Configuration(), 1, Optional.of(checksumCache));
+
+    PathMetadata metadata = function.apply(path);
+
+    assertThat(metadata.getChecksum(), is(CHECKSUM_BYTES));
+    verify(checksumCache).put(fileStatus, fileChecksum);
+  }
+
   @Test
   public void directory() throws Exception {
     when(fileStatus.isFile()).thenReturn(false);
@@ -133,4 +163,36 @@ public class PathToPathMetadataTest {
     verify(fs, times(1)).getFileChecksum(childPath);
   }
 
+  @Test
+  public void childrenKeepListingOrderWithConcurrentChecksums() throws Exception {
+    when(fileStatus.isFile()).thenReturn(false);
+    when(fileStatus.isDirectory()).thenReturn(true);
+
+    int children = 20;
+    FileStatus[] childStatuses = new FileStatus[children];
+    for (int i = 0; i < children; i++) {
+      Path childPath = new Path(DIR_PATH, "child" + i);
+      FileStatus childStatus = mock(FileStatus.class);
+      when(childStatus.getPath()).thenReturn(childPath);
+      when(childStatus.getModificationTime()).thenReturn((long) i);
+      when(childStatus.isFile()).thenReturn(true);
+      FileChecksum childChecksum = mock(FileChecksum.class);
+      when(childChecksum.getBytes()).thenReturn(new byte[] { (byte) i });
+      when(fs.getFileChecksum(childPath)).thenReturn(childChecksum);
+      childStatuses[i] = childStatus;
+    }
+    when(fs.listStatus(path)).thenReturn(childStatuses);
+
+    PathMetadata metadata = new PathToPathMetadata(new Configuration(), 4).apply(path);
+
+    assertThat(metadata.getChildrenMetadata().size(), is(children));
+    for (int i = 0; i < children; i++) {
+      PathMetadata childMetadata = metadata.getChildrenMetadata().get(i);
+      assertThat(childMetadata.getLocation(), is(DIR_PATH + "/child" + i));
+      assertThat(childMetadata.getLastModifiedTimestamp(), is((long) i));
+      assertThat(childMetadata.getChecksum(), is(new byte[] { (byte) i }));
+    }
+    verify(fs, never()).getFileStatus(new Path(DIR_PATH, "child0"));
+  }
+
 }
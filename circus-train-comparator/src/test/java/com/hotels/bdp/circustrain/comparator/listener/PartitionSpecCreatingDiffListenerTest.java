@@ -130,6 +130,7 @@ public class PartitionSpecCreatingDiffListenerTest {
 
     assertThat(listener.getPartitionSpecFilter(),
         is("(p1='val1' AND p2=val2) OR (p1='val11' AND p2=val22) OR (p1='val111' AND p2=val222)"));
+    assertThat(listener.getPartitionNames(), is((List<String>) Lists.newArrayList("p1", "p2", "p3")));
   }
 
   @Test
@@ -141,6 +142,7 @@ public class PartitionSpecCreatingDiffListenerTest {
     listener.onNewPartition("p1", partition1);
 
     assertThat(listener.getPartitionSpecFilter(), is(""));
+    assertThat(listener.getPartitionNames().isEmpty(), is(true));
   }
 
 }
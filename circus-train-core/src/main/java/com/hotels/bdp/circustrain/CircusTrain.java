@@ -15,10 +15,10 @@
  */
 package com.hotels.bdp.circustrain;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.List;
 
-import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,20 +29,23 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.validation.BindException;
 import org.springframework.validation.ObjectError;
 
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.base.Function;
-import com.google.common.base.Functions;
 import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
 import com.google.common.base.Supplier;
 
 import com.hotels.bdp.circustrain.api.Modules;
+import com.hotels.bdp.circustrain.api.conf.ReplicationOrder;
 import com.hotels.bdp.circustrain.api.copier.CopierFactoryManager;
 import com.hotels.bdp.circustrain.api.copier.CopierOptions;
 import com.hotels.bdp.circustrain.api.event.CopierListener;
@@ -57,18 +60,27 @@ import com.hotels.bdp.circustrain.api.metadata.TableTransformation;
 import com.hotels.bdp.circustrain.api.metrics.LoggingScheduledReporterFactory;
 import com.hotels.bdp.circustrain.api.metrics.MetricSender;
 import com.hotels.bdp.circustrain.api.metrics.ScheduledReporterFactory;
-import com.hotels.bdp.circustrain.comparator.hive.functions.PathDigest;
-import com.hotels.bdp.circustrain.comparator.hive.functions.PathToPathMetadata;
+import com.hotels.bdp.circustrain.comparator.hive.functions.FileChecksumCache;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
 import com.hotels.bdp.circustrain.core.PartitionPredicateFactory;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
+import com.hotels.bdp.circustrain.core.ReplicationDaemon;
 import com.hotels.bdp.circustrain.core.ReplicationFactory;
 import com.hotels.bdp.circustrain.core.ReplicationFactoryImpl;
+import com.hotels.bdp.circustrain.core.ReplicationPipeline;
+import com.hotels.bdp.circustrain.core.ReplicationPlanRunner;
+import com.hotels.bdp.circustrain.core.ReplicationPlanner;
 import com.hotels.bdp.circustrain.core.StrategyBasedReplicationFactory;
+import com.hotels.bdp.circustrain.core.TableReplicationOrdering;
+import com.hotels.bdp.circustrain.core.TableSizeEstimator;
 import com.hotels.bdp.circustrain.core.conf.SpringExpressionParser;
 import com.hotels.bdp.circustrain.core.event.CompositeCopierListener;
 import com.hotels.bdp.circustrain.core.event.CompositeLocomotiveListener;
 import com.hotels.bdp.circustrain.core.event.CompositeReplicaCatalogListener;
 import com.hotels.bdp.circustrain.core.event.CompositeSourceCatalogListener;
 import com.hotels.bdp.circustrain.core.event.CompositeTableReplicationListener;
+import com.hotels.bdp.circustrain.core.journal.FileReplicationJournal;
+import com.hotels.bdp.circustrain.core.journal.ReplicationJournal;
 import com.hotels.bdp.circustrain.core.replica.ReplicaFactory;
 import com.hotels.bdp.circustrain.core.source.SourceFactory;
 import com.hotels.bdp.circustrain.core.transformation.CompositePartitionTransformation;
@@ -101,20 +113,24 @@ public class CircusTrain {
 
     int exitCode = -1;
     try {
-      String defaultModules = Joiner.on(",").join(Modules.REPLICATION, Modules.HOUSEKEEPING);
-      exitCode = SpringApplication
-          .exit(new SpringApplicationBuilder(CircusTrain.class)
-              .properties("spring.config.location:${config:null}")
-              .properties("spring.profiles.active:${modules:" + defaultModules + "}")
-              .properties("instance.home:${user.home}")
-              .properties("instance.name:${source-catalog.name}_${replica-catalog.name}")
-              .properties("jasypt.encryptor.password:${password:null}")
-              .properties("housekeeping.schema-name:circus_train")
-              .registerShutdownHook(true)
-              .initializers(new ExtensionInitializer())
-              .listeners(new ConfigFileValidationApplicationListener())
-              .build()
-              .run(args));
+      // planning must not have side effects so housekeeping is only run if explicitly requested
+      String defaultModules = isPlan(args) ? Modules.REPLICATION
+          : Joiner.on(",").join(Modules.REPLICATION, Modules.HOUSEKEEPING);
+      ConfigurableApplicationContext context = new SpringApplicationBuilder(CircusTrain.class)
+          .properties("spring.config.location:${config:null}")
+          .properties("spring.profiles.active:${modules:" + defaultModules + "}")
+          .properties("instance.home:${user.home}")
+          .properties("instance.name:${source-catalog.name}_${replica-catalog.name}")
+          .properties("jasypt.encryptor.password:${password:null}")
+          .properties("housekeeping.schema-name:circus_train")
+          .registerShutdownHook(true)
+          .initializers(new ExtensionInitializer())
+          .listeners(new ConfigFileValidationApplicationListener())
+          .build()
+          .run(args);
+      awaitDaemonShutdown(context);
+      // in daemon mode the context has already been closed by the shutdown hook
+      exitCode = context.isActive() ? SpringApplication.exit(context) : 0;
     } catch (ConfigFileValidationException e) {
       LOG.error(e.getMessage(), e);
       printCircusTrainHelp(e.getErrors());
@@ -129,6 +145,16 @@ public class CircusTrain {
     System.exit(exitCode);
   }
 
+  private static boolean isPlan(String[] args) {
+    return new SimpleCommandLinePropertySource(args).containsProperty(ReplicationPlanRunner.PLAN_OPTION);
+  }
+
+  private static void awaitDaemonShutdown(ConfigurableApplicationContext context) throws InterruptedException {
+    for (ReplicationDaemon daemon : context.getBeansOfType(ReplicationDaemon.class).values()) {
+      daemon.awaitShutdown();
+    }
+  }
+
   private static void printCircusTrainHelp(List<ObjectError> allErrors) {
     System.out.println(new CircusTrainHelp(allErrors));
   }
@@ -242,27 +268,86 @@ public class CircusTrain {
       Supplier<CloseableMetaStoreClient> sourceMetaStoreClientSupplier,
       Supplier<CloseableMetaStoreClient> replicaMetaStoreClientSupplier,
       HousekeepingListener housekeepingListener,
-      ReplicaCatalogListener replicaCatalogListener) {
+      ReplicaCatalogListener replicaCatalogListener,
+      ReplicationJournal replicationJournal) {
     ReplicationFactoryImpl upsertReplicationFactory = new ReplicationFactoryImpl(sourceFactory, replicaFactory,
-        copierFactoryManager, copierListener, partitionPredicateFactory, copierOptions);
+        copierFactoryManager, copierListener, partitionPredicateFactory, copierOptions, replicationJournal);
     return new StrategyBasedReplicationFactory(upsertReplicationFactory, sourceMetaStoreClientSupplier,
         replicaMetaStoreClientSupplier, housekeepingListener, replicaCatalogListener);
 
   }
 
+  @Profile({ Modules.REPLICATION })
+  @Bean
+  ReplicationJournal replicationJournal(@Value("${replication-journal:}") String replicationJournal) {
+    if (Strings.isNullOrEmpty(replicationJournal)) {
+      return ReplicationJournal.NULL;
+    }
+    return new FileReplicationJournal(new File(replicationJournal));
+  }
+
+  @Profile({ Modules.REPLICATION })
+  @Bean
+  TableReplicationOrdering tableReplicationOrdering(
+      @Value("${replication-order:DECLARED}") ReplicationOrder replicationOrder,
+      @Value("${replication-concurrency:1}") int replicationConcurrency,
+      HiveConf sourceHiveConf,
+      Supplier<CloseableMetaStoreClient> sourceMetaStoreClientSupplier,
+      SpringExpressionParser expressionParser) {
+    return new TableReplicationOrdering(replicationOrder,
+        new TableSizeEstimator(sourceHiveConf, sourceMetaStoreClientSupplier, expressionParser),
+        replicationConcurrency);
+  }
+
+  @Profile({ Modules.REPLICATION })
+  @Bean
+  PartitionTaskExecutor partitionTaskExecutor(@Value("${partition-task-executor.threads:32}") int threads) {
+    return new PartitionTaskExecutor(threads);
+  }
+
+  @Profile({ Modules.REPLICATION })
+  @Bean
+  ReplicationPipeline replicationPipeline(
+      @Value("${replication-pipeline.copy-concurrency:0}") int copyConcurrency,
+      @Value("${replication-pipeline.metadata-concurrency:0}") int metadataConcurrency) {
+    return new ReplicationPipeline(copyConcurrency, metadataConcurrency);
+  }
+
+  @Profile({ Modules.REPLICATION })
+  @Bean
+  ReplicationPlanner replicationPlanner(
+      SourceFactory sourceFactory,
+      ReplicaFactory replicaFactory,
+      PartitionPredicateFactory partitionPredicateFactory,
+      CopierFactoryManager copierFactoryManager,
+      CopierOptions copierOptions,
+      HiveConf sourceHiveConf,
+      @Value("${plan.threads:8}") int threads,
+      @Value("${plan.bytes-per-second:104857600}") long bytesPerSecond) {
+    return new ReplicationPlanner(sourceFactory, replicaFactory, partitionPredicateFactory, copierFactoryManager,
+        copierOptions, sourceHiveConf, threads, bytesPerSecond);
+  }
+
   @Profile({ Modules.REPLICATION })
   @Bean
   PartitionPredicateFactory partitionPredicateFactory(
       SourceFactory sourceFactory,
       ReplicaFactory replicaFactory,
       SpringExpressionParser expressionParser,
-      @Value("#{checksumFunction}") Function<Path, String> checksumFunction) {
+      @Value("#{checksumFunction}") PathChecksumFunction checksumFunction) {
     return new PartitionPredicateFactory(sourceFactory, replicaFactory, expressionParser, checksumFunction);
   }
 
   @Profile({ Modules.REPLICATION })
   @Bean
-  Function<Path, String> checksumFunction(HiveConf sourceHiveConf) {
-    return Functions.compose(new PathDigest(), new PathToPathMetadata(sourceHiveConf));
+  PathChecksumFunction checksumFunction(
+      HiveConf sourceHiveConf,
+      @Value("${checksum-cache.file:}") String checksumCacheFile,
+      @Value("${checksum-cache.max-entries:100000}") int checksumCacheMaxEntries) {
+    if (Strings.isNullOrEmpty(checksumCacheFile)) {
+      return new PathChecksumFunction(sourceHiveConf);
+    }
+    return new PathChecksumFunction(sourceHiveConf,
+        Optional.of(new FileChecksumCache(new File(checksumCacheFile), checksumCacheMaxEntries)));
   }
 }
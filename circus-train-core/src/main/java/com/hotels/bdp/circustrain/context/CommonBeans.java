@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -38,10 +39,17 @@ import org.springframework.core.annotation.Order;
 import com.google.common.base.Supplier;
 
 import com.hotels.bdp.circustrain.api.Modules;
+import com.hotels.bdp.circustrain.api.conf.MetastoreClientPool;
+import com.hotels.bdp.circustrain.api.conf.MetastoreGovernor;
 import com.hotels.bdp.circustrain.api.conf.ReplicaCatalog;
 import com.hotels.bdp.circustrain.api.conf.Security;
 import com.hotels.bdp.circustrain.api.conf.SourceCatalog;
 import com.hotels.bdp.circustrain.api.conf.TunnelMetastoreCatalog;
+import com.hotels.bdp.circustrain.api.metrics.MetricSender;
+import com.hotels.bdp.circustrain.core.metastore.CountingMetaStoreClientSupplier;
+import com.hotels.bdp.circustrain.core.metastore.GovernedMetaStoreClientSupplier;
+import com.hotels.bdp.circustrain.core.metastore.MetastoreCallGovernor;
+import com.hotels.bdp.circustrain.core.metastore.PooledMetaStoreClientSupplier;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
 import com.hotels.hcommon.hive.metastore.client.api.ConditionalMetaStoreClientFactory;
 import com.hotels.hcommon.hive.metastore.client.api.MetaStoreClientFactory;
@@ -128,7 +136,10 @@ public class CommonBeans {
   Supplier<CloseableMetaStoreClient> sourceMetaStoreClientSupplier(
       SourceCatalog sourceCatalog,
       @Value("#{sourceHiveConf}") HiveConf sourceHiveConf,
-      ConditionalMetaStoreClientFactoryManager conditionalMetaStoreClientFactoryManager) {
+      ConditionalMetaStoreClientFactoryManager conditionalMetaStoreClientFactoryManager,
+      MetastoreClientPool metastoreClientPool,
+      MetastoreGovernor metastoreGovernor,
+      Optional<MetricSender> metricSender) {
     String metaStoreUris = sourceCatalog.getHiveMetastoreUris();
     if (metaStoreUris == null) {
       // Default to Thrift is not specified - optional attribute in SourceCatalog
@@ -137,7 +148,7 @@ public class CommonBeans {
     MetaStoreClientFactory sourceMetaStoreClientFactory = conditionalMetaStoreClientFactoryManager
         .factoryForUri(metaStoreUris);
     return metaStoreClientSupplier(sourceHiveConf, sourceCatalog.getName(), sourceCatalog.getMetastoreTunnel(),
-        sourceMetaStoreClientFactory);
+        sourceMetaStoreClientFactory, metastoreClientPool, metastoreGovernor, metricSender, "source");
   }
 
   @Profile({ Modules.REPLICATION })
@@ -145,7 +156,10 @@ public class CommonBeans {
   Supplier<CloseableMetaStoreClient> replicaMetaStoreClientSupplier(
       ReplicaCatalog replicaCatalog,
       @Value("#{replicaHiveConf}") HiveConf replicaHiveConf,
-      ConditionalMetaStoreClientFactoryManager conditionalMetaStoreClientFactoryManager) {
+      ConditionalMetaStoreClientFactoryManager conditionalMetaStoreClientFactoryManager,
+      MetastoreClientPool metastoreClientPool,
+      MetastoreGovernor metastoreGovernor,
+      Optional<MetricSender> metricSender) {
     String metaStoreUris = replicaCatalog.getHiveMetastoreUris();
     if (metaStoreUris == null) {
       // Default to Thrift is not specified - optional attribute in ReplicaCatalog
@@ -154,7 +168,32 @@ public class CommonBeans {
     MetaStoreClientFactory replicaMetaStoreClientFactory = conditionalMetaStoreClientFactoryManager
         .factoryForUri(metaStoreUris);
     return metaStoreClientSupplier(replicaHiveConf, replicaCatalog.getName(), replicaCatalog.getMetastoreTunnel(),
-        replicaMetaStoreClientFactory);
+        replicaMetaStoreClientFactory, metastoreClientPool, metastoreGovernor, metricSender, "replica");
+  }
+
+  private Supplier<CloseableMetaStoreClient> metaStoreClientSupplier(
+      HiveConf hiveConf,
+      String name,
+      MetastoreTunnel metastoreTunnel,
+      MetaStoreClientFactory metaStoreClientFactory,
+      MetastoreClientPool metastoreClientPool,
+      MetastoreGovernor metastoreGovernor,
+      Optional<MetricSender> metricSender,
+      String metricPrefix) {
+    Supplier<CloseableMetaStoreClient> supplier = metaStoreClientSupplier(hiveConf, name, metastoreTunnel,
+        metaStoreClientFactory);
+    if (metastoreClientPool.getMaxSize() > 0) {
+      LOG.info("Pooling up to {} metastore clients for catalog {}.", metastoreClientPool.getMaxSize(), name);
+      supplier = new PooledMetaStoreClientSupplier(supplier, name, metastoreClientPool.getMaxSize(),
+          metastoreClientPool.getIdleTimeout(), metastoreClientPool.isTestOnBorrow());
+    }
+    if (metastoreGovernor.isEnabled()) {
+      LOG.info("Governing metastore calls for catalog {}.", name);
+      supplier = new GovernedMetaStoreClientSupplier(supplier,
+          new MetastoreCallGovernor(name, metastoreGovernor,
+              metricSender.orElse(MetricSender.DEFAULT_LOG_ONLY)));
+    }
+    return new CountingMetaStoreClientSupplier(supplier, metricPrefix);
   }
 
   private Supplier<CloseableMetaStoreClient> metaStoreClientSupplier(
@@ -15,36 +15,48 @@
  */
 package com.hotels.bdp.circustrain.core;
 
+import java.util.List;
+
 import javax.annotation.Nonnull;
 
-import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.Table;
 import org.apache.thrift.TException;
 
-import com.google.common.base.Function;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
+import com.google.common.collect.Ordering;
 
 import com.hotels.bdp.circustrain.api.CircusTrainException;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.bdp.circustrain.comparator.ComparatorRegistry;
 import com.hotels.bdp.circustrain.comparator.api.ComparatorType;
 import com.hotels.bdp.circustrain.comparator.hive.HiveDifferences;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
 import com.hotels.bdp.circustrain.comparator.listener.PartitionSpecCreatingDiffListener;
+import com.hotels.bdp.circustrain.core.replica.PartitionChecksums;
 import com.hotels.bdp.circustrain.hive.fetcher.BufferedPartitionFetcher;
-import com.hotels.bdp.circustrain.hive.fetcher.PartitionFetcher;
+import com.hotels.bdp.circustrain.hive.fetcher.SortedPartitionIterator;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
 import com.hotels.hcommon.hive.metastore.iterator.PartitionIterator;
-import com.hotels.hcommon.hive.metastore.iterator.PartitionIterator.Ordering;
 
 public class DiffGeneratedPartitionPredicate implements PartitionPredicate {
 
+  // Most recent partitions first, as with PartitionIterator.Ordering.REVERSE, so that the partition limit keeps them
+  private static final Ordering<String> PARTITION_NAME_ORDERING = Ordering.<String> natural().reverse();
+  // Larger sets of partitions are fetched by name as their filter gets too long for the metastore to parse efficiently
+  @VisibleForTesting
+  static final int MAX_FILTER_PARTITIONS = 100;
+
   private final TableReplication tableReplication;
   private final HiveEndpoint source;
   private final HiveEndpoint replica;
 
-  private final Function<Path, String> checksumFunction;
+  private final PathChecksumFunction checksumFunction;
+  private final Optional<PartitionChecksums> partitionChecksums;
   private String partitionPredicate;
+  private List<String> partitionNames;
   private boolean generated = false;
   private Short partitionLimit = -1;
 
@@ -52,46 +64,133 @@ public class DiffGeneratedPartitionPredicate implements PartitionPredicate {
       @Nonnull HiveEndpoint source,
       @Nonnull HiveEndpoint replica,
       TableReplication tableReplication,
-      Function<Path, String> checksumFunction) {
+      PathChecksumFunction checksumFunction) {
+    this(source, replica, tableReplication, checksumFunction, Optional.<PartitionChecksums> absent());
+  }
+
+  /**
+   * The checksums computed for changed partitions are recorded in {@code partitionChecksums} so that the replica does
+   * not compute them again, as are the upgraded checksums of unchanged partitions so that the replica writes them when
+   * it commits.
+   */
+  public DiffGeneratedPartitionPredicate(
+      @Nonnull HiveEndpoint source,
+      @Nonnull HiveEndpoint replica,
+      TableReplication tableReplication,
+      PathChecksumFunction checksumFunction,
+      Optional<PartitionChecksums> partitionChecksums) {
     this.source = source;
     this.replica = replica;
     this.tableReplication = tableReplication;
     this.checksumFunction = checksumFunction;
+    this.partitionChecksums = partitionChecksums;
     if (tableReplication.getSourceTable().getPartitionLimit() != null) {
       partitionLimit = tableReplication.getSourceTable().getPartitionLimit();
     }
   }
 
-  private String generate() {
+  private void generate() {
+    ChecksumDiffListener diffListener = tableReplication.isMergeJoinPartitionDiff()
+        ? generateByMergeJoin()
+        : generateByFetcher();
+    partitionPredicate = diffListener.getPartitionSpecFilter();
+    partitionNames = diffListener.getPartitionNames();
+  }
+
+  private ChecksumDiffListener generateByFetcher() {
     try (CloseableMetaStoreClient sourceMetastore = source.getMetaStoreClientSupplier().get()) {
       try (CloseableMetaStoreClient replicaMetastore = replica.getMetaStoreClientSupplier().get()) {
         Table sourceTable = source.getTableAndStatistics(tableReplication).getTable();
         PartitionIterator partitionIterator = new PartitionIterator(sourceMetastore, sourceTable,
-            tableReplication.getPartitionIteratorBatchSize(), Ordering.REVERSE);
+            tableReplication.getPartitionIteratorBatchSize(), PartitionIterator.Ordering.REVERSE);
         Optional<Table> replicaTable = getReplicaTable(tableReplication);
-        Optional<? extends PartitionFetcher> replicaPartitionFetcher = Optional.absent();
+        Optional<BufferedPartitionFetcher> replicaPartitionFetcher = Optional.absent();
         if (replicaTable.isPresent()) {
           replicaPartitionFetcher = Optional
               .of(new BufferedPartitionFetcher(replicaMetastore, replicaTable.get(),
                   tableReplication.getPartitionFetcherBufferSize()));
         }
-        PartitionSpecCreatingDiffListener diffListener = new PartitionSpecCreatingDiffListener(source.getHiveConf());
+        try {
+          ChecksumDiffListener diffListener = new ChecksumDiffListener();
+          HiveDifferences diffs = HiveDifferences
+              .builder(diffListener)
+              .checksumFunction(checksumFunction)
+              .comparatorRegistry(comparatorRegistry())
+              .source(source.getHiveConf(), sourceTable, partitionIterator)
+              .replica(replicaTable, replicaPartitionFetcher)
+              .partitionLimit(partitionLimit)
+              .build();
+          diffs.run();
+          return diffListener;
+        } finally {
+          if (replicaPartitionFetcher.isPresent()) {
+            replicaPartitionFetcher.get().close();
+          }
+        }
+      } catch (TException e) {
+        throw new CircusTrainException("Cannot auto generate partition filter, error: ", e);
+      }
+    }
+  }
+
+  private ChecksumDiffListener generateByMergeJoin() {
+    try (CloseableMetaStoreClient sourceMetastore = source.getMetaStoreClientSupplier().get()) {
+      try (CloseableMetaStoreClient replicaMetastore = replica.getMetaStoreClientSupplier().get()) {
+        Table sourceTable = source.getTableAndStatistics(tableReplication).getTable();
+        short batchSize = tableReplication.getPartitionIteratorBatchSize();
+        SortedPartitionIterator sourcePartitionIterator = new SortedPartitionIterator(sourceMetastore, sourceTable,
+            batchSize, PARTITION_NAME_ORDERING);
+        Optional<Table> replicaTable = getReplicaTable(tableReplication);
+        SortedPartitionIterator replicaPartitionIterator = null;
+        if (replicaTable.isPresent()) {
+          replicaPartitionIterator = new SortedPartitionIterator(replicaMetastore, replicaTable.get(), batchSize,
+              PARTITION_NAME_ORDERING);
+        }
+        ChecksumDiffListener diffListener = new ChecksumDiffListener();
         HiveDifferences diffs = HiveDifferences
             .builder(diffListener)
             .checksumFunction(checksumFunction)
             .comparatorRegistry(comparatorRegistry())
-            .source(source.getHiveConf(), sourceTable, partitionIterator)
-            .replica(replicaTable, replicaPartitionFetcher)
+            .source(source.getHiveConf(), sourceTable, sourcePartitionIterator)
+            .replica(replicaTable, replicaPartitionIterator, PARTITION_NAME_ORDERING)
             .partitionLimit(partitionLimit)
             .build();
         diffs.run();
-        return diffListener.getPartitionSpecFilter();
+        return diffListener;
       } catch (TException e) {
         throw new CircusTrainException("Cannot auto generate partition filter, error: ", e);
       }
     }
   }
 
+  /**
+   * Hands checksums to the replica instead of writing anything, so that generating the predicate has no side effects.
+   */
+  private class ChecksumDiffListener extends PartitionSpecCreatingDiffListener {
+
+    ChecksumDiffListener() {
+      super(source.getHiveConf());
+    }
+
+    @Override
+    public void onSourceChecksum(String partitionName, Partition partition, String checksum) {
+      if (isChecksumVersionRecorded()) {
+        partitionChecksums.get().record(partition, checksum);
+      }
+    }
+
+    @Override
+    public void onChecksumUpgrade(String partitionName, Partition replicaPartition, String checksum) {
+      if (isChecksumVersionRecorded()) {
+        partitionChecksums.get().recordUpgrade(replicaPartition, checksum);
+      }
+    }
+
+    private boolean isChecksumVersionRecorded() {
+      return partitionChecksums.isPresent() && partitionChecksums.get().getVersion() == checksumFunction.getVersion();
+    }
+  }
+
   private Optional<Table> getReplicaTable(TableReplication tableReplication) {
     try {
       return Optional.of(replica.getTableAndStatistics(tableReplication).getTable());
@@ -108,13 +207,22 @@ public class DiffGeneratedPartitionPredicate implements PartitionPredicate {
   @Override
   public String getPartitionPredicate() {
     if (!generated) {
-      partitionPredicate = generate();
+      generate();
       generated = true;
     }
     return partitionPredicate;
 
   }
 
+  @Override
+  public Optional<List<String>> getPartitionNames() {
+    getPartitionPredicate();
+    if (partitionNames.size() <= MAX_FILTER_PARTITIONS) {
+      return Optional.absent();
+    }
+    return Optional.of(partitionNames);
+  }
+
   @Override
   public short getPartitionPredicateLimit() {
     if (Strings.isNullOrEmpty(getPartitionPredicate())) {
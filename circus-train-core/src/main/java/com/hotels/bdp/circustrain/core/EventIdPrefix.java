@@ -18,7 +18,8 @@ package com.hotels.bdp.circustrain.core;
 public enum EventIdPrefix {
   CIRCUS_TRAIN_DESTRUCTIVE("ctd"),
   CIRCUS_TRAIN_UNPARTITIONED_TABLE("ctt"),
-  CIRCUS_TRAIN_PARTITIONED_TABLE("ctp");
+  CIRCUS_TRAIN_PARTITIONED_TABLE("ctp"),
+  CIRCUS_TRAIN_PLAN("ctl");
 
   private String prefix;
 
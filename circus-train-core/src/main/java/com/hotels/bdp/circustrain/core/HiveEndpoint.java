@@ -16,18 +16,19 @@
 package com.hotels.bdp.circustrain.core;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
-import org.apache.hadoop.hive.metastore.Warehouse;
 import org.apache.hadoop.hive.metastore.api.ColumnStatistics;
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsDesc;
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
 import org.apache.hadoop.hive.metastore.api.Database;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
-import org.apache.hadoop.hive.metastore.api.MetaException;
 import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.Table;
@@ -36,28 +37,59 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 import com.google.common.base.Supplier;
 
 import com.hotels.bdp.circustrain.api.CircusTrainException;
+import com.hotels.bdp.circustrain.api.conf.PartitionStatisticsFetch;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
 import com.hotels.hcommon.hive.metastore.exception.MetaStoreClientException;
 
 public abstract class HiveEndpoint {
 
+  private static final short ALL = -1;
+  static final int DEFAULT_PARTITION_PAGE_SIZE = 1000;
+
   private final Logger log = LoggerFactory.getLogger(getClass());
 
   private final String name;
   private final HiveConf hiveConf;
   private final Supplier<CloseableMetaStoreClient> metaStoreClientSupplier;
+  // Endpoints are created per table replication, so these only live for the duration of one replication event
+  private final Map<String, Database> databaseCache = new ConcurrentHashMap<>();
+  private final Map<String, TableAndStatistics> tableCache = new ConcurrentHashMap<>();
+  private final PartitionColumnStatisticsFetcher partitionColumnStatisticsFetcher;
+  private final PartitionTaskExecutor partitionTaskExecutor;
+  private int partitionPageSize = DEFAULT_PARTITION_PAGE_SIZE;
 
   @Autowired
   public HiveEndpoint(String name, HiveConf hiveConf, Supplier<CloseableMetaStoreClient> metaStoreClientSupplier) {
+    this(name, hiveConf, metaStoreClientSupplier, new PartitionStatisticsFetch());
+  }
+
+  public HiveEndpoint(
+      String name,
+      HiveConf hiveConf,
+      Supplier<CloseableMetaStoreClient> metaStoreClientSupplier,
+      PartitionStatisticsFetch partitionStatisticsFetch) {
+    this(name, hiveConf, metaStoreClientSupplier, partitionStatisticsFetch, PartitionTaskExecutor.CALLING_THREAD);
+  }
+
+  public HiveEndpoint(
+      String name,
+      HiveConf hiveConf,
+      Supplier<CloseableMetaStoreClient> metaStoreClientSupplier,
+      PartitionStatisticsFetch partitionStatisticsFetch,
+      PartitionTaskExecutor partitionTaskExecutor) {
     this.name = name;
     this.hiveConf = hiveConf;
     this.metaStoreClientSupplier = metaStoreClientSupplier;
+    this.partitionTaskExecutor = partitionTaskExecutor;
+    partitionColumnStatisticsFetcher = new PartitionColumnStatisticsFetcher(metaStoreClientSupplier,
+        partitionStatisticsFetch, partitionTaskExecutor);
   }
 
   public String getName() {
@@ -76,10 +108,21 @@ public abstract class HiveEndpoint {
     return metaStoreClientSupplier;
   }
 
+  public PartitionTaskExecutor getPartitionTaskExecutor() {
+    return partitionTaskExecutor;
+  }
+
   public Database getDatabase(String database) {
+    Database cached = databaseCache.get(database);
+    if (cached != null) {
+      log.debug("Using cached database metadata for '{}'", database);
+      return cached;
+    }
     log.debug("Retrieving database metadata for '{}'", database);
     try (CloseableMetaStoreClient client = metaStoreClientSupplier.get()) {
-      return client.getDatabase(database);
+      Database result = client.getDatabase(database);
+      databaseCache.put(database, result);
+      return result;
     } catch (NoSuchObjectException e) {
       String message = String.format("Database '%s' not found", database);
       throw new CircusTrainException(message, e);
@@ -108,7 +151,17 @@ public abstract class HiveEndpoint {
     return Optional.fromNullable(oldReplicaTable);
   }
 
+  /**
+   * Table metadata and statistics are fetched once and then reused for the lifetime of this endpoint. Callers that
+   * modify the table through this endpoint must call {@link #invalidateTable(String, String)} afterwards.
+   */
   public TableAndStatistics getTableAndStatistics(String database, String tableName) {
+    String key = tableCacheKey(database, tableName);
+    TableAndStatistics cached = tableCache.get(key);
+    if (cached != null) {
+      log.debug("Using cached table metadata for '{}.{}'", database, tableName);
+      return cached;
+    }
     log.info("Retrieving table metadata for '{}.{}'", database, tableName);
     try (CloseableMetaStoreClient client = metaStoreClientSupplier.get()) {
       Table table = client.getTable(database, tableName);
@@ -123,7 +176,9 @@ public abstract class HiveEndpoint {
       } else {
         log.debug("No table column stats retrieved for table {}.{}", table.getDbName(), table.getTableName());
       }
-      return new TableAndStatistics(table, statistics);
+      TableAndStatistics result = new TableAndStatistics(table, statistics);
+      tableCache.put(key, result);
+      return result;
     } catch (NoSuchObjectException e) {
       String message = String.format("Table '%s.%s' not found", database, tableName);
       throw new CircusTrainException(message, e);
@@ -135,6 +190,17 @@ public abstract class HiveEndpoint {
 
   abstract public TableAndStatistics getTableAndStatistics(TableReplication tableReplication);
 
+  /**
+   * Discards any cached metadata for the given table so that the next lookup goes to the metastore.
+   */
+  public void invalidateTable(String database, String tableName) {
+    tableCache.remove(tableCacheKey(database, tableName));
+  }
+
+  private static String tableCacheKey(String database, String tableName) {
+    return database + "." + tableName;
+  }
+
   private List<String> getColumnNames(Table table) {
     List<FieldSchema> fields = table.getSd().getCols();
     List<String> columnNames = new ArrayList<>(fields.size());
@@ -144,42 +210,163 @@ public abstract class HiveEndpoint {
     return columnNames;
   }
 
+  /**
+   * Fetches the partitions selected by the predicate, by name when the predicate knows their names and with its filter
+   * otherwise. The partitions are fetched in pages so that no single metastore call grows with the number of
+   * partitions, but all of them are returned together; callers that can work page by page should use
+   * {@link #getPartitionPages(Table, String, int)} instead.
+   */
+  public PartitionsAndStatistics getPartitions(Table table, PartitionPredicate partitionPredicate) throws TException {
+    Optional<List<String>> partitionNames = partitionPredicate.getPartitionNames();
+    if (partitionNames.isPresent()) {
+      return getPartitions(table, getPartitionPages(table, partitionNames.get(),
+          partitionPredicate.getPartitionPredicateLimit()));
+    }
+    return getPartitions(table, partitionPredicate.getPartitionPredicate(),
+        partitionPredicate.getPartitionPredicateLimit());
+  }
+
+  /**
+   * Fetches the partitions selected by the predicate like {@link #getPartitions(Table, PartitionPredicate)} but without
+   * their column statistics, which can be fetched page by page later with
+   * {@link #getPartitionPages(Table, List)}.
+   */
+  public List<Partition> getPartitionsWithoutStatistics(Table table, PartitionPredicate partitionPredicate)
+    throws TException {
+    List<String> noColumnNames = Collections.emptyList();
+    Optional<List<String>> partitionNames = partitionPredicate.getPartitionNames();
+    if (partitionNames.isPresent()) {
+      return getPartitions(table, getPartitionPages(table, partitionNames.get(),
+          partitionPredicate.getPartitionPredicateLimit(), noColumnNames)).getPartitions();
+    }
+    return getPartitions(table, getPartitionPages(table, partitionPredicate.getPartitionPredicate(),
+        partitionPredicate.getPartitionPredicateLimit(), noColumnNames)).getPartitions();
+  }
+
   public PartitionsAndStatistics getPartitions(Table table, String partitionPredicate, int maxPartitions)
     throws TException {
-    try (CloseableMetaStoreClient client = metaStoreClientSupplier.get()) {
-      List<Partition> partitions = null;
-      if (Strings.isNullOrEmpty(partitionPredicate)) {
-        partitions = client.listPartitions(table.getDbName(), table.getTableName(), (short) maxPartitions);
-      } else {
-        partitions = client.listPartitionsByFilter(table.getDbName(), table.getTableName(), partitionPredicate,
-            (short) maxPartitions);
+    return getPartitions(table, getPartitionPages(table, partitionPredicate, maxPartitions));
+  }
+
+  private PartitionsAndStatistics getPartitions(Table table, PartitionPages partitionPages) {
+    List<Partition> partitions = new ArrayList<>();
+    List<String> partitionNames = new ArrayList<>();
+    Map<String, ColumnStatistics> statisticsByPartitionName = new HashMap<>();
+    PartitionInterner interner = new PartitionInterner();
+    try (PartitionPages pages = partitionPages) {
+      while (pages.hasNext()) {
+        PartitionsAndStatistics page = pages.next();
+        List<Partition> pagePartitions = page.getPartitions();
+        List<String> pagePartitionNames = page.getPartitionNames();
+        for (int i = 0; i < pagePartitions.size(); i++) {
+          String partitionName = pagePartitionNames.get(i);
+          partitions.add(interner.intern(pagePartitions.get(i)));
+          partitionNames.add(partitionName);
+          ColumnStatistics statistics = page.getStatisticsForPartitionName(partitionName);
+          if (statistics != null) {
+            statisticsByPartitionName.put(partitionName, statistics);
+          }
+        }
       }
+    }
+    log.debug("Retrieved {} partitions of table {}.{}", partitions.size(), table.getDbName(), table.getTableName());
+    return new PartitionsAndStatistics(table.getPartitionKeys(), partitions, partitionNames,
+        statisticsByPartitionName);
+  }
 
-      // Generate a list of partition names
-      List<String> partitionNames = getPartitionNames(table.getPartitionKeys(), partitions);
-      // Fetch the partition statistics
-      List<String> columnNames = getColumnNames(table);
+  /**
+   * Pages through the partitions of a table that match the predicate, at most {@code maxPartitions} of them when
+   * {@code maxPartitions} is not negative. Without a predicate only the partition names are listed up front and the
+   * partitions are fetched page by page. With a predicate the metastore resolves all matching partitions in one call,
+   * as it cannot list partition names by filter, and only their statistics are fetched page by page. The caller must
+   * close the returned pages.
+   */
+  public PartitionPages getPartitionPages(Table table, String partitionPredicate, int maxPartitions)
+    throws TException {
+    return getPartitionPages(table, partitionPredicate, maxPartitions, getColumnNames(table));
+  }
 
-      Map<String, List<ColumnStatisticsObj>> statisticsByPartitionName = client
-          .getPartitionColumnStatistics(table.getDbName(), table.getTableName(), partitionNames, columnNames);
-      if (statisticsByPartitionName != null && !statisticsByPartitionName.isEmpty()) {
-        log.debug("Retrieved column stats entries for {} partitions of table {}.{}", statisticsByPartitionName.size(),
-            table.getDbName(), table.getTableName());
-      } else {
-        log.debug("No partition column stats retrieved for table {}.{}", table.getDbName(), table.getTableName());
+  private PartitionPages getPartitionPages(
+      Table table,
+      String partitionPredicate,
+      int maxPartitions,
+      List<String> columnNames)
+    throws TException {
+    CloseableMetaStoreClient client = metaStoreClientSupplier.get();
+    try {
+      if (Strings.isNullOrEmpty(partitionPredicate)) {
+        List<String> partitionNames = client.listPartitionNames(table.getDbName(), table.getTableName(), ALL);
+        return PartitionPages
+            .ofPartitionNames(client, partitionColumnStatisticsFetcher, table, columnNames,
+                limit(partitionNames, maxPartitions), partitionPageSize);
       }
+      List<Partition> partitions = client.listPartitionsByFilter(table.getDbName(), table.getTableName(),
+          partitionPredicate, toShortLimit(maxPartitions));
+      return PartitionPages
+          .ofPartitions(client, partitionColumnStatisticsFetcher, table, columnNames, limit(partitions, maxPartitions),
+              partitionPageSize);
+    } catch (TException | RuntimeException e) {
+      client.close();
+      throw e;
+    }
+  }
 
-      return new PartitionsAndStatistics(table.getPartitionKeys(), partitions, statisticsByPartitionName);
+  /**
+   * Pages through the partitions of a table with the given names, at most {@code maxPartitions} of them when
+   * {@code maxPartitions} is not negative. Names of partitions that do not exist are ignored. The caller must close the
+   * returned pages.
+   */
+  public PartitionPages getPartitionPages(Table table, List<String> partitionNames, int maxPartitions) {
+    return getPartitionPages(table, partitionNames, maxPartitions, getColumnNames(table));
+  }
+
+  private PartitionPages getPartitionPages(
+      Table table,
+      List<String> partitionNames,
+      int maxPartitions,
+      List<String> columnNames) {
+    CloseableMetaStoreClient client = metaStoreClientSupplier.get();
+    try {
+      return PartitionPages
+          .ofPartitionNames(client, partitionColumnStatisticsFetcher, table, columnNames,
+              limit(partitionNames, maxPartitions), partitionPageSize);
+    } catch (RuntimeException e) {
+      client.close();
+      throw e;
     }
   }
 
-  private List<String> getPartitionNames(List<FieldSchema> partitionKeys, List<Partition> partitions)
-    throws MetaException {
-    List<String> partitionNames = new ArrayList<>(partitions.size());
-    for (Partition partition : partitions) {
-      partitionNames.add(Warehouse.makePartName(partitionKeys, partition.getValues()));
+  /**
+   * Pages through partitions that were already fetched, fetching only their column statistics page by page. The caller
+   * must close the returned pages.
+   */
+  public PartitionPages getPartitionPages(Table table, List<Partition> partitions) {
+    CloseableMetaStoreClient client = metaStoreClientSupplier.get();
+    try {
+      return PartitionPages
+          .ofPartitions(client, partitionColumnStatisticsFetcher, table, getColumnNames(table), partitions,
+              partitionPageSize);
+    } catch (RuntimeException e) {
+      client.close();
+      throw e;
     }
-    return partitionNames;
+  }
+
+  private static <T> List<T> limit(List<T> list, int maxPartitions) {
+    if (maxPartitions < 0 || list.size() <= maxPartitions) {
+      return list;
+    }
+    return list.subList(0, maxPartitions);
+  }
+
+  private static short toShortLimit(int maxPartitions) {
+    // Larger limits cannot be expressed to the metastore so they are applied once the partitions are listed
+    return maxPartitions > Short.MAX_VALUE ? ALL : (short) maxPartitions;
+  }
+
+  @VisibleForTesting
+  void setPartitionPageSize(int partitionPageSize) {
+    this.partitionPageSize = partitionPageSize;
   }
 
 }
@@ -15,12 +15,22 @@
  */
 package com.hotels.bdp.circustrain.core;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.ExitCodeGenerator;
@@ -32,30 +42,57 @@ import org.springframework.stereotype.Component;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import com.hotels.bdp.circustrain.api.CompletionCode;
 import com.hotels.bdp.circustrain.api.Modules;
 import com.hotels.bdp.circustrain.api.Replication;
+import com.hotels.bdp.circustrain.api.conf.Daemon;
 import com.hotels.bdp.circustrain.api.conf.ReplicaCatalog;
 import com.hotels.bdp.circustrain.api.conf.Security;
 import com.hotels.bdp.circustrain.api.conf.SourceCatalog;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.bdp.circustrain.api.conf.TableReplications;
+import com.hotels.bdp.circustrain.api.event.EventTableReplication;
 import com.hotels.bdp.circustrain.api.event.LocomotiveListener;
 import com.hotels.bdp.circustrain.api.event.TableReplicationListener;
 import com.hotels.bdp.circustrain.api.metrics.MetricSender;
 import com.hotels.bdp.circustrain.core.event.EventUtils;
+import com.hotels.bdp.circustrain.core.journal.JournalEntry;
+import com.hotels.bdp.circustrain.core.journal.ReplicationJournal;
+import com.hotels.bdp.circustrain.core.journal.ReplicationPhase;
 
 /**
  * This class is in charge of configuring replications and executing them.
  * <p>
- * This has to be of the highest precedence because <b>Circus Train</b> is not multithread at the moment and each
- * application runner is executed in sequence:
+ * This has to be of the highest precedence because each application runner is executed in sequence:
  * <ol>
  * <li>Do replication</li>
  * <li>Remove paths left by old replications (housekeeping)</li>
  * </ol>
  * </p>
+ * <p>
+ * Table replications are executed one after another unless {@code replication-concurrency} is greater than one, in
+ * which case each table replication runs on its own worker from a bounded pool. A failing table never affects the
+ * others and all per-table events are fired on the worker thread that performs the replication, so listeners keep their
+ * per-table state thread confined and release it when the table succeeds or fails. Tables are started in
+ * the order chosen by {@link TableReplicationOrdering}. When {@code replication-pipeline} stage concurrencies are set
+ * the copy and metadata stages of different tables overlap, see {@link ReplicationPipeline}.
+ * </p>
+ * <p>
+ * The duration of each phase of a table replication is collected by {@link ReplicationPhaseMetrics} and handed to the
+ * {@link TableReplicationListener} just before the outcome of the table.
+ * </p>
+ * <p>
+ * When a {@code replication-journal} is configured, tables that the previous, failed run already replicated are skipped
+ * and reported as such. The entries of those tables are removed when the run starts, so a table is skipped at most
+ * once and a table that keeps failing does not stop the others from being replicated by later runs. The journal is
+ * cleared once every table of a run has been replicated.
+ * </p>
+ * <p>
+ * When {@code daemon.enabled} is set nothing is replicated at start up; instead {@link ReplicationDaemon} triggers
+ * {@link #replicate(String[], List)} for each schedule group.
+ * </p>
  */
 @Profile({ Modules.REPLICATION })
 @Component
@@ -72,7 +109,13 @@ class Locomotive implements ApplicationRunner, ExitCodeGenerator {
   private final Security security;
   private final LocomotiveListener locomotiveListener;
   private final TableReplicationListener tableReplicationListener;
-  private long replicationFailures;
+  private final Daemon daemon;
+  private final ReplicationJournal replicationJournal;
+  private final TableReplicationOrdering tableReplicationOrdering;
+  private final ReplicationPipeline replicationPipeline;
+  private final int replicationConcurrency;
+  private final AtomicLong replicationFailures = new AtomicLong();
+  private final AtomicInteger tablesInLastRun = new AtomicInteger();
 
   @Autowired
   Locomotive(
@@ -83,7 +126,12 @@ class Locomotive implements ApplicationRunner, ExitCodeGenerator {
       ReplicationFactory replicationFactory,
       MetricSender metricSender,
       LocomotiveListener locomotiveListener,
-      TableReplicationListener tableReplicationListener) {
+      TableReplicationListener tableReplicationListener,
+      Daemon daemon,
+      ReplicationJournal replicationJournal,
+      TableReplicationOrdering tableReplicationOrdering,
+      ReplicationPipeline replicationPipeline,
+      @Value("${replication-concurrency:1}") int replicationConcurrency) {
     this.sourceCatalog = sourceCatalog;
     this.replicaCatalog = replicaCatalog;
     this.security = security;
@@ -92,49 +140,188 @@ class Locomotive implements ApplicationRunner, ExitCodeGenerator {
     this.tableReplications = tableReplications.getTableReplications();
     this.replicationFactory = replicationFactory;
     this.metricSender = metricSender;
+    this.daemon = daemon;
+    this.replicationJournal = replicationJournal;
+    this.tableReplicationOrdering = tableReplicationOrdering;
+    this.replicationPipeline = replicationPipeline;
+    this.replicationConcurrency = replicationPipeline.getWorkers(replicationConcurrency);
   }
 
   @Override
   public void run(ApplicationArguments args) {
-    locomotiveListener.circusTrainStartUp(args.getSourceArgs(), EventUtils.toEventSourceCatalog(sourceCatalog),
+    if (ReplicationPlanRunner.isPlan(args)) {
+      return;
+    }
+    if (daemon.isEnabled()) {
+      LOG.info("Running in daemon mode, replications will be triggered by their schedules.");
+      return;
+    }
+    replicate(args.getSourceArgs(), tableReplications);
+  }
+
+  List<TableReplication> getTableReplications() {
+    return tableReplications;
+  }
+
+  /**
+   * Performs a complete replication run over the given tables, firing the start up and shut down events around it.
+   * Runs are serialised so that the run scoped state of listeners is never shared.
+   */
+  synchronized CompletionCode replicate(String[] sourceArgs, List<TableReplication> tableReplications) {
+    locomotiveListener.circusTrainStartUp(sourceArgs, EventUtils.toEventSourceCatalog(sourceCatalog),
         EventUtils.toEventReplicaCatalog(replicaCatalog, security));
-    CompletionCode completionCode = CompletionCode.SUCCESS;
     Builder<String, Long> metrics = ImmutableMap.builder();
-    replicationFailures = 0;
-    long replicated = 0;
+    replicationFailures.set(0);
+    tablesInLastRun.set(tableReplications.size());
 
     LOG.info("{} tables to replicate.", tableReplications.size());
-    for (TableReplication tableReplication : tableReplications) {
-      String summary = getReplicationSummary(tableReplication);
-      LOG.info("Replicating {} replication mode '{}', strategy '{}'.", summary, tableReplication.getReplicationMode(), tableReplication.getReplicationStrategy());
-      try {
-        Replication replication = replicationFactory.newInstance(tableReplication);
-        tableReplicationListener.tableReplicationStart(EventUtils.toEventTableReplication(tableReplication),
-            replication.getEventId());
-        replication.replicate();
-        LOG.info("Completed replicating: {}.", summary);
-        tableReplicationListener.tableReplicationSuccess(EventUtils.toEventTableReplication(tableReplication),
-            replication.getEventId());
-      } catch (Throwable t) {
-        replicationFailures++;
-        completionCode = CompletionCode.FAILURE;
-        LOG.error("Failed to replicate: {}.", summary, t);
-        tableReplicationListener.tableReplicationFailure(EventUtils.toEventTableReplication(tableReplication),
-            EventUtils.EVENT_ID_UNAVAILABLE, t);
-      }
-      replicated++;
+    Map<String, JournalEntry> committedEntries = takeCommittedEntries(tableReplications);
+    List<TableReplication> orderedTableReplications = tableReplicationOrdering.order(tableReplications);
+    long replicated;
+    if (replicationConcurrency > 1) {
+      replicated = replicateConcurrently(orderedTableReplications, committedEntries);
+    } else {
+      replicated = replicateSequentially(orderedTableReplications, committedEntries);
+    }
+    CompletionCode completionCode = replicationFailures.get() > 0 ? CompletionCode.FAILURE : CompletionCode.SUCCESS;
+    if (completionCode == CompletionCode.SUCCESS) {
+      // Everything has been replicated so the next run must start from scratch
+      replicationJournal.clear(journalKeys(tableReplications));
     }
 
     metrics.put("tables_replicated", replicated);
+    metrics.put("tables_skipped", (long) tableReplications.size() - replicated);
     metrics.put(completionCode.getMetricName(), completionCode.getCode());
     Map<String, Long> metricsMap = metrics.build();
     metricSender.send(metricsMap);
     locomotiveListener.circusTrainShutDown(completionCode, metricsMap);
+    return completionCode;
+  }
+
+  /**
+   * Removes the entries of the tables that a previous run committed from the journal so that they are only ever used by
+   * this run.
+   */
+  private Map<String, JournalEntry> takeCommittedEntries(List<TableReplication> tableReplications) {
+    Map<String, JournalEntry> committedEntries = new HashMap<>();
+    for (String journalKey : journalKeys(tableReplications)) {
+      JournalEntry journalEntry = replicationJournal.getEntry(journalKey);
+      if (journalEntry != null && journalEntry.getPhase() == ReplicationPhase.COMMITTED) {
+        committedEntries.put(journalKey, journalEntry);
+      }
+    }
+    if (!committedEntries.isEmpty()) {
+      replicationJournal.clear(committedEntries.keySet());
+    }
+    return committedEntries;
+  }
+
+  private long replicateSequentially(
+      List<TableReplication> tableReplications,
+      Map<String, JournalEntry> committedEntries) {
+    long replicated = 0;
+    for (TableReplication tableReplication : tableReplications) {
+      if (replicate(tableReplication, committedEntries.get(tableReplication.getQualifiedReplicaName()))) {
+        replicated++;
+      }
+    }
+    return replicated;
+  }
+
+  private long replicateConcurrently(
+      List<TableReplication> tableReplications,
+      final Map<String, JournalEntry> committedEntries) {
+    int poolSize = Math.min(replicationConcurrency, Math.max(1, tableReplications.size()));
+    if (replicationPipeline.isEnabled()) {
+      LOG.info("Replicating tables using {} workers with pipelined copy and metadata stages.", poolSize);
+    } else {
+      LOG.info("Replicating tables using {} workers.", poolSize);
+    }
+    ExecutorService executor = Executors
+        .newFixedThreadPool(poolSize, new ThreadFactoryBuilder().setNameFormat("replication-worker-%d").build());
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>(tableReplications.size());
+      for (final TableReplication tableReplication : tableReplications) {
+        futures.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            return replicate(tableReplication, committedEntries.get(tableReplication.getQualifiedReplicaName()));
+          }
+        }));
+      }
+      long replicated = 0;
+      for (Future<Boolean> future : futures) {
+        try {
+          if (future.get()) {
+            replicated++;
+          }
+        } catch (ExecutionException e) {
+          // replicate(...) handles all failures itself so this is not expected
+          replicationFailures.incrementAndGet();
+          LOG.error("Unexpected error in replication worker.", e.getCause());
+          replicated++;
+        }
+      }
+      return replicated;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for table replications to complete", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<String> journalKeys(List<TableReplication> tableReplications) {
+    List<String> keys = new ArrayList<>(tableReplications.size());
+    for (TableReplication tableReplication : tableReplications) {
+      keys.add(tableReplication.getQualifiedReplicaName());
+    }
+    return keys;
+  }
+
+  /**
+   * @return {@code false} if the table was skipped because the previous run had committed it
+   */
+  private boolean replicate(TableReplication tableReplication, JournalEntry committedEntry) {
+    String summary = getReplicationSummary(tableReplication);
+    String journalKey = tableReplication.getQualifiedReplicaName();
+    EventTableReplication eventTableReplication = EventUtils.toEventTableReplication(tableReplication);
+    if (committedEntry != null) {
+      LOG.info("Skipping {}, it was replicated by event {} according to the replication journal.", summary,
+          committedEntry.getEventId());
+      tableReplicationListener.tableReplicationSkipped(eventTableReplication, committedEntry.getEventId());
+      return false;
+    }
+    LOG
+        .info("Replicating {} replication mode '{}', strategy '{}'.", summary, tableReplication.getReplicationMode(),
+            tableReplication.getReplicationStrategy());
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.begin();
+    String eventId = EventUtils.EVENT_ID_UNAVAILABLE;
+    try {
+      Replication replication = replicationFactory.newInstance(tableReplication);
+      eventId = replication.getEventId();
+      tableReplicationListener.tableReplicationStart(eventTableReplication, eventId);
+      replicationPipeline.replicate(replication);
+      replicationJournal.record(new JournalEntry(journalKey, ReplicationPhase.COMMITTED, eventId, null));
+      LOG.info("Completed replicating: {}.", summary);
+      LOG.debug("Phase metrics of {}: {}", summary, phaseMetrics.getMetrics());
+      tableReplicationListener.tableReplicationPhaseMetrics(eventTableReplication, eventId, phaseMetrics);
+      tableReplicationListener.tableReplicationSuccess(eventTableReplication, eventId);
+    } catch (Throwable t) {
+      replicationFailures.incrementAndGet();
+      LOG.error("Failed to replicate: {}.", summary, t);
+      tableReplicationListener.tableReplicationPhaseMetrics(eventTableReplication, eventId, phaseMetrics);
+      tableReplicationListener.tableReplicationFailure(eventTableReplication, eventId, t);
+    } finally {
+      ReplicationPhaseMetrics.end();
+    }
+    return true;
   }
 
   @Override
   public int getExitCode() {
-    if (replicationFailures == tableReplications.size()) {
+    long replicationFailures = this.replicationFailures.get();
+    if (replicationFailures > 0 && replicationFailures == tablesInLastRun.get()) {
       return -1;
     }
     if (replicationFailures > 0) {
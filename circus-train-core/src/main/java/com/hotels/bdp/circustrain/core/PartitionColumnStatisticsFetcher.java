@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+import com.hotels.bdp.circustrain.api.conf.PartitionStatisticsFetch;
+import com.hotels.bdp.circustrain.core.metastore.MetaStoreFailures;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+
+/**
+ * Fetches partition column statistics in chunks of partitions and columns so that no single metastore call has to
+ * build a response for every partition and column of a wide table. When there is more than one chunk and more than
+ * one thread is configured the chunks are fetched concurrently on the {@link PartitionTaskExecutor}, each on its own
+ * metastore client. A chunk that fails with a transport error is retried on a new client up to
+ * {@link PartitionStatisticsFetch#getRetries()} times; errors returned by the metastore are not retried.
+ */
+public class PartitionColumnStatisticsFetcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionColumnStatisticsFetcher.class);
+
+  private final Supplier<CloseableMetaStoreClient> metaStoreClientSupplier;
+  private final PartitionStatisticsFetch partitionStatisticsFetch;
+  private final PartitionTaskExecutor partitionTaskExecutor;
+
+  public PartitionColumnStatisticsFetcher(
+      Supplier<CloseableMetaStoreClient> metaStoreClientSupplier,
+      PartitionStatisticsFetch partitionStatisticsFetch,
+      PartitionTaskExecutor partitionTaskExecutor) {
+    this.metaStoreClientSupplier = metaStoreClientSupplier;
+    this.partitionStatisticsFetch = partitionStatisticsFetch;
+    this.partitionTaskExecutor = partitionTaskExecutor;
+  }
+
+  /**
+   * @param client used for the first attempt of each chunk when chunks are fetched on the calling thread.
+   * @return the statistics of each partition, with the columns in the order they were requested.
+   */
+  public Map<String, List<ColumnStatisticsObj>> fetch(
+      CloseableMetaStoreClient client,
+      String databaseName,
+      String tableName,
+      List<String> partitionNames,
+      List<String> columnNames)
+    throws TException {
+    List<Chunk> chunks = new ArrayList<>();
+    for (List<String> partitionChunk : chunk(partitionNames, partitionStatisticsFetch.getPartitionsPerChunk())) {
+      for (List<String> columnChunk : chunk(columnNames, partitionStatisticsFetch.getColumnsPerChunk())) {
+        chunks.add(new Chunk(databaseName, tableName, partitionChunk, columnChunk));
+      }
+    }
+    int threads = Math.min(partitionStatisticsFetch.getThreads(), chunks.size());
+    List<Map<String, List<ColumnStatisticsObj>>> results;
+    if (threads > 1) {
+      LOG.debug("Fetching column stats of table {}.{} in {} chunks using {} threads.", databaseName, tableName,
+          chunks.size(), threads);
+      results = fetchConcurrently(chunks, threads);
+    } else {
+      results = new ArrayList<>(chunks.size());
+      for (Chunk chunk : chunks) {
+        results.add(chunk.fetch(client));
+      }
+    }
+    return merge(results);
+  }
+
+  private List<Map<String, List<ColumnStatisticsObj>>> fetchConcurrently(List<Chunk> chunks, int threads)
+    throws TException {
+    List<Callable<Map<String, List<ColumnStatisticsObj>>>> tasks = new ArrayList<>(chunks.size());
+    for (final Chunk chunk : chunks) {
+      tasks.add(new Callable<Map<String, List<ColumnStatisticsObj>>>() {
+        @Override
+        public Map<String, List<ColumnStatisticsObj>> call() throws TException {
+          return chunk.fetch(null);
+        }
+      });
+    }
+    try {
+      return partitionTaskExecutor.invokeAll("fetch partition column statistics", tasks, threads);
+    } catch (CircusTrainException e) {
+      if (e.getCause() instanceof TException) {
+        throw (TException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static Map<String, List<ColumnStatisticsObj>> merge(List<Map<String, List<ColumnStatisticsObj>>> results) {
+    if (results.size() == 1) {
+      return results.get(0);
+    }
+    Map<String, List<ColumnStatisticsObj>> merged = new LinkedHashMap<>();
+    for (Map<String, List<ColumnStatisticsObj>> result : results) {
+      for (Entry<String, List<ColumnStatisticsObj>> entry : result.entrySet()) {
+        List<ColumnStatisticsObj> statistics = merged.get(entry.getKey());
+        if (statistics == null) {
+          statistics = new ArrayList<>(entry.getValue().size());
+          merged.put(entry.getKey(), statistics);
+        }
+        statistics.addAll(entry.getValue());
+      }
+    }
+    return merged;
+  }
+
+  private static List<List<String>> chunk(List<String> list, int chunkSize) {
+    if (chunkSize <= 0 || list.size() <= chunkSize) {
+      List<List<String>> chunks = new ArrayList<>(1);
+      chunks.add(list);
+      return chunks;
+    }
+    return Lists.partition(list, chunkSize);
+  }
+
+  private class Chunk {
+
+    private final String databaseName;
+    private final String tableName;
+    private final List<String> partitionNames;
+    private final List<String> columnNames;
+
+    Chunk(String databaseName, String tableName, List<String> partitionNames, List<String> columnNames) {
+      this.databaseName = databaseName;
+      this.tableName = tableName;
+      this.partitionNames = partitionNames;
+      this.columnNames = columnNames;
+    }
+
+    Map<String, List<ColumnStatisticsObj>> fetch(CloseableMetaStoreClient client) throws TException {
+      int attempt = 0;
+      while (true) {
+        try {
+          Map<String, List<ColumnStatisticsObj>> statistics;
+          if (attempt == 0 && client != null) {
+            statistics = client.getPartitionColumnStatistics(databaseName, tableName, partitionNames, columnNames);
+          } else {
+            try (CloseableMetaStoreClient chunkClient = metaStoreClientSupplier.get()) {
+              statistics = chunkClient
+                  .getPartitionColumnStatistics(databaseName, tableName, partitionNames, columnNames);
+            }
+          }
+          return statistics == null ? new LinkedHashMap<String, List<ColumnStatisticsObj>>() : statistics;
+        } catch (TException e) {
+          if (attempt >= partitionStatisticsFetch.getRetries() || !MetaStoreFailures.isTransportFailure(e)) {
+            throw e;
+          }
+          attempt++;
+          LOG.warn("Unable to fetch column stats of {} partitions and {} columns of table {}.{}, retry {} of {}.",
+              partitionNames.size(), columnNames.size(), databaseName, tableName, attempt,
+              partitionStatisticsFetch.getRetries(), e);
+        }
+      }
+    }
+  }
+
+}
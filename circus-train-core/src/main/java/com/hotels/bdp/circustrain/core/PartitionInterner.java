@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+
+/**
+ * Replaces the components of partition storage descriptors by equal instances seen before, so that the partitions of
+ * a table share one column list, SerDe, sort order and skew information instead of each holding its own copy. Hive's
+ * Thrift setters already intern strings and copy parameter maps, so those are left alone. Interned components are
+ * shared between partitions and must not be modified, copy them first. Replica partitions are therefore interned only
+ * after any {@code PartitionTransformation} has run on its own copy of the source partition.
+ * <p>
+ * Not thread safe, use one instance per list of partitions.
+ * </p>
+ */
+public class PartitionInterner {
+
+  private final Map<Object, Object> pool = new HashMap<>();
+
+  public Partition intern(Partition partition) {
+    StorageDescriptor sd = partition.getSd();
+    if (sd != null) {
+      sd.setCols(intern(sd.getCols()));
+      sd.setSerdeInfo(intern(sd.getSerdeInfo()));
+      sd.setSortCols(intern(sd.getSortCols()));
+      sd.setSkewedInfo(intern(sd.getSkewedInfo()));
+    }
+    return partition;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T intern(T value) {
+    if (value == null) {
+      return null;
+    }
+    T pooled = (T) pool.get(value);
+    if (pooled == null) {
+      pool.put(value, value);
+      return value;
+    }
+    return pooled;
+  }
+
+}
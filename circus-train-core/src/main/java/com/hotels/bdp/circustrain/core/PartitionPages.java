@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.hadoop.hive.metastore.Warehouse;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+import com.hotels.hcommon.hive.metastore.exception.MetaStoreClientException;
+
+/**
+ * Iterates over the partitions of a table in pages of bounded size, fetching the partition objects and their column
+ * statistics one page at a time so that no single metastore response grows with the number of partitions.
+ * <p>
+ * Pages are either built from partition names, in which case the partition objects are fetched page by page, or from
+ * partitions already returned by the metastore, in which case only the statistics are fetched page by page. The
+ * metastore client is owned by the pages and is closed once the last page has been read or {@link #close()} is called.
+ * Statistics are fetched through a {@link PartitionColumnStatisticsFetcher}, and not at all when there are no column
+ * names.
+ * </p>
+ */
+public class PartitionPages implements Iterator<PartitionsAndStatistics>, Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionPages.class);
+
+  private final CloseableMetaStoreClient client;
+  private final PartitionColumnStatisticsFetcher statisticsFetcher;
+  private final Table table;
+  private final List<String> columnNames;
+  private final Iterator<List<String>> partitionNamePages;
+  private final Iterator<List<Partition>> partitionPages;
+  private int pagesRead;
+  private boolean closed;
+
+  private PartitionPages(
+      CloseableMetaStoreClient client,
+      PartitionColumnStatisticsFetcher statisticsFetcher,
+      Table table,
+      List<String> columnNames,
+      Iterator<List<String>> partitionNamePages,
+      Iterator<List<Partition>> partitionPages) {
+    this.client = client;
+    this.statisticsFetcher = statisticsFetcher;
+    this.table = table;
+    this.columnNames = columnNames;
+    this.partitionNamePages = partitionNamePages;
+    this.partitionPages = partitionPages;
+  }
+
+  static PartitionPages ofPartitionNames(
+      CloseableMetaStoreClient client,
+      PartitionColumnStatisticsFetcher statisticsFetcher,
+      Table table,
+      List<String> columnNames,
+      List<String> partitionNames,
+      int pageSize) {
+    return new PartitionPages(client, statisticsFetcher, table, columnNames,
+        Lists.partition(partitionNames, pageSize).iterator(), null);
+  }
+
+  static PartitionPages ofPartitions(
+      CloseableMetaStoreClient client,
+      PartitionColumnStatisticsFetcher statisticsFetcher,
+      Table table,
+      List<String> columnNames,
+      List<Partition> partitions,
+      int pageSize) {
+    return new PartitionPages(client, statisticsFetcher, table, columnNames, null,
+        Lists.partition(partitions, pageSize).iterator());
+  }
+
+  @Override
+  public boolean hasNext() {
+    boolean hasNext = !closed && (partitionNamePages != null ? partitionNamePages : partitionPages).hasNext();
+    if (!hasNext) {
+      close();
+    }
+    return hasNext;
+  }
+
+  @Override
+  public PartitionsAndStatistics next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      List<Partition> partitions;
+      if (partitionNamePages != null) {
+        partitions = client.getPartitionsByNames(table.getDbName(), table.getTableName(), partitionNamePages.next());
+      } else {
+        partitions = partitionPages.next();
+      }
+      Map<String, List<ColumnStatisticsObj>> statisticsByPartitionName = Collections.emptyMap();
+      if (!partitions.isEmpty() && !columnNames.isEmpty()) {
+        List<String> partitionNames = getPartitionNames(table.getPartitionKeys(), partitions);
+        statisticsByPartitionName = statisticsFetcher
+            .fetch(client, table.getDbName(), table.getTableName(), partitionNames, columnNames);
+      }
+      pagesRead++;
+      LOG.debug("Retrieved page {} of {} partitions with column stats for {} partitions of table {}.{}", pagesRead,
+          partitions.size(), statisticsByPartitionName.size(), table.getDbName(), table.getTableName());
+      return new PartitionsAndStatistics(table.getPartitionKeys(), partitions, statisticsByPartitionName);
+    } catch (TException e) {
+      close();
+      throw new MetaStoreClientException(
+          "Unable to fetch partitions of table '" + table.getDbName() + "." + table.getTableName() + "'", e);
+    }
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("remove");
+  }
+
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      client.close();
+    }
+  }
+
+  private static List<String> getPartitionNames(List<FieldSchema> partitionKeys, List<Partition> partitions)
+    throws MetaException {
+    List<String> partitionNames = new ArrayList<>(partitions.size());
+    for (Partition partition : partitions) {
+      partitionNames.add(Warehouse.makePartName(partitionKeys, partition.getValues()));
+    }
+    return partitionNames;
+  }
+
+}
@@ -15,8 +15,12 @@
  */
 package com.hotels.bdp.circustrain.core;
 
+import java.util.List;
+
 import org.apache.hadoop.hive.metastore.IMetaStoreClient;
 
+import com.google.common.base.Optional;
+
 public interface PartitionPredicate {
 
   /**
@@ -30,4 +34,13 @@ public interface PartitionPredicate {
    */
   short getPartitionPredicateLimit();
 
+  /**
+   * @return names of the partitions to fetch with
+   *         {@link IMetaStoreClient#getPartitionsByNames(String, String, List)} instead of filtering them with
+   *         {@link #getPartitionPredicate()}, if known
+   */
+  default Optional<List<String>> getPartitionNames() {
+    return Optional.absent();
+  }
+
 }
@@ -15,25 +15,23 @@
  */
 package com.hotels.bdp.circustrain.core;
 
-import org.apache.hadoop.fs.Path;
-
-import com.google.common.base.Function;
-
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
 import com.hotels.bdp.circustrain.core.conf.SpringExpressionParser;
+import com.hotels.bdp.circustrain.core.replica.Replica;
 
 public class PartitionPredicateFactory {
 
   private final SpringExpressionParser expressionParser;
   private final HiveEndpointFactory<? extends HiveEndpoint> sourceFactory;
   private final HiveEndpointFactory<? extends HiveEndpoint> replicaFactory;
-  private final Function<Path, String> checksumFunction;
+  private final PathChecksumFunction checksumFunction;
 
   public PartitionPredicateFactory(
       HiveEndpointFactory<? extends HiveEndpoint> sourceFactory,
       HiveEndpointFactory<? extends HiveEndpoint> replicaFactory,
       SpringExpressionParser expressionParser,
-      Function<Path, String> checksumFunction) {
+      PathChecksumFunction checksumFunction) {
     this.sourceFactory = sourceFactory;
     this.replicaFactory = replicaFactory;
     this.expressionParser = expressionParser;
@@ -44,6 +42,18 @@ public class PartitionPredicateFactory {
     if (tableReplication.getSourceTable().isGeneratePartitionFilter()) {
       return new DiffGeneratedPartitionPredicate(sourceFactory.newInstance(tableReplication),
           replicaFactory.newInstance(tableReplication), tableReplication, checksumFunction);
+    }
+    return new SpelParsedPartitionPredicate(expressionParser, tableReplication);
+  }
+
+  /**
+   * Creates a predicate that reuses the given endpoints, and therefore their cached metadata, when a partition filter
+   * has to be generated. Source checksums computed for the filter are handed to the replica.
+   */
+  public PartitionPredicate newInstance(TableReplication tableReplication, HiveEndpoint source, Replica replica) {
+    if (tableReplication.getSourceTable().isGeneratePartitionFilter()) {
+      return new DiffGeneratedPartitionPredicate(source, replica, tableReplication, checksumFunction,
+          replica.getPartitionChecksums());
     } else {
       return new SpelParsedPartitionPredicate(expressionParser, tableReplication);
     }
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+
+/**
+ * Runs the partition level work of table replications, such as fetching statistics, looking up and writing
+ * partitions or computing checksums, on one bounded pool of threads shared by all replications of a run.
+ * <p>
+ * Tasks run with the {@link ReplicationPhaseMetrics} of the thread that handed them over. The thread that calls
+ * {@link #invokeAll(String, List, int)} runs tasks itself as well, so a call always makes progress even when every
+ * thread of the pool is busy with the work of other tables. Failures are rethrown unwrapped: runtime exceptions as they
+ * are and checked exceptions wrapped in a {@link CircusTrainException}.
+ * </p>
+ */
+public class PartitionTaskExecutor implements Closeable {
+
+  /**
+   * Runs every task on the calling thread, for callers that have no pool to share.
+   */
+  public static final PartitionTaskExecutor CALLING_THREAD = new PartitionTaskExecutor(null);
+
+  private final ExecutorService executor;
+
+  public PartitionTaskExecutor(int threads) {
+    this(Executors
+        .newFixedThreadPool(Math.max(1, threads),
+            new ThreadFactoryBuilder().setNameFormat("partition-task-%d").setDaemon(true).build()));
+  }
+
+  private PartitionTaskExecutor(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Runs the tasks, at most {@code parallelism} of them at the same time including the calling thread, and returns
+   * their results in the order of the tasks. The first task to fail stops the tasks that have not started yet.
+   *
+   * @param description what the tasks do, used in error messages, e.g. {@code "fetch partition column statistics"}.
+   */
+  public <T> List<T> invokeAll(String description, List<? extends Callable<T>> tasks, int parallelism) {
+    Invocation<T> invocation = new Invocation<>(tasks, ReplicationPhaseMetrics.current());
+    int helpers = executor == null ? 0 : Math.min(parallelism, tasks.size()) - 1;
+    for (int i = 0; i < helpers; i++) {
+      executor.execute(invocation);
+    }
+    invocation.runTasks();
+    try {
+      invocation.done.await();
+    } catch (InterruptedException e) {
+      invocation.failure.compareAndSet(null, e);
+      Thread.currentThread().interrupt();
+    }
+    Throwable failure = invocation.failure.get();
+    if (failure != null) {
+      throw rethrow(description, failure);
+    }
+    return invocation.results();
+  }
+
+  /**
+   * Runs the task on the pool, or on the calling thread when there is no pool, and returns its future result.
+   * Callers that submit several tasks are responsible for bounding how many of them are pending.
+   */
+  public <T> Future<T> submit(final Callable<T> task) {
+    final ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.current();
+    if (executor == null) {
+      try {
+        return Futures.immediateFuture(task.call());
+      } catch (Exception e) {
+        return Futures.immediateFailedFuture(e);
+      }
+    }
+    return executor.submit(new Callable<T>() {
+      @Override
+      public T call() throws Exception {
+        ReplicationPhaseMetrics.bind(phaseMetrics);
+        try {
+          return task.call();
+        } finally {
+          ReplicationPhaseMetrics.end();
+        }
+      }
+    });
+  }
+
+  /**
+   * Waits for a result returned by {@link #submit(Callable)}, rethrowing a failure like
+   * {@link #invokeAll(String, List, int)} does.
+   */
+  public <T> T get(String description, Future<T> future) {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw rethrow(description, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw rethrow(description, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private static RuntimeException rethrow(String description, Throwable failure) {
+    if (failure instanceof RuntimeException) {
+      return (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure instanceof InterruptedException) {
+      return new CircusTrainException("Interrupted while waiting to " + description, failure);
+    }
+    return new CircusTrainException("Unable to " + description, failure);
+  }
+
+  /**
+   * The tasks of one call. Threads claim tasks one at a time until none are left, so threads of the pool that only get
+   * to run after the calling thread has claimed every task return straight away.
+   */
+  private static class Invocation<T> implements Runnable {
+
+    private final List<? extends Callable<T>> tasks;
+    private final ReplicationPhaseMetrics phaseMetrics;
+    private final List<T> results;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final CountDownLatch done;
+
+    Invocation(List<? extends Callable<T>> tasks, ReplicationPhaseMetrics phaseMetrics) {
+      this.tasks = tasks;
+      this.phaseMetrics = phaseMetrics;
+      results = new ArrayList<>(Collections.<T> nCopies(tasks.size(), null));
+      done = new CountDownLatch(tasks.size());
+    }
+
+    @Override
+    public void run() {
+      ReplicationPhaseMetrics.bind(phaseMetrics);
+      try {
+        runTasks();
+      } finally {
+        ReplicationPhaseMetrics.end();
+      }
+    }
+
+    void runTasks() {
+      int index;
+      while ((index = next.getAndIncrement()) < tasks.size()) {
+        try {
+          if (failure.get() == null) {
+            T result = tasks.get(index).call();
+            synchronized (results) {
+              results.set(index, result);
+            }
+          }
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        } finally {
+          done.countDown();
+        }
+      }
+    }
+
+    List<T> results() {
+      synchronized (results) {
+        return new ArrayList<>(results);
+      }
+    }
+  }
+
+}
@@ -26,7 +26,6 @@ import org.slf4j.LoggerFactory;
 
 import com.hotels.bdp.circustrain.api.CircusTrainException;
 import com.hotels.bdp.circustrain.api.ReplicaLocationManager;
-import com.hotels.bdp.circustrain.api.Replication;
 import com.hotels.bdp.circustrain.api.SourceLocationManager;
 import com.hotels.bdp.circustrain.api.copier.Copier;
 import com.hotels.bdp.circustrain.api.copier.CopierFactory;
@@ -34,11 +33,12 @@ import com.hotels.bdp.circustrain.api.copier.CopierFactoryManager;
 import com.hotels.bdp.circustrain.api.event.CopierListener;
 import com.hotels.bdp.circustrain.api.metrics.Metrics;
 import com.hotels.bdp.circustrain.api.util.DotJoiner;
+import com.hotels.bdp.circustrain.core.journal.TableReplicationJournal;
 import com.hotels.bdp.circustrain.core.replica.Replica;
 import com.hotels.bdp.circustrain.core.replica.TableType;
 import com.hotels.bdp.circustrain.core.source.Source;
 
-class PartitionedTableReplication implements Replication {
+class PartitionedTableReplication implements StagedReplication {
 
   private static final Logger LOG = LoggerFactory.getLogger(PartitionedTableReplication.class);
 
@@ -55,6 +55,12 @@ class PartitionedTableReplication implements Replication {
   private Metrics metrics = Metrics.NULL_VALUE;
   private final Map<String, Object> copierOptions;
   private final CopierListener copierListener;
+  private final TableReplicationJournal journal;
+
+  // State handed from the copy stage to the commit stage
+  private TableAndStatistics sourceTableAndStatistics;
+  private List<Partition> sourcePartitions;
+  private ReplicaLocationManager replicaLocationManager;
 
   PartitionedTableReplication(
       String database,
@@ -68,7 +74,8 @@ class PartitionedTableReplication implements Replication {
       String replicaDatabaseName,
       String replicaTableName,
       Map<String, Object> copierOptions,
-      CopierListener copierListener) {
+      CopierListener copierListener,
+      TableReplicationJournal journal) {
     this.database = database;
     this.table = table;
     this.partitionPredicate = partitionPredicate;
@@ -80,64 +87,121 @@ class PartitionedTableReplication implements Replication {
     this.replicaTableName = replicaTableName;
     this.copierOptions = copierOptions;
     this.copierListener = copierListener;
+    this.journal = journal;
     eventId = eventIdFactory.newEventId(EventIdPrefix.CIRCUS_TRAIN_PARTITIONED_TABLE.getPrefix());
   }
 
   @Override
   public void replicate() throws CircusTrainException {
+    copy();
+    commit();
+  }
+
+  @Override
+  public void copy() throws CircusTrainException {
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.current();
     try {
-      TableAndStatistics sourceTableAndStatistics = source.getTableAndStatistics(database, table);
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("source_table")) {
+        sourceTableAndStatistics = source.getTableAndStatistics(database, table);
+      }
       Table sourceTable = sourceTableAndStatistics.getTable();
 
-      PartitionsAndStatistics sourcePartitionsAndStatistics = source
-          .getPartitions(sourceTable, partitionPredicate.getPartitionPredicate(),
-              partitionPredicate.getPartitionPredicateLimit());
-      List<Partition> sourcePartitions = sourcePartitionsAndStatistics.getPartitions();
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("source_partitions")) {
+        // Their statistics are only needed by the metadata update, which fetches them page by page
+        sourcePartitions = source.getPartitionsWithoutStatistics(sourceTable, partitionPredicate);
+      }
+      phaseMetrics.add("source_partitions", sourcePartitions.size());
 
-      replica.validateReplicaTable(replicaDatabaseName, replicaTableName);
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("replica_validation")) {
+        replica.validateReplicaTable(replicaDatabaseName, replicaTableName);
+      }
 
       // We expect all partitions to be under the table base path
-      SourceLocationManager sourceLocationManager = source
-          .getLocationManager(sourceTable, sourcePartitions, eventId, copierOptions);
+      SourceLocationManager sourceLocationManager;
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("source_locations")) {
+        sourceLocationManager = source.getLocationManager(sourceTable, sourcePartitions, eventId, copierOptions);
+      }
       Path sourceBaseLocation = sourceLocationManager.getTableLocation();
       List<Path> sourceSubLocations = sourceLocationManager.getPartitionLocations();
 
-      ReplicaLocationManager replicaLocationManager = replica
-          .getLocationManager(TableType.PARTITIONED, targetTableLocation, eventId, sourceLocationManager);
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("replica_locations")) {
+        replicaLocationManager = replica
+            .getLocationManager(TableType.PARTITIONED, targetTableLocation, eventId, sourceLocationManager);
+      }
       Path replicaPartitionBaseLocation = replicaLocationManager.getPartitionBaseLocation();
 
       if (sourcePartitions.isEmpty()) {
-        LOG.debug("Update table {}.{} metadata only", database, table);
-        replica
-            .updateMetadata(eventId, sourceTableAndStatistics, replicaDatabaseName, replicaTableName,
-                replicaLocationManager);
-        LOG
-            .info("No matching partitions found on table {}.{} with predicate {}."
-                + " Table metadata updated, no partitions were updated.", database, table, partitionPredicate);
+        return;
+      }
+      String fingerprint = TableReplicationJournal.fingerprint(sourceTable, sourcePartitions);
+      boolean copied = journal.isCopied(eventId, fingerprint);
+      if (copied) {
+        LOG.info("Data of table {}.{} was already copied by event {}, resuming with the metadata update.", database,
+            table, eventId);
       } else {
         CopierFactory copierFactory = copierFactoryManager
             .getCopierFactory(sourceBaseLocation, replicaPartitionBaseLocation, copierOptions);
         Copier copier = copierFactory
-            .newInstance(eventId, sourceBaseLocation, sourceSubLocations, replicaPartitionBaseLocation, copierOptions);
+            .newInstance(eventId, sourceBaseLocation, sourceSubLocations, replicaPartitionBaseLocation,
+                copierOptions);
         copierListener.copierStart(copier.getClass().getName());
-        try {
+        try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("copy")) {
           metrics = copier.copy();
         } finally {
           copierListener.copierEnd(metrics);
         }
+      }
 
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("source_clean_up")) {
         sourceLocationManager.cleanUpLocations();
+      }
+      if (!copied) {
+        journal.copied(eventId, fingerprint);
+      }
+    } catch (Throwable t) {
+      throw new CircusTrainException("Unable to replicate", t);
+    }
+  }
 
-        replica
-            .updateMetadata(eventId, sourceTableAndStatistics, sourcePartitionsAndStatistics, replicaDatabaseName,
-                replicaTableName, replicaLocationManager);
-        replicaLocationManager.cleanUpLocations();
+  @Override
+  public void commit() throws CircusTrainException {
+    if (replicaLocationManager == null) {
+      throw new IllegalStateException("Data of table " + name() + " has not been copied");
+    }
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.current();
+    try {
+      if (sourcePartitions.isEmpty()) {
+        LOG.debug("Update table {}.{} metadata only", database, table);
+        try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("metadata_update")) {
+          replica
+              .updateMetadata(eventId, sourceTableAndStatistics, replicaDatabaseName, replicaTableName,
+                  replicaLocationManager);
+        }
+        LOG
+            .info("No matching partitions found on table {}.{} with predicate {}."
+                + " Table metadata updated, no partitions were updated.", database, table, partitionPredicate);
+      } else {
+        try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("metadata_update");
+            PartitionPages sourcePartitionPages = source
+                .getPartitionPages(sourceTableAndStatistics.getTable(), sourcePartitions)) {
+          replica
+              .updateMetadata(eventId, sourceTableAndStatistics, sourcePartitionPages, replicaDatabaseName,
+                  replicaTableName, replicaLocationManager);
+        }
+        try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("replica_clean_up")) {
+          replicaLocationManager.cleanUpLocations();
+        }
 
         int partitionsCopied = sourcePartitions.size();
         LOG.info("Replicated {} partitions of table {}.{}.", partitionsCopied, database, table);
       }
     } catch (Throwable t) {
       throw new CircusTrainException("Unable to replicate", t);
+    } finally {
+      // Release the partitions as soon as the table is done
+      sourceTableAndStatistics = null;
+      sourcePartitions = null;
+      replicaLocationManager = null;
     }
   }
 
@@ -17,7 +17,7 @@ package com.hotels.bdp.circustrain.core;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,39 +31,28 @@ import org.apache.hadoop.hive.metastore.api.Partition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Partitions together with their column statistics. Statistics are keyed by partition name so that looking them up
+ * does not hash whole partition objects.
+ */
 public class PartitionsAndStatistics {
 
   private static final Logger LOG = LoggerFactory.getLogger(PartitionsAndStatistics.class);
 
-  private final Map<Partition, ColumnStatistics> statisticsByPartition;
-  private final List<String> partitionNames = new ArrayList<>();
+  private final List<Partition> partitions;
+  private final List<String> partitionNames;
+  private final Map<String, ColumnStatistics> statisticsByPartitionName;
   private List<FieldSchema> partitionKeys;
 
   public PartitionsAndStatistics(
       List<FieldSchema> partitionKeys,
       List<Partition> partitions,
       Map<String, List<ColumnStatisticsObj>> statisticsByPartitionName) {
-    this(partitionKeys, createStatisticsByPartitionMap(partitionKeys, partitions, statisticsByPartitionName));
-  }
-
-  public PartitionsAndStatistics(
-      List<FieldSchema> partitionKeys,
-      Map<Partition, ColumnStatistics> statisticsByPartition) {
     this.partitionKeys = partitionKeys;
-    this.statisticsByPartition = statisticsByPartition;
-    for (Partition partition : statisticsByPartition.keySet()) {
-      String partitionName = getPartitionName(partitionKeys, partition);
-      partitionNames.add(partitionName);
-    }
-  }
-
-  private static Map<Partition, ColumnStatistics> createStatisticsByPartitionMap(
-      List<FieldSchema> partitionKeys,
-      List<Partition> partitions,
-      Map<String, List<ColumnStatisticsObj>> statisticsByPartitionName) {
+    this.partitions = new ArrayList<>(partitions.size());
+    partitionNames = new ArrayList<>(partitions.size());
+    this.statisticsByPartitionName = new HashMap<>();
     int entryCount = 0;
-    // LinkedHashMap so order is preserved, nice for tests mostly
-    Map<Partition, ColumnStatistics> result = new LinkedHashMap<>(partitions.size());
     for (Partition partition : partitions) {
       if (partition == null) {
         throw new IllegalArgumentException("partition == null");
@@ -78,10 +67,44 @@ public class PartitionsAndStatistics {
         statsDesc.setPartName(partitionName);
         statistics = new ColumnStatistics(statsDesc, statisticsObj);
       }
-      result.put(partition, statistics);
+      add(partition, partitionName, statistics);
     }
     LOG.debug("Indexed {} column stats entries for {} partitions.", entryCount, statisticsByPartitionName.size());
-    return result;
+  }
+
+  public PartitionsAndStatistics(
+      List<FieldSchema> partitionKeys,
+      Map<Partition, ColumnStatistics> statisticsByPartition) {
+    this.partitionKeys = partitionKeys;
+    partitions = new ArrayList<>(statisticsByPartition.size());
+    partitionNames = new ArrayList<>(statisticsByPartition.size());
+    statisticsByPartitionName = new HashMap<>();
+    for (Map.Entry<Partition, ColumnStatistics> entry : statisticsByPartition.entrySet()) {
+      add(entry.getKey(), getPartitionName(partitionKeys, entry.getKey()), entry.getValue());
+    }
+  }
+
+  /**
+   * @param partitionNames the names of the partitions, in the same order
+   * @param statisticsByPartitionName statistics of the partitions that have any
+   */
+  PartitionsAndStatistics(
+      List<FieldSchema> partitionKeys,
+      List<Partition> partitions,
+      List<String> partitionNames,
+      Map<String, ColumnStatistics> statisticsByPartitionName) {
+    this.partitionKeys = partitionKeys;
+    this.partitions = partitions;
+    this.partitionNames = partitionNames;
+    this.statisticsByPartitionName = statisticsByPartitionName;
+  }
+
+  private void add(Partition partition, String partitionName, ColumnStatistics statistics) {
+    partitions.add(partition);
+    partitionNames.add(partitionName);
+    if (statistics != null) {
+      statisticsByPartitionName.put(partitionName, statistics);
+    }
   }
 
   private static String getPartitionName(List<FieldSchema> partitionKeys, Partition partition) {
@@ -93,7 +116,7 @@ public class PartitionsAndStatistics {
   }
 
   public List<Partition> getPartitions() {
-    return Collections.unmodifiableList(new ArrayList<>(statisticsByPartition.keySet()));
+    return Collections.unmodifiableList(partitions);
   }
   
   public List<FieldSchema> getPartitionKeys() {
@@ -104,7 +127,11 @@ public class PartitionsAndStatistics {
     if (partition == null) {
       throw new IllegalArgumentException("partition == null");
     }
-    return statisticsByPartition.get(partition);
+    return statisticsByPartitionName.get(getPartitionName(partitionKeys, partition));
+  }
+
+  public ColumnStatistics getStatisticsForPartitionName(String partitionName) {
+    return statisticsByPartitionName.get(partitionName);
   }
 
   /**
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.CronTrigger;
+import org.springframework.scheduling.support.PeriodicTrigger;
+import org.springframework.stereotype.Component;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+import com.hotels.bdp.circustrain.api.Modules;
+import com.hotels.bdp.circustrain.api.conf.Daemon;
+import com.hotels.bdp.circustrain.api.conf.DaemonSchedule;
+import com.hotels.bdp.circustrain.api.conf.TableReplication;
+
+/**
+ * Keeps Circus Train resident and triggers a {@link Locomotive} run for each schedule group when its cron expression
+ * or interval fires. The Spring context, metastore clients and any caches stay warm between runs.
+ * <p>
+ * Runs are executed one at a time; a group that becomes due while another group is replicating starts as soon as the
+ * current run finishes. On shutdown no new runs are started and the run in progress, if any, is allowed to complete.
+ * </p>
+ */
+@Profile({ Modules.REPLICATION })
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ReplicationDaemon implements ApplicationRunner, DisposableBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicationDaemon.class);
+
+  private final Locomotive locomotive;
+  private final Daemon daemon;
+  private final List<ScheduledFuture<?>> scheduledRuns = new ArrayList<>();
+  private final CountDownLatch stopped = new CountDownLatch(1);
+  private ThreadPoolTaskScheduler scheduler;
+
+  @Autowired
+  ReplicationDaemon(Locomotive locomotive, Daemon daemon) {
+    this.locomotive = locomotive;
+    this.daemon = daemon;
+  }
+
+  public boolean isEnabled() {
+    return daemon.isEnabled();
+  }
+
+  @Override
+  public synchronized void run(ApplicationArguments args) {
+    if (!daemon.isEnabled()) {
+      return;
+    }
+    if (ReplicationPlanRunner.isPlan(args)) {
+      // Nothing is scheduled when planning
+      stopped.countDown();
+      return;
+    }
+    Map<String, List<TableReplication>> groups = groupTableReplications(locomotive.getTableReplications());
+    Map<String, Trigger> triggers = new LinkedHashMap<>();
+    for (String group : groups.keySet()) {
+      DaemonSchedule schedule = daemon.getSchedules().get(group);
+      if (schedule == null) {
+        throw new CircusTrainException(String.format("No daemon schedule has been configured for group '%s'", group));
+      }
+      triggers.put(group, newTrigger(group, schedule));
+    }
+    for (String group : daemon.getSchedules().keySet()) {
+      if (!groups.containsKey(group)) {
+        LOG.warn("Daemon schedule '{}' has no table replications and will be ignored.", group);
+      }
+    }
+
+    scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setPoolSize(1);
+    scheduler.setThreadNamePrefix("replication-scheduler-");
+    scheduler.setWaitForTasksToCompleteOnShutdown(true);
+    scheduler.setAwaitTerminationSeconds(Integer.MAX_VALUE);
+    scheduler.initialize();
+
+    String[] sourceArgs = args.getSourceArgs();
+    for (Entry<String, Trigger> entry : triggers.entrySet()) {
+      String group = entry.getKey();
+      LOG.info("Scheduling {} table replications in group '{}'.", groups.get(group).size(), group);
+      scheduledRuns.add(scheduler.schedule(new ScheduledRun(group, groups.get(group), sourceArgs), entry.getValue()));
+    }
+  }
+
+  private static Map<String, List<TableReplication>> groupTableReplications(List<TableReplication> tableReplications) {
+    Map<String, List<TableReplication>> groups = new LinkedHashMap<>();
+    for (TableReplication tableReplication : tableReplications) {
+      String group = tableReplication.getScheduleGroup();
+      if (group == null) {
+        group = Daemon.DEFAULT_SCHEDULE_GROUP;
+      }
+      List<TableReplication> members = groups.get(group);
+      if (members == null) {
+        members = new ArrayList<>();
+        groups.put(group, members);
+      }
+      members.add(tableReplication);
+    }
+    return groups;
+  }
+
+  private static Trigger newTrigger(String group, DaemonSchedule schedule) {
+    boolean hasCron = schedule.getCron() != null && !schedule.getCron().trim().isEmpty();
+    boolean hasInterval = schedule.getInterval() > 0;
+    if (hasCron == hasInterval) {
+      throw new CircusTrainException(
+          String.format("Daemon schedule '%s' must define exactly one of 'cron' or 'interval'", group));
+    }
+    if (hasCron) {
+      return new CronTrigger(schedule.getCron().trim());
+    }
+    return new PeriodicTrigger(schedule.getInterval(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Blocks until the daemon has been stopped. Returns immediately if daemon mode is not enabled.
+   */
+  public void awaitShutdown() throws InterruptedException {
+    if (daemon.isEnabled()) {
+      stopped.await();
+    }
+  }
+
+  @Override
+  public synchronized void destroy() {
+    if (scheduler != null) {
+      LOG.info("Stopping replication daemon.");
+      for (ScheduledFuture<?> scheduledRun : scheduledRuns) {
+        scheduledRun.cancel(false);
+      }
+      scheduledRuns.clear();
+      scheduler.shutdown();
+      scheduler = null;
+    }
+    stopped.countDown();
+  }
+
+  private class ScheduledRun implements Runnable {
+
+    private final String group;
+    private final List<TableReplication> tableReplications;
+    private final String[] sourceArgs;
+
+    private ScheduledRun(String group, List<TableReplication> tableReplications, String[] sourceArgs) {
+      this.group = group;
+      this.tableReplications = tableReplications;
+      this.sourceArgs = sourceArgs;
+    }
+
+    @Override
+    public void run() {
+      LOG.info("Starting scheduled replication of group '{}'.", group);
+      try {
+        LOG.info("Scheduled replication of group '{}' completed with {}.", group,
+            locomotive.replicate(sourceArgs, tableReplications));
+      } catch (RuntimeException e) {
+        // Keep the schedule alive, the next run may well succeed
+        LOG.error("Scheduled replication of group '{}' failed.", group, e);
+      }
+    }
+  }
+
+}
@@ -29,6 +29,8 @@ import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.bdp.circustrain.api.copier.CopierFactoryManager;
 import com.hotels.bdp.circustrain.api.copier.CopierOptions;
 import com.hotels.bdp.circustrain.api.event.CopierListener;
+import com.hotels.bdp.circustrain.core.journal.ReplicationJournal;
+import com.hotels.bdp.circustrain.core.journal.TableReplicationJournal;
 import com.hotels.bdp.circustrain.core.replica.Replica;
 import com.hotels.bdp.circustrain.core.replica.ReplicaFactory;
 import com.hotels.bdp.circustrain.core.source.Source;
@@ -43,6 +45,7 @@ public class ReplicationFactoryImpl implements ReplicationFactory {
   private final CopierListener copierListener;
   private final PartitionPredicateFactory partitionPredicateFactory;
   private final CopierOptions copierOptions;
+  private final ReplicationJournal replicationJournal;
 
   public ReplicationFactoryImpl(
       SourceFactory sourceFactory,
@@ -50,13 +53,15 @@ public class ReplicationFactoryImpl implements ReplicationFactory {
       CopierFactoryManager copierFactoryManager,
       CopierListener copierListener,
       PartitionPredicateFactory partitionPredicateFactory,
-      CopierOptions copierOptions) {
+      CopierOptions copierOptions,
+      ReplicationJournal replicationJournal) {
     this.sourceFactory = sourceFactory;
     this.replicaFactory = replicaFactory;
     this.copierFactoryManager = copierFactoryManager;
     this.copierListener = copierListener;
     this.partitionPredicateFactory = partitionPredicateFactory;
     this.copierOptions = copierOptions;
+    this.replicationJournal = replicationJournal;
   }
 
   /*
@@ -101,7 +106,7 @@ public class ReplicationFactoryImpl implements ReplicationFactory {
       String replicaTableName,
       String replicaTableLocation) {
     Replication replication = null;
-    PartitionPredicate partitionPredicate = partitionPredicateFactory.newInstance(tableReplication);
+    PartitionPredicate partitionPredicate = partitionPredicateFactory.newInstance(tableReplication, source, replica);
     switch (tableReplication.getReplicationMode()) {
     case METADATA_MIRROR:
       replication = new PartitionedTableMetadataMirrorReplication(sourceDatabaseName, sourceTableName,
@@ -111,9 +116,10 @@ public class ReplicationFactoryImpl implements ReplicationFactory {
     case FULL:
       Map<String, Object> mergedCopierOptions = tableReplication
           .getMergedCopierOptions(copierOptions.getCopierOptions());
+      TableReplicationJournal journal = newTableReplicationJournal(tableReplication);
       replication = new PartitionedTableReplication(sourceDatabaseName, sourceTableName, partitionPredicate, source,
-          replica, copierFactoryManager, eventIdFactory, replicaTableLocation, replicaDatabaseName, replicaTableName,
-          mergedCopierOptions, copierListener);
+          replica, copierFactoryManager, resumableEventIdFactory(journal), replicaTableLocation, replicaDatabaseName,
+          replicaTableName, mergedCopierOptions, copierListener, journal);
       break;
     case METADATA_UPDATE:
       replication = new PartitionedTableMetadataUpdateReplication(sourceDatabaseName, sourceTableName,
@@ -146,9 +152,10 @@ public class ReplicationFactoryImpl implements ReplicationFactory {
     case FULL:
       Map<String, Object> mergedCopierOptions = tableReplication
           .getMergedCopierOptions(copierOptions.getCopierOptions());
+      TableReplicationJournal journal = newTableReplicationJournal(tableReplication);
       replication = new UnpartitionedTableReplication(sourceDatabaseName, sourceTableName, source, replica,
-          copierFactoryManager, eventIdFactory, replicaTableLocation, replicaDatabaseName, replicaTableName,
-          mergedCopierOptions, copierListener);
+          copierFactoryManager, resumableEventIdFactory(journal), replicaTableLocation, replicaDatabaseName,
+          replicaTableName, mergedCopierOptions, copierListener, journal);
       break;
     case METADATA_UPDATE:
       replication = new UnpartitionedTableMetadataUpdateReplication(sourceDatabaseName, sourceTableName, source,
@@ -161,6 +168,27 @@ public class ReplicationFactoryImpl implements ReplicationFactory {
     return replication;
   }
 
+  private TableReplicationJournal newTableReplicationJournal(TableReplication tableReplication) {
+    return new TableReplicationJournal(replicationJournal, tableReplication.getQualifiedReplicaName());
+  }
+
+  /**
+   * Reuses the event ID of an interrupted run whose data copy completed so that the copied data can be committed
+   * instead of being copied again.
+   */
+  private EventIdFactory resumableEventIdFactory(TableReplicationJournal journal) {
+    final String resumableEventId = journal.getResumableEventId();
+    if (resumableEventId == null) {
+      return eventIdFactory;
+    }
+    return new EventIdFactory() {
+      @Override
+      public String newEventId(String prefix) {
+        return resumableEventId;
+      }
+    };
+  }
+
   private void validate(TableReplication tableReplication, Source source, Replica replica) {
     source.getDatabase(tableReplication.getSourceTable().getDatabaseName());
     replica.getDatabase(tableReplication.getReplicaDatabaseName());
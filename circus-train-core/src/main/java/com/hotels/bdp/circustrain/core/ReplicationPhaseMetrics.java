@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+import com.hotels.bdp.circustrain.api.metrics.Metrics;
+
+/**
+ * Collects the duration of each phase of a table replication along with counters such as the number of metastore
+ * calls and the size of the batches they were made in.
+ * <p>
+ * A collector is bound to the thread that replicates a table by {@link #begin()} and released by {@link #end()}. Code
+ * taking part in the replication records into {@link #current()}, which silently discards everything when no table
+ * is being replicated on the calling thread. Work handed to other threads must be given the collector explicitly.
+ * </p>
+ * <p>
+ * Phase durations are reported in milliseconds as {@code <phase>_time}, summed when a phase runs more than once.
+ * </p>
+ */
+public class ReplicationPhaseMetrics implements Metrics {
+
+  static final String TIME_SUFFIX = "_time";
+
+  private static final ThreadLocal<ReplicationPhaseMetrics> CURRENT = new ThreadLocal<>();
+  private static final ReplicationPhaseMetrics DISCARDING = new ReplicationPhaseMetrics(false, Ticker.systemTicker());
+
+  private final boolean recording;
+  private final Ticker ticker;
+  private final Map<String, Long> metrics = new LinkedHashMap<>();
+
+  ReplicationPhaseMetrics(Ticker ticker) {
+    this(true, ticker);
+  }
+
+  private ReplicationPhaseMetrics(boolean recording, Ticker ticker) {
+    this.recording = recording;
+    this.ticker = ticker;
+  }
+
+  /**
+   * Binds a new collector to the calling thread, replacing any previous one.
+   */
+  public static ReplicationPhaseMetrics begin() {
+    ReplicationPhaseMetrics phaseMetrics = new ReplicationPhaseMetrics(Ticker.systemTicker());
+    CURRENT.set(phaseMetrics);
+    return phaseMetrics;
+  }
+
+  /**
+   * Binds an existing collector to the calling thread, used to record the work a replication hands to other threads.
+   */
+  public static void bind(ReplicationPhaseMetrics phaseMetrics) {
+    CURRENT.set(phaseMetrics);
+  }
+
+  /**
+   * @return the collector bound to the calling thread or one that discards everything if there is none.
+   */
+  public static ReplicationPhaseMetrics current() {
+    ReplicationPhaseMetrics phaseMetrics = CURRENT.get();
+    return phaseMetrics == null ? DISCARDING : phaseMetrics;
+  }
+
+  /**
+   * Releases the collector bound to the calling thread.
+   */
+  public static void end() {
+    CURRENT.remove();
+  }
+
+  /**
+   * Starts timing a phase, the time is recorded when the returned {@link Phase} is closed.
+   */
+  public Phase phase(String name) {
+    return new Phase(name + TIME_SUFFIX);
+  }
+
+  public void increment(String name) {
+    add(name, 1L);
+  }
+
+  public void add(String name, long delta) {
+    if (!recording) {
+      return;
+    }
+    synchronized (metrics) {
+      Long value = metrics.get(name);
+      metrics.put(name, value == null ? delta : value + delta);
+    }
+  }
+
+  /**
+   * Records {@code value} if it is larger than the one recorded so far, useful for batch sizes.
+   */
+  public void max(String name, long value) {
+    if (!recording) {
+      return;
+    }
+    synchronized (metrics) {
+      Long current = metrics.get(name);
+      if (current == null || value > current) {
+        metrics.put(name, value);
+      }
+    }
+  }
+
+  /**
+   * Records {@code value} if it is smaller than the one recorded so far, useful for adaptive limits.
+   */
+  public void min(String name, long value) {
+    if (!recording) {
+      return;
+    }
+    synchronized (metrics) {
+      Long current = metrics.get(name);
+      if (current == null || value < current) {
+        metrics.put(name, value);
+      }
+    }
+  }
+
+  @Override
+  public Map<String, Long> getMetrics() {
+    synchronized (metrics) {
+      return ImmutableMap.copyOf(metrics);
+    }
+  }
+
+  @Override
+  public long getBytesReplicated() {
+    // Bytes are reported by the copier metrics
+    return 0L;
+  }
+
+  public class Phase implements AutoCloseable {
+
+    private final String metricName;
+    private final long start;
+
+    private Phase(String metricName) {
+      this.metricName = metricName;
+      start = ticker.read();
+    }
+
+    @Override
+    public void close() {
+      add(metricName, TimeUnit.NANOSECONDS.toMillis(ticker.read() - start));
+    }
+  }
+
+}
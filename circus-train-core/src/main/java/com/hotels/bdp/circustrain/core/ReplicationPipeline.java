@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+import com.hotels.bdp.circustrain.api.Replication;
+
+/**
+ * Overlaps the copy and metadata stages of different tables. Each stage admits a bounded number of tables at a time
+ * and tables that have finished copying queue, in arrival order, for the metadata stage. While the partitions of one
+ * table are written to the replica metastore the data of the next table is already being copied.
+ * <p>
+ * Tables in the pipeline hold their source partitions and statistics in memory so the number of tables in flight is
+ * bounded by the replication workers, of which there are at least {@link #getMinimumWorkers()}. A stage concurrency of
+ * zero or less leaves that stage unbounded.
+ * </p>
+ * <p>
+ * A {@link Replication} that is not a {@link StagedReplication} cannot be split and occupies both stages while it
+ * runs. Stages are always entered in pipeline order so this cannot deadlock.
+ * </p>
+ */
+public class ReplicationPipeline {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicationPipeline.class);
+
+  private final Stage copyStage;
+  private final Stage metadataStage;
+
+  public ReplicationPipeline(int copyConcurrency, int metadataConcurrency) {
+    copyStage = new Stage("copy", copyConcurrency);
+    metadataStage = new Stage("metadata", metadataConcurrency);
+  }
+
+  public boolean isEnabled() {
+    return copyStage.isBounded() || metadataStage.isBounded();
+  }
+
+  /**
+   * @return the number of workers needed to keep every bounded stage busy while another table is in the other stage,
+   *         counting an unbounded stage as one worker, or {@code 1} if the pipeline is not enabled.
+   */
+  public int getMinimumWorkers() {
+    if (!isEnabled()) {
+      return 1;
+    }
+    return copyStage.getMinimumWorkers() + metadataStage.getMinimumWorkers();
+  }
+
+  /**
+   * @return the number of replication workers to use for the configured {@code replication-concurrency}.
+   */
+  public int getWorkers(int replicationConcurrency) {
+    return Math.max(replicationConcurrency, getMinimumWorkers());
+  }
+
+  public void replicate(Replication replication) throws CircusTrainException {
+    if (replication instanceof StagedReplication) {
+      StagedReplication stagedReplication = (StagedReplication) replication;
+      copyStage.enter(replication);
+      try {
+        stagedReplication.copy();
+      } finally {
+        copyStage.exit();
+      }
+      metadataStage.enter(replication);
+      try {
+        stagedReplication.commit();
+      } finally {
+        metadataStage.exit();
+      }
+    } else {
+      copyStage.enter(replication);
+      try {
+        metadataStage.enter(replication);
+        try {
+          replication.replicate();
+        } finally {
+          metadataStage.exit();
+        }
+      } finally {
+        copyStage.exit();
+      }
+    }
+  }
+
+  private static class Stage {
+
+    private final String name;
+    private final int concurrency;
+    private final Semaphore permits;
+
+    private Stage(String name, int concurrency) {
+      this.name = name;
+      this.concurrency = concurrency;
+      // Fair so that tables enter the stage in the order they became ready for it
+      permits = concurrency > 0 ? new Semaphore(concurrency, true) : null;
+    }
+
+    private boolean isBounded() {
+      return permits != null;
+    }
+
+    private int getMinimumWorkers() {
+      return isBounded() ? concurrency : 1;
+    }
+
+    private void enter(Replication replication) {
+      if (permits == null) {
+        return;
+      }
+      if (permits.availablePermits() == 0) {
+        LOG.debug("{} is waiting for the {} stage", replication.name(), name);
+      }
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CircusTrainException("Interrupted while waiting for the " + name + " stage", e);
+      }
+    }
+
+    private void exit() {
+      if (permits != null) {
+        permits.release();
+      }
+    }
+  }
+
+}
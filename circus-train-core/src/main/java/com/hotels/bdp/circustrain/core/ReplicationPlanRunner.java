@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.DumperOptions.FlowStyle;
+import org.yaml.snakeyaml.Yaml;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+import com.hotels.bdp.circustrain.api.Modules;
+import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.api.conf.TableReplications;
+
+/**
+ * Writes a replication plan instead of replicating when Circus Train is started with {@code --plan}. The plan is written
+ * as YAML to the file given as the option value, or to standard output if no value is given.
+ */
+@Profile({ Modules.REPLICATION })
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReplicationPlanRunner implements ApplicationRunner, ExitCodeGenerator {
+
+  public static final String PLAN_OPTION = "plan";
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicationPlanRunner.class);
+
+  private final List<TableReplication> tableReplications;
+  private final TableReplicationOrdering tableReplicationOrdering;
+  private final ReplicationPlanner replicationPlanner;
+  private int exitCode = 0;
+
+  @Autowired
+  ReplicationPlanRunner(
+      TableReplications tableReplications,
+      TableReplicationOrdering tableReplicationOrdering,
+      ReplicationPlanner replicationPlanner) {
+    this.tableReplications = tableReplications.getTableReplications();
+    this.tableReplicationOrdering = tableReplicationOrdering;
+    this.replicationPlanner = replicationPlanner;
+  }
+
+  public static boolean isPlan(ApplicationArguments args) {
+    return args.containsOption(PLAN_OPTION);
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!isPlan(args)) {
+      return;
+    }
+    LOG.info("Planning the replication of {} tables, no data will be replicated.", tableReplications.size());
+    List<TablePlan> plans = replicationPlanner.plan(tableReplicationOrdering.order(tableReplications));
+    int errors = 0;
+    for (TablePlan plan : plans) {
+      if (plan.getError() != null) {
+        errors++;
+      }
+    }
+    if (errors > 0) {
+      exitCode = errors == plans.size() ? -1 : -2;
+    }
+
+    List<String> optionValues = args.getOptionValues(PLAN_OPTION);
+    try {
+      if (optionValues.isEmpty() || optionValues.get(0).isEmpty()) {
+        Writer writer = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        write(plans, writer);
+        writer.flush();
+      } else {
+        File planFile = new File(optionValues.get(0));
+        try (Writer writer = Files.newBufferedWriter(planFile.toPath(), StandardCharsets.UTF_8)) {
+          write(plans, writer);
+        }
+        LOG.info("Replication plan written to {}.", planFile.getAbsolutePath());
+      }
+    } catch (IOException e) {
+      throw new CircusTrainException("Unable to write replication plan", e);
+    }
+  }
+
+  static void write(List<TablePlan> plans, Writer writer) {
+    long files = 0;
+    long bytes = 0;
+    long estimatedDurationMillis = 0;
+    List<Map<String, Object>> tables = new ArrayList<>(plans.size());
+    for (TablePlan plan : plans) {
+      files += plan.getFiles();
+      bytes += plan.getBytes();
+      estimatedDurationMillis += plan.getEstimatedDurationMillis();
+      tables.add(plan.toMap());
+    }
+    Map<String, Object> document = new LinkedHashMap<>();
+    document.put("files", files);
+    document.put("bytes", bytes);
+    document.put("estimated-duration-millis", estimatedDurationMillis);
+    document.put("tables", tables);
+
+    DumperOptions options = new DumperOptions();
+    options.setDefaultFlowStyle(FlowStyle.BLOCK);
+    new Yaml(options).dump(document, writer);
+  }
+
+  @Override
+  public int getExitCode() {
+    return exitCode;
+  }
+
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.metastore.Warehouse;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.hotels.bdp.circustrain.api.SourceLocationManager;
+import com.hotels.bdp.circustrain.api.conf.ReplicationMode;
+import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.api.copier.CopierFactory;
+import com.hotels.bdp.circustrain.api.copier.CopierFactoryManager;
+import com.hotels.bdp.circustrain.api.copier.CopierOptions;
+import com.hotels.bdp.circustrain.core.replica.Replica;
+import com.hotels.bdp.circustrain.core.replica.ReplicaFactory;
+import com.hotels.bdp.circustrain.core.source.Source;
+import com.hotels.bdp.circustrain.core.source.SourceFactory;
+
+/**
+ * Works out what replicating a list of tables would involve without copying any data or changing the replica. Partition
+ * predicates, including generated ones, are evaluated and source location managers are resolved exactly as they would
+ * be for a replication, except that no source snapshots are taken. Up to {@code threads} tables are planned at a time
+ * and the files and bytes under their source locations are summed up on up to {@code threads} further threads. The
+ * estimated duration assumes that data is copied at {@code bytesPerSecond}.
+ * <p>
+ * A table that cannot be planned gets a plan with an error instead of failing the others.
+ * </p>
+ */
+public class ReplicationPlanner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicationPlanner.class);
+
+  private final EventIdFactory eventIdFactory = EventIdFactory.DEFAULT;
+  private final SourceFactory sourceFactory;
+  private final ReplicaFactory replicaFactory;
+  private final PartitionPredicateFactory partitionPredicateFactory;
+  private final CopierFactoryManager copierFactoryManager;
+  private final CopierOptions copierOptions;
+  private final Configuration sourceConf;
+  private final int threads;
+  private final long bytesPerSecond;
+
+  public ReplicationPlanner(
+      SourceFactory sourceFactory,
+      ReplicaFactory replicaFactory,
+      PartitionPredicateFactory partitionPredicateFactory,
+      CopierFactoryManager copierFactoryManager,
+      CopierOptions copierOptions,
+      Configuration sourceConf,
+      int threads,
+      long bytesPerSecond) {
+    this.sourceFactory = sourceFactory;
+    this.replicaFactory = replicaFactory;
+    this.partitionPredicateFactory = partitionPredicateFactory;
+    this.copierFactoryManager = copierFactoryManager;
+    this.copierOptions = copierOptions;
+    this.sourceConf = sourceConf;
+    this.threads = Math.max(1, threads);
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  public List<TablePlan> plan(List<TableReplication> tableReplications) {
+    // Separate pools so that tables waiting for their content summaries cannot starve them of threads
+    ExecutorService tableExecutor = Executors
+        .newFixedThreadPool(Math.min(threads, Math.max(1, tableReplications.size())),
+            new ThreadFactoryBuilder().setNameFormat("replication-planner-%d").build());
+    final ExecutorService contentSummaryExecutor = Executors
+        .newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setNameFormat("replication-planner-summary-%d").build());
+    try {
+      List<Future<TablePlan>> futures = new ArrayList<>(tableReplications.size());
+      for (final TableReplication tableReplication : tableReplications) {
+        futures.add(tableExecutor.submit(new Callable<TablePlan>() {
+          @Override
+          public TablePlan call() {
+            return plan(tableReplication, contentSummaryExecutor);
+          }
+        }));
+      }
+      List<TablePlan> plans = new ArrayList<>(tableReplications.size());
+      for (Future<TablePlan> future : futures) {
+        try {
+          plans.add(future.get());
+        } catch (ExecutionException e) {
+          // plan(...) handles all failures itself so this is not expected
+          throw new IllegalStateException("Unable to plan table replications", e.getCause());
+        }
+      }
+      return plans;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while planning table replications", e);
+    } finally {
+      tableExecutor.shutdownNow();
+      contentSummaryExecutor.shutdownNow();
+    }
+  }
+
+  private TablePlan plan(TableReplication tableReplication, ExecutorService executor) {
+    TablePlan plan = new TablePlan(tableReplication.getSourceTable().getQualifiedName(),
+        tableReplication.getQualifiedReplicaName(), tableReplication.getReplicationMode());
+    LOG.info("Planning replication of {} to {}.", plan.getSourceTable(), plan.getReplicaTable());
+    try {
+      Source source = sourceFactory.newInstanceWithoutSnapshots(tableReplication);
+      Replica replica = replicaFactory.newInstance(tableReplication);
+      Table sourceTable = source.getTableAndStatistics(tableReplication).getTable();
+      boolean partitioned = sourceTable.getPartitionKeys() != null && !sourceTable.getPartitionKeys().isEmpty();
+
+      List<Partition> partitions = Collections.emptyList();
+      if (partitioned) {
+        PartitionPredicate partitionPredicate = partitionPredicateFactory
+            .newInstance(tableReplication, source, replica);
+        plan.setPartitionPredicate(partitionPredicate.getPartitionPredicate());
+        partitions = source
+            .getPartitions(sourceTable, partitionPredicate)
+            .getPartitions();
+        plan.setPartitionCount(partitions.size());
+      }
+
+      ReplicationMode replicationMode = tableReplication.getReplicationMode();
+      if (replicationMode == ReplicationMode.FULL || replicationMode == ReplicationMode.FULL_OVERWRITE) {
+        planCopy(plan, tableReplication, source, sourceTable, partitioned, partitions, executor);
+      }
+    } catch (Exception e) {
+      LOG.warn("Unable to plan replication of {}.", plan.getSourceTable(), e);
+      plan.setError(e.toString());
+    }
+    return plan;
+  }
+
+  private void planCopy(
+      TablePlan plan,
+      TableReplication tableReplication,
+      Source source,
+      Table sourceTable,
+      boolean partitioned,
+      List<Partition> partitions,
+      ExecutorService executor)
+    throws Exception {
+    Map<String, Object> mergedCopierOptions = tableReplication
+        .getMergedCopierOptions(copierOptions.getCopierOptions());
+    String eventId = eventIdFactory.newEventId(EventIdPrefix.CIRCUS_TRAIN_PLAN.getPrefix());
+    SourceLocationManager sourceLocationManager;
+    if (partitioned) {
+      sourceLocationManager = source.getLocationManager(sourceTable, partitions, eventId, mergedCopierOptions);
+    } else {
+      sourceLocationManager = source.getLocationManager(sourceTable, eventId);
+    }
+    try {
+      Path sourceLocation = sourceLocationManager.getTableLocation();
+      Path replicaLocation = new Path(tableReplication.getReplicaTable().getTableLocation());
+      CopierFactory copierFactory = copierFactoryManager
+          .getCopierFactory(sourceLocation, replicaLocation, mergedCopierOptions);
+      plan.setCopierFactory(copierFactory.getClass().getName());
+
+      List<Path> locations = partitioned ? sourceLocationManager.getPartitionLocations()
+          : Collections.singletonList(sourceLocation);
+      List<Future<ContentSummary>> contentSummaries = new ArrayList<>(locations.size());
+      for (Path location : locations) {
+        contentSummaries.add(executor.submit(new ContentSummaryTask(location)));
+      }
+      for (int i = 0; i < locations.size(); i++) {
+        ContentSummary contentSummary = getContentSummary(contentSummaries.get(i));
+        String partitionName = null;
+        if (partitioned) {
+          partitionName = Warehouse.makePartName(sourceTable.getPartitionKeys(), partitions.get(i).getValues());
+        }
+        plan.addLocation(partitionName, locations.get(i).toString(), contentSummary.getFileCount(),
+            contentSummary.getLength());
+      }
+      if (bytesPerSecond > 0) {
+        plan.setEstimatedDurationMillis(plan.getBytes() * 1000 / bytesPerSecond);
+      }
+    } finally {
+      sourceLocationManager.cleanUpLocations();
+    }
+  }
+
+  private static ContentSummary getContentSummary(Future<ContentSummary> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private class ContentSummaryTask implements Callable<ContentSummary> {
+
+    private final Path location;
+
+    ContentSummaryTask(Path location) {
+      this.location = location;
+    }
+
+    @Override
+    public ContentSummary call() throws IOException {
+      return location.getFileSystem(sourceConf).getContentSummary(location);
+    }
+  }
+
+}
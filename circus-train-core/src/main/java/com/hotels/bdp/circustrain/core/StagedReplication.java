@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+import com.hotels.bdp.circustrain.api.Replication;
+
+/**
+ * A {@link Replication} that can be performed in two separate stages: {@link #copy()} reads the source metadata and
+ * copies the data, {@link #commit()} writes the replica metadata. {@link #replicate()} is equivalent to calling both
+ * in order on the same thread.
+ */
+public interface StagedReplication extends Replication {
+
+  void copy() throws CircusTrainException;
+
+  /**
+   * Must only be called after {@link #copy()} has completed successfully.
+   */
+  void commit() throws CircusTrainException;
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.hotels.bdp.circustrain.api.conf.ReplicationMode;
+
+/**
+ * What a replication of a single table would do, as estimated by {@link ReplicationPlanner}.
+ */
+public class TablePlan {
+
+  private final String sourceTable;
+  private final String replicaTable;
+  private final ReplicationMode replicationMode;
+  private String partitionPredicate;
+  private int partitionCount;
+  private String copierFactory;
+  private long files;
+  private long bytes;
+  private long estimatedDurationMillis;
+  private final List<Map<String, Object>> partitions = new ArrayList<>();
+  private String error;
+
+  TablePlan(String sourceTable, String replicaTable, ReplicationMode replicationMode) {
+    this.sourceTable = sourceTable;
+    this.replicaTable = replicaTable;
+    this.replicationMode = replicationMode;
+  }
+
+  public String getSourceTable() {
+    return sourceTable;
+  }
+
+  public String getReplicaTable() {
+    return replicaTable;
+  }
+
+  public ReplicationMode getReplicationMode() {
+    return replicationMode;
+  }
+
+  public String getPartitionPredicate() {
+    return partitionPredicate;
+  }
+
+  void setPartitionPredicate(String partitionPredicate) {
+    this.partitionPredicate = partitionPredicate;
+  }
+
+  public int getPartitionCount() {
+    return partitionCount;
+  }
+
+  void setPartitionCount(int partitionCount) {
+    this.partitionCount = partitionCount;
+  }
+
+  /**
+   * @return the class name of the {@link com.hotels.bdp.circustrain.api.copier.CopierFactory} that would copy the
+   *         data, {@code null} if the replication mode does not copy data.
+   */
+  public String getCopierFactory() {
+    return copierFactory;
+  }
+
+  void setCopierFactory(String copierFactory) {
+    this.copierFactory = copierFactory;
+  }
+
+  public long getFiles() {
+    return files;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  public long getEstimatedDurationMillis() {
+    return estimatedDurationMillis;
+  }
+
+  void setEstimatedDurationMillis(long estimatedDurationMillis) {
+    this.estimatedDurationMillis = estimatedDurationMillis;
+  }
+
+  void addLocation(String partitionName, String location, long files, long bytes) {
+    this.files += files;
+    this.bytes += bytes;
+    if (partitionName != null) {
+      Map<String, Object> partition = new LinkedHashMap<>();
+      partition.put("name", partitionName);
+      partition.put("location", location);
+      partition.put("files", files);
+      partition.put("bytes", bytes);
+      partitions.add(partition);
+    }
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  void setError(String error) {
+    this.error = error;
+  }
+
+  /**
+   * @return this plan as nested maps and lists with stable key order, suitable for serialisation.
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("source-table", sourceTable);
+    map.put("replica-table", replicaTable);
+    map.put("replication-mode", replicationMode.name());
+    if (error != null) {
+      map.put("error", error);
+      return map;
+    }
+    if (partitionPredicate != null) {
+      map.put("partition-predicate", partitionPredicate);
+    }
+    map.put("partition-count", partitionCount);
+    if (copierFactory != null) {
+      map.put("copier-factory", copierFactory);
+    }
+    map.put("files", files);
+    map.put("bytes", bytes);
+    map.put("estimated-duration-millis", estimatedDurationMillis);
+    if (!partitions.isEmpty()) {
+      map.put("partitions", partitions);
+    }
+    return map;
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.hotels.bdp.circustrain.api.conf.ReplicationOrder;
+import com.hotels.bdp.circustrain.api.conf.TableReplication;
+
+/**
+ * Decides the order in which the table replications of a run are started. When tables are replicated concurrently
+ * starting the largest tables first keeps a single large table from extending the run once all others have finished.
+ * Sorting is stable so tables that compare equal keep their declared order. Table sizes are estimated on up to
+ * {@code estimateConcurrency} threads at a time.
+ */
+public class TableReplicationOrdering {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TableReplicationOrdering.class);
+
+  private final ReplicationOrder replicationOrder;
+  private final TableSizeEstimator tableSizeEstimator;
+  private final int estimateConcurrency;
+
+  public TableReplicationOrdering(
+      ReplicationOrder replicationOrder,
+      TableSizeEstimator tableSizeEstimator,
+      int estimateConcurrency) {
+    this.replicationOrder = replicationOrder;
+    this.tableSizeEstimator = tableSizeEstimator;
+    this.estimateConcurrency = Math.max(1, estimateConcurrency);
+  }
+
+  public List<TableReplication> order(List<TableReplication> tableReplications) {
+    switch (replicationOrder) {
+    case LARGEST_FIRST:
+      return largestFirst(tableReplications);
+    case PRIORITY:
+      return byPriority(tableReplications);
+    default:
+      return tableReplications;
+    }
+  }
+
+  private List<TableReplication> largestFirst(List<TableReplication> tableReplications) {
+    final Map<TableReplication, Long> sizes = estimate(tableReplications);
+    List<TableReplication> ordered = new ArrayList<>(tableReplications);
+    Collections.sort(ordered, new Comparator<TableReplication>() {
+      @Override
+      public int compare(TableReplication a, TableReplication b) {
+        // UNKNOWN is negative so tables that could not be estimated go last
+        return Long.compare(sizes.get(b), sizes.get(a));
+      }
+    });
+    logOrder(ordered);
+    return ordered;
+  }
+
+  private Map<TableReplication, Long> estimate(List<TableReplication> tableReplications) {
+    int poolSize = Math.min(estimateConcurrency, Math.max(1, tableReplications.size()));
+    ExecutorService executor = Executors
+        .newFixedThreadPool(poolSize, new ThreadFactoryBuilder().setNameFormat("size-estimator-%d").build());
+    try {
+      Map<TableReplication, Future<Long>> futures = new IdentityHashMap<>();
+      for (final TableReplication tableReplication : tableReplications) {
+        futures.put(tableReplication, executor.submit(new Callable<Long>() {
+          @Override
+          public Long call() {
+            return tableSizeEstimator.estimate(tableReplication);
+          }
+        }));
+      }
+      Map<TableReplication, Long> sizes = new IdentityHashMap<>();
+      for (Map.Entry<TableReplication, Future<Long>> future : futures.entrySet()) {
+        long size = future.getValue().get();
+        LOG.debug("Estimated size of {} is {} bytes", future.getKey().getSourceTable().getQualifiedName(), size);
+        sizes.put(future.getKey(), size);
+      }
+      return sizes;
+    } catch (ExecutionException e) {
+      // estimate(...) handles all failures itself so this is not expected
+      throw new IllegalStateException("Unable to estimate table sizes", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while estimating table sizes", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private List<TableReplication> byPriority(List<TableReplication> tableReplications) {
+    List<TableReplication> ordered = new ArrayList<>(tableReplications);
+    Collections.sort(ordered, new Comparator<TableReplication>() {
+      @Override
+      public int compare(TableReplication a, TableReplication b) {
+        return Integer.compare(b.getPriority(), a.getPriority());
+      }
+    });
+    logOrder(ordered);
+    return ordered;
+  }
+
+  private void logOrder(List<TableReplication> ordered) {
+    if (LOG.isInfoEnabled()) {
+      List<String> names = new ArrayList<>(ordered.size());
+      for (TableReplication tableReplication : ordered) {
+        names.add(tableReplication.getSourceTable().getQualifiedName());
+      }
+      LOG.info("Replicating tables in {} order: {}", replicationOrder, names);
+    }
+  }
+
+}
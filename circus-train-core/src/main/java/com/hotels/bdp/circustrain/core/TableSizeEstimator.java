@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.StatsSetupConst;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+
+import com.hotels.bdp.circustrain.api.conf.SourceTable;
+import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.core.conf.SpringExpressionParser;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+import com.hotels.hcommon.hive.metastore.util.LocationUtils;
+
+/**
+ * Estimates the amount of work a table replication involves as the number of bytes it covers. The {@code totalSize}
+ * statistic that Hive keeps in the table and partition parameters is used where available, and the size of the data
+ * under the location is only summed up on the file system for tables and partitions without it. For partitioned
+ * tables with a partition filter only the partitions the filter selects are taken into account.
+ */
+public class TableSizeEstimator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TableSizeEstimator.class);
+
+  public static final long UNKNOWN = -1L;
+
+  private final Configuration conf;
+  private final Supplier<CloseableMetaStoreClient> sourceMetaStoreClientSupplier;
+  private final SpringExpressionParser expressionParser;
+
+  public TableSizeEstimator(
+      Configuration conf,
+      Supplier<CloseableMetaStoreClient> sourceMetaStoreClientSupplier,
+      SpringExpressionParser expressionParser) {
+    this.conf = conf;
+    this.sourceMetaStoreClientSupplier = sourceMetaStoreClientSupplier;
+    this.expressionParser = expressionParser;
+  }
+
+  /**
+   * @return the estimated size in bytes or {@link #UNKNOWN} if it could not be determined
+   */
+  public long estimate(TableReplication tableReplication) {
+    SourceTable sourceTable = tableReplication.getSourceTable();
+    try (CloseableMetaStoreClient client = sourceMetaStoreClientSupplier.get()) {
+      Table table = client.getTable(sourceTable.getDatabaseName(), sourceTable.getTableName());
+      if (!LocationUtils.hasLocation(table)) {
+        // Views carry no data
+        return 0L;
+      }
+      if (table.getPartitionKeysSize() > 0 && selectsPartitions(sourceTable)) {
+        return partitionsSize(client, tableReplication);
+      }
+      Long totalSize = totalSize(table.getParameters());
+      if (totalSize != null) {
+        return totalSize;
+      }
+      String location = sourceTable.getTableLocation();
+      if (Strings.isNullOrEmpty(location)) {
+        location = table.getSd().getLocation();
+      }
+      return contentSize(location);
+    } catch (Exception e) {
+      LOG.warn("Unable to estimate the size of {}: {}", sourceTable.getQualifiedName(), e.getMessage());
+      return UNKNOWN;
+    }
+  }
+
+  private static boolean selectsPartitions(SourceTable sourceTable) {
+    // Generating the filter is as expensive as the replication itself so those tables are estimated as a whole
+    return !sourceTable.isGeneratePartitionFilter() && !Strings.isNullOrEmpty(sourceTable.getPartitionFilter());
+  }
+
+  private long partitionsSize(CloseableMetaStoreClient client, TableReplication tableReplication)
+    throws TException, IOException {
+    SpelParsedPartitionPredicate predicate = new SpelParsedPartitionPredicate(expressionParser, tableReplication);
+    SourceTable sourceTable = tableReplication.getSourceTable();
+    List<Partition> partitions = client.listPartitionsByFilter(sourceTable.getDatabaseName(),
+        sourceTable.getTableName(), predicate.getPartitionPredicate(), predicate.getPartitionPredicateLimit());
+    long size = 0L;
+    for (Partition partition : partitions) {
+      Long totalSize = totalSize(partition.getParameters());
+      if (totalSize != null) {
+        size += totalSize;
+      } else if (LocationUtils.hasLocation(partition)) {
+        size += contentSize(partition.getSd().getLocation());
+      }
+    }
+    return size;
+  }
+
+  private static Long totalSize(Map<String, String> parameters) {
+    if (parameters == null) {
+      return null;
+    }
+    String totalSize = parameters.get(StatsSetupConst.TOTAL_SIZE);
+    if (Strings.isNullOrEmpty(totalSize)) {
+      return null;
+    }
+    try {
+      long size = Long.parseLong(totalSize);
+      // Hive may record a size of zero before statistics have been gathered
+      return size > 0 || "0".equals(parameters.get(StatsSetupConst.NUM_FILES)) ? size : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private long contentSize(String location) throws IOException {
+    Path path = new Path(location);
+    FileSystem fileSystem = path.getFileSystem(conf);
+    return fileSystem.getContentSummary(path).getLength();
+  }
+
+}
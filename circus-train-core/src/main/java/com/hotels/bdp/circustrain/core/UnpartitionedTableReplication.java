@@ -15,16 +15,17 @@
  */
 package com.hotels.bdp.circustrain.core;
 
+import java.util.Collections;
 import java.util.Map;
 
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.hotels.bdp.circustrain.api.CircusTrainException;
 import com.hotels.bdp.circustrain.api.ReplicaLocationManager;
-import com.hotels.bdp.circustrain.api.Replication;
 import com.hotels.bdp.circustrain.api.SourceLocationManager;
 import com.hotels.bdp.circustrain.api.copier.Copier;
 import com.hotels.bdp.circustrain.api.copier.CopierFactory;
@@ -32,11 +33,12 @@ import com.hotels.bdp.circustrain.api.copier.CopierFactoryManager;
 import com.hotels.bdp.circustrain.api.event.CopierListener;
 import com.hotels.bdp.circustrain.api.metrics.Metrics;
 import com.hotels.bdp.circustrain.api.util.DotJoiner;
+import com.hotels.bdp.circustrain.core.journal.TableReplicationJournal;
 import com.hotels.bdp.circustrain.core.replica.Replica;
 import com.hotels.bdp.circustrain.core.replica.TableType;
 import com.hotels.bdp.circustrain.core.source.Source;
 
-class UnpartitionedTableReplication implements Replication {
+class UnpartitionedTableReplication implements StagedReplication {
 
   private static final Logger LOG = LoggerFactory.getLogger(UnpartitionedTableReplication.class);
 
@@ -53,6 +55,11 @@ class UnpartitionedTableReplication implements Replication {
   private final Map<String, Object> copierOptions;
 
   private final CopierListener copierListener;
+  private final TableReplicationJournal journal;
+
+  // State handed from the copy stage to the commit stage
+  private TableAndStatistics sourceTableAndStatistics;
+  private ReplicaLocationManager replicaLocationManager;
 
   UnpartitionedTableReplication(
       String database,
@@ -65,7 +72,8 @@ class UnpartitionedTableReplication implements Replication {
       String replicaDatabaseName,
       String replicaTableName,
       Map<String, Object> copierOptions,
-      CopierListener copierListener) {
+      CopierListener copierListener,
+      TableReplicationJournal journal) {
     this.database = database;
     this.table = table;
     this.source = source;
@@ -76,41 +84,88 @@ class UnpartitionedTableReplication implements Replication {
     this.replicaTableName = replicaTableName;
     this.copierOptions = copierOptions;
     this.copierListener = copierListener;
+    this.journal = journal;
     eventId = eventIdFactory.newEventId(EventIdPrefix.CIRCUS_TRAIN_UNPARTITIONED_TABLE.getPrefix());
   }
 
   @Override
   public void replicate() throws CircusTrainException {
+    copy();
+    commit();
+  }
+
+  @Override
+  public void copy() throws CircusTrainException {
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.current();
     try {
-      replica.validateReplicaTable(replicaDatabaseName, replicaTableName);
-      TableAndStatistics sourceTableAndStatistics = source.getTableAndStatistics(database, table);
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("replica_validation")) {
+        replica.validateReplicaTable(replicaDatabaseName, replicaTableName);
+      }
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("source_table")) {
+        sourceTableAndStatistics = source.getTableAndStatistics(database, table);
+      }
       Table sourceTable = sourceTableAndStatistics.getTable();
-      SourceLocationManager sourceLocationManager = source.getLocationManager(sourceTable, eventId);
+      SourceLocationManager sourceLocationManager;
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("source_locations")) {
+        sourceLocationManager = source.getLocationManager(sourceTable, eventId);
+      }
       Path sourceLocation = sourceLocationManager.getTableLocation();
 
-      ReplicaLocationManager replicaLocationManager = replica
-          .getLocationManager(TableType.UNPARTITIONED, targetTableLocation, eventId, sourceLocationManager);
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("replica_locations")) {
+        replicaLocationManager = replica
+            .getLocationManager(TableType.UNPARTITIONED, targetTableLocation, eventId, sourceLocationManager);
+      }
       Path replicaLocation = replicaLocationManager.getTableLocation();
 
-      CopierFactory copierFactory = copierFactoryManager
-          .getCopierFactory(sourceLocation, replicaLocation, copierOptions);
-      Copier copier = copierFactory.newInstance(eventId, sourceLocation, replicaLocation, copierOptions);
-      copierListener.copierStart(copier.getClass().getName());
-      try {
-        metrics = copier.copy();
-      } finally {
-        copierListener.copierEnd(metrics);
+      String fingerprint = TableReplicationJournal.fingerprint(sourceTable, Collections.<Partition> emptyList());
+      boolean copied = journal.isCopied(eventId, fingerprint);
+      if (copied) {
+        LOG.info("Data of table {}.{} was already copied by event {}, resuming with the metadata update.", database,
+            table, eventId);
+      } else {
+        CopierFactory copierFactory = copierFactoryManager
+            .getCopierFactory(sourceLocation, replicaLocation, copierOptions);
+        Copier copier = copierFactory.newInstance(eventId, sourceLocation, replicaLocation, copierOptions);
+        copierListener.copierStart(copier.getClass().getName());
+        try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("copy")) {
+          metrics = copier.copy();
+        } finally {
+          copierListener.copierEnd(metrics);
+        }
+      }
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("source_clean_up")) {
+        sourceLocationManager.cleanUpLocations();
+      }
+      if (!copied) {
+        journal.copied(eventId, fingerprint);
       }
-      sourceLocationManager.cleanUpLocations();
+    } catch (Throwable t) {
+      throw new CircusTrainException("Unable to replicate", t);
+    }
+  }
 
-      replica
-          .updateMetadata(eventId, sourceTableAndStatistics, replicaDatabaseName, replicaTableName,
-              replicaLocationManager);
-      replicaLocationManager.cleanUpLocations();
+  @Override
+  public void commit() throws CircusTrainException {
+    if (replicaLocationManager == null) {
+      throw new IllegalStateException("Data of table " + name() + " has not been copied");
+    }
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.current();
+    try {
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("metadata_update")) {
+        replica
+            .updateMetadata(eventId, sourceTableAndStatistics, replicaDatabaseName, replicaTableName,
+                replicaLocationManager);
+      }
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("replica_clean_up")) {
+        replicaLocationManager.cleanUpLocations();
+      }
 
       LOG.info("Replicated table {}.{}.", database, table);
     } catch (Throwable t) {
       throw new CircusTrainException("Unable to replicate", t);
+    } finally {
+      sourceTableAndStatistics = null;
+      replicaLocationManager = null;
     }
   }
 
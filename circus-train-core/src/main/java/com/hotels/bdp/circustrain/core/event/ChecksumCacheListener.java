@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2016-2019 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.event;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+import com.hotels.bdp.circustrain.api.CompletionCode;
+import com.hotels.bdp.circustrain.api.Modules;
+import com.hotels.bdp.circustrain.api.event.EventReplicaCatalog;
+import com.hotels.bdp.circustrain.api.event.EventSourceCatalog;
+import com.hotels.bdp.circustrain.api.event.LocomotiveListener;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+
+/**
+ * Saves the checksum cache at the end of every replication run so that a daemon keeps it up to date between runs.
+ */
+@Profile({ Modules.REPLICATION })
+@Component
+public class ChecksumCacheListener implements LocomotiveListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChecksumCacheListener.class);
+
+  private final PathChecksumFunction checksumFunction;
+
+  @Autowired
+  public ChecksumCacheListener(@Value("#{checksumFunction}") PathChecksumFunction checksumFunction) {
+    this.checksumFunction = checksumFunction;
+  }
+
+  @Override
+  public void circusTrainStartUp(String[] args, EventSourceCatalog sourceCatalog, EventReplicaCatalog replicaCatalog) {}
+
+  @Override
+  public void circusTrainShutDown(CompletionCode completionCode, Map<String, Long> metrics) {
+    try {
+      checksumFunction.saveChecksumCache();
+    } catch (CircusTrainException e) {
+      LOG.warn("Unable to save checksum cache", e);
+    }
+  }
+
+}
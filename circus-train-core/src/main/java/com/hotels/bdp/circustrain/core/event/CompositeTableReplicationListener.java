@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import com.hotels.bdp.circustrain.api.event.EventTableReplication;
 import com.hotels.bdp.circustrain.api.event.TableReplicationListener;
+import com.hotels.bdp.circustrain.api.metrics.Metrics;
 
 public class CompositeTableReplicationListener implements TableReplicationListener {
 
@@ -56,6 +57,20 @@ public class CompositeTableReplicationListener implements TableReplicationListen
     }
   }
 
+  @Override
+  public void tableReplicationPhaseMetrics(
+      EventTableReplication tableReplication,
+      String eventId,
+      Metrics phaseMetrics) {
+    for (final TableReplicationListener listener : listeners) {
+      try {
+        listener.tableReplicationPhaseMetrics(tableReplication, eventId, phaseMetrics);
+      } catch (Exception e) {
+        LOG.error("Listener '{}' threw exception on tableReplicationPhaseMetrics.", listener, e);
+      }
+    }
+  }
+
   @Override
   public void tableReplicationFailure(EventTableReplication tableReplication, String eventId, Throwable t) {
     for (final TableReplicationListener listener : listeners) {
@@ -66,4 +81,16 @@ public class CompositeTableReplicationListener implements TableReplicationListen
       }
     }
   }
+
+  @Override
+  public void tableReplicationSkipped(EventTableReplication tableReplication, String eventId) {
+    for (final TableReplicationListener listener : listeners) {
+      try {
+        listener.tableReplicationSkipped(tableReplication, eventId);
+      } catch (Exception e) {
+        LOG.error("Listener '{}' threw exception on tableReplicationSkipped.", listener, e);
+      }
+    }
+  }
+
 }
@@ -47,7 +47,12 @@ public class LoggingListener implements TableReplicationListener, LocomotiveList
 
   private EventSourceCatalog sourceCatalog;
   private EventReplicaCatalog replicaCatalog;
-  private ReplicationState replicationState = new ReplicationState();
+  private final ThreadLocal<ReplicationState> replicationState = new ThreadLocal<ReplicationState>() {
+    @Override
+    protected ReplicationState initialValue() {
+      return new ReplicationState();
+    }
+  };
 
   private static class ReplicationState {
     List<String> partitionKeys = Collections.emptyList();
@@ -57,7 +62,7 @@ public class LoggingListener implements TableReplicationListener, LocomotiveList
 
   @Override
   public void tableReplicationStart(EventTableReplication tableReplication, String eventId) {
-    replicationState = new ReplicationState();
+    replicationState.set(new ReplicationState());
     if (sourceCatalog != null && replicaCatalog != null) {
       LOG
           .info("[{}] Attempting to replicate '{}:{}' to '{}:{}'", eventId, sourceCatalog.getName(),
@@ -68,6 +73,7 @@ public class LoggingListener implements TableReplicationListener, LocomotiveList
 
   @Override
   public void tableReplicationSuccess(EventTableReplication tableReplication, String eventId) {
+    ReplicationState replicationState = this.replicationState.get();
     String amount = transferAmount(replicationState.partitionKeys, replicationState.partitionsAltered);
     if (sourceCatalog != null && replicaCatalog != null) {
       LOG
@@ -75,6 +81,7 @@ public class LoggingListener implements TableReplicationListener, LocomotiveList
               sourceCatalog.getName(), tableReplication.getSourceTable().getQualifiedName(), replicaCatalog.getName(),
               tableReplication.getQualifiedReplicaName(), replicationState.bytesReplicated);
     }
+    this.replicationState.remove();
   }
 
   @Override
@@ -85,6 +92,17 @@ public class LoggingListener implements TableReplicationListener, LocomotiveList
               tableReplication.getSourceTable().getQualifiedName(), replicaCatalog.getName(),
               tableReplication.getQualifiedReplicaName(), t.getMessage());
     }
+    replicationState.remove();
+  }
+
+  @Override
+  public void tableReplicationSkipped(EventTableReplication tableReplication, String eventId) {
+    if (sourceCatalog != null && replicaCatalog != null) {
+      LOG
+          .info("[{}] Skipped '{}:{}' to '{}:{}' as it was replicated by an earlier run", eventId,
+              sourceCatalog.getName(), tableReplication.getSourceTable().getQualifiedName(), replicaCatalog.getName(),
+              tableReplication.getQualifiedReplicaName());
+    }
   }
 
   private static String transferAmount(List<String> partitionKeys, int partitionsAltered) {
@@ -100,22 +118,22 @@ public class LoggingListener implements TableReplicationListener, LocomotiveList
 
   @Override
   public void resolvedMetaStoreSourceTable(EventTable table) {
-    replicationState.partitionKeys = table.getPartitionKeys();
+    replicationState.get().partitionKeys = table.getPartitionKeys();
   }
 
   @Override
   public void partitionsToCreate(EventPartitions partitions) {
-    replicationState.partitionsAltered += partitions.getEventPartitions().size();
+    replicationState.get().partitionsAltered += partitions.getEventPartitions().size();
   }
 
   @Override
   public void partitionsToAlter(EventPartitions partitions) {
-    replicationState.partitionsAltered += partitions.getEventPartitions().size();
+    replicationState.get().partitionsAltered += partitions.getEventPartitions().size();
   }
 
   @Override
   public void copierEnd(Metrics metrics) {
-    replicationState.bytesReplicated = metrics.getBytesReplicated();
+    replicationState.get().bytesReplicated = metrics.getBytesReplicated();
   }
 
   @Override
@@ -140,15 +158,15 @@ public class LoggingListener implements TableReplicationListener, LocomotiveList
   public void copierStart(String copierImplementation) {}
 
   List<String> getPartitionKeys() {
-    return Collections.unmodifiableList(replicationState.partitionKeys);
+    return Collections.unmodifiableList(replicationState.get().partitionKeys);
   }
 
   int getPartitionsAltered() {
-    return replicationState.partitionsAltered;
+    return replicationState.get().partitionsAltered;
   }
 
   long getBytesReplicated() {
-    return replicationState.bytesReplicated;
+    return replicationState.get().bytesReplicated;
   }
 
 }
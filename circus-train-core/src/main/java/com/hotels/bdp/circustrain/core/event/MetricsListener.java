@@ -15,11 +15,14 @@
  */
 package com.hotels.bdp.circustrain.core.event;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -37,60 +40,121 @@ import com.hotels.bdp.circustrain.api.metrics.MetricSender;
 import com.hotels.bdp.circustrain.api.metrics.Metrics;
 import com.hotels.bdp.circustrain.api.metrics.ScheduledReporterFactory;
 import com.hotels.bdp.circustrain.api.util.DotJoiner;
+import com.hotels.bdp.circustrain.core.ReplicationPipeline;
 
 @Component
 class MetricsListener implements TableReplicationListener, CopierListener {
 
-  private final Map<String, Long> startTimes = new HashMap<>();
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsListener.class);
+
+  static final String PHASE_METRIC_PREFIX = "phase";
+
+  private final Map<String, Long> startTimes = new ConcurrentHashMap<>();
   private final MetricSender metricSender;
-  private String qualifiedReplicaName;
-  private Metrics metrics;
-  private ScheduledReporter runningMetricsReporter;
+  private final ThreadLocal<ReplicationState> replicationState = new ThreadLocal<ReplicationState>() {
+    @Override
+    protected ReplicationState initialValue() {
+      return new ReplicationState();
+    }
+  };
   private final ScheduledReporterFactory runningMetricsReporterFactory;
   private final long metricsReporterPeriod;
   private final TimeUnit metricsReporterTimeUnit;
+  private final boolean runningMetricsEnabled;
+
+  private static class ReplicationState {
+    String qualifiedReplicaName;
+    Metrics metrics;
+    Metrics phaseMetrics = Metrics.NULL_VALUE;
+    ScheduledReporter runningMetricsReporter;
+  }
 
   @Autowired
   MetricsListener(
       MetricSender metricSender,
       ScheduledReporterFactory runningMetricsReporterFactory,
       @Value("${metrics-reporter.period:1}") long metricsReporterPeriod,
-      @Value("${metrics-reporter.time-unit:MINUTES}") TimeUnit metricsReporterTimeUnit) {
+      @Value("${metrics-reporter.time-unit:MINUTES}") TimeUnit metricsReporterTimeUnit,
+      @Value("${replication-concurrency:1}") int replicationConcurrency,
+      Optional<ReplicationPipeline> replicationPipeline) {
+    // The copiers register their running gauges under fixed names which concurrent tables would overwrite
+    this(metricSender, runningMetricsReporterFactory, metricsReporterPeriod, metricsReporterTimeUnit,
+        (replicationPipeline.isPresent() ? replicationPipeline.get().getWorkers(replicationConcurrency)
+            : replicationConcurrency) <= 1);
+  }
+
+  MetricsListener(
+      MetricSender metricSender,
+      ScheduledReporterFactory runningMetricsReporterFactory,
+      long metricsReporterPeriod,
+      TimeUnit metricsReporterTimeUnit,
+      boolean runningMetricsEnabled) {
     this.metricSender = metricSender;
     this.runningMetricsReporterFactory = runningMetricsReporterFactory;
     this.metricsReporterPeriod = metricsReporterPeriod;
     this.metricsReporterTimeUnit = metricsReporterTimeUnit;
+    this.runningMetricsEnabled = runningMetricsEnabled;
+    if (!runningMetricsEnabled) {
+      LOG.info("Running copier metrics are not reported as tables may be replicated concurrently.");
+    }
   }
 
   @Override
   public void tableReplicationStart(EventTableReplication tableReplication, String eventId) {
-    qualifiedReplicaName = tableReplication.getQualifiedReplicaName();
-    startTimes.put(qualifiedReplicaName, System.currentTimeMillis());
+    ReplicationState replicationState = new ReplicationState();
+    replicationState.qualifiedReplicaName = tableReplication.getQualifiedReplicaName();
+    this.replicationState.set(replicationState);
+    startTimes.put(replicationState.qualifiedReplicaName, System.currentTimeMillis());
+  }
+
+  @Override
+  public void tableReplicationPhaseMetrics(
+      EventTableReplication tableReplication,
+      String eventId,
+      Metrics phaseMetrics) {
+    replicationState.get().phaseMetrics = phaseMetrics;
   }
 
   @Override
   public void tableReplicationSuccess(EventTableReplication tableReplication, String eventId) {
-    sendMetrics(CompletionCode.SUCCESS, tableReplication.getQualifiedReplicaName(), metrics);
+    ReplicationState replicationState = this.replicationState.get();
+    this.replicationState.remove();
+    stopRunningMetricsReporter(replicationState);
+    sendMetrics(CompletionCode.SUCCESS, tableReplication.getQualifiedReplicaName(), replicationState.metrics,
+        replicationState.phaseMetrics);
   }
 
   @Override
   public void tableReplicationFailure(EventTableReplication tableReplication, String eventId, Throwable t) {
-    sendMetrics(CompletionCode.FAILURE, tableReplication.getQualifiedReplicaName(), Metrics.NULL_VALUE);
+    ReplicationState replicationState = this.replicationState.get();
+    this.replicationState.remove();
+    stopRunningMetricsReporter(replicationState);
+    sendMetrics(CompletionCode.FAILURE, tableReplication.getQualifiedReplicaName(), Metrics.NULL_VALUE,
+        replicationState.phaseMetrics);
   }
 
   @Override
   public void copierEnd(Metrics metrics) {
-    if (runningMetricsReporter == null) {
-      throw new IllegalStateException("Metrics reporter should not be null");
+    ReplicationState replicationState = this.replicationState.get();
+    if (runningMetricsEnabled) {
+      if (replicationState.runningMetricsReporter == null) {
+        throw new IllegalStateException("Metrics reporter should not be null");
+      }
+      replicationState.runningMetricsReporter.report();
+      stopRunningMetricsReporter(replicationState);
     }
-    runningMetricsReporter.report();
-    runningMetricsReporter.stop();
-    // once stopped unusable so get rid of it
-    runningMetricsReporter = null;
-    this.metrics = metrics;
+    replicationState.metrics = metrics;
   }
 
-  private void sendMetrics(CompletionCode completionCode, String target, Metrics metrics) {
+  private void stopRunningMetricsReporter(ReplicationState replicationState) {
+    if (replicationState.runningMetricsReporter != null) {
+      replicationState.runningMetricsReporter.stop();
+      // once stopped unusable so get rid of it
+      replicationState.runningMetricsReporter = null;
+    }
+  }
+
+  private void sendMetrics(CompletionCode completionCode, String target, Metrics metrics, Metrics phaseMetrics) {
     Builder<String, Long> builder = ImmutableMap.builder();
     builder.put(replicationTime(target));
     builder.put(completionCode(target, completionCode));
@@ -101,6 +165,10 @@ class MetricsListener implements TableReplicationListener, CopierListener {
         builder.put(DotJoiner.join(target, metric.getKey()), metric.getValue());
       }
     }
+    // Prefixed so that phase metrics cannot clash with the copier metrics and Hadoop counters above
+    for (Entry<String, Long> metric : phaseMetrics.getMetrics().entrySet()) {
+      builder.put(DotJoiner.join(target, PHASE_METRIC_PREFIX, metric.getKey()), metric.getValue());
+    }
 
     metricSender.send(builder.build());
   }
@@ -124,9 +192,15 @@ class MetricsListener implements TableReplicationListener, CopierListener {
 
   @Override
   public void copierStart(String copierImplementation) {
-    runningMetricsReporter = runningMetricsReporterFactory.newInstance(qualifiedReplicaName);
+    if (!runningMetricsEnabled) {
+      return;
+    }
+    ReplicationState replicationState = this.replicationState.get();
+    ScheduledReporter runningMetricsReporter = runningMetricsReporterFactory
+        .newInstance(replicationState.qualifiedReplicaName);
     runningMetricsReporter.start(metricsReporterPeriod, metricsReporterTimeUnit);
     runningMetricsReporter.report();
+    replicationState.runningMetricsReporter = runningMetricsReporter;
   }
 
 }
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+
+/**
+ * A {@link ReplicationJournal} kept in an append-only local file with one tab separated line per entry. Every entry is
+ * synced to disk before {@link #record(JournalEntry)} returns. A truncated last line, as left by a crash, is ignored
+ * when the journal is loaded.
+ */
+public class FileReplicationJournal implements ReplicationJournal {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileReplicationJournal.class);
+
+  private static final char SEPARATOR = '\t';
+  private static final String NO_VALUE = "-";
+  private static final Joiner JOINER = Joiner.on(SEPARATOR);
+  private static final Splitter SPLITTER = Splitter.on(SEPARATOR);
+
+  private final File file;
+  private final Map<String, JournalEntry> entries = new LinkedHashMap<>();
+
+  public FileReplicationJournal(File file) {
+    this.file = file;
+    load();
+  }
+
+  private void load() {
+    if (!file.exists()) {
+      return;
+    }
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        JournalEntry entry = parse(line);
+        if (entry == null) {
+          LOG.warn("Ignoring unreadable replication journal entry '{}' in {}", line, file);
+        } else {
+          entries.put(entry.getTable(), entry);
+        }
+      }
+    } catch (IOException e) {
+      throw new CircusTrainException("Unable to read replication journal " + file, e);
+    }
+    LOG.info("Loaded {} table entries from replication journal {}", entries.size(), file);
+  }
+
+  private static JournalEntry parse(String line) {
+    List<String> fields = SPLITTER.splitToList(line);
+    if (fields.size() != 4) {
+      return null;
+    }
+    ReplicationPhase phase;
+    try {
+      phase = ReplicationPhase.valueOf(fields.get(1));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    String fingerprint = NO_VALUE.equals(fields.get(3)) ? null : fields.get(3);
+    return new JournalEntry(fields.get(0), phase, fields.get(2), fingerprint);
+  }
+
+  private static String format(JournalEntry entry) {
+    String fingerprint = entry.getFingerprint() == null ? NO_VALUE : entry.getFingerprint();
+    return JOINER.join(entry.getTable(), entry.getPhase(), entry.getEventId(), fingerprint) + "\n";
+  }
+
+  @Override
+  public synchronized JournalEntry getEntry(String table) {
+    return entries.get(table);
+  }
+
+  @Override
+  public synchronized void record(JournalEntry entry) {
+    try {
+      append(file, format(entry));
+    } catch (IOException e) {
+      throw new CircusTrainException("Unable to write to replication journal " + file, e);
+    }
+    entries.put(entry.getTable(), entry);
+  }
+
+  @Override
+  public synchronized void clear(Collection<String> tables) {
+    if (!entries.keySet().removeAll(tables)) {
+      return;
+    }
+    try {
+      if (entries.isEmpty()) {
+        Files.deleteIfExists(file.toPath());
+        return;
+      }
+      File temp = new File(file.getPath() + ".tmp");
+      Files.deleteIfExists(temp.toPath());
+      StringBuilder content = new StringBuilder();
+      for (JournalEntry entry : entries.values()) {
+        content.append(format(entry));
+      }
+      append(temp, content.toString());
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new CircusTrainException("Unable to update replication journal " + file, e);
+    }
+  }
+
+  private static void append(File file, String content) throws IOException {
+    try (FileOutputStream out = new FileOutputStream(file, true)) {
+      out.write(content.getBytes(UTF_8));
+      out.flush();
+      out.getFD().sync();
+    }
+  }
+
+}
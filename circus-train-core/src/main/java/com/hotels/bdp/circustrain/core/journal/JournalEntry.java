@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.journal;
+
+public class JournalEntry {
+
+  private final String table;
+  private final ReplicationPhase phase;
+  private final String eventId;
+  private final String fingerprint;
+
+  public JournalEntry(String table, ReplicationPhase phase, String eventId, String fingerprint) {
+    this.table = table;
+    this.phase = phase;
+    this.eventId = eventId;
+    this.fingerprint = fingerprint;
+  }
+
+  public String getTable() {
+    return table;
+  }
+
+  public ReplicationPhase getPhase() {
+    return phase;
+  }
+
+  public String getEventId() {
+    return eventId;
+  }
+
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.journal;
+
+import java.util.Collection;
+
+/**
+ * Records how far each table replication of a run has progressed so that a run that is restarted after a failure can
+ * skip tables that were already replicated and avoid copying data again for tables whose copy had already completed.
+ * Tables are identified by their qualified replica name.
+ */
+public interface ReplicationJournal {
+
+  static final ReplicationJournal NULL = new ReplicationJournal() {
+
+    @Override
+    public JournalEntry getEntry(String table) {
+      return null;
+    }
+
+    @Override
+    public void record(JournalEntry entry) {}
+
+    @Override
+    public void clear(Collection<String> tables) {}
+  };
+
+  /**
+   * @return the most recent entry for the table or {@code null} if nothing has been recorded for it
+   */
+  JournalEntry getEntry(String table);
+
+  void record(JournalEntry entry);
+
+  /**
+   * Forgets the given tables, normally because the run that replicated them has completed successfully.
+   */
+  void clear(Collection<String> tables);
+
+}
@@ -0,0 +1,26 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.journal;
+
+/**
+ * Durable milestones of a table replication that a later run may resume from.
+ */
+public enum ReplicationPhase {
+  /** Data has been copied to the replica and the source snapshot released, metadata has not been committed yet. */
+  COPIED,
+  /** Replica metadata has been committed, the table replication is complete. */
+  COMMITTED;
+}
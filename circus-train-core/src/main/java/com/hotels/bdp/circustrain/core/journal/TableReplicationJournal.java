@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hive.common.StatsSetupConst;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import com.hotels.hcommon.hive.metastore.util.LocationUtils;
+
+/**
+ * The journal of a single table replication.
+ */
+public class TableReplicationJournal {
+
+  private static final List<String> DATA_PARAMETERS = ImmutableList
+      .of(hive_metastoreConstants.DDL_TIME, StatsSetupConst.TOTAL_SIZE, StatsSetupConst.NUM_FILES,
+          StatsSetupConst.ROW_COUNT);
+
+  public static final TableReplicationJournal NULL = new TableReplicationJournal(ReplicationJournal.NULL, null);
+
+  private final ReplicationJournal journal;
+  private final String table;
+
+  public TableReplicationJournal(ReplicationJournal journal, String table) {
+    this.journal = journal;
+    this.table = table;
+  }
+
+  /**
+   * @return the event ID of an earlier run that copied the data of this table but did not commit its metadata, or
+   *         {@code null} if there is nothing to resume
+   */
+  public String getResumableEventId() {
+    JournalEntry entry = journal.getEntry(table);
+    if (entry != null && entry.getPhase() == ReplicationPhase.COPIED) {
+      return entry.getEventId();
+    }
+    return null;
+  }
+
+  /**
+   * @return {@code true} if the data identified by {@code fingerprint} has already been copied under {@code eventId}
+   */
+  public boolean isCopied(String eventId, String fingerprint) {
+    JournalEntry entry = journal.getEntry(table);
+    return entry != null
+        && entry.getPhase() == ReplicationPhase.COPIED
+        && entry.getEventId().equals(eventId)
+        && entry.getFingerprint() != null
+        && entry.getFingerprint().equals(fingerprint);
+  }
+
+  public void copied(String eventId, String fingerprint) {
+    journal.record(new JournalEntry(table, ReplicationPhase.COPIED, eventId, fingerprint));
+  }
+
+  /**
+   * Identifies the source data that a copy covered so that a resumed run can tell whether it would copy the same data.
+   * Besides the locations this includes the parameters that Hive updates when data is written, so data that was
+   * rewritten in place yields a different fingerprint.
+   */
+  public static String fingerprint(Table table, List<Partition> partitions) {
+    List<String> partitionFingerprints = new ArrayList<>(partitions.size());
+    for (Partition partition : partitions) {
+      String location = LocationUtils.hasLocation(partition) ? partition.getSd().getLocation() : "";
+      partitionFingerprints.add(location + dataParameters(partition.getParameters()));
+    }
+    Collections.sort(partitionFingerprints);
+    Hasher hasher = Hashing.md5().newHasher();
+    hasher.putString(LocationUtils.hasLocation(table) ? table.getSd().getLocation() : "", UTF_8);
+    hasher.putString(dataParameters(table.getParameters()), UTF_8);
+    for (String partitionFingerprint : partitionFingerprints) {
+      hasher.putChar('\n').putString(partitionFingerprint, UTF_8);
+    }
+    return hasher.hash().toString();
+  }
+
+  private static String dataParameters(Map<String, String> parameters) {
+    StringBuilder dataParameters = new StringBuilder();
+    for (String name : DATA_PARAMETERS) {
+      String value = parameters == null ? null : parameters.get(name);
+      dataParameters.append('\t').append(value == null ? "" : value);
+    }
+    return dataParameters.toString();
+  }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.metastore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.google.common.base.Supplier;
+
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+
+/**
+ * A {@link Supplier} whose clients count each metastore call as {@code <prefix>_metastore_calls} in the
+ * {@link ReplicationPhaseMetrics} of the calling thread.
+ */
+public class CountingMetaStoreClientSupplier implements Supplier<CloseableMetaStoreClient>, Closeable {
+
+  private final Supplier<CloseableMetaStoreClient> delegate;
+  private final String metricName;
+
+  public CountingMetaStoreClientSupplier(Supplier<CloseableMetaStoreClient> delegate, String prefix) {
+    this.delegate = delegate;
+    metricName = prefix + "_metastore_calls";
+  }
+
+  @Override
+  public CloseableMetaStoreClient get() {
+    return counted(delegate.get());
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (delegate instanceof Closeable) {
+      ((Closeable) delegate).close();
+    }
+  }
+
+  private CloseableMetaStoreClient counted(final CloseableMetaStoreClient client) {
+    return (CloseableMetaStoreClient) Proxy
+        .newProxyInstance(getClass().getClassLoader(), new Class<?>[] { CloseableMetaStoreClient.class },
+            new InvocationHandler() {
+              @Override
+              public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                case "close":
+                  break;
+                case "equals":
+                  return proxy == args[0];
+                case "hashCode":
+                  return System.identityHashCode(proxy);
+                case "toString":
+                  return "Counted[" + client + "]";
+                default:
+                  ReplicationPhaseMetrics.current().increment(metricName);
+                }
+                try {
+                  return method.invoke(client, args);
+                } catch (InvocationTargetException e) {
+                  throw e.getCause();
+                }
+              }
+            });
+  }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.metastore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+
+/**
+ * A {@link Supplier} whose clients pass every metastore call through a {@link MetastoreCallGovernor} shared by all
+ * clients of the same metastore. Only Thrift transport errors count as failures, application errors such as
+ * {@code NoSuchObjectException} are regular outcomes of metastore calls. The batch size of a call is the size of the
+ * largest collection it was passed or returned.
+ */
+public class GovernedMetaStoreClientSupplier implements Supplier<CloseableMetaStoreClient>, Closeable {
+
+  private final Supplier<CloseableMetaStoreClient> delegate;
+  private final MetastoreCallGovernor governor;
+  private final Ticker ticker;
+
+  public GovernedMetaStoreClientSupplier(Supplier<CloseableMetaStoreClient> delegate, MetastoreCallGovernor governor) {
+    this(delegate, governor, Ticker.systemTicker());
+  }
+
+  GovernedMetaStoreClientSupplier(
+      Supplier<CloseableMetaStoreClient> delegate,
+      MetastoreCallGovernor governor,
+      Ticker ticker) {
+    this.delegate = delegate;
+    this.governor = governor;
+    this.ticker = ticker;
+  }
+
+  @Override
+  public CloseableMetaStoreClient get() {
+    return governed(delegate.get());
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (delegate instanceof Closeable) {
+      ((Closeable) delegate).close();
+    }
+  }
+
+  private CloseableMetaStoreClient governed(CloseableMetaStoreClient client) {
+    return (CloseableMetaStoreClient) Proxy
+        .newProxyInstance(getClass().getClassLoader(), new Class<?>[] { CloseableMetaStoreClient.class },
+            new GovernedClientInvocationHandler(client));
+  }
+
+  private class GovernedClientInvocationHandler implements InvocationHandler {
+
+    private final CloseableMetaStoreClient client;
+
+    GovernedClientInvocationHandler(CloseableMetaStoreClient client) {
+      this.client = client;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+      case "close":
+        return invokeDirectly(method, args);
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return "Governed[" + client + "]";
+      default:
+        try {
+          governor.acquire();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new CircusTrainException("Interrupted while waiting to call the metastore", e);
+        }
+        long start = ticker.read();
+        boolean failed = false;
+        Object result = null;
+        try {
+          result = method.invoke(client, args);
+          return result;
+        } catch (InvocationTargetException e) {
+          failed = MetaStoreFailures.isTransportFailure(e.getCause());
+          throw e.getCause();
+        } finally {
+          governor.release(ticker.read() - start, batchSize(args, result), failed);
+        }
+      }
+    }
+
+    private Object invokeDirectly(Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(client, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+    private int batchSize(Object[] args, Object result) {
+      int batchSize = Math.max(1, size(result));
+      if (args != null) {
+        for (Object arg : args) {
+          batchSize = Math.max(batchSize, size(arg));
+        }
+      }
+      return batchSize;
+    }
+
+    private int size(Object value) {
+      if (value instanceof Collection) {
+        return ((Collection<?>) value).size();
+      }
+      if (value instanceof Map) {
+        return ((Map<?, ?>) value).size();
+      }
+      return 1;
+    }
+  }
+
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.metastore;
+
+import org.apache.thrift.transport.TTransportException;
+
+public final class MetaStoreFailures {
+
+  private MetaStoreFailures() {}
+
+  /**
+   * @return whether the failure, or any of its causes, is a Thrift transport error, i.e. the call may not have reached
+   *         the metastore or its response was lost, as opposed to an error returned by the metastore.
+   */
+  public static boolean isTransportFailure(Throwable t) {
+    while (t != null) {
+      if (t instanceof TTransportException) {
+        return true;
+      }
+      t = t.getCause();
+    }
+    return false;
+  }
+
+}
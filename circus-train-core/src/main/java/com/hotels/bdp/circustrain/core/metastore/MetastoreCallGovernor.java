@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.metastore;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.RateLimiter;
+
+import com.hotels.bdp.circustrain.api.conf.MetastoreGovernor;
+import com.hotels.bdp.circustrain.api.metrics.MetricSender;
+import com.hotels.bdp.circustrain.api.util.DotJoiner;
+
+/**
+ * Caps the number of in-flight calls and the calls per second made to a single metastore and adapts both limits with
+ * AIMD (additive increase, multiplicative decrease): every call that completes within the target latency raises the
+ * limits by roughly one per round of calls, a call that is slower than the target latency or fails with a transport
+ * error multiplies them by the back off ratio. Decreases are applied at most once per target latency so that a burst of
+ * slow calls issued under the old limits only counts once.
+ * <p>
+ * Calls that send or return a batch of objects, such as {@code add_partitions}, {@code alter_partitions} or
+ * {@code get_partitions_by_names}, naturally take longer than single object calls. Their latency is divided by the
+ * size of the batch before it is compared with the target latency so that batching does not pin the limits at their
+ * minimum.
+ * </p>
+ * <p>
+ * Both limits start at their maximum and are reported through the {@link MetricSender} whenever they change.
+ * </p>
+ */
+public class MetastoreCallGovernor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetastoreCallGovernor.class);
+
+  static final String MAX_IN_FLIGHT = "max_in_flight";
+  static final String MAX_CALLS_PER_SECOND = "max_calls_per_second";
+
+  private final String name;
+  private final double minInFlight;
+  private final double maxInFlight;
+  private final double minCallsPerSecond;
+  private final double maxCallsPerSecond;
+  private final long targetLatencyNanos;
+  private final double backoffRatio;
+  private final MetricSender metricSender;
+  private final Ticker ticker;
+  private final RateLimiter rateLimiter;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition belowLimit = lock.newCondition();
+  private double inFlightLimit;
+  private double callsPerSecondLimit;
+  private int inFlight = 0;
+  private long lastDecrease;
+  private long reportedInFlightLimit = -1;
+  private long reportedCallsPerSecondLimit = -1;
+
+  public MetastoreCallGovernor(String name, MetastoreGovernor metastoreGovernor, MetricSender metricSender) {
+    this(name, metastoreGovernor, metricSender, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  MetastoreCallGovernor(String name, MetastoreGovernor metastoreGovernor, MetricSender metricSender, Ticker ticker) {
+    this.name = name;
+    minInFlight = Math.max(1, metastoreGovernor.getMinInFlight());
+    maxInFlight = Math.max(minInFlight, metastoreGovernor.getMaxInFlight());
+    minCallsPerSecond = Math.max(1, metastoreGovernor.getMinCallsPerSecond());
+    maxCallsPerSecond = Math.max(minCallsPerSecond, metastoreGovernor.getMaxCallsPerSecond());
+    targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(metastoreGovernor.getTargetLatency());
+    backoffRatio = metastoreGovernor.getBackoffRatio();
+    if (backoffRatio <= 0 || backoffRatio >= 1) {
+      throw new IllegalArgumentException("backoff-ratio must be greater than 0 and less than 1");
+    }
+    this.metricSender = metricSender;
+    this.ticker = ticker;
+    inFlightLimit = maxInFlight;
+    callsPerSecondLimit = maxCallsPerSecond;
+    rateLimiter = RateLimiter.create(callsPerSecondLimit);
+    lastDecrease = ticker.read() - targetLatencyNanos;
+    report();
+  }
+
+  /**
+   * Blocks until a call to the metastore is allowed. Every successful invocation must be followed by exactly one call
+   * to {@link #release(long, boolean)}.
+   */
+  public void acquire() throws InterruptedException {
+    lock.lock();
+    try {
+      while (inFlight >= (int) inFlightLimit) {
+        belowLimit.await();
+      }
+      inFlight++;
+    } finally {
+      lock.unlock();
+    }
+    rateLimiter.acquire();
+  }
+
+  /**
+   * @param latencyNanos how long the call took
+   * @param failed whether the call failed in a way that indicates that the metastore is overloaded or unreachable
+   */
+  public void release(long latencyNanos, boolean failed) {
+    release(latencyNanos, 1, failed);
+  }
+
+  /**
+   * @param latencyNanos how long the call took
+   * @param batchSize the number of objects the call sent or returned, at least {@code 1}
+   * @param failed whether the call failed in a way that indicates that the metastore is overloaded or unreachable
+   */
+  public void release(long latencyNanos, int batchSize, boolean failed) {
+    lock.lock();
+    try {
+      inFlight--;
+      if (failed || latencyNanos / Math.max(1, batchSize) > targetLatencyNanos) {
+        decrease(failed, latencyNanos, batchSize);
+      } else {
+        increase();
+      }
+      belowLimit.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    report();
+  }
+
+  // Must be called while holding the lock
+  private void decrease(boolean failed, long latencyNanos, int batchSize) {
+    long now = ticker.read();
+    if (now - lastDecrease < targetLatencyNanos) {
+      return;
+    }
+    lastDecrease = now;
+    inFlightLimit = Math.max(minInFlight, inFlightLimit * backoffRatio);
+    setCallsPerSecondLimit(Math.max(minCallsPerSecond, callsPerSecondLimit * backoffRatio));
+    if (failed) {
+      LOG.info("Metastore call to '{}' failed, limiting to {} in-flight calls and {} calls per second.", name,
+          (int) inFlightLimit, (int) callsPerSecondLimit);
+    } else {
+      LOG.info("Metastore call to '{}' took {}ms for {} objects, limiting to {} in-flight calls and {} calls per "
+          + "second.", name, TimeUnit.NANOSECONDS.toMillis(latencyNanos), batchSize, (int) inFlightLimit,
+          (int) callsPerSecondLimit);
+    }
+  }
+
+  // Must be called while holding the lock
+  private void increase() {
+    if (inFlightLimit < maxInFlight) {
+      inFlightLimit = Math.min(maxInFlight, inFlightLimit + 1 / inFlightLimit);
+    }
+    if (callsPerSecondLimit < maxCallsPerSecond) {
+      setCallsPerSecondLimit(Math.min(maxCallsPerSecond, callsPerSecondLimit + 1 / inFlightLimit));
+    }
+  }
+
+  private void setCallsPerSecondLimit(double callsPerSecondLimit) {
+    this.callsPerSecondLimit = callsPerSecondLimit;
+    rateLimiter.setRate(callsPerSecondLimit);
+  }
+
+  private void report() {
+    long currentInFlightLimit;
+    long currentCallsPerSecondLimit;
+    lock.lock();
+    try {
+      currentInFlightLimit = (long) inFlightLimit;
+      currentCallsPerSecondLimit = (long) callsPerSecondLimit;
+      if (currentInFlightLimit == reportedInFlightLimit && currentCallsPerSecondLimit == reportedCallsPerSecondLimit) {
+        return;
+      }
+      reportedInFlightLimit = currentInFlightLimit;
+      reportedCallsPerSecondLimit = currentCallsPerSecondLimit;
+    } finally {
+      lock.unlock();
+    }
+    metricSender
+        .send(ImmutableMap
+            .of(DotJoiner.join(name, "metastore_governor", MAX_IN_FLIGHT), currentInFlightLimit,
+                DotJoiner.join(name, "metastore_governor", MAX_CALLS_PER_SECOND), currentCallsPerSecondLimit));
+  }
+
+  @VisibleForTesting
+  int getInFlightLimit() {
+    lock.lock();
+    try {
+      return (int) inFlightLimit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  int getCallsPerSecondLimit() {
+    lock.lock();
+    try {
+      return (int) callsPerSecondLimit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+}
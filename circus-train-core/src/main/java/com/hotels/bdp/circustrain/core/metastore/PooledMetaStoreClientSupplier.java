@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.metastore;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+
+/**
+ * A {@link Supplier} that keeps up to {@code maxSize} idle metastore clients open so that they can be reused instead of
+ * establishing a new connection (and possibly a new SSH tunnel) for every metastore interaction.
+ * <p>
+ * Clients handed out by this supplier must be closed as usual, closing one returns it to the pool. Clients that have
+ * been idle for longer than {@code idleTimeout} are discarded, and when {@code testOnBorrow} is enabled idle clients
+ * are checked with a lightweight metastore call before being handed out. Clients that failed with a Thrift transport
+ * error are never returned to the pool. The pool never blocks: when no idle client is available a new one is created.
+ * </p>
+ */
+public class PooledMetaStoreClientSupplier implements Supplier<CloseableMetaStoreClient>, Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PooledMetaStoreClientSupplier.class);
+
+  private final Supplier<CloseableMetaStoreClient> delegate;
+  private final String name;
+  private final int maxSize;
+  private final long idleTimeoutNanos;
+  private final boolean testOnBorrow;
+  private final Ticker ticker;
+  private final Deque<IdleClient> idleClients = new ArrayDeque<>();
+  private boolean closed = false;
+
+  private static class IdleClient {
+    final CloseableMetaStoreClient client;
+    final long idleSince;
+
+    IdleClient(CloseableMetaStoreClient client, long idleSince) {
+      this.client = client;
+      this.idleSince = idleSince;
+    }
+  }
+
+  public PooledMetaStoreClientSupplier(
+      Supplier<CloseableMetaStoreClient> delegate,
+      String name,
+      int maxSize,
+      long idleTimeoutMillis,
+      boolean testOnBorrow) {
+    this(delegate, name, maxSize, idleTimeoutMillis, testOnBorrow, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  PooledMetaStoreClientSupplier(
+      Supplier<CloseableMetaStoreClient> delegate,
+      String name,
+      int maxSize,
+      long idleTimeoutMillis,
+      boolean testOnBorrow,
+      Ticker ticker) {
+    this.delegate = delegate;
+    this.name = name;
+    this.maxSize = maxSize;
+    idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    this.testOnBorrow = testOnBorrow;
+    this.ticker = ticker;
+  }
+
+  @Override
+  public CloseableMetaStoreClient get() {
+    CloseableMetaStoreClient client;
+    while ((client = borrowIdleClient()) != null) {
+      if (!testOnBorrow || isHealthy(client)) {
+        LOG.debug("Reusing pooled metastore client for '{}'.", name);
+        return pooled(client);
+      }
+      LOG.info("Discarding unhealthy pooled metastore client for '{}'.", name);
+      closeQuietly(client);
+    }
+    LOG.debug("Creating new metastore client for '{}'.", name);
+    return pooled(delegate.get());
+  }
+
+  private CloseableMetaStoreClient borrowIdleClient() {
+    List<CloseableMetaStoreClient> expired;
+    IdleClient idleClient;
+    synchronized (this) {
+      expired = removeExpired();
+      idleClient = idleClients.pollFirst();
+    }
+    for (CloseableMetaStoreClient client : expired) {
+      closeQuietly(client);
+    }
+    return idleClient == null ? null : idleClient.client;
+  }
+
+  private void release(CloseableMetaStoreClient client, boolean broken) {
+    List<CloseableMetaStoreClient> toClose;
+    synchronized (this) {
+      toClose = removeExpired();
+      if (closed || broken || idleClients.size() >= maxSize) {
+        toClose.add(client);
+      } else {
+        idleClients.addFirst(new IdleClient(client, ticker.read()));
+      }
+    }
+    for (CloseableMetaStoreClient c : toClose) {
+      closeQuietly(c);
+    }
+  }
+
+  // Must be called while holding the lock
+  private List<CloseableMetaStoreClient> removeExpired() {
+    List<CloseableMetaStoreClient> expired = new ArrayList<>();
+    long now = ticker.read();
+    Iterator<IdleClient> iterator = idleClients.descendingIterator();
+    while (iterator.hasNext()) {
+      IdleClient idleClient = iterator.next();
+      if (now - idleClient.idleSince < idleTimeoutNanos) {
+        // clients are ordered from most to least recently used
+        break;
+      }
+      iterator.remove();
+      expired.add(idleClient.client);
+    }
+    return expired;
+  }
+
+  private boolean isHealthy(CloseableMetaStoreClient client) {
+    try {
+      client.getDatabases("default");
+      return true;
+    } catch (Exception e) {
+      LOG.debug("Pooled metastore client for '{}' failed health check.", name, e);
+      return false;
+    }
+  }
+
+  private void closeQuietly(CloseableMetaStoreClient client) {
+    try {
+      client.close();
+    } catch (Exception e) {
+      LOG.warn("Unable to close metastore client for '{}'.", name, e);
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int getIdleCount() {
+    return idleClients.size();
+  }
+
+  @Override
+  public void close() {
+    List<CloseableMetaStoreClient> toClose = new ArrayList<>();
+    synchronized (this) {
+      closed = true;
+      for (IdleClient idleClient : idleClients) {
+        toClose.add(idleClient.client);
+      }
+      idleClients.clear();
+    }
+    LOG.debug("Closing {} pooled metastore clients for '{}'.", toClose.size(), name);
+    for (CloseableMetaStoreClient client : toClose) {
+      closeQuietly(client);
+    }
+  }
+
+  private CloseableMetaStoreClient pooled(CloseableMetaStoreClient client) {
+    return (CloseableMetaStoreClient) Proxy
+        .newProxyInstance(getClass().getClassLoader(), new Class<?>[] { CloseableMetaStoreClient.class },
+            new PooledClientInvocationHandler(client));
+  }
+
+  private class PooledClientInvocationHandler implements InvocationHandler {
+
+    private final CloseableMetaStoreClient client;
+    private boolean released = false;
+    private boolean broken = false;
+
+    PooledClientInvocationHandler(CloseableMetaStoreClient client) {
+      this.client = client;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+      case "close":
+        if (!released) {
+          released = true;
+          release(client, broken);
+        }
+        return null;
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return "Pooled[" + client + "]";
+      default:
+        if (released) {
+          throw new IllegalStateException("Metastore client has already been returned to the pool");
+        }
+        try {
+          return method.invoke(client, args);
+        } catch (InvocationTargetException e) {
+          if (MetaStoreFailures.isTransportFailure(e.getCause())) {
+            broken = true;
+          }
+          throw e.getCause();
+        }
+      }
+    }
+  }
+
+}
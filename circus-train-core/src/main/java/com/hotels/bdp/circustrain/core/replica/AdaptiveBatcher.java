@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.replica;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
+
+/**
+ * Splits batches of metastore objects so that each metastore call stays below a serialized payload limit. When a call
+ * fails with an error that names the size of the request, such as a frame or packet that is too large, the batch is
+ * halved and retried and the limit is lowered to half of the failed payload. Other errors are rethrown because the
+ * metastore may already have applied the batch. After a few successful calls the limit doubles again, up to the
+ * configured maximum.
+ * <p>
+ * Instances are thread safe and are meant to be shared by the writes of one table replication so that every batch
+ * benefits from what the previous ones learned.
+ * </p>
+ */
+public class AdaptiveBatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveBatcher.class);
+
+  public static final long DEFAULT_MAX_BATCH_BYTES = 8 * 1024 * 1024;
+
+  private static final int SUCCESSES_BEFORE_GROWTH = 3;
+  private static final Pattern PAYLOAD_ERROR = Pattern
+      .compile("(?i)frame size|message size|too large|max_allowed_packet");
+
+  public interface BatchWrite<T> {
+    void write(List<T> batch) throws TException;
+  }
+
+  private final long maxBatchBytes;
+  private long batchBytesLimit;
+  private int successes;
+
+  public AdaptiveBatcher(long maxBatchBytes) {
+    this.maxBatchBytes = maxBatchBytes;
+    batchBytesLimit = maxBatchBytes;
+  }
+
+  /**
+   * Writes {@code items} in as many calls as needed to respect the current payload limit. Phase metrics are recorded
+   * with the {@code metricName} prefix.
+   */
+  public <T extends TBase<?, ?>> void write(List<T> items, String metricName, BatchWrite<T> write)
+    throws TException {
+    List<T> batch = new ArrayList<>();
+    long batchBytes = 0;
+    long limit = getBatchBytesLimit();
+    for (T item : items) {
+      long itemBytes = payloadSize(item);
+      if (!batch.isEmpty() && batchBytes + itemBytes > limit) {
+        writeOrSplit(batch, batchBytes, metricName, write);
+        batch = new ArrayList<>();
+        batchBytes = 0;
+      }
+      batch.add(item);
+      batchBytes += itemBytes;
+    }
+    if (!batch.isEmpty()) {
+      writeOrSplit(batch, batchBytes, metricName, write);
+    }
+  }
+
+  private <T extends TBase<?, ?>> void writeOrSplit(
+      List<T> batch,
+      long batchBytes,
+      String metricName,
+      BatchWrite<T> write)
+    throws TException {
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.current();
+    try {
+      write.write(batch);
+    } catch (TException e) {
+      if (batch.size() <= 1 || !isPayloadError(e)) {
+        throw e;
+      }
+      long limit = failed(batchBytes);
+      LOG.warn("Batch of {} items and {} bytes failed with '{}', retrying in halves. Batch limit is now {} bytes.",
+          batch.size(), batchBytes, e.getMessage(), limit);
+      phaseMetrics.increment(metricName + "_batch_splits");
+      phaseMetrics.min(metricName + "_batch_bytes_limit", limit);
+      int half = batch.size() / 2;
+      write(batch.subList(0, half), metricName, write);
+      write(batch.subList(half, batch.size()), metricName, write);
+      return;
+    }
+    phaseMetrics.max(metricName + "_max_batch_bytes", batchBytes);
+    succeeded();
+  }
+
+  private synchronized long failed(long batchBytes) {
+    successes = 0;
+    batchBytesLimit = Math.max(1L, Math.min(batchBytesLimit, batchBytes / 2));
+    return batchBytesLimit;
+  }
+
+  private synchronized void succeeded() {
+    if (batchBytesLimit >= maxBatchBytes || ++successes < SUCCESSES_BEFORE_GROWTH) {
+      return;
+    }
+    successes = 0;
+    batchBytesLimit = Math.min(maxBatchBytes, batchBytesLimit * 2);
+    LOG.info("Batch limit is now {} bytes.", batchBytesLimit);
+  }
+
+  @VisibleForTesting
+  synchronized long getBatchBytesLimit() {
+    return batchBytesLimit;
+  }
+
+  @VisibleForTesting
+  static boolean isPayloadError(TException e) {
+    // Other transport errors, such as a reset connection, may have happened after the metastore applied the batch
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t.getMessage() != null && PAYLOAD_ERROR.matcher(t.getMessage()).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the size of {@code item} once serialized with the binary protocol, or {@code 0} if it cannot be
+   *         serialized.
+   */
+  @VisibleForTesting
+  static long payloadSize(TBase<?, ?> item) {
+    CountingTransport transport = new CountingTransport();
+    try {
+      item.write(new TBinaryProtocol(transport));
+    } catch (TException e) {
+      LOG.debug("Unable to estimate size of {}", item, e);
+      return 0L;
+    }
+    return transport.bytes;
+  }
+
+  private static class CountingTransport extends TTransport {
+
+    private long bytes;
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public int read(byte[] buf, int off, int len) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) {
+      bytes += len;
+    }
+  }
+
+}
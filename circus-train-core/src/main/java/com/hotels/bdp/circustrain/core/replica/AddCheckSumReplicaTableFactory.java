@@ -16,14 +16,14 @@
 package com.hotels.bdp.circustrain.core.replica;
 
 import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM;
-import static com.hotels.hcommon.hive.metastore.util.LocationUtils.locationAsPath;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION;
 
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.Table;
 
-import com.google.common.base.Function;
+import com.google.common.base.Optional;
 
 import com.hotels.bdp.circustrain.api.conf.ReplicationMode;
 import com.hotels.bdp.circustrain.api.metadata.ColumnStatisticsTransformation;
@@ -32,16 +32,21 @@ import com.hotels.bdp.circustrain.api.metadata.TableTransformation;
 
 public class AddCheckSumReplicaTableFactory extends ReplicaTableFactory {
 
-  private final Function<Path, String> checksumFunction;
+  private final PartitionChecksums partitionChecksums;
 
   AddCheckSumReplicaTableFactory(
       HiveConf sourceHiveConf,
-      Function<Path, String> checksumFunction,
+      PartitionChecksums partitionChecksums,
       TableTransformation tableTransformation,
       PartitionTransformation partitionTransformation,
       ColumnStatisticsTransformation columnStatisticsTransformation) {
     super(sourceHiveConf, tableTransformation, partitionTransformation, columnStatisticsTransformation);
-    this.checksumFunction = checksumFunction;
+    this.partitionChecksums = partitionChecksums;
+  }
+
+  @Override
+  Optional<PartitionChecksums> getPartitionChecksums() {
+    return Optional.of(partitionChecksums);
   }
 
   @Override
@@ -55,8 +60,10 @@ public class AddCheckSumReplicaTableFactory extends ReplicaTableFactory {
       ReplicationMode replicationMode) {
     Partition replica = super.newReplicaPartition(eventId, sourceTable, sourcePartition, replicaDatabaseName,
         replicaTableName, replicaPartitionLocation, replicationMode);
-    String checksum = checksumFunction.apply(locationAsPath(sourcePartition));
+    String checksum = partitionChecksums.get(sourcePartition);
     replica.putToParameters(PARTITION_CHECKSUM.parameterName(), checksum);
+    replica.putToParameters(PARTITION_CHECKSUM_VERSION.parameterName(),
+        String.valueOf(partitionChecksums.getVersion()));
     return replica;
   }
 }
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.replica;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Supplier;
+
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+import com.hotels.hcommon.hive.metastore.exception.MetaStoreClientException;
+
+/**
+ * Writes batches of partitions, or of their statistics, to the replica metastore. With a concurrency greater than one
+ * the batches passed to one {@link #write(CloseableMetaStoreClient, String, List)} call are written at the same time on
+ * the {@link PartitionTaskExecutor}, each on its own metastore client, so a call must only contain batches that do not
+ * depend on each other. The first batch to
+ * fail stops the remaining ones and is reported with the names of the partitions it contained. Batches are further
+ * split by the {@link AdaptiveBatcher} when their payload is too large for a single metastore call.
+ */
+class PartitionBatchWriter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionBatchWriter.class);
+
+  /**
+   * A group of items written with one metastore call.
+   */
+  abstract static class Batch<T extends TBase<?, ?>> {
+
+    private final String operation;
+    private final String metricName;
+    private final int start;
+    private final List<T> items;
+
+    /**
+     * @param operation describes the write in log and error messages, e.g. {@code "add partitions"}.
+     * @param metricName prefix of the phase metrics recorded for the write.
+     */
+    Batch(String operation, String metricName, int start, List<T> items) {
+      this.operation = operation;
+      this.metricName = metricName;
+      this.start = start;
+      this.items = items;
+    }
+
+    abstract void write(CloseableMetaStoreClient client, List<T> items) throws TException;
+
+    /**
+     * @return the partition name of the item, for error messages.
+     */
+    abstract String partitionName(T item);
+
+    /**
+     * @return the name of the counter of items written, or {@code null} if items are not counted.
+     */
+    String itemMetricName() {
+      return null;
+    }
+
+    List<String> partitionNames() {
+      List<String> names = new ArrayList<>(items.size());
+      for (T item : items) {
+        names.add(partitionName(item));
+      }
+      return names;
+    }
+  }
+
+  private final Supplier<CloseableMetaStoreClient> metaStoreClientSupplier;
+  private final PartitionTaskExecutor partitionTaskExecutor;
+  private final int concurrency;
+  private final AdaptiveBatcher batcher;
+  private final String qualifiedTableName;
+
+  PartitionBatchWriter(
+      Supplier<CloseableMetaStoreClient> metaStoreClientSupplier,
+      PartitionTaskExecutor partitionTaskExecutor,
+      int concurrency,
+      AdaptiveBatcher batcher,
+      String databaseName,
+      String tableName) {
+    this.metaStoreClientSupplier = metaStoreClientSupplier;
+    this.partitionTaskExecutor = partitionTaskExecutor;
+    this.concurrency = concurrency;
+    this.batcher = batcher;
+    qualifiedTableName = databaseName + "." + tableName;
+  }
+
+  /**
+   * @param phaseName the phase under which the wall-clock time of the whole call is recorded.
+   */
+  void write(CloseableMetaStoreClient client, String phaseName, List<? extends Batch<?>> batches) {
+    try (ReplicationPhaseMetrics.Phase phase = ReplicationPhaseMetrics.current().phase(phaseName)) {
+      int threads = Math.min(concurrency, batches.size());
+      if (threads <= 1) {
+        for (Batch<?> batch : batches) {
+          write(client, batch);
+        }
+        return;
+      }
+      LOG.debug("Writing {} batches to {} using {} threads.", batches.size(), qualifiedTableName, threads);
+      List<Callable<Void>> tasks = new ArrayList<>(batches.size());
+      for (final Batch<?> batch : batches) {
+        tasks.add(new Callable<Void>() {
+          @Override
+          public Void call() {
+            try (CloseableMetaStoreClient batchClient = metaStoreClientSupplier.get()) {
+              write(batchClient, batch);
+              return null;
+            }
+          }
+        });
+      }
+      partitionTaskExecutor.invokeAll("write partitions of replica table '" + qualifiedTableName + "'", tasks,
+          threads);
+    }
+  }
+
+  private <T extends TBase<?, ?>> void write(final CloseableMetaStoreClient client, final Batch<T> batch) {
+    LOG.info("Writing batch to {} partitions {} through {} of replica table '{}'", batch.operation, batch.start,
+        batch.start + batch.items.size() - 1, qualifiedTableName);
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.current();
+    try {
+      batcher.write(batch.items, batch.metricName, new AdaptiveBatcher.BatchWrite<T>() {
+        @Override
+        public void write(List<T> items) throws TException {
+          batch.write(client, items);
+        }
+      });
+    } catch (TException e) {
+      throw new MetaStoreClientException("Unable to "
+          + batch.operation
+          + " "
+          + batch.partitionNames()
+          + " of replica table '"
+          + qualifiedTableName
+          + "'", e);
+    }
+    phaseMetrics.increment(batch.metricName + "_batches");
+    phaseMetrics.max(batch.metricName + "_max_batch_size", batch.items.size());
+    if (batch.itemMetricName() != null) {
+      phaseMetrics.add(batch.itemMetricName(), batch.items.size());
+    }
+  }
+
+}
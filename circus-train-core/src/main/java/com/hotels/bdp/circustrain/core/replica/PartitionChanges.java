@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.replica;
+
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.LAST_REPLICATED;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.REPLICATION_EVENT;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+
+/**
+ * Tells whether a replica partition needs to be altered, ignoring the parameters that change on every replication.
+ */
+final class PartitionChanges {
+
+  private static final List<String> VOLATILE_PARAMETERS = Arrays.asList(LAST_REPLICATED.parameterName(),
+      REPLICATION_EVENT.parameterName(), hive_metastoreConstants.DDL_TIME);
+
+  private PartitionChanges() {}
+
+  /**
+   * @return {@code true} if {@code newPartition} differs from {@code oldPartition} in its values, storage descriptor,
+   *         location or non volatile parameters, which include the basic statistics.
+   */
+  static boolean isChanged(Partition oldPartition, Partition newPartition) {
+    return !Objects.equals(oldPartition.getValues(), newPartition.getValues())
+        || !Objects.equals(oldPartition.getSd(), newPartition.getSd())
+        || !stableParameters(oldPartition).equals(stableParameters(newPartition));
+  }
+
+  private static Map<String, String> stableParameters(Partition partition) {
+    if (partition.getParameters() == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, String> parameters = new HashMap<>(partition.getParameters());
+    parameters.keySet().removeAll(VOLATILE_PARAMETERS);
+    return parameters;
+  }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.replica;
+
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION;
+import static com.hotels.hcommon.hive.metastore.util.LocationUtils.locationAsPath;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
+
+/**
+ * The checksums of the source partitions of one replication, keyed by partition location. Checksums computed while
+ * generating the partition filter are recorded here so that they are not computed again when the replica partitions
+ * are built, and {@link #computeMissing(List)} computes the remaining ones beforehand on the shared
+ * {@link PartitionTaskExecutor}. Unchanged replica partitions whose checksum was stored in an older version are
+ * recorded with {@link #recordUpgrade(Partition, String)} so that the replica upgrades them when it commits.
+ */
+public class PartitionChecksums {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionChecksums.class);
+
+  private final PathChecksumFunction checksumFunction;
+  private final PartitionTaskExecutor partitionTaskExecutor;
+  private final int concurrency;
+  private final ConcurrentMap<String, String> checksums = new ConcurrentHashMap<>();
+  private final List<Partition> upgrades = new ArrayList<>();
+
+  public PartitionChecksums(
+      PathChecksumFunction checksumFunction,
+      PartitionTaskExecutor partitionTaskExecutor,
+      int concurrency) {
+    this.checksumFunction = checksumFunction;
+    this.partitionTaskExecutor = partitionTaskExecutor;
+    this.concurrency = concurrency;
+  }
+
+  /**
+   * @return the version of the checksums returned by {@link #get(Partition)}.
+   */
+  public int getVersion() {
+    return checksumFunction.getVersion();
+  }
+
+  /**
+   * Records a checksum of the source partition data in {@link #getVersion()}.
+   */
+  public void record(Partition sourcePartition, String checksum) {
+    checksums.put(key(sourcePartition), checksum);
+  }
+
+  /**
+   * Records the checksum in {@link #getVersion()} of the source data of an unchanged replica partition whose checksum
+   * was stored in an older version.
+   */
+  public synchronized void recordUpgrade(Partition replicaPartition, String checksum) {
+    Partition upgrade = new Partition(replicaPartition);
+    upgrade.putToParameters(PARTITION_CHECKSUM.parameterName(), checksum);
+    upgrade.putToParameters(PARTITION_CHECKSUM_VERSION.parameterName(), Integer.toString(getVersion()));
+    upgrades.add(upgrade);
+  }
+
+  /**
+   * @return copies of the replica partitions recorded by {@link #recordUpgrade(Partition, String)}, with their checksum
+   *         and its version replaced.
+   */
+  public synchronized List<Partition> getUpgrades() {
+    return new ArrayList<>(upgrades);
+  }
+
+  /**
+   * @return the recorded checksum of the source partition data, computing it if it was not recorded.
+   */
+  public String get(Partition sourcePartition) {
+    String key = key(sourcePartition);
+    String checksum = checksums.get(key);
+    if (checksum == null) {
+      checksum = checksumFunction.apply(locationAsPath(sourcePartition));
+      checksums.put(key, checksum);
+    }
+    return checksum;
+  }
+
+  /**
+   * Computes the checksums of the given source partitions that have not been recorded, at most {@code concurrency} at a
+   * time.
+   */
+  public void computeMissing(List<Partition> sourcePartitions) {
+    final List<Partition> missing = new ArrayList<>();
+    for (Partition sourcePartition : sourcePartitions) {
+      if (!checksums.containsKey(key(sourcePartition))) {
+        missing.add(sourcePartition);
+      }
+    }
+    LOG.debug("Reusing {} partition checksums, computing {}.", sourcePartitions.size() - missing.size(),
+        missing.size());
+    ReplicationPhaseMetrics.current().add("partition_checksums_reused", sourcePartitions.size() - missing.size());
+    if (missing.size() <= 1 || concurrency <= 1) {
+      for (Partition sourcePartition : missing) {
+        get(sourcePartition);
+      }
+      return;
+    }
+
+    List<Callable<String>> tasks = new ArrayList<>(missing.size());
+    for (final Partition sourcePartition : missing) {
+      tasks.add(new Callable<String>() {
+        @Override
+        public String call() {
+          return get(sourcePartition);
+        }
+      });
+    }
+    partitionTaskExecutor.invokeAll("compute partition checksums", tasks, concurrency);
+  }
+
+  private static String key(Partition sourcePartition) {
+    return locationAsPath(sourcePartition).toString();
+  }
+
+}
@@ -26,16 +26,21 @@ import static com.hotels.bdp.circustrain.api.conf.ReplicationMode.METADATA_UPDAT
 import static com.hotels.hcommon.hive.metastore.util.LocationUtils.locationAsPath;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.StatsSetupConst;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
+import org.apache.hadoop.hive.metastore.Warehouse;
 import org.apache.hadoop.hive.metastore.api.ColumnStatistics;
+import org.apache.hadoop.hive.metastore.api.EnvironmentContext;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.MetaException;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.SetPartitionsStatsRequest;
 import org.apache.hadoop.hive.metastore.api.Table;
@@ -47,18 +52,25 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Enums;
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
 import com.hotels.bdp.circustrain.api.CircusTrainException;
 import com.hotels.bdp.circustrain.api.ReplicaLocationManager;
 import com.hotels.bdp.circustrain.api.SourceLocationManager;
+import com.hotels.bdp.circustrain.api.conf.PartitionStatisticsFetch;
 import com.hotels.bdp.circustrain.api.conf.ReplicaCatalog;
 import com.hotels.bdp.circustrain.api.conf.ReplicationMode;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.api.event.EventPartition;
+import com.hotels.bdp.circustrain.api.event.EventPartitions;
 import com.hotels.bdp.circustrain.api.event.ReplicaCatalogListener;
 import com.hotels.bdp.circustrain.api.listener.HousekeepingListener;
 import com.hotels.bdp.circustrain.core.HiveEndpoint;
+import com.hotels.bdp.circustrain.core.PartitionInterner;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
 import com.hotels.bdp.circustrain.core.PartitionsAndStatistics;
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
 import com.hotels.bdp.circustrain.core.TableAndStatistics;
 import com.hotels.bdp.circustrain.core.event.EventUtils;
 import com.hotels.bdp.circustrain.core.replica.hive.AlterTableService;
@@ -78,6 +90,9 @@ public class Replica extends HiveEndpoint {
   private final TableReplication tableReplication;
   private final AlterTableService alterTableService;
   private int partitionBatchSize = 1000;
+  private int partitionWriteConcurrency = 1;
+  private final AdaptiveBatcher batcher;
+  private final boolean skipUnchangedPartitions;
 
   /**
    * Use {@link ReplicaFactory}
@@ -90,14 +105,20 @@ public class Replica extends HiveEndpoint {
       HousekeepingListener housekeepingListener,
       ReplicaCatalogListener replicaCatalogListener,
       TableReplication tableReplication,
-      AlterTableService alterTableService) {
-    super(replicaCatalog.getName(), replicaHiveConf, replicaMetaStoreClientSupplier);
+      AlterTableService alterTableService,
+      PartitionTaskExecutor partitionTaskExecutor) {
+    super(replicaCatalog.getName(), replicaHiveConf, replicaMetaStoreClientSupplier, new PartitionStatisticsFetch(),
+        partitionTaskExecutor);
     this.replicaCatalogListener = replicaCatalogListener;
     tableFactory = replicaTableFactory;
     this.housekeepingListener = housekeepingListener;
     replicationMode = tableReplication.getReplicationMode();
     this.tableReplication = tableReplication;
     this.alterTableService = alterTableService;
+    partitionBatchSize = tableReplication.getPartitionBatchSize();
+    partitionWriteConcurrency = tableReplication.getPartitionWriteConcurrency();
+    batcher = new AdaptiveBatcher(tableReplication.getPartitionBatchMaxBytes());
+    skipUnchangedPartitions = tableReplication.isSkipUnchangedPartitions();
   }
 
   /**
@@ -121,6 +142,9 @@ public class Replica extends HiveEndpoint {
     replicationMode = tableReplication.getReplicationMode();
     this.tableReplication = tableReplication;
     this.partitionBatchSize = partitionBatchSize;
+    partitionWriteConcurrency = tableReplication.getPartitionWriteConcurrency();
+    batcher = new AdaptiveBatcher(tableReplication.getPartitionBatchMaxBytes());
+    skipUnchangedPartitions = tableReplication.isSkipUnchangedPartitions();
     this.alterTableService = alterTableService;
   }
 
@@ -130,9 +154,13 @@ public class Replica extends HiveEndpoint {
       String replicaDatabaseName,
       String replicaTableName,
       ReplicaLocationManager locationManager) {
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.current();
     try (CloseableMetaStoreClient client = getMetaStoreClientSupplier().get()) {
-      Optional<Table> oldReplicaTable = updateTableMetadata(client, eventId, sourceTable, replicaDatabaseName,
-          replicaTableName, locationManager.getTableLocation(), replicationMode);
+      Optional<Table> oldReplicaTable;
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("replica_table_update")) {
+        oldReplicaTable = updateTableMetadata(client, eventId, sourceTable, replicaDatabaseName, replicaTableName,
+            locationManager.getTableLocation(), replicationMode);
+      }
       if (oldReplicaTable.isPresent()
           && LocationUtils.hasLocation(oldReplicaTable.get())
           && isUnpartitioned(oldReplicaTable.get())) {
@@ -141,9 +169,33 @@ public class Replica extends HiveEndpoint {
         String oldEventId = oldReplicaTable.get().getParameters().get(REPLICATION_EVENT.parameterName());
         locationManager.addCleanUpLocation(oldEventId, oldLocation);
       }
+      List<Partition> checksumUpgrades = checksumUpgrades();
+      if (!checksumUpgrades.isEmpty()) {
+        replicaCatalogListener
+            .partitionsToAlter(EventUtils.toEventPartitions(sourceTable.getTable(), checksumUpgrades));
+        PartitionBatchWriter writer = new PartitionBatchWriter(getMetaStoreClientSupplier(),
+            getPartitionTaskExecutor(), partitionWriteConcurrency, batcher, replicaDatabaseName, replicaTableName);
+        writer.write(client, "partition_write", upgradeChecksumsBatches(replicaDatabaseName, replicaTableName,
+            checksumUpgrades, sourceTable.getTable().getPartitionKeys()));
+      }
+    } finally {
+      invalidateTable(replicaDatabaseName, replicaTableName);
     }
   }
 
+  /**
+   * @return the unchanged replica partitions whose checksums were upgraded while generating the partition filter. They
+   *         are written with the rest of the metadata so that planning and failed replications leave them as they were.
+   */
+  private List<Partition> checksumUpgrades() {
+    Optional<PartitionChecksums> partitionChecksums = getPartitionChecksums();
+    if (!partitionChecksums.isPresent() || replicationMode == FULL_OVERWRITE) {
+      // An overwritten replica has no unchanged partitions left to upgrade
+      return Collections.emptyList();
+    }
+    return partitionChecksums.get().getUpgrades();
+  }
+
   private boolean isUnpartitioned(Table table) {
     return table.getPartitionKeysSize() == 0;
   }
@@ -155,33 +207,109 @@ public class Replica extends HiveEndpoint {
       String replicaDatabaseName,
       String replicaTableName,
       ReplicaLocationManager locationManager) {
-    try (CloseableMetaStoreClient client = getMetaStoreClientSupplier().get()) {
-      updateTableMetadata(client, eventId, sourceTableAndStatistics, replicaDatabaseName, replicaTableName,
-          locationManager.getTableLocation(), replicationMode);
+    updateMetadata(eventId, sourceTableAndStatistics, Iterators.singletonIterator(sourcePartitionsAndStatistics),
+        replicaDatabaseName, replicaTableName, locationManager);
+  }
 
-      List<Partition> oldPartitions = getOldPartitions(sourcePartitionsAndStatistics, replicaDatabaseName,
-          replicaTableName, client);
-      LOG.debug("Found {} existing partitions that may match.", oldPartitions.size());
+  /**
+   * Creates or alters the replica partitions one page of source partitions at a time, so that only the replica
+   * partitions, existing partitions and statistics of the current page are held at once. The listener is told about
+   * all the partitions once every page has been written.
+   */
+  public void updateMetadata(
+      String eventId,
+      TableAndStatistics sourceTableAndStatistics,
+      Iterator<PartitionsAndStatistics> sourcePartitionPages,
+      String replicaDatabaseName,
+      String replicaTableName,
+      ReplicaLocationManager locationManager) {
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.current();
+    try (CloseableMetaStoreClient client = getMetaStoreClientSupplier().get()) {
+      try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("replica_table_update")) {
+        updateTableMetadata(client, eventId, sourceTableAndStatistics, replicaDatabaseName, replicaTableName,
+            locationManager.getTableLocation(), replicationMode);
+      }
 
-      replicaCatalogListener
-          .existingReplicaPartitions(EventUtils.toEventPartitions(sourceTableAndStatistics.getTable(), oldPartitions));
+      Table sourceTable = sourceTableAndStatistics.getTable();
+      PartitionBatchWriter writer = new PartitionBatchWriter(getMetaStoreClientSupplier(), getPartitionTaskExecutor(),
+          partitionWriteConcurrency, batcher, replicaDatabaseName, replicaTableName);
+      EventPartitions existingPartitions = EventUtils.toEventPartitions(sourceTable, null);
+      EventPartitions createdPartitions = EventUtils.toEventPartitions(sourceTable, null);
+      EventPartitions alteredPartitions = EventUtils.toEventPartitions(sourceTable, null);
+      int unchangedPartitions = 0;
+      PartitionInterner interner = new PartitionInterner();
+      while (sourcePartitionPages.hasNext()) {
+        PartitionsAndStatistics sourcePartitionPage = sourcePartitionPages.next();
+        unchangedPartitions += updatePartitionMetadata(client, writer, interner, eventId, sourceTable,
+            sourcePartitionPage, replicaDatabaseName, replicaTableName, locationManager, existingPartitions,
+            createdPartitions, alteredPartitions);
+      }
+      if (unchangedPartitions > 0) {
+        LOG.info("Skipping {} existing partitions whose metadata is unchanged.", unchangedPartitions);
+        phaseMetrics.add("partitions_unchanged", unchangedPartitions);
+      }
 
-      Map<List<String>, Partition> oldPartitionsByKey = mapPartitionsByKey(oldPartitions);
+      List<Partition> checksumUpgrades = checksumUpgrades();
+      addEventPartitions(alteredPartitions, sourceTable, checksumUpgrades);
+      replicaCatalogListener.existingReplicaPartitions(existingPartitions);
+      replicaCatalogListener.partitionsToAlter(alteredPartitions);
+      replicaCatalogListener.partitionsToCreate(createdPartitions);
+      // Upgrades are unchanged partitions, so they are distinct from the created and altered ones
+      writer.write(client, "partition_write", upgradeChecksumsBatches(replicaDatabaseName, replicaTableName,
+          checksumUpgrades, sourceTable.getPartitionKeys()));
+    } finally {
+      invalidateTable(replicaDatabaseName, replicaTableName);
+    }
+  }
 
-      List<Partition> sourcePartitions = sourcePartitionsAndStatistics.getPartitions();
-      List<Partition> partitionsToCreate = new ArrayList<>(sourcePartitions.size());
-      List<Partition> partitionsToAlter = new ArrayList<>(sourcePartitions.size());
-      List<ColumnStatistics> statisticsToSet = new ArrayList<>(sourcePartitions.size());
-      for (Partition sourcePartition : sourcePartitions) {
+  /**
+   * @return the number of existing partitions of the page that were left unchanged.
+   */
+  private int updatePartitionMetadata(
+      CloseableMetaStoreClient client,
+      PartitionBatchWriter writer,
+      PartitionInterner interner,
+      String eventId,
+      Table sourceTable,
+      PartitionsAndStatistics sourcePartitionsAndStatistics,
+      String replicaDatabaseName,
+      String replicaTableName,
+      ReplicaLocationManager locationManager,
+      EventPartitions existingPartitions,
+      EventPartitions createdPartitions,
+      EventPartitions alteredPartitions) {
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.current();
+    List<Partition> sourcePartitions = sourcePartitionsAndStatistics.getPartitions();
+    List<Partition> partitionsToCreate = new ArrayList<>(sourcePartitions.size());
+    List<Partition> partitionsToAlter = new ArrayList<>(sourcePartitions.size());
+    List<ColumnStatistics> statisticsToSet = new ArrayList<>(sourcePartitions.size());
+    int unchangedPartitions = 0;
+    // The lookup shares the batch size and concurrency of the partition writes
+    try (ReplicaPartitionLookup oldPartitions = new ReplicaPartitionLookup(getMetaStoreClientSupplier(),
+        getPartitionTaskExecutor(), client, partitionWriteConcurrency, partitionBatchSize, replicaDatabaseName,
+        replicaTableName, sourcePartitionsAndStatistics.getPartitionNames())) {
+      Optional<PartitionChecksums> partitionChecksums = getPartitionChecksums();
+      if (partitionChecksums.isPresent()) {
+        // Keeps file system calls out of the loop while the existing partitions are looked up
+        try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("partition_checksums")) {
+          partitionChecksums.get().computeMissing(sourcePartitions);
+        }
+      }
+      for (int i = 0; i < sourcePartitions.size(); i++) {
+        Partition sourcePartition = sourcePartitions.get(i);
         Path replicaPartitionLocation = locationManager.getPartitionLocation(sourcePartition);
         LOG.debug("Generated replica partition path: {}", replicaPartitionLocation);
 
-        Partition replicaPartition = tableFactory
-            .newReplicaPartition(eventId, sourceTableAndStatistics.getTable(), sourcePartition, replicaDatabaseName,
-                replicaTableName, replicaPartitionLocation, replicationMode);
-        Partition oldPartition = oldPartitionsByKey.get(sourcePartition.getValues());
+        Partition replicaPartition = interner
+            .intern(tableFactory
+                .newReplicaPartition(eventId, sourceTable, sourcePartition, replicaDatabaseName, replicaTableName,
+                    replicaPartitionLocation, replicationMode));
+        Partition oldPartition = oldPartitions.get(i, sourcePartition.getValues());
         if (oldPartition == null) {
           partitionsToCreate.add(replicaPartition);
+        } else if (skipUnchangedPartitions && !PartitionChanges.isChanged(oldPartition, replicaPartition)) {
+          // Same location as before so there is nothing to clean up either
+          unchangedPartitions++;
         } else {
           partitionsToAlter.add(replicaPartition);
           if (LocationUtils.hasLocation(oldPartition)) {
@@ -196,101 +324,165 @@ public class Replica extends HiveEndpoint {
         if (sourcePartitionStatistics != null) {
           statisticsToSet
               .add(tableFactory
-                  .newReplicaPartitionStatistics(sourceTableAndStatistics.getTable(), replicaPartition,
-                      sourcePartitionStatistics));
+                  .newReplicaPartitionStatistics(sourceTable, replicaPartition, sourcePartitionStatistics));
         }
       }
-      replicaCatalogListener
-          .partitionsToAlter(EventUtils.toEventPartitions(sourceTableAndStatistics.getTable(), partitionsToAlter));
-      replicaCatalogListener
-          .partitionsToCreate(EventUtils.toEventPartitions(sourceTableAndStatistics.getTable(), partitionsToCreate));
-
-      if (!partitionsToCreate.isEmpty()) {
-        LOG.info("Creating {} new partitions.", partitionsToCreate.size());
-        try {
-          int counter = 0;
-          for (List<Partition> sublist : Lists.partition(partitionsToCreate, partitionBatchSize)) {
-            int start = counter * partitionBatchSize;
-            LOG.info("Creating partitions {} through {}", start, start + sublist.size() - 1);
-            client.add_partitions(sublist);
-            counter++;
-          }
-        } catch (TException e) {
-          throw new MetaStoreClientException("Unable to add partitions '"
-              + partitionsToCreate
-              + "' to replica table '"
-              + replicaDatabaseName
-              + "."
-              + replicaTableName
-              + "'", e);
+      LOG.debug("Found {} existing partitions that may match.", oldPartitions.getAll().size());
+      addEventPartitions(existingPartitions, sourceTable, oldPartitions.getAll());
+    }
+    addEventPartitions(alteredPartitions, sourceTable, partitionsToAlter);
+    addEventPartitions(createdPartitions, sourceTable, partitionsToCreate);
+
+    List<FieldSchema> partitionKeys = sourceTable.getPartitionKeys();
+    // Created and altered partitions are distinct so their batches are independent, statistics must come after both
+    List<PartitionBatchWriter.Batch<?>> partitionBatches = new ArrayList<>();
+    if (!partitionsToCreate.isEmpty()) {
+      LOG.info("Creating {} new partitions.", partitionsToCreate.size());
+      partitionBatches.addAll(addPartitionsBatches(partitionsToCreate, partitionKeys));
+    }
+    if (!partitionsToAlter.isEmpty()) {
+      LOG.info("Altering {} existing partitions.", partitionsToAlter.size());
+      partitionBatches
+          .addAll(alterPartitionsBatches(replicaDatabaseName, replicaTableName, partitionsToAlter, partitionKeys));
+    }
+    writer.write(client, "partition_write", partitionBatches);
+    if (!statisticsToSet.isEmpty()) {
+      LOG.info("Setting column statistics for {} partitions.", statisticsToSet.size());
+      writer.write(client, "set_partition_statistics", setPartitionStatisticsBatches(statisticsToSet));
+    } else {
+      LOG.debug("No partition column stats to set.");
+    }
+    return unchangedPartitions;
+  }
+
+  private static void addEventPartitions(EventPartitions eventPartitions, Table table, List<Partition> partitions) {
+    for (EventPartition eventPartition : EventUtils.toEventPartitions(table, partitions).getEventPartitions()) {
+      eventPartitions.add(eventPartition);
+    }
+  }
+
+  private List<PartitionBatchWriter.Batch<Partition>> addPartitionsBatches(
+      List<Partition> partitions,
+      final List<FieldSchema> partitionKeys) {
+    List<PartitionBatchWriter.Batch<Partition>> batches = new ArrayList<>();
+    int start = 0;
+    for (List<Partition> batch : Lists.partition(partitions, partitionBatchSize)) {
+      batches.add(new PartitionBatchWriter.Batch<Partition>("add partitions", "add_partitions", start, batch) {
+        @Override
+        void write(CloseableMetaStoreClient client, List<Partition> items) throws TException {
+          client.add_partitions(items);
         }
-      }
-      if (!partitionsToAlter.isEmpty()) {
-        LOG.info("Altering {} existing partitions.", partitionsToAlter.size());
-        try {
-          int counter = 0;
-          for (List<Partition> sublist : Lists.partition(partitionsToAlter, partitionBatchSize)) {
-            int start = counter * partitionBatchSize;
-            LOG.info("Altering partitions {} through {}", start, start + sublist.size() - 1);
-            client.alter_partitions(replicaDatabaseName, replicaTableName, sublist);
-            counter++;
-          }
-        } catch (TException e) {
-          throw new MetaStoreClientException("Unable to alter partitions '"
-              + partitionsToAlter
-              + "' of replica table '"
-              + replicaDatabaseName
-              + "."
-              + replicaTableName
-              + "'", e);
+
+        @Override
+        String partitionName(Partition item) {
+          return Replica.partitionName(partitionKeys, item);
         }
-      }
-      if (!statisticsToSet.isEmpty()) {
-        LOG.info("Setting column statistics for {} partitions.", statisticsToSet.size());
-        try {
-          int counter = 0;
-          for (List<ColumnStatistics> sublist : Lists.partition(statisticsToSet, partitionBatchSize)) {
-            int start = counter * partitionBatchSize;
-            LOG.info("Setting column statistics for partitions {} through {}", start, start + sublist.size() - 1);
-            client.setPartitionColumnStatistics(new SetPartitionsStatsRequest(sublist));
-            counter++;
-          }
-        } catch (TException e) {
-          throw new MetaStoreClientException(
-              "Unable to set column statistics of replica table '" + replicaDatabaseName + "." + replicaTableName + "'",
-              e);
+
+        @Override
+        String itemMetricName() {
+          return "partitions_created";
         }
-      } else {
-        LOG.debug("No partition column stats to set.");
-      }
+      });
+      start += batch.size();
     }
+    return batches;
   }
 
-  private List<Partition> getOldPartitions(
-      PartitionsAndStatistics sourcePartitionsAndStatistics,
-      String replicaDatabaseName,
-      String replicaTableName,
-      CloseableMetaStoreClient client) {
-    List<String> partitionValues = sourcePartitionsAndStatistics.getPartitionNames();
-    try {
-      return client.getPartitionsByNames(replicaDatabaseName, replicaTableName, partitionValues);
-    } catch (TException e) {
-      throw new MetaStoreClientException("Unable to list current partitions of replica table '"
-          + replicaDatabaseName
-          + "."
-          + replicaTableName
-          + "' with partition values '"
-          + partitionValues
-          + "'", e);
+  private List<PartitionBatchWriter.Batch<Partition>> alterPartitionsBatches(
+      final String replicaDatabaseName,
+      final String replicaTableName,
+      List<Partition> partitions,
+      final List<FieldSchema> partitionKeys) {
+    List<PartitionBatchWriter.Batch<Partition>> batches = new ArrayList<>();
+    int start = 0;
+    for (List<Partition> batch : Lists.partition(partitions, partitionBatchSize)) {
+      batches.add(new PartitionBatchWriter.Batch<Partition>("alter partitions", "alter_partitions", start, batch) {
+        @Override
+        void write(CloseableMetaStoreClient client, List<Partition> items) throws TException {
+          client.alter_partitions(replicaDatabaseName, replicaTableName, items);
+        }
+
+        @Override
+        String partitionName(Partition item) {
+          return Replica.partitionName(partitionKeys, item);
+        }
+
+        @Override
+        String itemMetricName() {
+          return "partitions_altered";
+        }
+      });
+      start += batch.size();
     }
+    return batches;
   }
 
-  private Map<List<String>, Partition> mapPartitionsByKey(List<Partition> partitions) {
-    Map<List<String>, Partition> partitionsByKey = new HashMap<>(partitions.size());
-    for (Partition partition : partitions) {
-      partitionsByKey.put(partition.getValues(), partition);
+  /**
+   * Only the checksum parameters of these partitions change, so the metastore is told not to update their statistics.
+   */
+  private List<PartitionBatchWriter.Batch<Partition>> upgradeChecksumsBatches(
+      final String replicaDatabaseName,
+      final String replicaTableName,
+      List<Partition> partitions,
+      final List<FieldSchema> partitionKeys) {
+    if (!partitions.isEmpty()) {
+      LOG.info("Upgrading the checksums of {} unchanged partitions.", partitions.size());
+    }
+    final EnvironmentContext context = new EnvironmentContext();
+    context.putToProperties(StatsSetupConst.DO_NOT_UPDATE_STATS, StatsSetupConst.TRUE);
+    List<PartitionBatchWriter.Batch<Partition>> batches = new ArrayList<>();
+    int start = 0;
+    for (List<Partition> batch : Lists.partition(partitions, partitionBatchSize)) {
+      batches.add(new PartitionBatchWriter.Batch<Partition>("upgrade partition checksums", "alter_partitions", start,
+          batch) {
+        @Override
+        void write(CloseableMetaStoreClient client, List<Partition> items) throws TException {
+          client.alter_partitions(replicaDatabaseName, replicaTableName, items, context);
+        }
+
+        @Override
+        String partitionName(Partition item) {
+          return Replica.partitionName(partitionKeys, item);
+        }
+
+        @Override
+        String itemMetricName() {
+          return "partition_checksums_upgraded";
+        }
+      });
+      start += batch.size();
+    }
+    return batches;
+  }
+
+  private List<PartitionBatchWriter.Batch<ColumnStatistics>> setPartitionStatisticsBatches(
+      List<ColumnStatistics> statistics) {
+    List<PartitionBatchWriter.Batch<ColumnStatistics>> batches = new ArrayList<>();
+    int start = 0;
+    for (List<ColumnStatistics> batch : Lists.partition(statistics, partitionBatchSize)) {
+      batches.add(new PartitionBatchWriter.Batch<ColumnStatistics>("set column statistics of partitions",
+          "set_partition_statistics", start, batch) {
+        @Override
+        void write(CloseableMetaStoreClient client, List<ColumnStatistics> items) throws TException {
+          client.setPartitionColumnStatistics(new SetPartitionsStatsRequest(items));
+        }
+
+        @Override
+        String partitionName(ColumnStatistics item) {
+          return item.getStatsDesc().getPartName();
+        }
+      });
+      start += batch.size();
+    }
+    return batches;
+  }
+
+  private static String partitionName(List<FieldSchema> partitionKeys, Partition partition) {
+    try {
+      return Warehouse.makePartName(partitionKeys, partition.getValues());
+    } catch (MetaException e) {
+      return String.valueOf(partition.getValues());
     }
-    return partitionsByKey;
   }
 
   private Optional<Table> updateTableMetadata(
@@ -349,6 +541,13 @@ public class Replica extends HiveEndpoint {
     }
   }
 
+  /**
+   * @return the checksums of the source partitions of this replication if they are recorded on the replica partitions.
+   */
+  public Optional<PartitionChecksums> getPartitionChecksums() {
+    return tableFactory.getPartitionChecksums();
+  }
+
   /**
    * Checks if there is a replica table and validates the replication modes.
    *
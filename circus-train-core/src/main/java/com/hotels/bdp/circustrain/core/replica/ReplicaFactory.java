@@ -29,6 +29,7 @@ import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.bdp.circustrain.api.event.ReplicaCatalogListener;
 import com.hotels.bdp.circustrain.api.listener.HousekeepingListener;
 import com.hotels.bdp.circustrain.core.HiveEndpointFactory;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
 import com.hotels.bdp.circustrain.core.replica.hive.AlterTableService;
 import com.hotels.bdp.circustrain.core.replica.hive.CopyPartitionsOperation;
 import com.hotels.bdp.circustrain.core.replica.hive.DropTableService;
@@ -45,6 +46,7 @@ public class ReplicaFactory implements HiveEndpointFactory<Replica> {
   private final HousekeepingListener housekeepingListener;
   private final ReplicaCatalogListener replicaCatalogListener;
   private final ReplicaTableFactoryProvider replicaTableFactoryPicker;
+  private final PartitionTaskExecutor partitionTaskExecutor;
 
   @Autowired
   public ReplicaFactory(
@@ -53,22 +55,27 @@ public class ReplicaFactory implements HiveEndpointFactory<Replica> {
       Supplier<CloseableMetaStoreClient> replicaMetaStoreClientSupplier,
       HousekeepingListener housekeepingListener,
       ReplicaCatalogListener replicaCatalogListener,
-      ReplicaTableFactoryProvider replicaTableFactoryProvider) {
+      ReplicaTableFactoryProvider replicaTableFactoryProvider,
+      PartitionTaskExecutor partitionTaskExecutor) {
     this.replicaCatalog = replicaCatalog;
     this.replicaHiveConf = replicaHiveConf;
     this.replicaMetaStoreClientSupplier = replicaMetaStoreClientSupplier;
     this.housekeepingListener = housekeepingListener;
     this.replicaCatalogListener = replicaCatalogListener;
     this.replicaTableFactoryPicker = replicaTableFactoryProvider;
+    this.partitionTaskExecutor = partitionTaskExecutor;
   }
 
   @Override
   public Replica newInstance(TableReplication tableReplication) {
     ReplicaTableFactory replicaTableFactory = replicaTableFactoryPicker.newInstance(tableReplication);
     DropTableService dropTableService = new DropTableService();
-    AlterTableService alterTableService = new AlterTableService(dropTableService, new CopyPartitionsOperation(),
+    CopyPartitionsOperation copyPartitionsOperation = new CopyPartitionsOperation(
+        new AdaptiveBatcher(tableReplication.getPartitionBatchMaxBytes()));
+    AlterTableService alterTableService = new AlterTableService(dropTableService, copyPartitionsOperation,
         new RenameTableOperation(dropTableService));
     return new Replica(replicaCatalog, replicaHiveConf, replicaMetaStoreClientSupplier, replicaTableFactory,
-        housekeepingListener, replicaCatalogListener, tableReplication, alterTableService);
+        housekeepingListener, replicaCatalogListener, tableReplication, alterTableService,
+        partitionTaskExecutor);
   }
 }
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.replica;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+import com.hotels.hcommon.hive.metastore.exception.MetaStoreClientException;
+
+/**
+ * Looks up the existing replica partitions with the given names in chunks. A single chunk is fetched on the calling
+ * thread. More chunks are fetched on the {@link PartitionTaskExecutor}, each on its own metastore client, at most
+ * {@code concurrency} chunks ahead of the last one read, and {@link #get(int, List)} only waits for the chunk holding
+ * the requested name, so the caller can work on the first partitions while the following ones are still being fetched.
+ * The partitions read are kept because {@link #getAll()} reports all of them once the caller is done.
+ */
+class ReplicaPartitionLookup implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReplicaPartitionLookup.class);
+  // Only counts the time spent waiting for partitions
+  private static final String PHASE = "replica_partitions_lookup";
+
+  private final Supplier<CloseableMetaStoreClient> metaStoreClientSupplier;
+  private final PartitionTaskExecutor partitionTaskExecutor;
+  private final String databaseName;
+  private final String tableName;
+  private final int concurrency;
+  private final int chunkSize;
+  private final List<List<String>> chunks;
+  private final List<Future<List<Partition>>> futures;
+  private final Map<List<String>, Partition> partitionsByValues = new HashMap<>();
+  private final List<Partition> partitions = new ArrayList<>();
+  private int chunksRead;
+
+  /**
+   * @param concurrency the number of chunks fetched at the same time, the table replication's
+   *          {@code partition-write-concurrency}.
+   * @param chunkSize the number of partitions fetched in one call, the table replication's
+   *          {@code partition-batch-size}.
+   */
+  ReplicaPartitionLookup(
+      Supplier<CloseableMetaStoreClient> metaStoreClientSupplier,
+      PartitionTaskExecutor partitionTaskExecutor,
+      CloseableMetaStoreClient client,
+      int concurrency,
+      int chunkSize,
+      String databaseName,
+      String tableName,
+      List<String> partitionNames) {
+    this.metaStoreClientSupplier = metaStoreClientSupplier;
+    this.partitionTaskExecutor = partitionTaskExecutor;
+    this.databaseName = databaseName;
+    this.tableName = tableName;
+    this.concurrency = Math.max(1, concurrency);
+    this.chunkSize = chunkSize;
+    chunks = Lists.partition(partitionNames, chunkSize);
+    futures = new ArrayList<>(chunks.size());
+    if (chunks.size() <= 1) {
+      if (!chunks.isEmpty()) {
+        try (ReplicationPhaseMetrics.Phase phase = ReplicationPhaseMetrics.current().phase(PHASE)) {
+          add(fetch(client, chunks.get(0)));
+        }
+        chunksRead = 1;
+      }
+      return;
+    }
+    LOG.debug("Looking up {} partitions of replica table {}.{} in {} chunks, {} at a time.", partitionNames.size(),
+        databaseName, tableName, chunks.size(), this.concurrency);
+    submitChunks();
+  }
+
+  /**
+   * @return the replica partition with the {@code index}th name and the given values or {@code null} if it does not
+   *         exist.
+   */
+  Partition get(int index, List<String> partitionValues) {
+    readChunks(index / chunkSize + 1);
+    return partitionsByValues.get(partitionValues);
+  }
+
+  /**
+   * @return all existing replica partitions.
+   */
+  List<Partition> getAll() {
+    readChunks(chunks.size());
+    return partitions;
+  }
+
+  @Override
+  public void close() {
+    for (int i = chunksRead; i < futures.size(); i++) {
+      futures.get(i).cancel(true);
+    }
+  }
+
+  private void readChunks(int count) {
+    if (chunksRead >= count) {
+      return;
+    }
+    String description = "list current partitions of replica table '" + databaseName + "." + tableName + "'";
+    try (ReplicationPhaseMetrics.Phase phase = ReplicationPhaseMetrics.current().phase(PHASE)) {
+      while (chunksRead < count) {
+        add(partitionTaskExecutor.get(description, futures.get(chunksRead)));
+        // The partitions are now held by this lookup
+        futures.set(chunksRead, null);
+        chunksRead++;
+        submitChunks();
+      }
+    }
+  }
+
+  private void submitChunks() {
+    int limit = Math.min(chunks.size(), chunksRead + concurrency);
+    while (futures.size() < limit) {
+      final List<String> chunk = chunks.get(futures.size());
+      futures.add(partitionTaskExecutor.submit(new Callable<List<Partition>>() {
+        @Override
+        public List<Partition> call() {
+          try (CloseableMetaStoreClient chunkClient = metaStoreClientSupplier.get()) {
+            return fetch(chunkClient, chunk);
+          }
+        }
+      }));
+    }
+  }
+
+  private void add(List<Partition> chunkPartitions) {
+    for (Partition partition : chunkPartitions) {
+      partitionsByValues.put(partition.getValues(), partition);
+    }
+    partitions.addAll(chunkPartitions);
+  }
+
+  private List<Partition> fetch(CloseableMetaStoreClient client, List<String> partitionNames) {
+    try {
+      return client.getPartitionsByNames(databaseName, tableName, partitionNames);
+    } catch (TException e) {
+      throw new MetaStoreClientException("Unable to list current partitions of replica table '"
+          + databaseName
+          + "."
+          + tableName
+          + "' with partition values '"
+          + partitionNames
+          + "'", e);
+    }
+  }
+
+}
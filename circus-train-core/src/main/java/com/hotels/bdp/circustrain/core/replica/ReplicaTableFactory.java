@@ -38,6 +38,8 @@ import org.apache.hadoop.hive.metastore.api.Table;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
+import com.google.common.base.Optional;
+
 import com.hotels.bdp.circustrain.api.conf.ReplicationMode;
 import com.hotels.bdp.circustrain.api.metadata.ColumnStatisticsTransformation;
 import com.hotels.bdp.circustrain.api.metadata.PartitionTransformation;
@@ -91,6 +93,13 @@ public class ReplicaTableFactory {
     this.columnStatisticsTransformation = columnStatisticsTransformation;
   }
 
+  /**
+   * @return the checksums of the source partitions if this factory records them on the replica partitions.
+   */
+  Optional<PartitionChecksums> getPartitionChecksums() {
+    return Optional.absent();
+  }
+
   TableAndStatistics newReplicaTable(
       String eventId,
       TableAndStatistics sourceTableAndStatistics,
@@ -158,6 +167,7 @@ public class ReplicaTableFactory {
       String replicaTableName,
       Path replicaPartitionLocation,
       ReplicationMode replicationMode) {
+    // A deep copy as transformations may modify any part of it, the replica interns the shared parts afterwards
     Partition replica = partitionTransformation.transform(new Partition(sourcePartition));
     replica.setDbName(replicaDatabaseName);
     replica.setTableName(replicaTableName);
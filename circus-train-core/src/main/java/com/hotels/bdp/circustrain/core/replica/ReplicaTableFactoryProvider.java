@@ -15,27 +15,28 @@
  */
 package com.hotels.bdp.circustrain.core.replica;
 
-import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
-import com.google.common.base.Function;
-
 import com.hotels.bdp.circustrain.api.Modules;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.bdp.circustrain.api.metadata.ColumnStatisticsTransformation;
 import com.hotels.bdp.circustrain.api.metadata.PartitionTransformation;
 import com.hotels.bdp.circustrain.api.metadata.TableTransformation;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathToPathMetadata;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
 
 @Profile({ Modules.REPLICATION })
 @Component
 public class ReplicaTableFactoryProvider {
 
   private final HiveConf sourceHiveConf;
-  private final Function<Path, String> checksumFunction;
+  private final PathChecksumFunction checksumFunction;
+  private final PartitionTaskExecutor partitionTaskExecutor;
   private final TableTransformation tableTransformation;
   private final PartitionTransformation partitionTransformation;
   private final ColumnStatisticsTransformation columnStatisticsTransformation;
@@ -43,12 +44,14 @@ public class ReplicaTableFactoryProvider {
   @Autowired
   public ReplicaTableFactoryProvider(
       @Value("#{sourceHiveConf}") HiveConf sourceHiveConf,
-      @Value("#{checksumFunction}") Function<Path, String> checksumFunction,
+      @Value("#{checksumFunction}") PathChecksumFunction checksumFunction,
+      PartitionTaskExecutor partitionTaskExecutor,
       TableTransformation tableTransformation,
       PartitionTransformation partitionTransformation,
       ColumnStatisticsTransformation columnStatisticsTransformation) {
     this.sourceHiveConf = sourceHiveConf;
     this.checksumFunction = checksumFunction;
+    this.partitionTaskExecutor = partitionTaskExecutor;
     this.tableTransformation = tableTransformation;
     this.partitionTransformation = partitionTransformation;
     this.columnStatisticsTransformation = columnStatisticsTransformation;
@@ -56,7 +59,10 @@ public class ReplicaTableFactoryProvider {
 
   public ReplicaTableFactory newInstance(TableReplication tableReplication) {
     if (tableReplication.getSourceTable().isGeneratePartitionFilter()) {
-      return new AddCheckSumReplicaTableFactory(sourceHiveConf, checksumFunction, tableTransformation,
+      // Each replica gets its own checksums, shared with the partition predicate of the same replication
+      PartitionChecksums partitionChecksums = new PartitionChecksums(checksumFunction, partitionTaskExecutor,
+          PathToPathMetadata.DEFAULT_CHECKSUM_THREADS);
+      return new AddCheckSumReplicaTableFactory(sourceHiveConf, partitionChecksums, tableTransformation,
           partitionTransformation, columnStatisticsTransformation);
     }
     return new ReplicaTableFactory(sourceHiveConf, tableTransformation, partitionTransformation,
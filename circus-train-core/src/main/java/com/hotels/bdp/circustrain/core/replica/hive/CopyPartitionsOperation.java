@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 
+import com.hotels.bdp.circustrain.core.replica.AdaptiveBatcher;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
 import com.hotels.hcommon.hive.metastore.iterator.PartitionIterator;
 
@@ -36,20 +37,26 @@ public class CopyPartitionsOperation {
   private static final short DEFAULT_BATCH_SIZE = 1000;
 
   private short partitionBatchSize;
+  private final AdaptiveBatcher batcher;
 
   public CopyPartitionsOperation() {
-    this(DEFAULT_BATCH_SIZE);
+    this(new AdaptiveBatcher(AdaptiveBatcher.DEFAULT_MAX_BATCH_BYTES));
+  }
+
+  public CopyPartitionsOperation(AdaptiveBatcher batcher) {
+    this(DEFAULT_BATCH_SIZE, batcher);
   }
 
   @VisibleForTesting
-  CopyPartitionsOperation(short partitionBatchSize) {
+  CopyPartitionsOperation(short partitionBatchSize, AdaptiveBatcher batcher) {
     this.partitionBatchSize = partitionBatchSize;
+    this.batcher = batcher;
   }
 
   /**
    * Copies partitions from oldTable to newTable, partitions copied are modified to take the schema of newTable
    */
-  public void execute(CloseableMetaStoreClient client, Table oldTable, Table newTable) throws TException {
+  public void execute(final CloseableMetaStoreClient client, Table oldTable, Table newTable) throws TException {
     int count = 0;
     String databaseName = newTable.getDbName();
     String tableName = newTable.getTableName();
@@ -68,7 +75,12 @@ public class CopyPartitionsOperation {
         batch.add(copy);
       }
       LOG.info("Copying batch of size {} to {}.{}", batch.size(), databaseName, tableName);
-      client.add_partitions(batch);
+      batcher.write(batch, "copy_partitions", new AdaptiveBatcher.BatchWrite<Partition>() {
+        @Override
+        public void write(List<Partition> partitions) throws TException {
+          client.add_partitions(partitions);
+        }
+      });
     }
     LOG.info("Copied {} partitions to {}.{}", count, databaseName, tableName);
   }
@@ -30,12 +30,15 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Supplier;
 
 import com.hotels.bdp.circustrain.api.SourceLocationManager;
+import com.hotels.bdp.circustrain.api.conf.PartitionStatisticsFetch;
 import com.hotels.bdp.circustrain.api.conf.SourceCatalog;
 import com.hotels.bdp.circustrain.api.conf.SourceTable;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.bdp.circustrain.api.copier.CopierOptions;
 import com.hotels.bdp.circustrain.api.event.SourceCatalogListener;
 import com.hotels.bdp.circustrain.core.HiveEndpoint;
+import com.hotels.bdp.circustrain.core.PartitionPredicate;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
 import com.hotels.bdp.circustrain.core.PartitionsAndStatistics;
 import com.hotels.bdp.circustrain.core.TableAndStatistics;
 import com.hotels.bdp.circustrain.core.event.EventUtils;
@@ -57,7 +60,39 @@ public class Source extends HiveEndpoint {
       SourceCatalogListener sourceCatalogListener,
       boolean snapshotsDisabled,
       String sourceTableLocation) {
-    super(sourceCatalog.getName(), sourceHiveConf, sourceMetaStoreClientSupplier);
+    this(sourceCatalog, sourceHiveConf, sourceMetaStoreClientSupplier, sourceCatalogListener, snapshotsDisabled,
+        sourceTableLocation, new PartitionStatisticsFetch());
+  }
+
+  /**
+   * Use {@link SourceFactory}
+   */
+  Source(
+      SourceCatalog sourceCatalog,
+      HiveConf sourceHiveConf,
+      Supplier<CloseableMetaStoreClient> sourceMetaStoreClientSupplier,
+      SourceCatalogListener sourceCatalogListener,
+      boolean snapshotsDisabled,
+      String sourceTableLocation,
+      PartitionStatisticsFetch partitionStatisticsFetch) {
+    this(sourceCatalog, sourceHiveConf, sourceMetaStoreClientSupplier, sourceCatalogListener, snapshotsDisabled,
+        sourceTableLocation, partitionStatisticsFetch, PartitionTaskExecutor.CALLING_THREAD);
+  }
+
+  /**
+   * Use {@link SourceFactory}
+   */
+  Source(
+      SourceCatalog sourceCatalog,
+      HiveConf sourceHiveConf,
+      Supplier<CloseableMetaStoreClient> sourceMetaStoreClientSupplier,
+      SourceCatalogListener sourceCatalogListener,
+      boolean snapshotsDisabled,
+      String sourceTableLocation,
+      PartitionStatisticsFetch partitionStatisticsFetch,
+      PartitionTaskExecutor partitionTaskExecutor) {
+    super(sourceCatalog.getName(), sourceHiveConf, sourceMetaStoreClientSupplier, partitionStatisticsFetch,
+        partitionTaskExecutor);
     this.sourceTableLocation = sourceTableLocation;
     this.sourceCatalogListener = sourceCatalogListener;
     this.snapshotsDisabled = snapshotsDisabled;
@@ -79,6 +114,14 @@ public class Source extends HiveEndpoint {
     return sourcePartitions;
   }
 
+  @Override
+  public List<Partition> getPartitionsWithoutStatistics(Table sourceTable, PartitionPredicate partitionPredicate)
+    throws TException {
+    List<Partition> sourcePartitions = super.getPartitionsWithoutStatistics(sourceTable, partitionPredicate);
+    sourceCatalogListener.resolvedSourcePartitions(EventUtils.toEventPartitions(sourceTable, sourcePartitions));
+    return sourcePartitions;
+  }
+
   public SourceLocationManager getLocationManager(Table table, String eventId) throws IOException {
     if (MetaStoreUtils.isView(table)) {
       return new ViewLocationManager();
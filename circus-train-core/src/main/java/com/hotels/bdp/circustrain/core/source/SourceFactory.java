@@ -24,11 +24,13 @@ import org.springframework.stereotype.Component;
 import com.google.common.base.Supplier;
 
 import com.hotels.bdp.circustrain.api.Modules;
+import com.hotels.bdp.circustrain.api.conf.PartitionStatisticsFetch;
 import com.hotels.bdp.circustrain.api.conf.ReplicationMode;
 import com.hotels.bdp.circustrain.api.conf.SourceCatalog;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.bdp.circustrain.api.event.SourceCatalogListener;
 import com.hotels.bdp.circustrain.core.HiveEndpointFactory;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
 
 @Profile({ Modules.REPLICATION })
@@ -39,17 +41,23 @@ public class SourceFactory implements HiveEndpointFactory<Source> {
   private final HiveConf sourceHiveConf;
   private final Supplier<CloseableMetaStoreClient> sourceMetaStoreClientSupplier;
   private final SourceCatalogListener sourceCatalogListener;
+  private final PartitionStatisticsFetch partitionStatisticsFetch;
+  private final PartitionTaskExecutor partitionTaskExecutor;
 
   @Autowired
   public SourceFactory(
       SourceCatalog sourceCatalog,
       @Value("#{sourceHiveConf}") HiveConf sourceHiveConf,
       @Value("#{sourceMetaStoreClientSupplier}") Supplier<CloseableMetaStoreClient> sourceMetaStoreClientSupplier,
-      SourceCatalogListener sourceCatalogListener) {
+      SourceCatalogListener sourceCatalogListener,
+      PartitionStatisticsFetch partitionStatisticsFetch,
+      PartitionTaskExecutor partitionTaskExecutor) {
     this.sourceCatalog = sourceCatalog;
     this.sourceHiveConf = sourceHiveConf;
     this.sourceMetaStoreClientSupplier = sourceMetaStoreClientSupplier;
     this.sourceCatalogListener = sourceCatalogListener;
+    this.partitionStatisticsFetch = partitionStatisticsFetch;
+    this.partitionTaskExecutor = partitionTaskExecutor;
   }
 
   @Override
@@ -59,8 +67,21 @@ public class SourceFactory implements HiveEndpointFactory<Source> {
     if (tableReplication.getReplicationMode() == ReplicationMode.FULL) {
       snapshotsDisabled = sourceCatalog.isDisableSnapshots();
     }
+    return newInstance(tableReplication, snapshotsDisabled);
+  }
+
+  /**
+   * @return a {@link Source} whose location managers never take snapshots, for callers that only inspect the source
+   *         data.
+   */
+  public Source newInstanceWithoutSnapshots(TableReplication tableReplication) {
+    return newInstance(tableReplication, true);
+  }
+
+  private Source newInstance(TableReplication tableReplication, boolean snapshotsDisabled) {
     return new Source(sourceCatalog, sourceHiveConf, sourceMetaStoreClientSupplier, sourceCatalogListener,
-        snapshotsDisabled, tableReplication.getSourceTable().getTableLocation());
+        snapshotsDisabled, tableReplication.getSourceTable().getTableLocation(), partitionStatisticsFetch,
+        partitionTaskExecutor);
   }
 
 }
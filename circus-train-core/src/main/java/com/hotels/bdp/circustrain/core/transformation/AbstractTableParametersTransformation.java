@@ -28,7 +28,7 @@ import com.hotels.bdp.circustrain.api.event.TableReplicationListener;
 public abstract class AbstractTableParametersTransformation implements TableReplicationListener {
 
   private final Map<String, String> tableParameters = new HashMap<>();
-  private Map<String, String> tableParametersOverride;
+  private final ThreadLocal<Map<String, String>> tableParametersOverride = new ThreadLocal<>();
 
   protected AbstractTableParametersTransformation(TransformOptions transformOptions) {
     if (transformOptions.getTransformOptions() == null) {
@@ -41,6 +41,7 @@ public abstract class AbstractTableParametersTransformation implements TableRepl
   }
 
   protected Map<String, String> getTableParameters() {
+    Map<String, String> tableParametersOverride = this.tableParametersOverride.get();
     if (tableParametersOverride != null && !tableParametersOverride.isEmpty()) {
       return tableParametersOverride;
     }
@@ -50,14 +51,14 @@ public abstract class AbstractTableParametersTransformation implements TableRepl
   @SuppressWarnings("unchecked")
   @Override
   public void tableReplicationStart(EventTableReplication tableReplication, String eventId) {
-    tableParametersOverride = Collections.emptyMap();
+    this.tableParametersOverride.set(Collections.<String, String> emptyMap());
     Map<String, Object> transformOptions = tableReplication.getTransformOptions();
     if (transformOptions == null) {
       return;
     }
     Object tableParametersOverride = transformOptions.get(TABLE_PROPERTIES);
     if (tableParametersOverride instanceof Map) {
-      this.tableParametersOverride = (Map<String, String>) tableParametersOverride;
+      this.tableParametersOverride.set((Map<String, String>) tableParametersOverride);
     }
   }
 
@@ -18,9 +18,17 @@ package com.hotels.bdp.circustrain.core;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.SOURCE_LOCATION;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.SOURCE_TABLE;
 import static com.hotels.bdp.circustrain.core.metastore.HiveEntityFactory.newFieldSchema;
 import static com.hotels.bdp.circustrain.core.metastore.HiveEntityFactory.newPartition;
 import static com.hotels.bdp.circustrain.core.metastore.HiveEntityFactory.newStorageDescriptor;
@@ -28,12 +36,16 @@ import static com.hotels.bdp.circustrain.core.metastore.HiveEntityFactory.newTab
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.metastore.Warehouse;
+import org.apache.hadoop.hive.metastore.api.EnvironmentContext;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
@@ -43,15 +55,20 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
-import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
 
 import com.hotels.bdp.circustrain.api.CircusTrainException;
 import com.hotels.bdp.circustrain.api.conf.SourceTable;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathDigest;
+import com.hotels.bdp.circustrain.core.replica.PartitionChecksums;
 import com.hotels.bdp.circustrain.core.replica.Replica;
 import com.hotels.bdp.circustrain.core.source.Source;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
@@ -67,7 +84,7 @@ public class DiffGeneratedPartitionPredicateTest {
   private @Mock SourceTable sourceTable;
   private @Mock TableAndStatistics sourceTableAndStats;
   private @Mock TableAndStatistics replicaTableAndStats;
-  private @Mock Function<Path, String> checksumFunction;
+  private @Mock PathChecksumFunction checksumFunction;
   private @Mock MetaStoreClientFactory factory;
   private @Mock CloseableMetaStoreClient client;
 
@@ -158,6 +175,91 @@ public class DiffGeneratedPartitionPredicateTest {
     assertThat(predicate.getPartitionPredicateLimit(), is((short) 0));
   }
 
+  @Test
+  public void partitionNamesAreNotUsedForFewPartitions() throws Exception {
+    when(replica.getTableAndStatistics(tableReplication)).thenReturn(replicaTableAndStats);
+    when(replicaTableAndStats.getTable()).thenReturn(table2);
+
+    predicate = new DiffGeneratedPartitionPredicate(source, replica, tableReplication, checksumFunction);
+
+    assertThat(predicate.getPartitionNames().isPresent(), is(false));
+  }
+
+  @Test
+  public void partitionNamesAreUsedForManyPartitions() throws Exception {
+    List<String> partitionNames = new ArrayList<>();
+    final Map<String, Partition> partitionsByName = new HashMap<>();
+    for (int i = 0; i <= DiffGeneratedPartitionPredicate.MAX_FILTER_PARTITIONS; i++) {
+      Partition partition = newPartition(table1, "value" + i, "value");
+      String partitionName = Warehouse.makePartName(table1.getPartitionKeys(), partition.getValues());
+      partitionNames.add(partitionName);
+      partitionsByName.put(partitionName, partition);
+    }
+    when(client.listPartitionNames(table1.getDbName(), table1.getTableName(), (short) -1)).thenReturn(partitionNames);
+    when(client.getPartitionsByNames(anyString(), anyString(), anyListOf(String.class)))
+        .thenAnswer(new Answer<List<Partition>>() {
+          @Override
+          public List<Partition> answer(InvocationOnMock invocation) throws Throwable {
+            List<Partition> partitions = new ArrayList<>();
+            for (Object partitionName : (List<?>) invocation.getArguments()[2]) {
+              partitions.add(partitionsByName.get(partitionName));
+            }
+            return partitions;
+          }
+        });
+    when(replica.getTableAndStatistics(tableReplication)).thenThrow(new CircusTrainException("Table does not exist!"));
+    when(sourceTable.getPartitionLimit()).thenReturn(null);
+
+    predicate = new DiffGeneratedPartitionPredicate(source, replica, tableReplication, checksumFunction);
+
+    assertThat(predicate.getPartitionNames().get().size(), is(partitionNames.size()));
+    assertThat(predicate.getPartitionPredicateLimit(), is((short) -1));
+  }
+
+  @Test
+  public void matchingLegacyReplicaChecksumsAreRecordedForUpgrade() throws Exception {
+    final Map<String, Partition> partitionsByName = new HashMap<>();
+    for (int i = 0; i < table1Partitions.size(); i++) {
+      Partition partition = table1Partitions.get(i);
+      partition.putToParameters(SOURCE_TABLE.parameterName(), "db1.table1");
+      partition.putToParameters(SOURCE_LOCATION.parameterName(), partition.getSd().getLocation());
+      partition.putToParameters(PARTITION_CHECKSUM.parameterName(), "legacy checksum");
+      partitionsByName.put(table1PartitionNames.get(i), partition);
+    }
+    when(client.getPartitionsByNames(anyString(), anyString(), anyListOf(String.class)))
+        .thenAnswer(new Answer<List<Partition>>() {
+          @Override
+          public List<Partition> answer(InvocationOnMock invocation) throws Throwable {
+            List<Partition> partitions = new ArrayList<>();
+            for (Object partitionName : (List<?>) invocation.getArguments()[2]) {
+              partitions.add(partitionsByName.get(partitionName));
+            }
+            return partitions;
+          }
+        });
+    when(replica.getTableAndStatistics(tableReplication)).thenReturn(sourceTableAndStats);
+    when(sourceTable.getPartitionLimit()).thenReturn(null);
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.CURRENT_VERSION);
+    when(checksumFunction
+        .checksums(any(Path.class), eq(PathDigest.SERIALIZED_VERSION), eq(PathDigest.CURRENT_VERSION)))
+            .thenReturn(Arrays.asList("legacy checksum", "checksum"));
+
+    PartitionChecksums partitionChecksums = new PartitionChecksums(checksumFunction,
+        PartitionTaskExecutor.CALLING_THREAD, 1);
+
+    predicate = new DiffGeneratedPartitionPredicate(source, replica, tableReplication, checksumFunction,
+        Optional.of(partitionChecksums));
+
+    assertThat(predicate.getPartitionPredicate(), is(""));
+    verify(client, never())
+        .alter_partitions(anyString(), anyString(), anyListOf(Partition.class), any(EnvironmentContext.class));
+    List<Partition> upgraded = partitionChecksums.getUpgrades();
+    assertThat(upgraded.size(), is(2));
+    assertThat(upgraded.get(0).getParameters().get(PARTITION_CHECKSUM.parameterName()), is("checksum"));
+    assertThat(upgraded.get(0).getParameters().get(PARTITION_CHECKSUM_VERSION.parameterName()),
+        is(String.valueOf(PathDigest.CURRENT_VERSION)));
+  }
+
   private void setupHiveTables() throws TException, IOException {
     List<FieldSchema> partitionKeys = Lists.newArrayList(newFieldSchema("p1"), newFieldSchema("p2"));
 
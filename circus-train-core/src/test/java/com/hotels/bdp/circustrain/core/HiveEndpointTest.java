@@ -17,7 +17,15 @@ package com.hotels.bdp.circustrain.core;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyShort;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
@@ -33,8 +41,10 @@ import org.apache.hadoop.hive.metastore.api.ColumnStatisticsData;
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsData._Fields;
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsDesc;
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.Database;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.LongColumnStatsData;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
 import org.apache.hadoop.hive.metastore.api.Table;
@@ -44,8 +54,10 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
 
+import com.hotels.bdp.circustrain.api.CircusTrainException;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
 
@@ -75,6 +87,7 @@ public class HiveEndpointTest {
 
   private @Mock Supplier<CloseableMetaStoreClient> metaStoreClientSupplier;
   private @Mock CloseableMetaStoreClient metaStoreClient;
+  private @Mock PartitionPredicate partitionPredicate;
 
   private Partition partitionOneTwo;
   private Partition partitionThreeFour;
@@ -176,6 +189,53 @@ public class HiveEndpointTest {
     assertThat(sourceTable.getStatistics(), is(nullValue()));
   }
 
+  @Test
+  public void getTableIsCached() throws Exception {
+    when(metaStoreClient.getTable(DATABASE, TABLE)).thenReturn(table);
+    when(metaStoreClient.getTableColumnStatistics(DATABASE, TABLE, COLUMN_NAMES)).thenReturn(columnStatisticsObjs);
+
+    TableAndStatistics first = hiveEndpoint.getTableAndStatistics(DATABASE, TABLE);
+    TableAndStatistics second = hiveEndpoint.getTableAndStatistics(DATABASE, TABLE);
+    assertThat(second, is(sameInstance(first)));
+    verify(metaStoreClient, times(1)).getTable(DATABASE, TABLE);
+    verify(metaStoreClient, times(1)).getTableColumnStatistics(DATABASE, TABLE, COLUMN_NAMES);
+  }
+
+  @Test
+  public void invalidateTable() throws Exception {
+    when(metaStoreClient.getTable(DATABASE, TABLE)).thenReturn(table);
+    when(metaStoreClient.getTableColumnStatistics(DATABASE, TABLE, COLUMN_NAMES)).thenReturn(columnStatisticsObjs);
+
+    hiveEndpoint.getTableAndStatistics(DATABASE, TABLE);
+    hiveEndpoint.invalidateTable(DATABASE, TABLE);
+    hiveEndpoint.getTableAndStatistics(DATABASE, TABLE);
+    verify(metaStoreClient, times(2)).getTable(DATABASE, TABLE);
+  }
+
+  @Test
+  public void getTableNotFoundIsNotCached() throws Exception {
+    when(metaStoreClient.getTable(DATABASE, TABLE)).thenThrow(new NoSuchObjectException()).thenReturn(table);
+    when(metaStoreClient.getTableColumnStatistics(DATABASE, TABLE, COLUMN_NAMES)).thenReturn(columnStatisticsObjs);
+
+    try {
+      hiveEndpoint.getTableAndStatistics(DATABASE, TABLE);
+      fail("Expected CircusTrainException");
+    } catch (CircusTrainException e) {
+      // expected
+    }
+    assertThat(hiveEndpoint.getTableAndStatistics(DATABASE, TABLE).getTable(), is(table));
+  }
+
+  @Test
+  public void getDatabaseIsCached() throws Exception {
+    Database database = new Database();
+    when(metaStoreClient.getDatabase(DATABASE)).thenReturn(database);
+
+    assertThat(hiveEndpoint.getDatabase(DATABASE), is(database));
+    assertThat(hiveEndpoint.getDatabase(DATABASE), is(database));
+    verify(metaStoreClient, times(1)).getDatabase(DATABASE);
+  }
+
   @Test
   public void getPartitions() throws Exception {
     List<Partition> filteredPartitions = Arrays.asList(partitionOneTwo);
@@ -192,12 +252,128 @@ public class HiveEndpointTest {
 
   @Test
   public void getPartitionsWithoutFilter() throws Exception {
-    when(metaStoreClient.listPartitions(DATABASE, TABLE, (short) MAX_PARTITIONS)).thenReturn(partitions);
-    when(metaStoreClient.getPartitionColumnStatistics(DATABASE, TABLE, PARTITION_NAMES, COLUMN_NAMES))
-        .thenReturn(partitionStatsMap);
+    when(metaStoreClient.listPartitionNames(DATABASE, TABLE, (short) -1))
+        .thenReturn(Arrays.asList(PARTITION_THREE_FOUR, PARTITION_ONE_TWO));
+    when(metaStoreClient.getPartitionsByNames(DATABASE, TABLE, Arrays.asList(PARTITION_THREE_FOUR)))
+        .thenReturn(partitions);
+    when(metaStoreClient.getPartitionColumnStatistics(DATABASE, TABLE, Arrays.asList(PARTITION_THREE_FOUR),
+        COLUMN_NAMES)).thenReturn(partitionStatsMap);
 
     PartitionsAndStatistics partitionsAndStatistics = hiveEndpoint.getPartitions(table, null, MAX_PARTITIONS);
     assertThat(partitionsAndStatistics.getPartitions(), is(partitions));
+    verify(metaStoreClient).close();
+  }
+
+  @Test
+  public void getPartitionsInPages() throws Exception {
+    hiveEndpoint.setPartitionPageSize(1);
+    when(metaStoreClient.listPartitionNames(DATABASE, TABLE, (short) -1))
+        .thenReturn(Arrays.asList(PARTITION_ONE_TWO, PARTITION_THREE_FOUR));
+    when(metaStoreClient.getPartitionsByNames(DATABASE, TABLE, Arrays.asList(PARTITION_ONE_TWO)))
+        .thenReturn(Arrays.asList(partitionOneTwo));
+    when(metaStoreClient.getPartitionsByNames(DATABASE, TABLE, Arrays.asList(PARTITION_THREE_FOUR)))
+        .thenReturn(Arrays.asList(partitionThreeFour));
+    when(metaStoreClient.getPartitionColumnStatistics(DATABASE, TABLE, PARTITION_NAMES, COLUMN_NAMES))
+        .thenReturn(partitionStatsMap);
+    when(metaStoreClient.getPartitionColumnStatistics(DATABASE, TABLE, Arrays.asList(PARTITION_THREE_FOUR),
+        COLUMN_NAMES)).thenReturn(Collections.<String, List<ColumnStatisticsObj>> emptyMap());
+
+    PartitionsAndStatistics partitionsAndStatistics = hiveEndpoint.getPartitions(table, null, -1);
+    assertThat(partitionsAndStatistics.getPartitions(), is(Arrays.asList(partitionOneTwo, partitionThreeFour)));
+    assertThat(partitionsAndStatistics.getStatisticsForPartition(partitionOneTwo), is(partitionColumnStatistics));
+    assertThat(partitionsAndStatistics.getStatisticsForPartition(partitionThreeFour), is(nullValue()));
+    verify(metaStoreClient).close();
+  }
+
+  @Test
+  public void getPartitionsFilteredInPages() throws Exception {
+    hiveEndpoint.setPartitionPageSize(1);
+    List<Partition> filteredPartitions = Arrays.asList(partitionOneTwo, partitionThreeFour);
+    when(metaStoreClient.listPartitionsByFilter(DATABASE, TABLE, PARTITION_PREDICATE, (short) -1))
+        .thenReturn(filteredPartitions);
+    when(metaStoreClient.getPartitionColumnStatistics(DATABASE, TABLE, PARTITION_NAMES, COLUMN_NAMES))
+        .thenReturn(partitionStatsMap);
+
+    PartitionsAndStatistics partitionsAndStatistics = hiveEndpoint.getPartitions(table, PARTITION_PREDICATE, -1);
+    assertThat(partitionsAndStatistics.getPartitions(), is(filteredPartitions));
+    assertThat(partitionsAndStatistics.getStatisticsForPartition(partitionOneTwo), is(partitionColumnStatistics));
+    verify(metaStoreClient).getPartitionColumnStatistics(DATABASE, TABLE, Arrays.asList(PARTITION_THREE_FOUR),
+        COLUMN_NAMES);
+  }
+
+  @Test
+  public void getPartitionsByPredicateNames() throws Exception {
+    when(partitionPredicate.getPartitionNames())
+        .thenReturn(Optional.of(Arrays.asList(PARTITION_ONE_TWO, PARTITION_THREE_FOUR)));
+    when(partitionPredicate.getPartitionPredicateLimit()).thenReturn((short) MAX_PARTITIONS);
+    when(metaStoreClient.getPartitionsByNames(DATABASE, TABLE, PARTITION_NAMES))
+        .thenReturn(Arrays.asList(partitionOneTwo));
+    when(metaStoreClient.getPartitionColumnStatistics(DATABASE, TABLE, PARTITION_NAMES, COLUMN_NAMES))
+        .thenReturn(partitionStatsMap);
+
+    PartitionsAndStatistics partitionsAndStatistics = hiveEndpoint.getPartitions(table, partitionPredicate);
+    assertThat(partitionsAndStatistics.getPartitions(), is(Arrays.asList(partitionOneTwo)));
+    assertThat(partitionsAndStatistics.getStatisticsForPartition(partitionOneTwo), is(partitionColumnStatistics));
+    verify(metaStoreClient, never()).listPartitionsByFilter(anyString(), anyString(), anyString(), anyShort());
+    verify(metaStoreClient).close();
+  }
+
+  @Test
+  public void getPartitionsByPredicateFilter() throws Exception {
+    when(partitionPredicate.getPartitionNames()).thenReturn(Optional.<List<String>> absent());
+    when(partitionPredicate.getPartitionPredicate()).thenReturn(PARTITION_PREDICATE);
+    when(partitionPredicate.getPartitionPredicateLimit()).thenReturn((short) MAX_PARTITIONS);
+    List<Partition> filteredPartitions = Arrays.asList(partitionOneTwo);
+    when(metaStoreClient.listPartitionsByFilter(DATABASE, TABLE, PARTITION_PREDICATE, (short) MAX_PARTITIONS))
+        .thenReturn(filteredPartitions);
+
+    PartitionsAndStatistics partitionsAndStatistics = hiveEndpoint.getPartitions(table, partitionPredicate);
+    assertThat(partitionsAndStatistics.getPartitions(), is(filteredPartitions));
+  }
+
+  @Test
+  public void getPartitionsWithoutStatistics() throws Exception {
+    when(partitionPredicate.getPartitionNames())
+        .thenReturn(Optional.of(Arrays.asList(PARTITION_ONE_TWO, PARTITION_THREE_FOUR)));
+    when(partitionPredicate.getPartitionPredicateLimit()).thenReturn((short) MAX_PARTITIONS);
+    when(metaStoreClient.getPartitionsByNames(DATABASE, TABLE, PARTITION_NAMES))
+        .thenReturn(Arrays.asList(partitionOneTwo));
+
+    List<Partition> partitions = hiveEndpoint.getPartitionsWithoutStatistics(table, partitionPredicate);
+    assertThat(partitions, is(Arrays.asList(partitionOneTwo)));
+    verify(metaStoreClient, never())
+        .getPartitionColumnStatistics(anyString(), anyString(), anyListOf(String.class), anyListOf(String.class));
+    verify(metaStoreClient).close();
+  }
+
+  @Test
+  public void getPartitionPagesOfFetchedPartitions() throws Exception {
+    hiveEndpoint.setPartitionPageSize(1);
+    when(metaStoreClient.getPartitionColumnStatistics(DATABASE, TABLE, PARTITION_NAMES, COLUMN_NAMES))
+        .thenReturn(partitionStatsMap);
+
+    try (PartitionPages pages = hiveEndpoint.getPartitionPages(table, Arrays.asList(partitionOneTwo,
+        partitionThreeFour))) {
+      PartitionsAndStatistics page = pages.next();
+      assertThat(page.getPartitions(), is(Arrays.asList(partitionOneTwo)));
+      assertThat(page.getStatisticsForPartition(partitionOneTwo), is(partitionColumnStatistics));
+      verify(metaStoreClient, never()).getPartitionColumnStatistics(DATABASE, TABLE,
+          Arrays.asList(PARTITION_THREE_FOUR), COLUMN_NAMES);
+      assertThat(pages.next().getPartitions(), is(Arrays.asList(partitionThreeFour)));
+      assertThat(pages.hasNext(), is(false));
+    }
+    verify(metaStoreClient, never()).getPartitionsByNames(anyString(), anyString(), anyListOf(String.class));
+    verify(metaStoreClient).close();
+  }
+
+  @Test
+  public void partitionLimitAboveShortRangeIsAppliedAfterListing() throws Exception {
+    List<Partition> filteredPartitions = Arrays.asList(partitionOneTwo);
+    when(metaStoreClient.listPartitionsByFilter(DATABASE, TABLE, PARTITION_PREDICATE, (short) -1))
+        .thenReturn(filteredPartitions);
+
+    PartitionsAndStatistics partitionsAndStatistics = hiveEndpoint.getPartitions(table, PARTITION_PREDICATE, 100000);
+    assertThat(partitionsAndStatistics.getPartitions(), is(filteredPartitions));
   }
 
   @Test
@@ -17,23 +17,40 @@ package com.hotels.bdp.circustrain.core;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 import org.springframework.boot.ApplicationArguments;
 
 import com.hotels.bdp.circustrain.api.CompletionCode;
 import com.hotels.bdp.circustrain.api.Replication;
+import com.hotels.bdp.circustrain.api.conf.Daemon;
 import com.hotels.bdp.circustrain.api.conf.ReplicaCatalog;
 import com.hotels.bdp.circustrain.api.conf.ReplicaTable;
+import com.hotels.bdp.circustrain.api.conf.ReplicationOrder;
 import com.hotels.bdp.circustrain.api.conf.Security;
 import com.hotels.bdp.circustrain.api.conf.SourceCatalog;
 import com.hotels.bdp.circustrain.api.conf.SourceTable;
@@ -45,6 +62,10 @@ import com.hotels.bdp.circustrain.api.event.EventTableReplication;
 import com.hotels.bdp.circustrain.api.event.LocomotiveListener;
 import com.hotels.bdp.circustrain.api.event.TableReplicationListener;
 import com.hotels.bdp.circustrain.api.metrics.MetricSender;
+import com.hotels.bdp.circustrain.api.metrics.Metrics;
+import com.hotels.bdp.circustrain.core.journal.JournalEntry;
+import com.hotels.bdp.circustrain.core.journal.ReplicationJournal;
+import com.hotels.bdp.circustrain.core.journal.ReplicationPhase;
 
 @RunWith(MockitoJUnitRunner.class)
 public class LocomotiveTest {
@@ -61,6 +82,16 @@ public class LocomotiveTest {
   private @Mock Replication replication1;
   private @Mock Replication replication2;
   private @Mock ApplicationArguments applicationArguments;
+  private @Mock MetricSender metricSender;
+  private @Captor ArgumentCaptor<Map<String, Long>> metricsCaptor;
+  private @Captor ArgumentCaptor<JournalEntry> journalEntryCaptor;
+  private @Mock ReplicationJournal replicationJournal;
+  private final Daemon daemon = new Daemon();
+  private final Map<String, Map<String, Long>> phaseMetrics = new ConcurrentHashMap<>();
+  private final Map<String, String> skipped = new ConcurrentHashMap<>();
+  // Mocked replications have no event id so these maps must accept null values
+  private final Map<String, String> phaseMetricsEventIds = Collections.synchronizedMap(new HashMap<String, String>());
+  private final Map<String, String> failureEventIds = Collections.synchronizedMap(new HashMap<String, String>());
 
   private Locomotive locomotive;
 
@@ -80,8 +111,16 @@ public class LocomotiveTest {
     when(replicationFactory.newInstance(tableReplication1)).thenReturn(replication1);
     when(replicationFactory.newInstance(tableReplication2)).thenReturn(replication2);
 
-    locomotive = new Locomotive(sourceCatalog, replicaCatalog, security, tableReplications, replicationFactory,
-        MetricSender.DEFAULT_LOG_ONLY, new LocomotiveListener() {
+    locomotive = newLocomotive(1);
+  }
+
+  private Locomotive newLocomotive(int replicationConcurrency) {
+    return newLocomotive(ReplicationOrder.DECLARED, replicationConcurrency);
+  }
+
+  private Locomotive newLocomotive(ReplicationOrder replicationOrder, int replicationConcurrency) {
+    return new Locomotive(sourceCatalog, replicaCatalog, security, tableReplications, replicationFactory,
+        metricSender, new LocomotiveListener() {
 
           @Override
           public void circusTrainStartUp(
@@ -103,8 +142,25 @@ public class LocomotiveTest {
           public void tableReplicationFailure(
               EventTableReplication eventTableReplication,
               String eventId,
-              Throwable t) {}
-        });
+              Throwable t) {
+            failureEventIds.put(eventTableReplication.getQualifiedReplicaName(), eventId);
+          }
+
+          @Override
+          public void tableReplicationPhaseMetrics(
+              EventTableReplication eventTableReplication,
+              String eventId,
+              Metrics metrics) {
+            phaseMetrics.put(eventTableReplication.getQualifiedReplicaName(), metrics.getMetrics());
+            phaseMetricsEventIds.put(eventTableReplication.getQualifiedReplicaName(), eventId);
+          }
+
+          @Override
+          public void tableReplicationSkipped(EventTableReplication eventTableReplication, String eventId) {
+            skipped.put(eventTableReplication.getQualifiedReplicaName(), eventId);
+          }
+        }, daemon, replicationJournal, new TableReplicationOrdering(replicationOrder, null, 1),
+        new ReplicationPipeline(0, 0), replicationConcurrency);
   }
 
   @Test
@@ -119,6 +175,14 @@ public class LocomotiveTest {
     assertThat(locomotive.getExitCode(), is(0));
   }
 
+  @Test
+  public void nothingIsReplicatedWhenPlanning() {
+    when(applicationArguments.containsOption(ReplicationPlanRunner.PLAN_OPTION)).thenReturn(true);
+    locomotive.run(applicationArguments);
+    verifyZeroInteractions(replicationFactory, replication1, replication2);
+    assertThat(locomotive.getExitCode(), is(0));
+  }
+
   @Test
   public void exitCodeIsMinusOneWhenAllReplicationsFail() {
     doThrow(new RuntimeException()).when(replication1).replicate();
@@ -134,4 +198,138 @@ public class LocomotiveTest {
     assertThat(locomotive.getExitCode(), is(-2));
   }
 
+  @Test
+  public void concurrentExitCodeIsZeroWhenAllReplicationsAreSuccessful() {
+    locomotive = newLocomotive(2);
+    locomotive.run(applicationArguments);
+    assertThat(locomotive.getExitCode(), is(0));
+  }
+
+  @Test
+  public void concurrentExitCodeIsMinusOneWhenAllReplicationsFail() {
+    doThrow(new RuntimeException()).when(replication1).replicate();
+    doThrow(new RuntimeException()).when(replication2).replicate();
+    locomotive = newLocomotive(2);
+    locomotive.run(applicationArguments);
+    assertThat(locomotive.getExitCode(), is(-1));
+  }
+
+  @Test
+  public void concurrentExitCodeIsMinusTwoWhenOneReplicationFails() {
+    doThrow(new RuntimeException()).when(replication2).replicate();
+    locomotive = newLocomotive(2);
+    locomotive.run(applicationArguments);
+    assertThat(locomotive.getExitCode(), is(-2));
+  }
+
+  @Test
+  public void concurrentReplicationMetrics() {
+    doThrow(new RuntimeException()).when(replication1).replicate();
+    locomotive = newLocomotive(4);
+    locomotive.run(applicationArguments);
+    verify(metricSender).send(metricsCaptor.capture());
+    Map<String, Long> metrics = metricsCaptor.getValue();
+    assertThat(metrics.get("tables_replicated"), is(2L));
+    assertThat(metrics.get(CompletionCode.FAILURE.getMetricName()), is(CompletionCode.FAILURE.getCode()));
+  }
+
+  @Test
+  public void phaseMetricsAreHandedToTheListener() {
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ReplicationPhaseMetrics.current().increment("replica_metastore_calls");
+        return null;
+      }
+    }).when(replication1).replicate();
+    doThrow(new RuntimeException()).when(replication2).replicate();
+    locomotive.run(applicationArguments);
+    assertThat(phaseMetrics.get("replica-database.replica-table1").get("replica_metastore_calls"), is(1L));
+    assertThat(phaseMetrics.get("replica-database.replica-table2").isEmpty(), is(true));
+    ReplicationPhaseMetrics.current().increment("replica_metastore_calls");
+    assertThat(ReplicationPhaseMetrics.current().getMetrics().isEmpty(), is(true));
+  }
+
+  @Test
+  public void failureCarriesTheEventIdOfTheReplication() {
+    when(replication2.getEventId()).thenReturn("event2");
+    doThrow(new RuntimeException()).when(replication2).replicate();
+    locomotive.run(applicationArguments);
+    assertThat(failureEventIds.get("replica-database.replica-table2"), is("event2"));
+    assertThat(phaseMetricsEventIds.get("replica-database.replica-table2"), is("event2"));
+  }
+
+  @Test
+  public void daemonModeDoesNotReplicateOnStartUp() {
+    daemon.setEnabled(true);
+    locomotive.run(applicationArguments);
+    verifyZeroInteractions(replicationFactory, metricSender);
+    assertThat(locomotive.getExitCode(), is(0));
+  }
+
+  @Test
+  public void replicateGroup() {
+    doThrow(new RuntimeException()).when(replication2).replicate();
+    CompletionCode completionCode = locomotive.replicate(new String[0], Arrays.asList(tableReplication2));
+    assertThat(completionCode, is(CompletionCode.FAILURE));
+    verify(replicationFactory, never()).newInstance(tableReplication1);
+    assertThat(locomotive.getExitCode(), is(-1));
+  }
+
+  @Test
+  public void journalSkipsCommittedTables() {
+    when(replicationJournal.getEntry("replica-database.replica-table1"))
+        .thenReturn(new JournalEntry("replica-database.replica-table1", ReplicationPhase.COMMITTED, "event1", null));
+    locomotive.run(applicationArguments);
+    verify(replicationFactory, never()).newInstance(tableReplication1);
+    verify(replication2).replicate();
+    assertThat(locomotive.getExitCode(), is(0));
+    assertThat(skipped.get("replica-database.replica-table1"), is("event1"));
+    verify(metricSender).send(metricsCaptor.capture());
+    assertThat(metricsCaptor.getValue().get("tables_replicated"), is(1L));
+    assertThat(metricsCaptor.getValue().get("tables_skipped"), is(1L));
+  }
+
+  @Test
+  public void committedEntriesAreOnlyUsedByTheNextRun() {
+    when(replicationJournal.getEntry("replica-database.replica-table1"))
+        .thenReturn(new JournalEntry("replica-database.replica-table1", ReplicationPhase.COMMITTED, "event1", null));
+    doThrow(new RuntimeException()).when(replication2).replicate();
+    locomotive.run(applicationArguments);
+    verify(replicationJournal).clear(Collections.singleton("replica-database.replica-table1"));
+    verify(replicationFactory, never()).newInstance(tableReplication1);
+    assertThat(locomotive.getExitCode(), is(-2));
+  }
+
+  @Test
+  public void journalRecordsCommittedTablesAndIsClearedOnSuccess() {
+    when(replication1.getEventId()).thenReturn("event1");
+    when(replication2.getEventId()).thenReturn("event2");
+    locomotive.run(applicationArguments);
+    verify(replicationJournal, times(2)).record(journalEntryCaptor.capture());
+    JournalEntry entry = journalEntryCaptor.getAllValues().get(0);
+    assertThat(entry.getTable(), is("replica-database.replica-table1"));
+    assertThat(entry.getPhase(), is(ReplicationPhase.COMMITTED));
+    assertThat(entry.getEventId(), is("event1"));
+    verify(replicationJournal)
+        .clear(Arrays.asList("replica-database.replica-table1", "replica-database.replica-table2"));
+  }
+
+  @Test
+  public void journalIsKeptOnFailure() {
+    doThrow(new RuntimeException()).when(replication2).replicate();
+    locomotive.run(applicationArguments);
+    verify(replicationJournal, never()).clear(anyCollectionOf(String.class));
+  }
+
+  @Test
+  public void replicationOrder() {
+    when(tableReplication2.getPriority()).thenReturn(1);
+    locomotive = newLocomotive(ReplicationOrder.PRIORITY, 1);
+    locomotive.run(applicationArguments);
+    InOrder replicationOrder = inOrder(replication1, replication2);
+    replicationOrder.verify(replication2).replicate();
+    replicationOrder.verify(replication1).replicate();
+  }
+
 }
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+
+import com.hotels.bdp.circustrain.api.conf.PartitionStatisticsFetch;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PartitionColumnStatisticsFetcherTest {
+
+  private static final String DATABASE = "db";
+  private static final String TABLE = "table";
+  private static final List<String> PARTITIONS = Arrays.asList("p=1", "p=2");
+  private static final List<String> COLUMNS = Arrays.asList("a", "b");
+
+  private @Mock Supplier<CloseableMetaStoreClient> supplier;
+  private @Mock CloseableMetaStoreClient client;
+  private @Mock CloseableMetaStoreClient chunkClient;
+
+  private final PartitionStatisticsFetch partitionStatisticsFetch = new PartitionStatisticsFetch();
+  private final ColumnStatisticsObj p1a = new ColumnStatisticsObj("a", "string", null);
+  private final ColumnStatisticsObj p1b = new ColumnStatisticsObj("b", "string", null);
+  private final ColumnStatisticsObj p2a = new ColumnStatisticsObj("a", "string", null);
+  private final ColumnStatisticsObj p2b = new ColumnStatisticsObj("b", "string", null);
+
+  private final PartitionTaskExecutor partitionTaskExecutor = new PartitionTaskExecutor(4);
+  private PartitionColumnStatisticsFetcher fetcher;
+
+  @Before
+  public void init() {
+    when(supplier.get()).thenReturn(chunkClient);
+    fetcher = new PartitionColumnStatisticsFetcher(supplier, partitionStatisticsFetch, partitionTaskExecutor);
+  }
+
+  @After
+  public void close() {
+    partitionTaskExecutor.close();
+  }
+
+  @Test
+  public void singleChunkUsesGivenClient() throws Exception {
+    Map<String, List<ColumnStatisticsObj>> statistics = ImmutableMap
+        .<String, List<ColumnStatisticsObj>> of("p=1", Arrays.asList(p1a, p1b));
+    when(client.getPartitionColumnStatistics(DATABASE, TABLE, PARTITIONS, COLUMNS)).thenReturn(statistics);
+
+    assertThat(fetcher.fetch(client, DATABASE, TABLE, PARTITIONS, COLUMNS), is(statistics));
+    verifyZeroInteractions(supplier);
+  }
+
+  @Test
+  public void chunksAreMerged() throws Exception {
+    partitionStatisticsFetch.setPartitionsPerChunk(1);
+    partitionStatisticsFetch.setColumnsPerChunk(1);
+    stubChunks(chunkClient);
+
+    Map<String, List<ColumnStatisticsObj>> statistics = fetcher.fetch(client, DATABASE, TABLE, PARTITIONS, COLUMNS);
+    assertThat(statistics.get("p=1"), is(Arrays.asList(p1a, p1b)));
+    assertThat(statistics.get("p=2"), is(Arrays.asList(p2a, p2b)));
+    verify(supplier, times(4)).get();
+    verify(chunkClient, times(4)).close();
+    verifyZeroInteractions(client);
+  }
+
+  @Test
+  public void chunksAreMergedOnCallingThread() throws Exception {
+    partitionStatisticsFetch.setPartitionsPerChunk(1);
+    partitionStatisticsFetch.setColumnsPerChunk(1);
+    partitionStatisticsFetch.setThreads(1);
+    stubChunks(client);
+
+    Map<String, List<ColumnStatisticsObj>> statistics = fetcher.fetch(client, DATABASE, TABLE, PARTITIONS, COLUMNS);
+    assertThat(statistics.get("p=1"), is(Arrays.asList(p1a, p1b)));
+    assertThat(statistics.get("p=2"), is(Arrays.asList(p2a, p2b)));
+    verifyZeroInteractions(supplier);
+  }
+
+  @Test
+  public void failedChunkIsRetriedOnNewClient() throws Exception {
+    Map<String, List<ColumnStatisticsObj>> statistics = ImmutableMap
+        .<String, List<ColumnStatisticsObj>> of("p=1", Arrays.asList(p1a, p1b));
+    when(client.getPartitionColumnStatistics(DATABASE, TABLE, PARTITIONS, COLUMNS))
+        .thenThrow(new TTransportException());
+    when(chunkClient.getPartitionColumnStatistics(DATABASE, TABLE, PARTITIONS, COLUMNS)).thenReturn(statistics);
+
+    assertThat(fetcher.fetch(client, DATABASE, TABLE, PARTITIONS, COLUMNS), is(statistics));
+    verify(chunkClient).close();
+  }
+
+  @Test
+  public void failsOnceRetriesAreExhausted() throws Exception {
+    partitionStatisticsFetch.setRetries(1);
+    when(client.getPartitionColumnStatistics(DATABASE, TABLE, PARTITIONS, COLUMNS))
+        .thenThrow(new TTransportException());
+    when(chunkClient.getPartitionColumnStatistics(DATABASE, TABLE, PARTITIONS, COLUMNS))
+        .thenThrow(new TTransportException());
+    try {
+      fetcher.fetch(client, DATABASE, TABLE, PARTITIONS, COLUMNS);
+      fail("Expected TTransportException");
+    } catch (TTransportException e) {
+      // expected
+    }
+    verify(chunkClient, times(1))
+        .getPartitionColumnStatistics(eq(DATABASE), eq(TABLE), anyListOf(String.class), anyListOf(String.class));
+  }
+
+  @Test
+  public void metaStoreErrorIsNotRetried() throws Exception {
+    when(client.getPartitionColumnStatistics(DATABASE, TABLE, PARTITIONS, COLUMNS))
+        .thenThrow(new MetaException("Invalid column"));
+    try {
+      fetcher.fetch(client, DATABASE, TABLE, PARTITIONS, COLUMNS);
+      fail("Expected MetaException");
+    } catch (MetaException e) {
+      // expected
+    }
+    verifyZeroInteractions(supplier);
+  }
+
+  @Test
+  public void concurrentChunkFailureIsRethrown() throws Exception {
+    partitionStatisticsFetch.setPartitionsPerChunk(1);
+    partitionStatisticsFetch.setColumnsPerChunk(1);
+    stubChunks(chunkClient);
+    when(chunkClient.getPartitionColumnStatistics(DATABASE, TABLE, Arrays.asList("p=2"), Arrays.asList("b")))
+        .thenThrow(new MetaException("Invalid column"));
+    try {
+      fetcher.fetch(client, DATABASE, TABLE, PARTITIONS, COLUMNS);
+      fail("Expected MetaException");
+    } catch (MetaException e) {
+      // expected
+    }
+  }
+
+  private void stubChunks(CloseableMetaStoreClient chunkClient) throws Exception {
+    stubChunk(chunkClient, "p=1", "a", p1a);
+    stubChunk(chunkClient, "p=1", "b", p1b);
+    stubChunk(chunkClient, "p=2", "a", p2a);
+    stubChunk(chunkClient, "p=2", "b", p2b);
+  }
+
+  private void stubChunk(CloseableMetaStoreClient client, String partition, String column, ColumnStatisticsObj obj)
+    throws Exception {
+    when(client.getPartitionColumnStatistics(DATABASE, TABLE, Arrays.asList(partition), Arrays.asList(column)))
+        .thenReturn(ImmutableMap.<String, List<ColumnStatisticsObj>> of(partition, Arrays.asList(obj)));
+  }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.Order;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.junit.Test;
+
+public class PartitionInternerTest {
+
+  private final PartitionInterner interner = new PartitionInterner();
+
+  @Test
+  public void equalComponentsAreShared() {
+    Partition first = interner.intern(newPartition("a", "1"));
+    Partition second = interner.intern(newPartition("b", "1"));
+
+    assertThat(first.getSd().getCols() == second.getSd().getCols(), is(true));
+    assertThat(first.getSd().getSerdeInfo() == second.getSd().getSerdeInfo(), is(true));
+    assertThat(first.getSd().getSortCols() == second.getSd().getSortCols(), is(true));
+    assertThat(first.getSd() == second.getSd(), is(false));
+  }
+
+  @Test
+  public void differentComponentsAreKept() {
+    Partition first = interner.intern(newPartition("a", "1"));
+    Partition second = newPartition("b", "2");
+    List<FieldSchema> columns = Arrays.asList(new FieldSchema("other", "int", null));
+    second.getSd().setCols(columns);
+
+    interner.intern(second);
+
+    assertThat(second.getSd().getCols() == columns, is(true));
+    assertThat(first.getSd().getCols() == columns, is(false));
+  }
+
+  @Test
+  public void partitionEqualityIsUnchanged() {
+    Partition partition = newPartition("a", "1");
+
+    assertThat(interner.intern(newPartition("b", "1")) == partition, is(false));
+    assertThat(interner.intern(partition), is(newPartition("a", "1")));
+  }
+
+  @Test
+  public void missingComponents() {
+    Partition partition = new Partition();
+
+    assertThat(interner.intern(partition), is(new Partition()));
+  }
+
+  private static Partition newPartition(String value, String rows) {
+    StorageDescriptor sd = new StorageDescriptor();
+    sd.setCols(Arrays.asList(new FieldSchema("id", "bigint", null), new FieldSchema("name", "string", null)));
+    sd.setLocation("s3://bucket/table/part=" + value);
+    sd.setSerdeInfo(new SerDeInfo(null, "org.apache.hadoop.hive.ql.io.orc.OrcSerde", new HashMap<String, String>()));
+    sd.setSortCols(Arrays.asList(new Order("id", 1)));
+    Partition partition = new Partition();
+    partition.setValues(Collections.singletonList(value));
+    partition.setSd(sd);
+    partition.setParameters(new HashMap<String, String>());
+    partition.putToParameters("numRows", rows);
+    return partition;
+  }
+
+}
@@ -17,19 +17,18 @@ package com.hotels.bdp.circustrain.core;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
-import org.apache.hadoop.fs.Path;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
-import com.google.common.base.Function;
-
 import com.hotels.bdp.circustrain.api.conf.SourceTable;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
 import com.hotels.bdp.circustrain.core.conf.SpringExpressionParser;
 import com.hotels.bdp.circustrain.core.replica.Replica;
 import com.hotels.bdp.circustrain.core.replica.ReplicaFactory;
@@ -42,7 +41,7 @@ public class PartitionPredicateFactoryTest {
   private @Mock SourceFactory sourceFactory;
   private @Mock ReplicaFactory replicaFactory;
   private @Mock SpringExpressionParser expressionParser;
-  private @Mock Function<Path, String> checksumFunction;
+  private @Mock PathChecksumFunction checksumFunction;
   private @Mock TableReplication tableReplication;
   private @Mock SourceTable sourceTable;
   private @Mock Source source;
@@ -72,4 +71,12 @@ public class PartitionPredicateFactoryTest {
     PartitionPredicate predicate = partitionPredicateFactory.newInstance(tableReplication);
     assertThat(predicate, instanceOf(DiffGeneratedPartitionPredicate.class));
   }
+
+  @Test
+  public void newInstanceDiffGeneratedPartitionPredicateReusesEndpoints() throws Exception {
+    when(sourceTable.isGeneratePartitionFilter()).thenReturn(true);
+    PartitionPredicate predicate = partitionPredicateFactory.newInstance(tableReplication, source, replica);
+    assertThat(predicate, instanceOf(DiffGeneratedPartitionPredicate.class));
+    verifyZeroInteractions(sourceFactory, replicaFactory);
+  }
 }
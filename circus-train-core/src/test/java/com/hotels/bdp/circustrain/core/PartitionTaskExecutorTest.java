@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+
+public class PartitionTaskExecutorTest {
+
+  private final PartitionTaskExecutor executor = new PartitionTaskExecutor(2);
+
+  @After
+  public void close() {
+    executor.close();
+    ReplicationPhaseMetrics.end();
+  }
+
+  @Test
+  public void resultsAreInTaskOrder() {
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      tasks.add(new Value(i));
+    }
+    assertThat(executor.invokeAll("count", tasks, 4), is(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)));
+  }
+
+  @Test
+  public void callingThreadRunsAllTasks() {
+    List<Callable<Integer>> tasks = Arrays.<Callable<Integer>> asList(new Value(1), new Value(2));
+    assertThat(PartitionTaskExecutor.CALLING_THREAD.invokeAll("count", tasks, 4), is(Arrays.asList(1, 2)));
+  }
+
+  @Test
+  public void tasksRunWithPhaseMetricsOfCaller() {
+    final ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.begin();
+    List<Callable<ReplicationPhaseMetrics>> tasks = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      tasks.add(new Callable<ReplicationPhaseMetrics>() {
+        @Override
+        public ReplicationPhaseMetrics call() {
+          return ReplicationPhaseMetrics.current();
+        }
+      });
+    }
+    for (ReplicationPhaseMetrics result : executor.invokeAll("bind", tasks, 4)) {
+      assertThat(result, is(sameInstance(phaseMetrics)));
+    }
+    assertThat(executor.get("bind", executor.submit(tasks.get(0))), is(sameInstance(phaseMetrics)));
+  }
+
+  @Test
+  public void runtimeExceptionIsRethrownAsIs() {
+    final IllegalStateException failure = new IllegalStateException();
+    try {
+      executor.invokeAll("fail", Arrays.<Callable<Integer>> asList(new Value(1), new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          throw failure;
+        }
+      }), 2);
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertThat(e, is(sameInstance(failure)));
+    }
+  }
+
+  @Test
+  public void checkedExceptionIsWrapped() {
+    final IOException failure = new IOException();
+    try {
+      executor.get("read", executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() throws IOException {
+          throw failure;
+        }
+      }));
+      fail("Expected CircusTrainException");
+    } catch (CircusTrainException e) {
+      assertThat(e.getMessage(), is("Unable to read"));
+      assertThat(e.getCause(), is(sameInstance((Throwable) failure)));
+    }
+  }
+
+  private static class Value implements Callable<Integer> {
+    private final int value;
+
+    Value(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public Integer call() {
+      return value;
+    }
+  }
+
+}
@@ -79,7 +79,7 @@ public class PartitionedTableMetadataMirrorReplicationTest {
 
   @Test
   public void typical() throws Exception {
-    when(source.getPartitions(sourceTable, PARTITION_PREDICATE, MAX_PARTITIONS)).thenReturn(partitionsAndStatistics);
+    when(source.getPartitions(sourceTable, partitionPredicate)).thenReturn(partitionsAndStatistics);
 
     PartitionedTableMetadataMirrorReplication replication = new PartitionedTableMetadataMirrorReplication(DATABASE,
         TABLE, partitionPredicate, source, replica, eventIdFactory, DATABASE, TABLE);
@@ -98,7 +98,7 @@ public class PartitionedTableMetadataMirrorReplicationTest {
   public void noMatchingPartitions() throws Exception {
     PartitionsAndStatistics emptyPartitionsAndStats = new PartitionsAndStatistics(sourceTable.getPartitionKeys(),
         Collections.<Partition>emptyList(), Collections.<String, List<ColumnStatisticsObj>>emptyMap());
-    when(source.getPartitions(sourceTable, PARTITION_PREDICATE, MAX_PARTITIONS)).thenReturn(emptyPartitionsAndStats);
+    when(source.getPartitions(sourceTable, partitionPredicate)).thenReturn(emptyPartitionsAndStats);
     when(source.getLocationManager(sourceTable, Collections.<Partition>emptyList(), EVENT_ID, copierOptions))
         .thenReturn(sourceLocationManager);
 
@@ -107,7 +107,7 @@ public class PartitionedTableMetadataUpdateReplicationTest {
 
   @Test
   public void typical() throws Exception {
-    when(source.getPartitions(sourceTable, PARTITION_PREDICATE, MAX_PARTITIONS)).thenReturn(partitionsAndStatistics);
+    when(source.getPartitions(sourceTable, partitionPredicate)).thenReturn(partitionsAndStatistics);
     when(replica.getTable(replicaClient, DATABASE, TABLE)).thenReturn(Optional.of(previousReplicaTable));
 
     when(previousReplicaTable.getSd()).thenReturn(sd);
@@ -127,7 +127,7 @@ public class PartitionedTableMetadataUpdateReplicationTest {
 
   @Test
   public void nonExistingPartitionsAreFiltered() throws Exception {
-    when(source.getPartitions(sourceTable, PARTITION_PREDICATE, MAX_PARTITIONS)).thenReturn(partitionsAndStatistics);
+    when(source.getPartitions(sourceTable, partitionPredicate)).thenReturn(partitionsAndStatistics);
     when(replica.getTable(replicaClient, DATABASE, TABLE)).thenReturn(Optional.of(previousReplicaTable));
     when(previousReplicaTable.getSd()).thenReturn(sd);
     when(sd.getLocation()).thenReturn(tableLocation);
@@ -156,7 +156,7 @@ public class PartitionedTableMetadataUpdateReplicationTest {
   public void noMatchingPartitions() throws Exception {
     PartitionsAndStatistics emptyPartitionsAndStats = new PartitionsAndStatistics(sourceTable.getPartitionKeys(),
         Collections.<Partition>emptyList(), Collections.<String, List<ColumnStatisticsObj>>emptyMap());
-    when(source.getPartitions(sourceTable, PARTITION_PREDICATE, MAX_PARTITIONS)).thenReturn(emptyPartitionsAndStats);
+    when(source.getPartitions(sourceTable, partitionPredicate)).thenReturn(emptyPartitionsAndStats);
 
     PartitionedTableMetadataUpdateReplication replication = new PartitionedTableMetadataUpdateReplication(DATABASE,
         TABLE, partitionPredicate, source, replica, eventIdFactory, replicaLocation, DATABASE, TABLE);
@@ -173,7 +173,7 @@ public class PartitionedTableMetadataUpdateReplicationTest {
     expectedException.expect(CircusTrainException.class);
     expectedException.expectCause(isA(InvalidReplicationModeException.class));
 
-    when(source.getPartitions(sourceTable, PARTITION_PREDICATE, MAX_PARTITIONS)).thenReturn(partitionsAndStatistics);
+    when(source.getPartitions(sourceTable, partitionPredicate)).thenReturn(partitionsAndStatistics);
     when(replica.getTable(replicaClient, DATABASE, TABLE)).thenReturn(Optional.<Table>absent());
 
     PartitionedTableMetadataUpdateReplication replication = new PartitionedTableMetadataUpdateReplication(DATABASE,
@@ -18,7 +18,10 @@ package com.hotels.bdp.circustrain.core;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
@@ -28,7 +31,6 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.Table;
 import org.junit.Before;
@@ -46,6 +48,7 @@ import com.hotels.bdp.circustrain.api.copier.CopierFactory;
 import com.hotels.bdp.circustrain.api.copier.CopierFactoryManager;
 import com.hotels.bdp.circustrain.api.event.CopierListener;
 import com.hotels.bdp.circustrain.api.metrics.Metrics;
+import com.hotels.bdp.circustrain.core.journal.TableReplicationJournal;
 import com.hotels.bdp.circustrain.core.replica.Replica;
 import com.hotels.bdp.circustrain.core.replica.TableType;
 import com.hotels.bdp.circustrain.core.source.Source;
@@ -64,7 +67,7 @@ public class PartitionedTableReplicationTest {
   private @Mock Source source;
   private @Mock TableAndStatistics sourceTableAndStatistics;
   private @Mock Table sourceTable;
-  private @Mock PartitionsAndStatistics partitionsAndStatistics;
+  private @Mock PartitionPages sourcePartitionPages;
   private @Mock Replica replica;
   private @Mock CopierFactoryManager copierFactoryManager;
   private @Mock CopierFactory copierFactory;
@@ -74,6 +77,7 @@ public class PartitionedTableReplicationTest {
   private @Mock SourceLocationManager sourceLocationManager;
   private @Mock ReplicaLocationManager replicaLocationManager;
   private @Mock CopierListener listener;
+  private @Mock TableReplicationJournal journal;
   private @Mock PartitionPredicate partitionPredicate;
 
   private final Path sourceTableLocation = new Path("sourceTableLocation");
@@ -99,7 +103,7 @@ public class PartitionedTableReplicationTest {
     when(copierFactory
         .newInstance(EVENT_ID, sourceTableLocation, sourcePartitionLocations, replicaTableLocation, copierOptions))
             .thenReturn(copier);
-    when(partitionsAndStatistics.getPartitions()).thenReturn(sourcePartitions);
+    when(source.getPartitionPages(sourceTable, sourcePartitions)).thenReturn(sourcePartitionPages);
     when(copierOptions.get("task-count")).thenReturn(Integer.valueOf(2));
     when(partitionPredicate.getPartitionPredicate()).thenReturn(PARTITION_PREDICATE);
     when(partitionPredicate.getPartitionPredicateLimit()).thenReturn(MAX_PARTITIONS);
@@ -109,15 +113,14 @@ public class PartitionedTableReplicationTest {
   public void noMatchingPartitions() throws Exception {
     when(replica.getLocationManager(TableType.PARTITIONED, targetTableLocation, EVENT_ID, sourceLocationManager))
         .thenReturn(replicaLocationManager);
-    PartitionsAndStatistics emptyPartitionsAndStats = new PartitionsAndStatistics(sourceTable.getPartitionKeys(),
-        Collections.<Partition>emptyList(), Collections.<String, List<ColumnStatisticsObj>>emptyMap());
-    when(source.getPartitions(sourceTable, PARTITION_PREDICATE, MAX_PARTITIONS)).thenReturn(emptyPartitionsAndStats);
+    when(source.getPartitionsWithoutStatistics(sourceTable, partitionPredicate))
+        .thenReturn(Collections.<Partition> emptyList());
     when(source.getLocationManager(sourceTable, Collections.<Partition>emptyList(), EVENT_ID, copierOptions))
         .thenReturn(sourceLocationManager);
 
     PartitionedTableReplication replication = new PartitionedTableReplication(DATABASE, TABLE, partitionPredicate,
         source, replica, copierFactoryManager, eventIdFactory, targetTableLocation, DATABASE, TABLE, copierOptions,
-        listener);
+        listener, journal);
     replication.replicate();
 
     verifyZeroInteractions(copier);
@@ -132,15 +135,15 @@ public class PartitionedTableReplicationTest {
   public void typical() throws Exception {
     when(replica.getLocationManager(TableType.PARTITIONED, targetTableLocation, EVENT_ID, sourceLocationManager))
         .thenReturn(replicaLocationManager);
-    when(source.getPartitions(sourceTable, PARTITION_PREDICATE, MAX_PARTITIONS)).thenReturn(partitionsAndStatistics);
+    when(source.getPartitionsWithoutStatistics(sourceTable, partitionPredicate)).thenReturn(sourcePartitions);
 
     PartitionedTableReplication replication = new PartitionedTableReplication(DATABASE, TABLE, partitionPredicate,
         source, replica, copierFactoryManager, eventIdFactory, targetTableLocation, DATABASE, TABLE, copierOptions,
-        listener);
+        listener, journal);
     replication.replicate();
 
     InOrder replicationOrder = inOrder(copierFactoryManager, copierFactory, copier, sourceLocationManager, replica,
-        replicaLocationManager, listener);
+        sourcePartitionPages, replicaLocationManager, listener);
     replicationOrder.verify(replica).validateReplicaTable(DATABASE, TABLE);
     replicationOrder
         .verify(copierFactoryManager)
@@ -154,7 +157,84 @@ public class PartitionedTableReplicationTest {
     replicationOrder.verify(sourceLocationManager).cleanUpLocations();
     replicationOrder
         .verify(replica)
-        .updateMetadata(EVENT_ID, sourceTableAndStatistics, partitionsAndStatistics, DATABASE, TABLE,
+        .updateMetadata(EVENT_ID, sourceTableAndStatistics, sourcePartitionPages, DATABASE, TABLE,
+            replicaLocationManager);
+    replicationOrder.verify(sourcePartitionPages).close();
+    replicationOrder.verify(replicaLocationManager).cleanUpLocations();
+  }
+
+  @Test
+  public void journalRecordsCopy() throws Exception {
+    when(replica.getLocationManager(TableType.PARTITIONED, targetTableLocation, EVENT_ID, sourceLocationManager))
+        .thenReturn(replicaLocationManager);
+    when(source.getPartitionsWithoutStatistics(sourceTable, partitionPredicate)).thenReturn(sourcePartitions);
+
+    PartitionedTableReplication replication = new PartitionedTableReplication(DATABASE, TABLE, partitionPredicate,
+        source, replica, copierFactoryManager, eventIdFactory, targetTableLocation, DATABASE, TABLE, copierOptions,
+        listener, journal);
+    replication.replicate();
+
+    InOrder replicationOrder = inOrder(copier, sourceLocationManager, journal, replica);
+    replicationOrder.verify(copier).copy();
+    replicationOrder.verify(sourceLocationManager).cleanUpLocations();
+    replicationOrder.verify(journal).copied(eq(EVENT_ID), anyString());
+    replicationOrder
+        .verify(replica)
+        .updateMetadata(EVENT_ID, sourceTableAndStatistics, sourcePartitionPages, DATABASE, TABLE,
+            replicaLocationManager);
+  }
+
+  @Test
+  public void copyDoesNotTouchReplicaMetadata() throws Exception {
+    when(replica.getLocationManager(TableType.PARTITIONED, targetTableLocation, EVENT_ID, sourceLocationManager))
+        .thenReturn(replicaLocationManager);
+    when(source.getPartitionsWithoutStatistics(sourceTable, partitionPredicate)).thenReturn(sourcePartitions);
+
+    PartitionedTableReplication replication = new PartitionedTableReplication(DATABASE, TABLE, partitionPredicate,
+        source, replica, copierFactoryManager, eventIdFactory, targetTableLocation, DATABASE, TABLE, copierOptions,
+        listener, journal);
+    replication.copy();
+
+    verify(copier).copy();
+    verify(replica, never())
+        .updateMetadata(EVENT_ID, sourceTableAndStatistics, sourcePartitionPages, DATABASE, TABLE,
+            replicaLocationManager);
+
+    replication.commit();
+
+    verify(replica)
+        .updateMetadata(EVENT_ID, sourceTableAndStatistics, sourcePartitionPages, DATABASE, TABLE,
+            replicaLocationManager);
+    verify(replicaLocationManager).cleanUpLocations();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void commitBeforeCopy() throws Exception {
+    PartitionedTableReplication replication = new PartitionedTableReplication(DATABASE, TABLE, partitionPredicate,
+        source, replica, copierFactoryManager, eventIdFactory, targetTableLocation, DATABASE, TABLE, copierOptions,
+        listener, journal);
+    replication.commit();
+  }
+
+  @Test
+  public void resumeAfterCopy() throws Exception {
+    when(replica.getLocationManager(TableType.PARTITIONED, targetTableLocation, EVENT_ID, sourceLocationManager))
+        .thenReturn(replicaLocationManager);
+    when(source.getPartitionsWithoutStatistics(sourceTable, partitionPredicate)).thenReturn(sourcePartitions);
+    when(journal.isCopied(eq(EVENT_ID), anyString())).thenReturn(true);
+
+    PartitionedTableReplication replication = new PartitionedTableReplication(DATABASE, TABLE, partitionPredicate,
+        source, replica, copierFactoryManager, eventIdFactory, targetTableLocation, DATABASE, TABLE, copierOptions,
+        listener, journal);
+    replication.replicate();
+
+    verifyZeroInteractions(copierFactoryManager, copier, listener);
+    verify(journal, never()).copied(anyString(), anyString());
+    InOrder replicationOrder = inOrder(sourceLocationManager, replica, replicaLocationManager);
+    replicationOrder.verify(sourceLocationManager).cleanUpLocations();
+    replicationOrder
+        .verify(replica)
+        .updateMetadata(EVENT_ID, sourceTableAndStatistics, sourcePartitionPages, DATABASE, TABLE,
             replicaLocationManager);
     replicationOrder.verify(replicaLocationManager).cleanUpLocations();
   }
@@ -163,11 +243,11 @@ public class PartitionedTableReplicationTest {
   public void mappedNames() throws Exception {
     when(replica.getLocationManager(TableType.PARTITIONED, targetTableLocation, EVENT_ID, sourceLocationManager))
         .thenReturn(replicaLocationManager);
-    when(source.getPartitions(sourceTable, PARTITION_PREDICATE, MAX_PARTITIONS)).thenReturn(partitionsAndStatistics);
+    when(source.getPartitionsWithoutStatistics(sourceTable, partitionPredicate)).thenReturn(sourcePartitions);
 
     PartitionedTableReplication replication = new PartitionedTableReplication(DATABASE, TABLE, partitionPredicate,
         source, replica, copierFactoryManager, eventIdFactory, targetTableLocation, MAPPED_DATABASE, MAPPED_TABLE,
-        copierOptions, listener);
+        copierOptions, listener, journal);
     replication.replicate();
 
     InOrder replicationOrder = inOrder(copierFactoryManager, copierFactory, copier, sourceLocationManager, replica,
@@ -183,7 +263,7 @@ public class PartitionedTableReplicationTest {
     replicationOrder.verify(sourceLocationManager).cleanUpLocations();
     replicationOrder
         .verify(replica)
-        .updateMetadata(EVENT_ID, sourceTableAndStatistics, partitionsAndStatistics, MAPPED_DATABASE, MAPPED_TABLE,
+        .updateMetadata(EVENT_ID, sourceTableAndStatistics, sourcePartitionPages, MAPPED_DATABASE, MAPPED_TABLE,
             replicaLocationManager);
     replicationOrder.verify(replicaLocationManager).cleanUpLocations();
   }
@@ -193,11 +273,11 @@ public class PartitionedTableReplicationTest {
     when(replica.getLocationManager(TableType.PARTITIONED, targetTableLocation, EVENT_ID, sourceLocationManager))
         .thenReturn(replicaLocationManager);
     when(copier.copy()).thenThrow(new CircusTrainException("copy failed"));
-    when(source.getPartitions(sourceTable, PARTITION_PREDICATE, MAX_PARTITIONS)).thenReturn(partitionsAndStatistics);
+    when(source.getPartitionsWithoutStatistics(sourceTable, partitionPredicate)).thenReturn(sourcePartitions);
 
     PartitionedTableReplication replication = new PartitionedTableReplication(DATABASE, TABLE, partitionPredicate,
         source, replica, copierFactoryManager, eventIdFactory, targetTableLocation, DATABASE, TABLE, copierOptions,
-        listener);
+        listener, journal);
     try {
       replication.replicate();
       fail("Copy exception should be caught and rethrown");
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.boot.ApplicationArguments;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+import com.hotels.bdp.circustrain.api.conf.Daemon;
+import com.hotels.bdp.circustrain.api.conf.DaemonSchedule;
+import com.hotels.bdp.circustrain.api.conf.TableReplication;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicationDaemonTest {
+
+  private static final String[] ARGS = new String[] { "--config=circus-train.yml" };
+
+  private @Mock Locomotive locomotive;
+  private @Mock ApplicationArguments applicationArguments;
+
+  private final Daemon daemon = new Daemon();
+  private final TableReplication hourly = new TableReplication();
+  private final TableReplication daily = new TableReplication();
+  private ReplicationDaemon replicationDaemon;
+
+  @Before
+  public void init() {
+    hourly.setScheduleGroup("hourly");
+    daily.setScheduleGroup("daily");
+    when(locomotive.getTableReplications()).thenReturn(Arrays.asList(hourly, daily));
+    when(applicationArguments.getSourceArgs()).thenReturn(ARGS);
+    daemon.setEnabled(true);
+    replicationDaemon = new ReplicationDaemon(locomotive, daemon);
+  }
+
+  @After
+  public void stop() {
+    replicationDaemon.destroy();
+  }
+
+  private static DaemonSchedule interval(long interval) {
+    DaemonSchedule schedule = new DaemonSchedule();
+    schedule.setInterval(interval);
+    return schedule;
+  }
+
+  private static DaemonSchedule cron(String cron) {
+    DaemonSchedule schedule = new DaemonSchedule();
+    schedule.setCron(cron);
+    return schedule;
+  }
+
+  @Test
+  public void disabled() throws Exception {
+    daemon.setEnabled(false);
+    replicationDaemon.run(applicationArguments);
+    replicationDaemon.awaitShutdown();
+    verifyZeroInteractions(locomotive);
+  }
+
+  @Test(timeout = 5000)
+  public void nothingIsScheduledWhenPlanning() throws Exception {
+    when(applicationArguments.containsOption(ReplicationPlanRunner.PLAN_OPTION)).thenReturn(true);
+    daemon.getSchedules().put("hourly", interval(10L));
+    daemon.getSchedules().put("daily", interval(10L));
+    replicationDaemon.run(applicationArguments);
+    replicationDaemon.awaitShutdown();
+    verifyZeroInteractions(locomotive);
+  }
+
+  @Test
+  public void runsEachGroupOnItsSchedule() throws Exception {
+    daemon.getSchedules().put("hourly", interval(10L));
+    daemon.getSchedules().put("daily", cron("0 0 0 * * *"));
+    replicationDaemon.run(applicationArguments);
+
+    verify(locomotive, timeout(5000).atLeastOnce()).replicate(ARGS, Collections.singletonList(hourly));
+  }
+
+  @Test
+  public void defaultGroup() throws Exception {
+    TableReplication ungrouped = new TableReplication();
+    when(locomotive.getTableReplications()).thenReturn(Arrays.asList(ungrouped));
+    daemon.getSchedules().put(Daemon.DEFAULT_SCHEDULE_GROUP, interval(10L));
+    replicationDaemon.run(applicationArguments);
+
+    verify(locomotive, timeout(5000).atLeastOnce()).replicate(ARGS, Collections.singletonList(ungrouped));
+  }
+
+  @Test(timeout = 5000)
+  public void awaitShutdownReturnsOnceDestroyed() throws Exception {
+    daemon.getSchedules().put("hourly", interval(3600000L));
+    daemon.getSchedules().put("daily", interval(3600000L));
+    replicationDaemon.run(applicationArguments);
+    replicationDaemon.destroy();
+    replicationDaemon.awaitShutdown();
+  }
+
+  @Test(expected = CircusTrainException.class)
+  public void missingSchedule() {
+    daemon.getSchedules().put("hourly", interval(10L));
+    replicationDaemon.run(applicationArguments);
+  }
+
+  @Test(expected = CircusTrainException.class)
+  public void scheduleWithCronAndInterval() {
+    DaemonSchedule schedule = cron("0 0 * * * *");
+    schedule.setInterval(10L);
+    daemon.getSchedules().put("hourly", schedule);
+    daemon.getSchedules().put("daily", cron("0 0 0 * * *"));
+    replicationDaemon.run(applicationArguments);
+  }
+
+  @Test(expected = CircusTrainException.class)
+  public void scheduleWithoutCronOrInterval() {
+    daemon.getSchedules().put("hourly", new DaemonSchedule());
+    daemon.getSchedules().put("daily", cron("0 0 0 * * *"));
+    replicationDaemon.run(applicationArguments);
+  }
+
+}
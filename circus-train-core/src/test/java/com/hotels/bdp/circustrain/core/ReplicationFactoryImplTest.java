@@ -16,6 +16,7 @@
 package com.hotels.bdp.circustrain.core;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
@@ -46,6 +47,9 @@ import com.hotels.bdp.circustrain.api.copier.CopierFactory;
 import com.hotels.bdp.circustrain.api.copier.CopierFactoryManager;
 import com.hotels.bdp.circustrain.api.copier.CopierOptions;
 import com.hotels.bdp.circustrain.api.event.CopierListener;
+import com.hotels.bdp.circustrain.core.journal.JournalEntry;
+import com.hotels.bdp.circustrain.core.journal.ReplicationJournal;
+import com.hotels.bdp.circustrain.core.journal.ReplicationPhase;
 import com.hotels.bdp.circustrain.core.replica.Replica;
 import com.hotels.bdp.circustrain.core.replica.ReplicaFactory;
 import com.hotels.bdp.circustrain.core.source.Source;
@@ -75,6 +79,7 @@ public class ReplicationFactoryImplTest {
   private @Mock ReplicaFactory replicaFactory;
   private @Mock SourceFactory sourceFactory;
   private @Mock CopierOptions copierOptions;
+  private @Mock ReplicationJournal replicationJournal;
   private TableReplication tableReplication;
   private ReplicationFactory factory;
 
@@ -100,13 +105,13 @@ public class ReplicationFactoryImplTest {
     when(replicaTable.getTableName()).thenReturn(TABLE);
 
     when(copierFactoryManager.getCopierFactory(any(Path.class), any(Path.class), anyMap())).thenReturn(copierFactory);
-    when(partitionPredicateFactory.newInstance(tableReplication)).thenReturn(partitionPredicate);
+    when(partitionPredicateFactory.newInstance(tableReplication, source, replica)).thenReturn(partitionPredicate);
     when(partitionPredicate.getPartitionPredicate()).thenReturn(PARTITION_PREDICATE);
     when(sourceTable.getPartitionLimit()).thenReturn((short) MAX_PARTITIONS);
     when(replicaFactory.newInstance(tableReplication)).thenReturn(replica);
 
     factory = new ReplicationFactoryImpl(sourceFactory, replicaFactory, copierFactoryManager, copierListener,
-        partitionPredicateFactory, copierOptions);
+        partitionPredicateFactory, copierOptions, replicationJournal);
   }
 
   @Test
@@ -131,6 +136,24 @@ public class ReplicationFactoryImplTest {
     assertThat(replication, is(instanceOf(UnpartitionedTableMetadataMirrorReplication.class)));
   }
 
+  @Test
+  public void resumesCopiedReplicationEventId() throws Exception {
+    when(table.getPartitionKeys()).thenReturn(Arrays.asList(new FieldSchema()));
+    when(replicationJournal.getEntry(DATABASE + "." + TABLE))
+        .thenReturn(new JournalEntry(DATABASE + "." + TABLE, ReplicationPhase.COPIED, "ctp-resumed", "fingerprint"));
+    Replication replication = factory.newInstance(tableReplication);
+    assertThat(replication.getEventId(), is("ctp-resumed"));
+  }
+
+  @Test
+  public void doesNotResumeCommittedReplicationEventId() throws Exception {
+    when(table.getPartitionKeys()).thenReturn(Arrays.asList(new FieldSchema()));
+    when(replicationJournal.getEntry(DATABASE + "." + TABLE))
+        .thenReturn(new JournalEntry(DATABASE + "." + TABLE, ReplicationPhase.COMMITTED, "ctp-resumed", null));
+    Replication replication = factory.newInstance(tableReplication);
+    assertThat(replication.getEventId(), is(not("ctp-resumed")));
+  }
+
   @Test
   public void partitionedTableReplication() throws Exception {
     when(table.getPartitionKeys()).thenReturn(Arrays.asList(new FieldSchema()));
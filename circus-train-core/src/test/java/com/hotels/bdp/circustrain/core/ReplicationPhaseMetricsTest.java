@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class ReplicationPhaseMetricsTest {
+
+  private long nanos;
+  private final Ticker ticker = new Ticker() {
+    @Override
+    public long read() {
+      return nanos;
+    }
+  };
+
+  @After
+  public void end() {
+    ReplicationPhaseMetrics.end();
+  }
+
+  @Test
+  public void phaseTimesAreSummed() {
+    ReplicationPhaseMetrics phaseMetrics = new ReplicationPhaseMetrics(ticker);
+    try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("copy")) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(30);
+    }
+    try (ReplicationPhaseMetrics.Phase phase = phaseMetrics.phase("copy")) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(12);
+    }
+    assertThat(phaseMetrics.getMetrics().get("copy_time"), is(42L));
+  }
+
+  @Test
+  public void counters() {
+    ReplicationPhaseMetrics phaseMetrics = new ReplicationPhaseMetrics(ticker);
+    phaseMetrics.increment("calls");
+    phaseMetrics.add("calls", 2);
+    phaseMetrics.max("batch_size", 10);
+    phaseMetrics.max("batch_size", 4);
+    phaseMetrics.min("limit", 8);
+    phaseMetrics.min("limit", 16);
+
+    Map<String, Long> metrics = phaseMetrics.getMetrics();
+    assertThat(metrics.get("calls"), is(3L));
+    assertThat(metrics.get("batch_size"), is(10L));
+    assertThat(metrics.get("limit"), is(8L));
+    assertThat(phaseMetrics.getBytesReplicated(), is(0L));
+  }
+
+  @Test
+  public void currentIsBoundToThread() throws Exception {
+    final ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.begin();
+    assertThat(ReplicationPhaseMetrics.current(), is(sameInstance(phaseMetrics)));
+
+    Thread other = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        ReplicationPhaseMetrics.current().increment("calls");
+      }
+    });
+    other.start();
+    other.join();
+    assertThat(phaseMetrics.getMetrics().isEmpty(), is(true));
+
+    ReplicationPhaseMetrics.current().increment("calls");
+    assertThat(phaseMetrics.getMetrics().get("calls"), is(1L));
+  }
+
+  @Test
+  public void nothingIsRecordedWithoutReplication() {
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.begin();
+    ReplicationPhaseMetrics.end();
+    ReplicationPhaseMetrics current = ReplicationPhaseMetrics.current();
+    assertThat(current, is(not(sameInstance(phaseMetrics))));
+    current.increment("calls");
+    try (ReplicationPhaseMetrics.Phase phase = current.phase("copy")) {}
+    assertThat(current.getMetrics().isEmpty(), is(true));
+  }
+
+}
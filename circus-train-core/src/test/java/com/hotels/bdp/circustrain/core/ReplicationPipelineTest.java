@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.hotels.bdp.circustrain.api.CircusTrainException;
+import com.hotels.bdp.circustrain.api.Replication;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicationPipelineTest {
+
+  private @Mock StagedReplication stagedReplication;
+  private @Mock Replication replication;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void minimumWorkers() {
+    assertThat(new ReplicationPipeline(0, 0).isEnabled(), is(false));
+    assertThat(new ReplicationPipeline(0, 0).getMinimumWorkers(), is(1));
+    assertThat(new ReplicationPipeline(2, 0).isEnabled(), is(true));
+    assertThat(new ReplicationPipeline(2, 0).getMinimumWorkers(), is(3));
+    assertThat(new ReplicationPipeline(0, 2).getMinimumWorkers(), is(3));
+    assertThat(new ReplicationPipeline(2, 1).getMinimumWorkers(), is(3));
+  }
+
+  @Test
+  public void stagedReplicationCopiesThenCommits() {
+    new ReplicationPipeline(1, 1).replicate(stagedReplication);
+
+    InOrder inOrder = inOrder(stagedReplication);
+    inOrder.verify(stagedReplication).copy();
+    inOrder.verify(stagedReplication).commit();
+    verify(stagedReplication, never()).replicate();
+  }
+
+  @Test
+  public void failedCopyIsNotCommitted() {
+    doThrow(new CircusTrainException("copy failed")).when(stagedReplication).copy();
+    ReplicationPipeline pipeline = new ReplicationPipeline(1, 1);
+    try {
+      pipeline.replicate(stagedReplication);
+      fail("Expected CircusTrainException");
+    } catch (CircusTrainException e) {
+      // expected
+    }
+    verify(stagedReplication, never()).commit();
+
+    // The copy stage must have been released
+    pipeline.replicate(new CountingReplication(new AtomicInteger(), new AtomicInteger()));
+  }
+
+  @Test
+  public void unstagedReplicationIsReplicated() {
+    new ReplicationPipeline(1, 1).replicate(replication);
+
+    verify(replication).replicate();
+  }
+
+  @Test(timeout = 10000)
+  public void copyOfNextTableOverlapsCommitOfPrevious() throws Exception {
+    final ReplicationPipeline pipeline = new ReplicationPipeline(1, 1);
+    final CountDownLatch firstCopied = new CountDownLatch(1);
+    final CountDownLatch secondCopied = new CountDownLatch(1);
+    final AtomicInteger overlapped = new AtomicInteger();
+
+    Future<?> first = executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        pipeline.replicate(new LatchedReplication(firstCopied) {
+          @Override
+          public void commit() {
+            // Only returns once the next table has been copied
+            await(secondCopied);
+            overlapped.incrementAndGet();
+          }
+        });
+      }
+    });
+    Future<?> second = executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        await(firstCopied);
+        pipeline.replicate(new LatchedReplication(secondCopied));
+      }
+    });
+    first.get();
+    second.get();
+
+    assertThat(overlapped.get(), is(1));
+  }
+
+  @Test(timeout = 10000)
+  public void stagesAreBounded() throws Exception {
+    final ReplicationPipeline pipeline = new ReplicationPipeline(1, 1);
+    final AtomicInteger copying = new AtomicInteger();
+    final AtomicInteger maxCopying = new AtomicInteger();
+    Future<?>[] futures = new Future<?>[4];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          pipeline.replicate(new CountingReplication(copying, maxCopying));
+        }
+      });
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+
+    assertThat(maxCopying.get(), is(1));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertTrue(latch.await(5, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static class LatchedReplication implements StagedReplication {
+
+    private final CountDownLatch copied;
+
+    private LatchedReplication(CountDownLatch copied) {
+      this.copied = copied;
+    }
+
+    @Override
+    public void copy() {
+      copied.countDown();
+    }
+
+    @Override
+    public void commit() {}
+
+    @Override
+    public void replicate() {
+      copy();
+      commit();
+    }
+
+    @Override
+    public String name() {
+      return "latched";
+    }
+
+    @Override
+    public String getEventId() {
+      return "event-id";
+    }
+  }
+
+  private static class CountingReplication implements StagedReplication {
+
+    private final AtomicInteger copying;
+    private final AtomicInteger maxCopying;
+
+    private CountingReplication(AtomicInteger copying, AtomicInteger maxCopying) {
+      this.copying = copying;
+      this.maxCopying = maxCopying;
+    }
+
+    @Override
+    public void copy() {
+      int current = copying.incrementAndGet();
+      synchronized (maxCopying) {
+        maxCopying.set(Math.max(maxCopying.get(), current));
+      }
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      copying.decrementAndGet();
+    }
+
+    @Override
+    public void commit() {}
+
+    @Override
+    public void replicate() {
+      copy();
+      commit();
+    }
+
+    @Override
+    public String name() {
+      return "counting";
+    }
+
+    @Override
+    public String getEventId() {
+      return "event-id";
+    }
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.boot.ApplicationArguments;
+import org.yaml.snakeyaml.Yaml;
+
+import com.hotels.bdp.circustrain.api.conf.ReplicationMode;
+import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.api.conf.TableReplications;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicationPlanRunnerTest {
+
+  public @Rule TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private @Mock TableReplications tableReplications;
+  private @Mock TableReplicationOrdering tableReplicationOrdering;
+  private @Mock ReplicationPlanner replicationPlanner;
+  private @Mock ApplicationArguments args;
+
+  private final List<TableReplication> tables = Arrays.asList(new TableReplication(), new TableReplication());
+  private final TablePlan planned = new TablePlan("db.a", "replica_db.a", ReplicationMode.FULL);
+  private final TablePlan failed = new TablePlan("db.b", "replica_db.b", ReplicationMode.FULL);
+  private ReplicationPlanRunner runner;
+
+  @Before
+  public void init() {
+    planned.setPartitionCount(1);
+    planned.addLocation("part=a", "hdfs://table/part=a", 2L, 30L);
+    planned.setEstimatedDurationMillis(3L);
+    failed.setError("boom");
+    when(tableReplications.getTableReplications()).thenReturn(tables);
+    when(tableReplicationOrdering.order(tables)).thenReturn(tables);
+    runner = new ReplicationPlanRunner(tableReplications, tableReplicationOrdering, replicationPlanner);
+  }
+
+  @Test
+  public void notPlanning() {
+    runner.run(args);
+    verifyZeroInteractions(replicationPlanner);
+    assertThat(runner.getExitCode(), is(0));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void writesPlanFile() throws Exception {
+    File planFile = new File(temporaryFolder.getRoot(), "plan.yml");
+    when(args.containsOption(ReplicationPlanRunner.PLAN_OPTION)).thenReturn(true);
+    when(args.getOptionValues(ReplicationPlanRunner.PLAN_OPTION)).thenReturn(Arrays.asList(planFile.getPath()));
+    when(replicationPlanner.plan(tables)).thenReturn(Arrays.asList(planned, failed));
+
+    runner.run(args);
+
+    Map<String, Object> document;
+    try (InputStream input = new FileInputStream(planFile)) {
+      document = (Map<String, Object>) new Yaml().load(input);
+    }
+    assertThat(document.get("bytes"), is((Object) 30));
+    assertThat(document.get("files"), is((Object) 2));
+    assertThat(document.get("estimated-duration-millis"), is((Object) 3));
+    List<Map<String, Object>> tables = (List<Map<String, Object>>) document.get("tables");
+    assertThat(tables.size(), is(2));
+    assertThat(tables.get(0).get("source-table"), is((Object) "db.a"));
+    assertThat(tables.get(1).get("error"), is((Object) "boom"));
+    assertThat(runner.getExitCode(), is(-2));
+  }
+
+}
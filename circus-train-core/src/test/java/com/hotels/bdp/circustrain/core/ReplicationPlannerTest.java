@@ -0,0 +1,301 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.SOURCE_LOCATION;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.SOURCE_TABLE;
+import static com.hotels.bdp.circustrain.core.metastore.HiveEntityFactory.newFieldSchema;
+import static com.hotels.bdp.circustrain.core.metastore.HiveEntityFactory.newPartition;
+import static com.hotels.bdp.circustrain.core.metastore.HiveEntityFactory.newStorageDescriptor;
+import static com.hotels.bdp.circustrain.core.metastore.HiveEntityFactory.newTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.EnvironmentContext;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+
+import com.hotels.bdp.circustrain.api.SourceLocationManager;
+import com.hotels.bdp.circustrain.api.conf.ReplicaTable;
+import com.hotels.bdp.circustrain.api.conf.ReplicationMode;
+import com.hotels.bdp.circustrain.api.conf.SourceTable;
+import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.api.copier.CopierFactory;
+import com.hotels.bdp.circustrain.api.copier.CopierFactoryManager;
+import com.hotels.bdp.circustrain.api.copier.CopierOptions;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathDigest;
+import com.hotels.bdp.circustrain.core.replica.PartitionChecksums;
+import com.hotels.bdp.circustrain.core.replica.Replica;
+import com.hotels.bdp.circustrain.core.replica.ReplicaFactory;
+import com.hotels.bdp.circustrain.core.source.Source;
+import com.hotels.bdp.circustrain.core.source.SourceFactory;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicationPlannerTest {
+
+  private static final String PREDICATE = "part IN ('a', 'b')";
+  private static final String REPLICA_LOCATION = "s3://bucket/replica";
+
+  public @Rule TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private @Mock SourceFactory sourceFactory;
+  private @Mock ReplicaFactory replicaFactory;
+  private @Mock PartitionPredicateFactory partitionPredicateFactory;
+  private @Mock CopierFactoryManager copierFactoryManager;
+  private @Mock CopierOptions copierOptions;
+  private @Mock Source source;
+  private @Mock Replica replica;
+  private @Mock TableAndStatistics tableAndStatistics;
+  private @Mock PartitionPredicate partitionPredicate;
+  private @Mock SourceLocationManager sourceLocationManager;
+  private @Mock CopierFactory copierFactory;
+  private @Mock Supplier<CloseableMetaStoreClient> metaStoreClientSupplier;
+  private @Mock CloseableMetaStoreClient client;
+  private @Mock PathChecksumFunction checksumFunction;
+
+  private final Table sourceTable = new Table();
+  private final TableReplication tableReplication = new TableReplication();
+  private final Partition partitionA = new Partition();
+  private final Partition partitionB = new Partition();
+  private Path tableLocation;
+  private Path partitionALocation;
+  private Path partitionBLocation;
+  private ReplicationPlanner planner;
+
+  @Before
+  public void init() throws Exception {
+    SourceTable configuredSourceTable = new SourceTable();
+    configuredSourceTable.setDatabaseName("db");
+    configuredSourceTable.setTableName("table");
+    ReplicaTable replicaTable = new ReplicaTable();
+    replicaTable.setDatabaseName("replica_db");
+    replicaTable.setTableName("replica_table");
+    replicaTable.setTableLocation(REPLICA_LOCATION);
+    tableReplication.setSourceTable(configuredSourceTable);
+    tableReplication.setReplicaTable(replicaTable);
+    tableReplication.setReplicationMode(ReplicationMode.FULL);
+
+    File tableDir = temporaryFolder.newFolder("table");
+    tableLocation = new Path(tableDir.toURI());
+    partitionALocation = new Path(tableLocation, "part=a");
+    partitionBLocation = new Path(tableLocation, "part=b");
+    write(new File(tableDir, "part=a/file1"), 10);
+    write(new File(tableDir, "part=a/file2"), 20);
+    write(new File(tableDir, "part=b/file1"), 5);
+
+    partitionA.setValues(Arrays.asList("a"));
+    partitionB.setValues(Arrays.asList("b"));
+    sourceTable.setPartitionKeys(Arrays.asList(new FieldSchema("part", "string", null)));
+
+    when(sourceFactory.newInstanceWithoutSnapshots(tableReplication)).thenReturn(source);
+    when(replicaFactory.newInstance(tableReplication)).thenReturn(replica);
+    when(source.getTableAndStatistics(tableReplication)).thenReturn(tableAndStatistics);
+    when(tableAndStatistics.getTable()).thenReturn(sourceTable);
+    when(partitionPredicateFactory.newInstance(tableReplication, source, replica)).thenReturn(partitionPredicate);
+    when(partitionPredicate.getPartitionPredicate()).thenReturn(PREDICATE);
+    when(partitionPredicate.getPartitionPredicateLimit()).thenReturn((short) -1);
+    List<Partition> partitions = Arrays.asList(partitionA, partitionB);
+    when(source.getPartitions(sourceTable, partitionPredicate))
+        .thenReturn(new PartitionsAndStatistics(sourceTable.getPartitionKeys(), partitions,
+            Collections.<String, List<ColumnStatisticsObj>> emptyMap()));
+    when(source.getLocationManager(eq(sourceTable), eq(partitions), anyString(), anyMapOf(String.class,
+        Object.class))).thenReturn(sourceLocationManager);
+    when(sourceLocationManager.getTableLocation()).thenReturn(tableLocation);
+    when(sourceLocationManager.getPartitionLocations()).thenReturn(Arrays.asList(partitionALocation,
+        partitionBLocation));
+    when(copierFactoryManager.getCopierFactory(eq(tableLocation), eq(new Path(REPLICA_LOCATION)),
+        anyMapOf(String.class, Object.class))).thenReturn(copierFactory);
+
+    planner = new ReplicationPlanner(sourceFactory, replicaFactory, partitionPredicateFactory, copierFactoryManager,
+        copierOptions, new Configuration(), 2, 10L);
+  }
+
+  private static void write(File file, int bytes) throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), new String(new char[bytes]).getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void partitionedTable() {
+    TablePlan plan = planner.plan(Arrays.asList(tableReplication)).get(0);
+
+    assertThat(plan.getError(), is(nullValue()));
+    assertThat(plan.getSourceTable(), is("db.table"));
+    assertThat(plan.getReplicaTable(), is("replica_db.replica_table"));
+    assertThat(plan.getPartitionPredicate(), is(PREDICATE));
+    assertThat(plan.getPartitionCount(), is(2));
+    assertThat(plan.getCopierFactory(), is(copierFactory.getClass().getName()));
+    assertThat(plan.getFiles(), is(3L));
+    assertThat(plan.getBytes(), is(35L));
+    assertThat(plan.getEstimatedDurationMillis(), is(3500L));
+
+    @SuppressWarnings("unchecked")
+    List<Map<String, Object>> partitions = (List<Map<String, Object>>) plan.toMap().get("partitions");
+    assertThat(partitions.size(), is(2));
+    assertThat(partitions.get(0).get("name"), is((Object) "part=a"));
+    assertThat(partitions.get(0).get("files"), is((Object) 2L));
+    assertThat(partitions.get(0).get("bytes"), is((Object) 30L));
+    assertThat(partitions.get(1).get("name"), is((Object) "part=b"));
+    assertThat(partitions.get(1).get("bytes"), is((Object) 5L));
+    verify(sourceLocationManager).cleanUpLocations();
+  }
+
+  @Test
+  public void unpartitionedTable() throws Exception {
+    sourceTable.setPartitionKeys(Collections.<FieldSchema> emptyList());
+    when(source.getLocationManager(eq(sourceTable), anyString())).thenReturn(sourceLocationManager);
+
+    TablePlan plan = planner.plan(Arrays.asList(tableReplication)).get(0);
+
+    assertThat(plan.getError(), is(nullValue()));
+    assertThat(plan.getPartitionPredicate(), is(nullValue()));
+    assertThat(plan.getFiles(), is(3L));
+    assertThat(plan.getBytes(), is(35L));
+    assertThat(plan.toMap().containsKey("partitions"), is(false));
+    verify(sourceLocationManager).cleanUpLocations();
+  }
+
+  @Test
+  public void metadataModeDoesNotCopy() throws Exception {
+    tableReplication.setReplicationMode(ReplicationMode.METADATA_UPDATE);
+
+    TablePlan plan = planner.plan(Arrays.asList(tableReplication)).get(0);
+
+    assertThat(plan.getPartitionCount(), is(2));
+    assertThat(plan.getCopierFactory(), is(nullValue()));
+    assertThat(plan.getBytes(), is(0L));
+    verify(source, never()).getLocationManager(eq(sourceTable), anyString());
+  }
+
+  @Test
+  public void tablesArePlannedInDeclaredOrder() throws Exception {
+    TableReplication other = new TableReplication();
+    SourceTable otherSourceTable = new SourceTable();
+    otherSourceTable.setDatabaseName("db");
+    otherSourceTable.setTableName("other");
+    other.setSourceTable(otherSourceTable);
+    other.setReplicaTable(tableReplication.getReplicaTable());
+    when(sourceFactory.newInstanceWithoutSnapshots(other)).thenThrow(new IllegalStateException("other"));
+
+    List<TablePlan> plans = planner.plan(Arrays.asList(other, tableReplication));
+
+    assertThat(plans.size(), is(2));
+    assertThat(plans.get(0).getSourceTable(), is("db.other"));
+    assertThat(plans.get(0).getError(), is(notNullValue()));
+    assertThat(plans.get(1).getSourceTable(), is("db.table"));
+    assertThat(plans.get(1).getError(), is(nullValue()));
+    verify(sourceFactory, never()).newInstance(any(TableReplication.class));
+  }
+
+  @Test
+  public void generatedPartitionFilterDoesNotAlterReplica() throws Exception {
+    Table table = newTable("table", "db", Arrays.asList(newFieldSchema("part")),
+        newStorageDescriptor(temporaryFolder.getRoot(), "col"));
+    List<Partition> partitions = new ArrayList<>();
+    List<String> partitionNames = new ArrayList<>();
+    for (String value : Arrays.asList("a", "b")) {
+      Partition partition = newPartition(table, value);
+      partition.putToParameters(SOURCE_TABLE.parameterName(), "db.table");
+      partition.putToParameters(SOURCE_LOCATION.parameterName(), partition.getSd().getLocation());
+      partition.putToParameters(PARTITION_CHECKSUM.parameterName(), "legacy checksum");
+      partitions.add(partition);
+      partitionNames.add("part=" + value);
+    }
+    when(client.listPartitionNames("db", "table", (short) -1)).thenReturn(partitionNames);
+    when(client.getPartitionsByNames("db", "table", partitionNames)).thenReturn(partitions);
+    when(metaStoreClientSupplier.get()).thenReturn(client);
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.CURRENT_VERSION);
+    when(checksumFunction
+        .checksums(any(Path.class), eq(PathDigest.SERIALIZED_VERSION), eq(PathDigest.CURRENT_VERSION)))
+            .thenReturn(Arrays.asList("legacy checksum", "checksum"));
+    PartitionChecksums partitionChecksums = new PartitionChecksums(checksumFunction,
+        PartitionTaskExecutor.CALLING_THREAD, 1);
+    tableReplication.getSourceTable().setGeneratePartitionFilter(true);
+    tableReplication.setReplicationMode(ReplicationMode.METADATA_UPDATE);
+    when(tableAndStatistics.getTable()).thenReturn(table);
+    when(source.getHiveConf()).thenReturn(new HiveConf());
+    when(source.getMetaStoreClientSupplier()).thenReturn(metaStoreClientSupplier);
+    when(source.getPartitions(eq(table), any(PartitionPredicate.class))).thenReturn(new PartitionsAndStatistics(
+        table.getPartitionKeys(), partitions, Collections.<String, List<ColumnStatisticsObj>> emptyMap()));
+    when(replica.getTableAndStatistics(tableReplication)).thenReturn(tableAndStatistics);
+    when(replica.getMetaStoreClientSupplier()).thenReturn(metaStoreClientSupplier);
+    when(replica.getPartitionChecksums()).thenReturn(Optional.of(partitionChecksums));
+    planner = new ReplicationPlanner(sourceFactory, replicaFactory,
+        new PartitionPredicateFactory(sourceFactory, replicaFactory, null, checksumFunction), copierFactoryManager,
+        copierOptions, new Configuration(), 2, 10L);
+
+    TablePlan plan = planner.plan(Arrays.asList(tableReplication)).get(0);
+
+    assertThat(plan.getError(), is(nullValue()));
+    assertThat(plan.getPartitionPredicate(), is(""));
+    assertThat(partitionChecksums.getUpgrades().size(), is(2));
+    verify(client, never()).alter_partitions(anyString(), anyString(), anyListOf(Partition.class));
+    verify(client, never())
+        .alter_partitions(anyString(), anyString(), anyListOf(Partition.class), any(EnvironmentContext.class));
+  }
+
+  @Test
+  public void errorsAreReportedPerTable() throws Exception {
+    when(sourceLocationManager.getPartitionLocations()).thenReturn(Arrays.asList(partitionALocation,
+        new Path(tableLocation, "part=missing")));
+
+    TablePlan plan = planner.plan(Arrays.asList(tableReplication)).get(0);
+
+    assertThat(plan.getError(), is(notNullValue()));
+    assertThat(plan.toMap().containsKey("bytes"), is(false));
+    verify(sourceLocationManager).cleanUpLocations();
+  }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.hotels.bdp.circustrain.api.conf.ReplicationOrder;
+import com.hotels.bdp.circustrain.api.conf.SourceTable;
+import com.hotels.bdp.circustrain.api.conf.TableReplication;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TableReplicationOrderingTest {
+
+  private @Mock TableSizeEstimator tableSizeEstimator;
+
+  private final TableReplication small = newTableReplication("small", 1);
+  private final TableReplication large = newTableReplication("large", 0);
+  private final TableReplication unknown = newTableReplication("unknown", 0);
+  private final TableReplication medium = newTableReplication("medium", 1);
+  private List<TableReplication> declared;
+
+  private static TableReplication newTableReplication(String tableName, int priority) {
+    SourceTable sourceTable = new SourceTable();
+    sourceTable.setDatabaseName("db");
+    sourceTable.setTableName(tableName);
+    TableReplication tableReplication = new TableReplication();
+    tableReplication.setSourceTable(sourceTable);
+    tableReplication.setPriority(priority);
+    return tableReplication;
+  }
+
+  @Before
+  public void init() {
+    declared = Arrays.asList(small, large, unknown, medium);
+    when(tableSizeEstimator.estimate(small)).thenReturn(10L);
+    when(tableSizeEstimator.estimate(large)).thenReturn(1000L);
+    when(tableSizeEstimator.estimate(unknown)).thenReturn(TableSizeEstimator.UNKNOWN);
+    when(tableSizeEstimator.estimate(medium)).thenReturn(100L);
+  }
+
+  @Test
+  public void declared() {
+    TableReplicationOrdering ordering = new TableReplicationOrdering(ReplicationOrder.DECLARED, tableSizeEstimator, 1);
+    assertThat(ordering.order(declared), is(declared));
+    verifyZeroInteractions(tableSizeEstimator);
+  }
+
+  @Test
+  public void largestFirst() {
+    TableReplicationOrdering ordering = new TableReplicationOrdering(ReplicationOrder.LARGEST_FIRST,
+        tableSizeEstimator, 2);
+    assertThat(ordering.order(declared), is(Arrays.asList(large, medium, small, unknown)));
+    assertThat(declared, is(Arrays.asList(small, large, unknown, medium)));
+  }
+
+  @Test
+  public void priorityKeepsDeclaredOrderForEqualPriorities() {
+    TableReplicationOrdering ordering = new TableReplicationOrdering(ReplicationOrder.PRIORITY, tableSizeEstimator, 1);
+    assertThat(ordering.order(declared), is(Arrays.asList(small, medium, large, unknown)));
+    verifyZeroInteractions(tableSizeEstimator);
+  }
+
+}
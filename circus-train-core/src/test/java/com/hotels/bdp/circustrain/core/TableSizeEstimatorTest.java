@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.common.StatsSetupConst;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.base.Supplier;
+
+import com.hotels.bdp.circustrain.api.conf.SourceTable;
+import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.core.conf.SpringExpressionParser;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TableSizeEstimatorTest {
+
+  private static final String DATABASE = "db";
+  private static final String TABLE = "table";
+
+  public @Rule TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private @Mock Supplier<CloseableMetaStoreClient> metaStoreClientSupplier;
+  private @Mock CloseableMetaStoreClient metaStoreClient;
+  private @Mock SpringExpressionParser expressionParser;
+
+  private final TableReplication tableReplication = new TableReplication();
+  private final SourceTable sourceTable = new SourceTable();
+  private final Table table = new Table();
+  private File tableLocation;
+  private TableSizeEstimator estimator;
+
+  @Before
+  public void init() throws Exception {
+    tableLocation = temporaryFolder.newFolder("table");
+    File partition = new File(tableLocation, "p=1");
+    partition.mkdir();
+    Files.write(new File(partition, "file1").toPath(), new byte[10]);
+    Files.write(new File(tableLocation, "file2").toPath(), new byte[5]);
+
+    sourceTable.setDatabaseName(DATABASE);
+    sourceTable.setTableName(TABLE);
+    tableReplication.setSourceTable(sourceTable);
+    table.setSd(new StorageDescriptor());
+    table.getSd().setLocation(tableLocation.toURI().toString());
+
+    when(metaStoreClientSupplier.get()).thenReturn(metaStoreClient);
+    when(metaStoreClient.getTable(DATABASE, TABLE)).thenReturn(table);
+    estimator = new TableSizeEstimator(new Configuration(false), metaStoreClientSupplier, expressionParser);
+  }
+
+  @Test
+  public void tableLocationFromMetastore() {
+    assertThat(estimator.estimate(tableReplication), is(15L));
+  }
+
+  @Test
+  public void configuredTableLocation() {
+    sourceTable.setTableLocation(new File(tableLocation, "p=1").toURI().toString());
+    assertThat(estimator.estimate(tableReplication), is(10L));
+  }
+
+  @Test
+  public void totalSizeFromMetastore() {
+    table.putToParameters(StatsSetupConst.TOTAL_SIZE, "100");
+    assertThat(estimator.estimate(tableReplication), is(100L));
+  }
+
+  @Test
+  public void zeroTotalSizeWithoutFileCountIsIgnored() {
+    table.putToParameters(StatsSetupConst.TOTAL_SIZE, "0");
+    assertThat(estimator.estimate(tableReplication), is(15L));
+  }
+
+  @Test
+  public void onlyFilteredPartitions() throws Exception {
+    table.addToPartitionKeys(new FieldSchema("p", "int", null));
+    sourceTable.setPartitionFilter("p > #{1}");
+    sourceTable.setPartitionLimit((short) 10);
+    when(expressionParser.parse("p > #{1}")).thenReturn("p > 1");
+    Partition withStatistics = new Partition();
+    withStatistics.putToParameters(StatsSetupConst.TOTAL_SIZE, "100");
+    Partition withoutStatistics = new Partition();
+    withoutStatistics.setSd(new StorageDescriptor());
+    withoutStatistics.getSd().setLocation(new File(tableLocation, "p=1").toURI().toString());
+    when(metaStoreClient.listPartitionsByFilter(DATABASE, TABLE, "p > 1", (short) 10))
+        .thenReturn(Arrays.asList(withStatistics, withoutStatistics));
+
+    assertThat(estimator.estimate(tableReplication), is(110L));
+    verify(metaStoreClient).listPartitionsByFilter(DATABASE, TABLE, "p > 1", (short) 10);
+  }
+
+  @Test
+  public void view() {
+    table.getSd().setLocation(null);
+    assertThat(estimator.estimate(tableReplication), is(0L));
+  }
+
+  @Test
+  public void unknown() throws Exception {
+    when(metaStoreClient.getTable(DATABASE, TABLE)).thenThrow(new NoSuchObjectException());
+    assertThat(estimator.estimate(tableReplication), is(TableSizeEstimator.UNKNOWN));
+  }
+
+}
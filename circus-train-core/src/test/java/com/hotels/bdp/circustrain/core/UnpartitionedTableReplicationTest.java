@@ -18,7 +18,11 @@ package com.hotels.bdp.circustrain.core;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.Map;
@@ -40,6 +44,7 @@ import com.hotels.bdp.circustrain.api.copier.CopierFactory;
 import com.hotels.bdp.circustrain.api.copier.CopierFactoryManager;
 import com.hotels.bdp.circustrain.api.event.CopierListener;
 import com.hotels.bdp.circustrain.api.metrics.Metrics;
+import com.hotels.bdp.circustrain.core.journal.TableReplicationJournal;
 import com.hotels.bdp.circustrain.core.replica.Replica;
 import com.hotels.bdp.circustrain.core.replica.TableType;
 import com.hotels.bdp.circustrain.core.source.Source;
@@ -77,6 +82,8 @@ public class UnpartitionedTableReplicationTest {
   private ReplicaLocationManager replicaLocationManager;
   @Mock
   private CopierListener listener;
+  @Mock
+  private TableReplicationJournal journal;
 
   private final Path sourceTableLocation = new Path("sourceTableLocation");
   private final Path replicaTableLocation = new Path("replicaTableLocation");
@@ -101,7 +108,7 @@ public class UnpartitionedTableReplicationTest {
     when(replica.getLocationManager(TableType.UNPARTITIONED, targetTableLoation, EVENT_ID, sourceLocationManager))
         .thenReturn(replicaLocationManager);
     UnpartitionedTableReplication replication = new UnpartitionedTableReplication(DATABASE, TABLE, source, replica,
-        copierFactoryManager, eventIdFactory, targetTableLoation, DATABASE, TABLE, copierOptions, listener);
+        copierFactoryManager, eventIdFactory, targetTableLoation, DATABASE, TABLE, copierOptions, listener, journal);
     replication.replicate();
 
     InOrder replicationOrder = inOrder(copierFactoryManager, copierFactory, copier, sourceLocationManager, replica,
@@ -123,6 +130,25 @@ public class UnpartitionedTableReplicationTest {
     replicationOrder.verify(replicaLocationManager).cleanUpLocations();
   }
 
+  @Test
+  public void resumeAfterCopy() throws Exception {
+    when(replica.getLocationManager(TableType.UNPARTITIONED, targetTableLoation, EVENT_ID, sourceLocationManager))
+        .thenReturn(replicaLocationManager);
+    when(journal.isCopied(eq(EVENT_ID), anyString())).thenReturn(true);
+    UnpartitionedTableReplication replication = new UnpartitionedTableReplication(DATABASE, TABLE, source, replica,
+        copierFactoryManager, eventIdFactory, targetTableLoation, DATABASE, TABLE, copierOptions, listener, journal);
+    replication.replicate();
+
+    verifyZeroInteractions(copierFactoryManager, copier, listener);
+    verify(journal, never()).copied(anyString(), anyString());
+    InOrder replicationOrder = inOrder(sourceLocationManager, replica, replicaLocationManager);
+    replicationOrder.verify(sourceLocationManager).cleanUpLocations();
+    replicationOrder
+        .verify(replica)
+        .updateMetadata(EVENT_ID, sourceTableAndStatistics, DATABASE, TABLE, replicaLocationManager);
+    replicationOrder.verify(replicaLocationManager).cleanUpLocations();
+  }
+
   @Test
   public void mappedNames() throws Exception {
     when(replica.getLocationManager(TableType.UNPARTITIONED, targetTableLoation, EVENT_ID, sourceLocationManager))
@@ -130,7 +156,7 @@ public class UnpartitionedTableReplicationTest {
 
     UnpartitionedTableReplication replication = new UnpartitionedTableReplication(DATABASE, TABLE, source, replica,
         copierFactoryManager, eventIdFactory, targetTableLoation, MAPPED_DATABASE, MAPPED_TABLE, copierOptions,
-        listener);
+        listener, journal);
     replication.replicate();
 
     InOrder replicationOrder = inOrder(copierFactoryManager, copierFactory, copier, sourceLocationManager, replica,
@@ -158,7 +184,7 @@ public class UnpartitionedTableReplicationTest {
     when(copier.copy()).thenThrow(new CircusTrainException("copy failed"));
 
     UnpartitionedTableReplication replication = new UnpartitionedTableReplication(DATABASE, TABLE, source, replica,
-        copierFactoryManager, eventIdFactory, targetTableLoation, DATABASE, TABLE, copierOptions, listener);
+        copierFactoryManager, eventIdFactory, targetTableLoation, DATABASE, TABLE, copierOptions, listener, journal);
     try {
       replication.replicate();
       fail("Copy exception should be caught and rethrown");
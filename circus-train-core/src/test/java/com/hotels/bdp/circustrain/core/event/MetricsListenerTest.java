@@ -19,11 +19,14 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
@@ -68,7 +71,7 @@ public class MetricsListenerTest {
     when(tableReplication.getQualifiedReplicaName()).thenReturn(TARGET);
     when(scheduledReporterFactory.newInstance(anyString())).thenReturn(scheduledReporter);
 
-    listener = new MetricsListener(metricSender, scheduledReporterFactory, 2, TimeUnit.SECONDS);
+    listener = new MetricsListener(metricSender, scheduledReporterFactory, 2, TimeUnit.SECONDS, true);
   }
 
   @Test
@@ -115,6 +118,25 @@ public class MetricsListenerTest {
     assertThat(metrics.get("target.bytes_replicated"), is(0L));
   }
 
+  @Test
+  public void phaseMetricsAreSent() {
+    Metrics phaseMetrics = mock(Metrics.class);
+    when(phaseMetrics.getMetrics())
+        .thenReturn(ImmutableMap.<String, Long> of("copy_time", 120L, "replica_metastore_calls", 7L));
+
+    listener.tableReplicationStart(tableReplication, "eventId");
+    listener.copierStart("");
+    listener.copierEnd(metrics);
+    listener.tableReplicationPhaseMetrics(tableReplication, "eventId", phaseMetrics);
+    listener.tableReplicationFailure(tableReplication, "event-id", new RuntimeException());
+
+    verify(metricSender).send(metricsCaptor.capture());
+    Map<String, Long> metrics = metricsCaptor.getValue();
+    assertThat(metrics.size(), is(5));
+    assertThat(metrics.get("target.phase.copy_time"), is(120L));
+    assertThat(metrics.get("target.phase.replica_metastore_calls"), is(7L));
+  }
+
   @Test
   public void failureWithoutStartOrSuccessDoesntThrowException() {
     Throwable throwable = new Throwable("Test");
@@ -129,4 +151,67 @@ public class MetricsListenerTest {
     assertThat(metrics.get("target.bytes_replicated"), is(0L));
   }
 
+  @Test
+  public void concurrentReplicationsDoNotShareState() throws Exception {
+    final EventTableReplication otherTableReplication = mock(EventTableReplication.class);
+    when(otherTableReplication.getQualifiedReplicaName()).thenReturn("other");
+    final Metrics otherMetrics = mock(Metrics.class);
+    when(otherMetrics.getBytesReplicated()).thenReturn(7L);
+    when(metrics.getBytesReplicated()).thenReturn(13L);
+
+    listener.tableReplicationStart(tableReplication, "eventId");
+    listener.copierStart("");
+    final CountDownLatch otherDone = new CountDownLatch(1);
+    Thread other = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        listener.tableReplicationStart(otherTableReplication, "otherEventId");
+        listener.copierStart("");
+        listener.copierEnd(otherMetrics);
+        listener.tableReplicationSuccess(otherTableReplication, "otherEventId");
+        otherDone.countDown();
+      }
+    });
+    other.start();
+    otherDone.await(10, TimeUnit.SECONDS);
+    listener.copierEnd(metrics);
+    listener.tableReplicationSuccess(tableReplication, "eventId");
+
+    verify(metricSender, times(2)).send(metricsCaptor.capture());
+    Map<String, Long> otherSent = metricsCaptor.getAllValues().get(0);
+    assertThat(otherSent.get("other.bytes_replicated"), is(7L));
+    Map<String, Long> sent = metricsCaptor.getAllValues().get(1);
+    assertThat(sent.get("target.bytes_replicated"), is(13L));
+    assertThat(sent.get("target.replication_time"), greaterThanOrEqualTo(0L));
+  }
+
+  @Test
+  public void runningMetricsAreNotReportedWhenDisabled() {
+    listener = new MetricsListener(metricSender, scheduledReporterFactory, 2, TimeUnit.SECONDS, false);
+    when(metrics.getBytesReplicated()).thenReturn(13L);
+
+    listener.tableReplicationStart(tableReplication, "eventId");
+    listener.copierStart("");
+    listener.copierEnd(metrics);
+    listener.tableReplicationSuccess(tableReplication, "eventId");
+
+    verify(scheduledReporterFactory, never()).newInstance(anyString());
+    verify(metricSender).send(metricsCaptor.capture());
+    assertThat(metricsCaptor.getValue().get("target.bytes_replicated"), is(13L));
+  }
+
+  @Test
+  public void stateIsClearedAfterEachTable() {
+    Metrics phaseMetrics = mock(Metrics.class);
+    when(phaseMetrics.getMetrics()).thenReturn(ImmutableMap.<String, Long> of("copy_time", 120L));
+    listener.tableReplicationStart(tableReplication, "eventId");
+    listener.tableReplicationPhaseMetrics(tableReplication, "eventId", phaseMetrics);
+    listener.tableReplicationSuccess(tableReplication, "eventId");
+
+    listener.tableReplicationFailure(tableReplication, "eventId", new RuntimeException());
+
+    verify(metricSender, times(2)).send(metricsCaptor.capture());
+    assertThat(metricsCaptor.getAllValues().get(1).containsKey("target.phase.copy_time"), is(false));
+  }
+
 }
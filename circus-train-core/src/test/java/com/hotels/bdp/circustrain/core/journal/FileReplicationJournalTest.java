@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileReplicationJournalTest {
+
+  private static final String TABLE_1 = "db.table1";
+  private static final String TABLE_2 = "db.table2";
+
+  public @Rule TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File file;
+
+  @Before
+  public void init() {
+    file = new File(temporaryFolder.getRoot(), "journal");
+  }
+
+  @Test
+  public void emptyWhenFileDoesNotExist() {
+    FileReplicationJournal journal = new FileReplicationJournal(file);
+    assertThat(journal.getEntry(TABLE_1), is(nullValue()));
+    assertThat(file.exists(), is(false));
+  }
+
+  @Test
+  public void entriesSurviveRestart() {
+    FileReplicationJournal journal = new FileReplicationJournal(file);
+    journal.record(new JournalEntry(TABLE_1, ReplicationPhase.COPIED, "event1", "fingerprint"));
+    journal.record(new JournalEntry(TABLE_2, ReplicationPhase.COMMITTED, "event2", null));
+
+    FileReplicationJournal restarted = new FileReplicationJournal(file);
+    JournalEntry entry1 = restarted.getEntry(TABLE_1);
+    assertThat(entry1.getPhase(), is(ReplicationPhase.COPIED));
+    assertThat(entry1.getEventId(), is("event1"));
+    assertThat(entry1.getFingerprint(), is("fingerprint"));
+    JournalEntry entry2 = restarted.getEntry(TABLE_2);
+    assertThat(entry2.getPhase(), is(ReplicationPhase.COMMITTED));
+    assertThat(entry2.getEventId(), is("event2"));
+    assertThat(entry2.getFingerprint(), is(nullValue()));
+  }
+
+  @Test
+  public void latestEntryWins() {
+    FileReplicationJournal journal = new FileReplicationJournal(file);
+    journal.record(new JournalEntry(TABLE_1, ReplicationPhase.COPIED, "event1", "fingerprint"));
+    journal.record(new JournalEntry(TABLE_1, ReplicationPhase.COMMITTED, "event1", null));
+
+    assertThat(journal.getEntry(TABLE_1).getPhase(), is(ReplicationPhase.COMMITTED));
+    assertThat(new FileReplicationJournal(file).getEntry(TABLE_1).getPhase(), is(ReplicationPhase.COMMITTED));
+  }
+
+  @Test
+  public void truncatedEntryIsIgnored() throws Exception {
+    FileReplicationJournal journal = new FileReplicationJournal(file);
+    journal.record(new JournalEntry(TABLE_1, ReplicationPhase.COMMITTED, "event1", null));
+    Files.write(file.toPath(), (TABLE_2 + "\tCOPI").getBytes(UTF_8), StandardOpenOption.APPEND);
+
+    FileReplicationJournal restarted = new FileReplicationJournal(file);
+    assertThat(restarted.getEntry(TABLE_1).getPhase(), is(ReplicationPhase.COMMITTED));
+    assertThat(restarted.getEntry(TABLE_2), is(nullValue()));
+  }
+
+  @Test
+  public void clearSomeTables() {
+    FileReplicationJournal journal = new FileReplicationJournal(file);
+    journal.record(new JournalEntry(TABLE_1, ReplicationPhase.COMMITTED, "event1", null));
+    journal.record(new JournalEntry(TABLE_2, ReplicationPhase.COMMITTED, "event2", null));
+    journal.clear(Collections.singletonList(TABLE_1));
+
+    assertThat(journal.getEntry(TABLE_1), is(nullValue()));
+    FileReplicationJournal restarted = new FileReplicationJournal(file);
+    assertThat(restarted.getEntry(TABLE_1), is(nullValue()));
+    assertThat(restarted.getEntry(TABLE_2).getEventId(), is("event2"));
+  }
+
+  @Test
+  public void clearAllTablesDeletesFile() {
+    FileReplicationJournal journal = new FileReplicationJournal(file);
+    journal.record(new JournalEntry(TABLE_1, ReplicationPhase.COMMITTED, "event1", null));
+    journal.record(new JournalEntry(TABLE_2, ReplicationPhase.COMMITTED, "event2", null));
+    journal.clear(Arrays.asList(TABLE_1, TABLE_2));
+
+    assertThat(file.exists(), is(false));
+  }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.journal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.hive.common.StatsSetupConst;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TableReplicationJournalTest {
+
+  private static final String TABLE = "db.table";
+
+  private @Mock ReplicationJournal replicationJournal;
+
+  private static Table newTable(String location) {
+    Table table = new Table();
+    table.setSd(new StorageDescriptor());
+    table.getSd().setLocation(location);
+    return table;
+  }
+
+  private static Partition newPartition(String location) {
+    Partition partition = new Partition();
+    partition.setSd(new StorageDescriptor());
+    partition.getSd().setLocation(location);
+    return partition;
+  }
+
+  @Test
+  public void resumableEventId() {
+    when(replicationJournal.getEntry(TABLE))
+        .thenReturn(new JournalEntry(TABLE, ReplicationPhase.COPIED, "event", "fingerprint"));
+    TableReplicationJournal journal = new TableReplicationJournal(replicationJournal, TABLE);
+    assertThat(journal.getResumableEventId(), is("event"));
+    assertThat(journal.isCopied("event", "fingerprint"), is(true));
+    assertThat(journal.isCopied("event", "other"), is(false));
+    assertThat(journal.isCopied("other", "fingerprint"), is(false));
+  }
+
+  @Test
+  public void committedIsNotResumable() {
+    when(replicationJournal.getEntry(TABLE))
+        .thenReturn(new JournalEntry(TABLE, ReplicationPhase.COMMITTED, "event", null));
+    TableReplicationJournal journal = new TableReplicationJournal(replicationJournal, TABLE);
+    assertThat(journal.getResumableEventId(), is(nullValue()));
+    assertThat(journal.isCopied("event", null), is(false));
+  }
+
+  @Test
+  public void nullJournal() {
+    assertThat(TableReplicationJournal.NULL.getResumableEventId(), is(nullValue()));
+    assertThat(TableReplicationJournal.NULL.isCopied("event", "fingerprint"), is(false));
+    TableReplicationJournal.NULL.copied("event", "fingerprint");
+  }
+
+  @Test
+  public void fingerprintIgnoresPartitionOrder() {
+    Table table = newTable("hdfs://source/table");
+    Partition a = newPartition("hdfs://source/table/a");
+    Partition b = newPartition("hdfs://source/table/b");
+    assertThat(TableReplicationJournal.fingerprint(table, Arrays.asList(a, b)),
+        is(TableReplicationJournal.fingerprint(table, Arrays.asList(b, a))));
+  }
+
+  @Test
+  public void fingerprintChangesWithPartitions() {
+    Table table = newTable("hdfs://source/table");
+    Partition a = newPartition("hdfs://source/table/a");
+    Partition b = newPartition("hdfs://source/table/b");
+    assertThat(TableReplicationJournal.fingerprint(table, Arrays.asList(a)),
+        is(not(TableReplicationJournal.fingerprint(table, Arrays.asList(a, b)))));
+    assertThat(TableReplicationJournal.fingerprint(table, Collections.<Partition> emptyList()),
+        is(not(TableReplicationJournal.fingerprint(newTable("hdfs://source/other"),
+            Collections.<Partition> emptyList()))));
+  }
+
+  @Test
+  public void fingerprintChangesWhenDataIsRewrittenInPlace() {
+    Table table = newTable("hdfs://source/table");
+    Partition before = newPartition("hdfs://source/table/a");
+    before.putToParameters(hive_metastoreConstants.DDL_TIME, "1");
+    before.putToParameters(StatsSetupConst.TOTAL_SIZE, "10");
+    Partition after = newPartition("hdfs://source/table/a");
+    after.putToParameters(hive_metastoreConstants.DDL_TIME, "2");
+    after.putToParameters(StatsSetupConst.TOTAL_SIZE, "20");
+    assertThat(TableReplicationJournal.fingerprint(table, Arrays.asList(before)),
+        is(not(TableReplicationJournal.fingerprint(table, Arrays.asList(after)))));
+
+    Table rewritten = newTable("hdfs://source/table");
+    rewritten.putToParameters(hive_metastoreConstants.DDL_TIME, "2");
+    assertThat(TableReplicationJournal.fingerprint(table, Collections.<Partition> emptyList()),
+        is(not(TableReplicationJournal.fingerprint(rewritten, Collections.<Partition> emptyList()))));
+  }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.metastore;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.base.Supplier;
+
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CountingMetaStoreClientSupplierTest {
+
+  private @Mock Supplier<CloseableMetaStoreClient> delegate;
+  private @Mock CloseableMetaStoreClient client;
+
+  private CountingMetaStoreClientSupplier supplier;
+  private ReplicationPhaseMetrics phaseMetrics;
+
+  @Before
+  public void init() {
+    when(delegate.get()).thenReturn(client);
+    supplier = new CountingMetaStoreClientSupplier(delegate, "replica");
+    phaseMetrics = ReplicationPhaseMetrics.begin();
+  }
+
+  @After
+  public void end() {
+    ReplicationPhaseMetrics.end();
+  }
+
+  @Test
+  public void callsAreCounted() throws Exception {
+    when(client.getTable("db", "missing")).thenThrow(new NoSuchObjectException());
+    try (CloseableMetaStoreClient counted = supplier.get()) {
+      counted.getAllDatabases();
+      try {
+        counted.getTable("db", "missing");
+        fail("Expected NoSuchObjectException");
+      } catch (NoSuchObjectException e) {
+        // expected
+      }
+    }
+    verify(client).getAllDatabases();
+    verify(client).close();
+    Map<String, Long> metrics = phaseMetrics.getMetrics();
+    assertThat(metrics.size(), is(1));
+    assertThat(metrics.get("replica_metastore_calls"), is(2L));
+  }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.metastore;
+
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.base.Supplier;
+
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GovernedMetaStoreClientSupplierTest {
+
+  private @Mock Supplier<CloseableMetaStoreClient> delegate;
+  private @Mock CloseableMetaStoreClient client;
+  private @Mock MetastoreCallGovernor governor;
+
+  private GovernedMetaStoreClientSupplier supplier;
+
+  @Before
+  public void init() {
+    when(delegate.get()).thenReturn(client);
+    supplier = new GovernedMetaStoreClientSupplier(delegate, governor);
+  }
+
+  @Test
+  public void callsAreGoverned() throws Exception {
+    supplier.get().getAllDatabases();
+
+    InOrder inOrder = inOrder(governor, client);
+    inOrder.verify(governor).acquire();
+    inOrder.verify(client).getAllDatabases();
+    inOrder.verify(governor).release(anyLong(), eq(1), eq(false));
+  }
+
+  @Test
+  public void transportErrorIsReportedAsFailure() throws Exception {
+    MetaException wrapped = new MetaException("wrapped");
+    wrapped.initCause(new TTransportException());
+    when(client.getAllDatabases()).thenThrow(wrapped);
+    try {
+      supplier.get().getAllDatabases();
+      fail("Expected MetaException");
+    } catch (MetaException e) {
+      // expected
+    }
+    verify(governor).release(anyLong(), eq(1), eq(true));
+  }
+
+  @Test
+  public void applicationErrorIsNotReportedAsFailure() throws Exception {
+    when(client.getDatabase("db")).thenThrow(new NoSuchObjectException());
+    try {
+      supplier.get().getDatabase("db");
+      fail("Expected NoSuchObjectException");
+    } catch (NoSuchObjectException e) {
+      // expected
+    }
+    verify(governor).release(anyLong(), eq(1), eq(false));
+  }
+
+  @Test
+  public void batchSizeIsTheLargestCollection() throws Exception {
+    List<Partition> partitions = Arrays.asList(new Partition(), new Partition(), new Partition());
+    supplier.get().add_partitions(partitions, true, true);
+    verify(governor).release(anyLong(), eq(3), eq(false));
+
+    when(client.getPartitionsByNames("db", "table", Arrays.asList("a=1", "a=2")))
+        .thenReturn(Arrays.asList(new Partition(), new Partition()));
+    supplier.get().getPartitionsByNames("db", "table", Arrays.asList("a=1", "a=2"));
+    verify(governor).release(anyLong(), eq(2), eq(false));
+  }
+
+  @Test
+  public void closeIsNotGoverned() throws Exception {
+    supplier.get().close();
+
+    verify(client).close();
+    verifyZeroInteractions(governor);
+  }
+
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.metastore;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+import com.hotels.bdp.circustrain.api.conf.MetastoreGovernor;
+import com.hotels.bdp.circustrain.api.metrics.MetricSender;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MetastoreCallGovernorTest {
+
+  private static final long TARGET_LATENCY_MILLIS = 2000L;
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(TARGET_LATENCY_MILLIS + 1);
+
+  private @Mock MetricSender metricSender;
+
+  private final FakeTicker ticker = new FakeTicker();
+  private final MetastoreGovernor conf = new MetastoreGovernor();
+  private MetastoreCallGovernor governor;
+
+  private static class FakeTicker extends Ticker {
+    long nanos = 0;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long millis) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+  }
+
+  @Before
+  public void init() {
+    conf.setMinInFlight(2);
+    conf.setMaxInFlight(16);
+    conf.setMinCallsPerSecond(10);
+    conf.setMaxCallsPerSecond(100);
+    conf.setTargetLatency(TARGET_LATENCY_MILLIS);
+    conf.setBackoffRatio(0.5);
+    governor = new MetastoreCallGovernor("catalog", conf, metricSender, ticker);
+  }
+
+  private void call(long latencyNanos, boolean failed) throws InterruptedException {
+    governor.acquire();
+    governor.release(latencyNanos, failed);
+  }
+
+  @Test
+  public void startsAtMaximumLimits() {
+    assertThat(governor.getInFlightLimit(), is(16));
+    assertThat(governor.getCallsPerSecondLimit(), is(100));
+    verify(metricSender)
+        .send(ImmutableMap
+            .of("catalog.metastore_governor.max_in_flight", 16L, "catalog.metastore_governor.max_calls_per_second",
+                100L));
+  }
+
+  @Test
+  public void slowCallDecreasesLimits() throws Exception {
+    call(SLOW, false);
+
+    assertThat(governor.getInFlightLimit(), is(8));
+    assertThat(governor.getCallsPerSecondLimit(), is(50));
+    assertThat(governor.getInFlight(), is(0));
+    verify(metricSender)
+        .send(ImmutableMap
+            .of("catalog.metastore_governor.max_in_flight", 8L, "catalog.metastore_governor.max_calls_per_second",
+                50L));
+  }
+
+  @Test
+  public void batchLatencyIsDividedByBatchSize() throws Exception {
+    governor.acquire();
+    governor.release(SLOW * 10, 100, false);
+    assertThat(governor.getInFlightLimit(), is(16));
+
+    governor.acquire();
+    governor.release(SLOW * 10, 5, false);
+    assertThat(governor.getInFlightLimit(), is(8));
+  }
+
+  @Test
+  public void failedCallDecreasesLimits() throws Exception {
+    call(FAST, true);
+
+    assertThat(governor.getInFlightLimit(), is(8));
+    assertThat(governor.getCallsPerSecondLimit(), is(50));
+  }
+
+  @Test
+  public void decreasesAtMostOncePerTargetLatency() throws Exception {
+    call(SLOW, false);
+    call(SLOW, false);
+    assertThat(governor.getInFlightLimit(), is(8));
+
+    ticker.advance(TARGET_LATENCY_MILLIS);
+    call(SLOW, false);
+    assertThat(governor.getInFlightLimit(), is(4));
+    assertThat(governor.getCallsPerSecondLimit(), is(25));
+  }
+
+  @Test
+  public void limitsNeverDropBelowMinimum() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      ticker.advance(TARGET_LATENCY_MILLIS);
+      call(FAST, true);
+    }
+
+    assertThat(governor.getInFlightLimit(), is(2));
+    assertThat(governor.getCallsPerSecondLimit(), is(10));
+  }
+
+  @Test
+  public void fastCallsIncreaseLimitsUpToMaximum() throws Exception {
+    call(SLOW, false);
+    for (int i = 0; i < 20; i++) {
+      call(FAST, false);
+    }
+    assertThat(governor.getInFlightLimit(), is(10));
+    assertThat(governor.getCallsPerSecondLimit(), is(52));
+
+    for (int i = 0; i < 10000; i++) {
+      governor.release(FAST, false);
+      governor.acquire();
+    }
+    assertThat(governor.getInFlightLimit(), is(16));
+    assertThat(governor.getCallsPerSecondLimit(), is(100));
+  }
+
+  @Test(timeout = 10000)
+  public void acquireBlocksAtInFlightLimit() throws Exception {
+    conf.setMinInFlight(1);
+    conf.setMaxInFlight(1);
+    governor = new MetastoreCallGovernor("catalog", conf, metricSender, ticker);
+    governor.acquire();
+
+    final CountDownLatch acquired = new CountDownLatch(1);
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          governor.acquire();
+          acquired.countDown();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    thread.start();
+    assertThat(acquired.await(100, TimeUnit.MILLISECONDS), is(false));
+
+    governor.release(FAST, false);
+    assertTrue(acquired.await(5, TimeUnit.SECONDS));
+    assertThat(governor.getInFlight(), is(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidBackoffRatio() {
+    conf.setBackoffRatio(1.0);
+    new MetastoreCallGovernor("catalog", conf, metricSender, ticker);
+  }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.metastore;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PooledMetaStoreClientSupplierTest {
+
+  private static final long IDLE_TIMEOUT_MILLIS = 1000L;
+
+  private @Mock Supplier<CloseableMetaStoreClient> delegate;
+  private @Mock CloseableMetaStoreClient client1;
+  private @Mock CloseableMetaStoreClient client2;
+  private @Mock CloseableMetaStoreClient client3;
+
+  private final FakeTicker ticker = new FakeTicker();
+  private PooledMetaStoreClientSupplier supplier;
+
+  private static class FakeTicker extends Ticker {
+    long nanos = 0;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long millis) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+  }
+
+  @Before
+  public void init() {
+    when(delegate.get()).thenReturn(client1, client2, client3);
+    supplier = new PooledMetaStoreClientSupplier(delegate, "catalog", 1, IDLE_TIMEOUT_MILLIS, true, ticker);
+  }
+
+  @Test
+  public void reusesReturnedClient() throws Exception {
+    try (CloseableMetaStoreClient client = supplier.get()) {
+      client.getAllDatabases();
+    }
+    try (CloseableMetaStoreClient client = supplier.get()) {
+      client.getAllDatabases();
+    }
+    verify(delegate, times(1)).get();
+    verify(client1, times(2)).getAllDatabases();
+    verify(client1).getDatabases("default");
+    verify(client1, never()).close();
+    assertThat(supplier.getIdleCount(), is(1));
+  }
+
+  @Test
+  public void createsNewClientWhenNoneIdle() throws Exception {
+    CloseableMetaStoreClient first = supplier.get();
+    CloseableMetaStoreClient second = supplier.get();
+    first.getAllDatabases();
+    second.getAllDatabases();
+    verify(client1).getAllDatabases();
+    verify(client2).getAllDatabases();
+
+    first.close();
+    second.close();
+    // max size is 1 so the second client is not kept
+    verify(client1, never()).close();
+    verify(client2).close();
+    assertThat(supplier.getIdleCount(), is(1));
+  }
+
+  @Test
+  public void evictsIdleClients() throws Exception {
+    supplier.get().close();
+    ticker.advance(IDLE_TIMEOUT_MILLIS);
+    try (CloseableMetaStoreClient client = supplier.get()) {
+      client.getAllDatabases();
+    }
+    verify(client1).close();
+    verify(client2).getAllDatabases();
+  }
+
+  @Test
+  public void discardsUnhealthyClients() throws Exception {
+    when(client1.getDatabases("default")).thenThrow(new TTransportException());
+    supplier.get().close();
+    try (CloseableMetaStoreClient client = supplier.get()) {
+      client.getAllDatabases();
+    }
+    verify(client1).close();
+    verify(client2).getAllDatabases();
+  }
+
+  @Test
+  public void healthCheckCanBeDisabled() throws Exception {
+    supplier = new PooledMetaStoreClientSupplier(delegate, "catalog", 1, IDLE_TIMEOUT_MILLIS, false, ticker);
+    supplier.get().close();
+    supplier.get().close();
+    verify(delegate, times(1)).get();
+    verify(client1, never()).getDatabases("default");
+  }
+
+  @Test
+  public void brokenClientsAreNotReturned() throws Exception {
+    MetaException wrappedTransportException = new MetaException("wrapped");
+    wrappedTransportException.initCause(new TTransportException());
+    when(client1.getAllDatabases()).thenThrow(wrappedTransportException);
+    try (CloseableMetaStoreClient client = supplier.get()) {
+      client.getAllDatabases();
+      fail();
+    } catch (MetaException e) {
+      // expected
+    }
+    verify(client1).close();
+    assertThat(supplier.getIdleCount(), is(0));
+  }
+
+  @Test
+  public void nonTransportFailuresKeepClient() throws Exception {
+    when(client1.getAllDatabases()).thenThrow(new MetaException("boom"));
+    try (CloseableMetaStoreClient client = supplier.get()) {
+      client.getAllDatabases();
+      fail();
+    } catch (MetaException e) {
+      // expected
+    }
+    verify(client1, never()).close();
+    assertThat(supplier.getIdleCount(), is(1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void cannotUseClientAfterClose() throws Exception {
+    CloseableMetaStoreClient client = supplier.get();
+    client.close();
+    client.getAllDatabases();
+  }
+
+  @Test
+  public void closingSupplierClosesIdleClients() throws Exception {
+    supplier.get().close();
+    supplier.close();
+    verify(client1).close();
+    assertThat(supplier.getIdleCount(), is(0));
+  }
+
+}
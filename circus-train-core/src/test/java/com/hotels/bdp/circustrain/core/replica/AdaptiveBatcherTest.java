@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.replica;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.thrift.TException;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
+
+public class AdaptiveBatcherTest {
+
+  private static class RecordingWrite implements AdaptiveBatcher.BatchWrite<Partition> {
+
+    private final int maxSize;
+    private final TException error;
+    private final List<Integer> sizes = new ArrayList<>();
+
+    RecordingWrite(int maxSize, TException error) {
+      this.maxSize = maxSize;
+      this.error = error;
+    }
+
+    @Override
+    public void write(List<Partition> batch) throws TException {
+      if (batch.size() > maxSize) {
+        throw error;
+      }
+      sizes.add(batch.size());
+    }
+  }
+
+  private final List<Partition> partitions = Arrays.asList(partition("1"), partition("2"), partition("3"),
+      partition("4"));
+  private final long partitionBytes = AdaptiveBatcher.payloadSize(partition("1"));
+  private ReplicationPhaseMetrics phaseMetrics;
+
+  @Before
+  public void init() {
+    phaseMetrics = ReplicationPhaseMetrics.begin();
+  }
+
+  @After
+  public void end() {
+    ReplicationPhaseMetrics.end();
+  }
+
+  @Test
+  public void batchesAreLimitedByPayload() throws Exception {
+    AdaptiveBatcher batcher = new AdaptiveBatcher(3 * partitionBytes);
+    RecordingWrite write = new RecordingWrite(Integer.MAX_VALUE, null);
+
+    batcher.write(partitions, "add_partitions", write);
+
+    assertThat(write.sizes, is(Arrays.asList(3, 1)));
+    assertThat(phaseMetrics.getMetrics().get("add_partitions_max_batch_bytes"), is(3 * partitionBytes));
+  }
+
+  @Test
+  public void itemLargerThanLimitIsWrittenAlone() throws Exception {
+    AdaptiveBatcher batcher = new AdaptiveBatcher(1L);
+    RecordingWrite write = new RecordingWrite(Integer.MAX_VALUE, null);
+
+    batcher.write(partitions.subList(0, 2), "add_partitions", write);
+
+    assertThat(write.sizes, is(Arrays.asList(1, 1)));
+  }
+
+  @Test
+  public void batchIsHalvedOnFrameSizeError() throws Exception {
+    AdaptiveBatcher batcher = new AdaptiveBatcher(AdaptiveBatcher.DEFAULT_MAX_BATCH_BYTES);
+    RecordingWrite write = new RecordingWrite(1,
+        new TTransportException("Frame size (20971520) larger than max length (16384000)!"));
+
+    batcher.write(partitions, "add_partitions", write);
+
+    assertThat(write.sizes, is(Arrays.asList(1, 1, 1, 1)));
+    // lowered to one partition, then doubled after three successful writes
+    assertThat(batcher.getBatchBytesLimit(), is(2 * partitionBytes));
+    assertThat(phaseMetrics.getMetrics().get("add_partitions_batch_splits"), is(2L));
+    assertThat(phaseMetrics.getMetrics().get("add_partitions_batch_bytes_limit"), is(partitionBytes));
+  }
+
+  @Test
+  public void limitGrowsAfterSuccesses() throws Exception {
+    AdaptiveBatcher batcher = new AdaptiveBatcher(4 * partitionBytes);
+    batcher.write(partitions, "add_partitions", new RecordingWrite(2, new MetaException("Frame size too large")));
+    assertThat(batcher.getBatchBytesLimit(), is(2 * partitionBytes));
+
+    RecordingWrite write = new RecordingWrite(Integer.MAX_VALUE, null);
+    batcher.write(partitions, "add_partitions", write);
+    batcher.write(partitions, "add_partitions", write);
+
+    assertThat(write.sizes, is(Arrays.asList(2, 2, 4)));
+    assertThat(batcher.getBatchBytesLimit(), is(4 * partitionBytes));
+  }
+
+  @Test
+  public void otherErrorsAreRethrown() throws Exception {
+    AdaptiveBatcher batcher = new AdaptiveBatcher(AdaptiveBatcher.DEFAULT_MAX_BATCH_BYTES);
+    NoSuchObjectException error = new NoSuchObjectException("table");
+    try {
+      batcher.write(partitions, "add_partitions", new RecordingWrite(1, error));
+      fail("Expected NoSuchObjectException");
+    } catch (NoSuchObjectException e) {
+      assertThat(e == error, is(true));
+    }
+    assertThat(batcher.getBatchBytesLimit(), is(AdaptiveBatcher.DEFAULT_MAX_BATCH_BYTES));
+  }
+
+  @Test(expected = TTransportException.class)
+  public void singleItemErrorIsRethrown() throws Exception {
+    AdaptiveBatcher batcher = new AdaptiveBatcher(AdaptiveBatcher.DEFAULT_MAX_BATCH_BYTES);
+    batcher.write(partitions, "add_partitions", new RecordingWrite(0, new TTransportException("Frame size")));
+  }
+
+  @Test
+  public void otherTransportErrorsAreRethrown() throws Exception {
+    AdaptiveBatcher batcher = new AdaptiveBatcher(AdaptiveBatcher.DEFAULT_MAX_BATCH_BYTES);
+    RecordingWrite write = new RecordingWrite(1, new TTransportException("Connection reset"));
+    try {
+      batcher.write(partitions, "add_partitions", write);
+      fail("Expected TTransportException");
+    } catch (TTransportException e) {
+      // expected
+    }
+    assertThat(write.sizes.isEmpty(), is(true));
+    assertThat(batcher.getBatchBytesLimit(), is(AdaptiveBatcher.DEFAULT_MAX_BATCH_BYTES));
+  }
+
+  @Test
+  public void payloadErrors() {
+    assertThat(AdaptiveBatcher.isPayloadError(new TTransportException()), is(false));
+    assertThat(AdaptiveBatcher.isPayloadError(new TTransportException("Connection reset")), is(false));
+    assertThat(AdaptiveBatcher.isPayloadError(
+        new TTransportException(new SocketException("Packet for query is too large"))), is(true));
+    assertThat(AdaptiveBatcher.isPayloadError(new MetaException("Packet for query is too large")), is(true));
+    assertThat(AdaptiveBatcher.isPayloadError(new MetaException("Partition already exists")), is(false));
+  }
+
+  private static Partition partition(String value) {
+    Partition partition = new Partition();
+    partition.setDbName("db");
+    partition.setTableName("table");
+    partition.setValues(Collections.singletonList(value));
+    return partition;
+  }
+
+}
@@ -17,9 +17,13 @@ package com.hotels.bdp.circustrain.core.replica;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION;
 import static com.hotels.bdp.circustrain.api.conf.ReplicationMode.FULL;
 import static com.hotels.bdp.circustrain.core.metastore.HiveEntityFactory.newFieldSchema;
 import static com.hotels.bdp.circustrain.core.metastore.HiveEntityFactory.newPartition;
@@ -39,18 +43,20 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
-import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 
 import com.hotels.bdp.circustrain.api.metadata.ColumnStatisticsTransformation;
 import com.hotels.bdp.circustrain.api.metadata.PartitionTransformation;
 import com.hotels.bdp.circustrain.api.metadata.TableTransformation;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AddCheckSumReplicaTableFactoryTest {
 
   private @Mock HiveConf sourceHiveConf;
-  private @Mock Function<Path, String> checksumFunction;
+  private @Mock PathChecksumFunction checksumFunction;
+  private PartitionChecksums partitionChecksums;
 
   private Table sourceTable;
   private Partition sourcePartition;
@@ -65,7 +71,8 @@ public class AddCheckSumReplicaTableFactoryTest {
     sourcePartition = newPartition(sourceTable, "value1");
     sourcePartition.setSd(newStorageDescriptor(sourcePartitionFile, "column1"));
     sourcePartition.setParameters(new HashMap<String, String>());
-    factory = new AddCheckSumReplicaTableFactory(sourceHiveConf, checksumFunction, TableTransformation.IDENTITY,
+    partitionChecksums = new PartitionChecksums(checksumFunction, PartitionTaskExecutor.CALLING_THREAD, 1);
+    factory = new AddCheckSumReplicaTableFactory(sourceHiveConf, partitionChecksums, TableTransformation.IDENTITY,
         PartitionTransformation.IDENTITY, ColumnStatisticsTransformation.IDENTITY);
   }
 
@@ -73,9 +80,23 @@ public class AddCheckSumReplicaTableFactoryTest {
   public void newReplicaPartition() throws Exception {
     Path sourceTableLocationPath = new Path(sourcePartitionFile.toURI().toString());
     when(checksumFunction.apply(sourceTableLocationPath)).thenReturn("checksum");
+    when(checksumFunction.getVersion()).thenReturn(2);
 
     Partition partition = factory.newReplicaPartition("eventId", sourceTable, sourcePartition, "replicaDatabase",
         "replicaTable", replicaPartitionLocation, FULL);
     assertThat(partition.getParameters().get(PARTITION_CHECKSUM.parameterName()), is("checksum"));
+    assertThat(partition.getParameters().get(PARTITION_CHECKSUM_VERSION.parameterName()), is("2"));
+  }
+
+  @Test
+  public void recordedChecksumIsReused() throws Exception {
+    when(checksumFunction.getVersion()).thenReturn(2);
+    partitionChecksums.record(sourcePartition, "recorded checksum");
+
+    Partition partition = factory.newReplicaPartition("eventId", sourceTable, sourcePartition, "replicaDatabase",
+        "replicaTable", replicaPartitionLocation, FULL);
+    assertThat(partition.getParameters().get(PARTITION_CHECKSUM.parameterName()), is("recorded checksum"));
+    assertThat(partition.getParameters().get(PARTITION_CHECKSUM_VERSION.parameterName()), is("2"));
+    verify(checksumFunction, never()).apply(any(Path.class));
   }
 }
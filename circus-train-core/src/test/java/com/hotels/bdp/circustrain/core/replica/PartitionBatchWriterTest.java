@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.replica;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.thrift.TException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.base.Supplier;
+
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+import com.hotels.hcommon.hive.metastore.exception.MetaStoreClientException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PartitionBatchWriterTest {
+
+  private static class RecordingBatch extends PartitionBatchWriter.Batch<Partition> {
+
+    private final Set<CloseableMetaStoreClient> clients;
+    private final boolean fail;
+
+    RecordingBatch(int start, List<Partition> items, Set<CloseableMetaStoreClient> clients, boolean fail) {
+      super("add partitions", "add_partitions", start, items);
+      this.clients = clients;
+      this.fail = fail;
+    }
+
+    @Override
+    void write(CloseableMetaStoreClient client, List<Partition> items) throws TException {
+      if (fail) {
+        throw new TException("failed");
+      }
+      synchronized (clients) {
+        clients.add(client);
+      }
+    }
+
+    @Override
+    String partitionName(Partition item) {
+      return item.getValues().get(0);
+    }
+
+    @Override
+    String itemMetricName() {
+      return "partitions_created";
+    }
+  }
+
+  private @Mock Supplier<CloseableMetaStoreClient> supplier;
+  private @Mock CloseableMetaStoreClient client;
+  private @Mock CloseableMetaStoreClient batchClient;
+
+  private final Set<CloseableMetaStoreClient> clients = new HashSet<>();
+  private final AdaptiveBatcher batcher = new AdaptiveBatcher(AdaptiveBatcher.DEFAULT_MAX_BATCH_BYTES);
+  private final PartitionTaskExecutor partitionTaskExecutor = new PartitionTaskExecutor(4);
+  private ReplicationPhaseMetrics phaseMetrics;
+
+  @Before
+  public void init() {
+    when(supplier.get()).thenReturn(batchClient);
+    phaseMetrics = ReplicationPhaseMetrics.begin();
+  }
+
+  @After
+  public void end() {
+    ReplicationPhaseMetrics.end();
+    partitionTaskExecutor.close();
+  }
+
+  @Test
+  public void sequentialWritesUseGivenClient() {
+    PartitionBatchWriter writer = new PartitionBatchWriter(supplier, partitionTaskExecutor, 1, batcher, "db", "table");
+    writer.write(client, "partition_write", batches(false));
+
+    assertThat(clients, is(Collections.singleton(client)));
+    verifyZeroInteractions(supplier);
+    assertThat(phaseMetrics.getMetrics().get("add_partitions_batches"), is(2L));
+    assertThat(phaseMetrics.getMetrics().get("add_partitions_max_batch_size"), is(2L));
+    assertThat(phaseMetrics.getMetrics().get("partitions_created"), is(3L));
+  }
+
+  @Test
+  public void concurrentWritesUseOwnClients() {
+    PartitionBatchWriter writer = new PartitionBatchWriter(supplier, partitionTaskExecutor, 4, batcher, "db", "table");
+    writer.write(client, "partition_write", batches(false));
+
+    assertThat(clients, is(Collections.singleton(batchClient)));
+    verify(supplier, times(2)).get();
+    verify(batchClient, times(2)).close();
+    assertThat(phaseMetrics.getMetrics().get("add_partitions_batches"), is(2L));
+    assertThat(phaseMetrics.getMetrics().get("partitions_created"), is(3L));
+  }
+
+  @Test
+  public void failureNamesPartitionsOfBatch() {
+    PartitionBatchWriter writer = new PartitionBatchWriter(supplier, partitionTaskExecutor, 4, batcher, "db", "table");
+    try {
+      writer.write(client, "partition_write", batches(true));
+      fail("Expected MetaStoreClientException");
+    } catch (MetaStoreClientException e) {
+      assertThat(e.getMessage(), is("Unable to add partitions [p=3] of replica table 'db.table'"));
+    }
+  }
+
+  @Test
+  public void concurrentWriteRecordsOnePhaseTime() {
+    PartitionBatchWriter writer = new PartitionBatchWriter(supplier, partitionTaskExecutor, 4, batcher, "db", "table");
+    writer.write(client, "partition_write", batches(false));
+
+    assertThat(phaseMetrics.getMetrics().containsKey("partition_write_time"), is(true));
+    assertThat(phaseMetrics.getMetrics().containsKey("add_partitions_time"), is(false));
+  }
+
+  private List<RecordingBatch> batches(boolean failLast) {
+    return Arrays.asList(new RecordingBatch(0, Arrays.asList(partition("p=1"), partition("p=2")), clients, false),
+        new RecordingBatch(2, Collections.singletonList(partition("p=3")), clients, failLast));
+  }
+
+  private static Partition partition(String name) {
+    Partition partition = new Partition();
+    partition.setValues(Collections.singletonList(name));
+    return partition;
+  }
+
+}
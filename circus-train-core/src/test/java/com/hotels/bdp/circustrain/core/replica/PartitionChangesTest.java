@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.replica;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.LAST_REPLICATED;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.REPLICATION_EVENT;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.apache.hadoop.hive.common.StatsSetupConst;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PartitionChangesTest {
+
+  private Partition oldPartition;
+  private Partition newPartition;
+
+  @Before
+  public void init() {
+    oldPartition = new Partition();
+    oldPartition.setValues(Arrays.asList("a"));
+    StorageDescriptor sd = new StorageDescriptor();
+    sd.setLocation("s3://bucket/table/event-1/a");
+    oldPartition.setSd(sd);
+    oldPartition.setParameters(new HashMap<String, String>());
+    oldPartition.putToParameters(StatsSetupConst.ROW_COUNT, "1");
+    oldPartition.putToParameters(REPLICATION_EVENT.parameterName(), "event-1");
+    oldPartition.putToParameters(LAST_REPLICATED.parameterName(), "2020-01-01T00:00:00.000Z");
+    oldPartition.putToParameters(hive_metastoreConstants.DDL_TIME, "1577836800");
+    oldPartition.setCreateTime(1);
+    newPartition = new Partition(oldPartition);
+  }
+
+  @Test
+  public void volatileParametersAndTimesAreIgnored() {
+    newPartition.putToParameters(REPLICATION_EVENT.parameterName(), "event-2");
+    newPartition.putToParameters(LAST_REPLICATED.parameterName(), "2020-01-02T00:00:00.000Z");
+    newPartition.getParameters().remove(hive_metastoreConstants.DDL_TIME);
+    newPartition.setCreateTime(2);
+
+    assertThat(PartitionChanges.isChanged(oldPartition, newPartition), is(false));
+  }
+
+  @Test
+  public void locationChange() {
+    newPartition.getSd().setLocation("s3://bucket/table/event-2/a");
+
+    assertThat(PartitionChanges.isChanged(oldPartition, newPartition), is(true));
+  }
+
+  @Test
+  public void statisticsChange() {
+    newPartition.putToParameters(StatsSetupConst.ROW_COUNT, "2");
+
+    assertThat(PartitionChanges.isChanged(oldPartition, newPartition), is(true));
+  }
+
+  @Test
+  public void storageDescriptorChange() {
+    newPartition.getSd().setInputFormat("org.apache.hadoop.mapred.TextInputFormat");
+
+    assertThat(PartitionChanges.isChanged(oldPartition, newPartition), is(true));
+  }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.replica;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PartitionChecksumsTest {
+
+  private @Mock PathChecksumFunction checksumFunction;
+
+  private final Partition partition1 = partition("1");
+  private final Partition partition2 = partition("2");
+  private final Partition partition3 = partition("3");
+  private final PartitionTaskExecutor partitionTaskExecutor = new PartitionTaskExecutor(4);
+  private ReplicationPhaseMetrics phaseMetrics;
+
+  @Before
+  public void init() {
+    when(checksumFunction.apply(any(Path.class))).thenAnswer(new Answer<String>() {
+      @Override
+      public String answer(InvocationOnMock invocation) throws Throwable {
+        return "checksum " + ((Path) invocation.getArguments()[0]).getName();
+      }
+    });
+    phaseMetrics = ReplicationPhaseMetrics.begin();
+  }
+
+  @After
+  public void end() {
+    ReplicationPhaseMetrics.end();
+    partitionTaskExecutor.close();
+  }
+
+  @Test
+  public void recordedChecksumIsNotComputed() {
+    PartitionChecksums checksums = new PartitionChecksums(checksumFunction, partitionTaskExecutor, 4);
+    checksums.record(partition1, "recorded");
+
+    assertThat(checksums.get(partition1), is("recorded"));
+    verify(checksumFunction, never()).apply(any(Path.class));
+  }
+
+  @Test
+  public void computedChecksumIsKept() {
+    PartitionChecksums checksums = new PartitionChecksums(checksumFunction, partitionTaskExecutor, 4);
+
+    assertThat(checksums.get(partition1), is("checksum p=1"));
+    assertThat(checksums.get(partition1), is("checksum p=1"));
+    verify(checksumFunction, times(1)).apply(new Path("file:/table/p=1"));
+  }
+
+  @Test
+  public void computeMissingConcurrently() {
+    PartitionChecksums checksums = new PartitionChecksums(checksumFunction, partitionTaskExecutor, 4);
+    checksums.record(partition2, "recorded");
+
+    checksums.computeMissing(Arrays.asList(partition1, partition2, partition3));
+
+    verify(checksumFunction, times(1)).apply(new Path("file:/table/p=1"));
+    verify(checksumFunction, never()).apply(new Path("file:/table/p=2"));
+    verify(checksumFunction, times(1)).apply(new Path("file:/table/p=3"));
+    assertThat(checksums.get(partition1), is("checksum p=1"));
+    assertThat(checksums.get(partition2), is("recorded"));
+    assertThat(checksums.get(partition3), is("checksum p=3"));
+    assertThat(phaseMetrics.getMetrics().get("partition_checksums_reused"), is(1L));
+  }
+
+  private static Partition partition(String value) {
+    Partition partition = new Partition();
+    partition.setValues(Arrays.asList(value));
+    StorageDescriptor sd = new StorageDescriptor();
+    sd.setLocation("file:/table/p=" + value);
+    partition.setSd(sd);
+    return partition;
+  }
+
+}
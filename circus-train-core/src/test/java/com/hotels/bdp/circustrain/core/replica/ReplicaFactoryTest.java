@@ -31,6 +31,7 @@ import com.hotels.bdp.circustrain.api.conf.ReplicaCatalog;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.bdp.circustrain.api.event.ReplicaCatalogListener;
 import com.hotels.bdp.circustrain.api.listener.HousekeepingListener;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -49,7 +50,8 @@ public class ReplicaFactoryTest {
   @Before
   public void setUp() {
     replicaFactory = new ReplicaFactory(replicaCatalog, replicaHiveConf, replicaMetaStoreClientSupplier,
-        housekeepingListener, replicaCatalogListener, replicaTableFactoryPicker);
+        housekeepingListener, replicaCatalogListener, replicaTableFactoryPicker,
+        PartitionTaskExecutor.CALLING_THREAD);
   }
 
   @Test
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.core.replica;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.thrift.TException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.base.Supplier;
+
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
+import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
+import com.hotels.hcommon.hive.metastore.exception.MetaStoreClientException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicaPartitionLookupTest {
+
+  private @Mock Supplier<CloseableMetaStoreClient> supplier;
+  private @Mock CloseableMetaStoreClient client;
+  private @Mock CloseableMetaStoreClient chunkClient;
+
+  private final Partition partition1 = partition("1");
+  private final Partition partition3 = partition("3");
+  private final PartitionTaskExecutor partitionTaskExecutor = new PartitionTaskExecutor(2);
+
+  @Before
+  public void init() {
+    when(supplier.get()).thenReturn(chunkClient);
+    ReplicationPhaseMetrics.begin();
+  }
+
+  @After
+  public void end() {
+    ReplicationPhaseMetrics.end();
+    partitionTaskExecutor.close();
+  }
+
+  @Test
+  public void singleChunkUsesGivenClient() throws Exception {
+    when(client.getPartitionsByNames("db", "table", Arrays.asList("p=1", "p=2")))
+        .thenReturn(Arrays.asList(partition1));
+
+    try (ReplicaPartitionLookup lookup = new ReplicaPartitionLookup(supplier, partitionTaskExecutor, client, 4, 10,
+        "db", "table", Arrays.asList("p=1", "p=2"))) {
+      assertThat(lookup.get(0, partition1.getValues()), is(partition1));
+      assertThat(lookup.get(1, Collections.singletonList("2")), is(nullValue()));
+      assertThat(lookup.getAll(), is(Arrays.asList(partition1)));
+    }
+    verifyZeroInteractions(supplier);
+  }
+
+  @Test
+  public void chunksUseOwnClients() throws Exception {
+    when(chunkClient.getPartitionsByNames("db", "table", Arrays.asList("p=1", "p=2")))
+        .thenReturn(Arrays.asList(partition1));
+    when(chunkClient.getPartitionsByNames("db", "table", Arrays.asList("p=3")))
+        .thenReturn(Arrays.asList(partition3));
+
+    try (ReplicaPartitionLookup lookup = new ReplicaPartitionLookup(supplier, partitionTaskExecutor, client, 1, 2,
+        "db", "table", Arrays.asList("p=1", "p=2", "p=3"))) {
+      assertThat(lookup.get(0, partition1.getValues()), is(partition1));
+      assertThat(lookup.get(2, partition3.getValues()), is(partition3));
+      assertThat(lookup.getAll(), is(Arrays.asList(partition1, partition3)));
+    }
+    verifyZeroInteractions(client);
+    verify(chunkClient, times(2)).close();
+  }
+
+  @Test(expected = MetaStoreClientException.class)
+  public void chunkFailure() throws Exception {
+    when(chunkClient.getPartitionsByNames("db", "table", Arrays.asList("p=1")))
+        .thenReturn(Arrays.asList(partition1));
+    when(chunkClient.getPartitionsByNames("db", "table", Arrays.asList("p=3"))).thenThrow(new TException("failed"));
+
+    try (ReplicaPartitionLookup lookup = new ReplicaPartitionLookup(supplier, partitionTaskExecutor, client, 2, 1,
+        "db", "table", Arrays.asList("p=1", "p=3"))) {
+      lookup.getAll();
+    }
+  }
+
+  @Test
+  public void chunksAreFetchedAtMostConcurrencyAhead() throws Exception {
+    when(chunkClient.getPartitionsByNames("db", "table", Arrays.asList("p=1")))
+        .thenReturn(Arrays.asList(partition1));
+    when(chunkClient.getPartitionsByNames("db", "table", Arrays.asList("p=2")))
+        .thenReturn(Collections.<Partition> emptyList());
+    when(chunkClient.getPartitionsByNames("db", "table", Arrays.asList("p=3")))
+        .thenReturn(Arrays.asList(partition3));
+
+    try (ReplicaPartitionLookup lookup = new ReplicaPartitionLookup(supplier, PartitionTaskExecutor.CALLING_THREAD,
+        client, 1, 1, "db", "table", Arrays.asList("p=1", "p=2", "p=3"))) {
+      verify(supplier, times(1)).get();
+      assertThat(lookup.get(0, partition1.getValues()), is(partition1));
+      verify(supplier, times(2)).get();
+      assertThat(lookup.get(2, partition3.getValues()), is(partition3));
+      verify(supplier, times(3)).get();
+    }
+  }
+
+  private static Partition partition(String value) {
+    Partition partition = new Partition();
+    partition.setValues(Collections.singletonList(value));
+    return partition;
+  }
+
+}
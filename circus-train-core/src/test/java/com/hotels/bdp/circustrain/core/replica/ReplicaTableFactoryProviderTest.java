@@ -20,7 +20,6 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 
-import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.junit.Before;
 import org.junit.Test;
@@ -28,19 +27,19 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
-import com.google.common.base.Function;
-
 import com.hotels.bdp.circustrain.api.conf.SourceTable;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.bdp.circustrain.api.metadata.ColumnStatisticsTransformation;
 import com.hotels.bdp.circustrain.api.metadata.PartitionTransformation;
 import com.hotels.bdp.circustrain.api.metadata.TableTransformation;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ReplicaTableFactoryProviderTest {
 
   private @Mock HiveConf sourceHiveConf;
-  private @Mock Function<Path, String> checksumFunction;
+  private @Mock PathChecksumFunction checksumFunction;
   private @Mock TableReplication tableReplication;
   private @Mock SourceTable sourceTable;
   private @Mock TableTransformation tableTransformation;
@@ -51,8 +50,8 @@ public class ReplicaTableFactoryProviderTest {
 
   @Before
   public void setUp() {
-    picker = new ReplicaTableFactoryProvider(sourceHiveConf, checksumFunction, tableTransformation,
-        partitionTransformation, columnStatisticsTransformation);
+    picker = new ReplicaTableFactoryProvider(sourceHiveConf, checksumFunction, PartitionTaskExecutor.CALLING_THREAD,
+        tableTransformation, partitionTransformation, columnStatisticsTransformation);
     when(tableReplication.getSourceTable()).thenReturn(sourceTable);
   }
 
@@ -39,6 +39,7 @@ import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.MetaException;
 import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
 import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
 import org.apache.hadoop.hive.metastore.api.Table;
 import org.junit.Before;
@@ -240,6 +241,32 @@ public class ReplicaTableFactoryTest {
     assertThat(replica.getParameters().get(StatsSetupConst.ROW_COUNT), is("1"));
   }
 
+  @Test
+  public void transformationModifyingPartitionInPlaceDoesNotChangeSourcePartition() {
+    List<FieldSchema> columns = Arrays.asList(new FieldSchema("a", "string", null));
+    sourcePartition.getSd().setCols(columns);
+    sourcePartition.getSd().setSerdeInfo(new SerDeInfo("serde", "serdeLib", new HashMap<String, String>()));
+    ReplicaTableFactory factory = new ReplicaTableFactory(SOURCE_META_STORE_URIS, TableTransformation.IDENTITY,
+        new PartitionTransformation() {
+          @Override
+          public Partition transform(Partition partition) {
+            partition.getSd().getCols().get(0).setType("int");
+            partition.getSd().getSerdeInfo().putToParameters("avro.schema.url", "replicaUrl");
+            return partition;
+          }
+        }, ColumnStatisticsTransformation.IDENTITY);
+
+    Partition replica = factory.newReplicaPartition(EVENT_ID, sourceTable, sourcePartition, DB_NAME, TABLE_NAME,
+        new Path(REPLICA_DATA_DESTINATION, REPLICA_PARTITION_SUBPATH), FULL);
+
+    assertThat(replica.getSd().getCols().get(0).getType(), is("int"));
+    assertThat(replica.getSd().getSerdeInfo().getParameters().get("avro.schema.url"), is("replicaUrl"));
+    assertThat(columns.get(0).getType(), is("string"));
+    assertThat(sourcePartition.getSd().getSerdeInfo().getParameters().isEmpty(), is(true));
+    assertThat(sourcePartition.getSd().getLocation(), is(PARTITION_LOCATION));
+    assertThat(sourcePartition.getParameters().size(), is(1));
+  }
+
   @Test
   public void newPartitionEncodedLocation() {
     Path replicaPartitionPath = new Path(REPLICA_DATA_DESTINATION, REPLICA_PARTITION_SUBPATH + "%25");
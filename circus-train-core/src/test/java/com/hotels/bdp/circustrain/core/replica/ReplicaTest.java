@@ -21,12 +21,15 @@ import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM;
+import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.PARTITION_CHECKSUM_VERSION;
 import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.REPLICATION_EVENT;
 import static com.hotels.bdp.circustrain.api.CircusTrainTableParameter.REPLICATION_MODE;
 import static com.hotels.bdp.circustrain.api.conf.ReplicationMode.FULL;
@@ -39,6 +42,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -54,6 +58,7 @@ import org.apache.hadoop.hive.metastore.api.ColumnStatisticsData;
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsData._Fields;
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsDesc;
 import org.apache.hadoop.hive.metastore.api.ColumnStatisticsObj;
+import org.apache.hadoop.hive.metastore.api.EnvironmentContext;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.LongColumnStatsData;
 import org.apache.hadoop.hive.metastore.api.MetaException;
@@ -69,8 +74,11 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
@@ -80,12 +88,17 @@ import com.hotels.bdp.circustrain.api.ReplicaLocationManager;
 import com.hotels.bdp.circustrain.api.conf.ReplicaCatalog;
 import com.hotels.bdp.circustrain.api.conf.ReplicationMode;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
+import com.hotels.bdp.circustrain.api.event.EventPartitions;
 import com.hotels.bdp.circustrain.api.event.ReplicaCatalogListener;
 import com.hotels.bdp.circustrain.api.listener.HousekeepingListener;
 import com.hotels.bdp.circustrain.api.metadata.ColumnStatisticsTransformation;
 import com.hotels.bdp.circustrain.api.metadata.PartitionTransformation;
 import com.hotels.bdp.circustrain.api.metadata.TableTransformation;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathChecksumFunction;
+import com.hotels.bdp.circustrain.comparator.hive.functions.PathDigest;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
 import com.hotels.bdp.circustrain.core.PartitionsAndStatistics;
+import com.hotels.bdp.circustrain.core.ReplicationPhaseMetrics;
 import com.hotels.bdp.circustrain.core.TableAndStatistics;
 import com.hotels.bdp.circustrain.core.replica.hive.AlterTableService;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
@@ -123,6 +136,7 @@ public class ReplicaTest {
   private @Mock HousekeepingListener houseKeepingListener;
   private @Mock ReplicaCatalogListener replicaCatalogListener;
   private @Mock AlterTableService alterTableService;
+  private @Mock PathChecksumFunction checksumFunction;
 
   private final ReplicaTableFactory tableFactory = new ReplicaTableFactory(SOURCE_META_STORE_URIS,
       TableTransformation.IDENTITY, PartitionTransformation.IDENTITY, ColumnStatisticsTransformation.IDENTITY);
@@ -195,6 +209,18 @@ public class ReplicaTest {
     verify(mockReplicaLocationManager, never()).addCleanUpLocation(anyString(), any(Path.class));
   }
 
+  @Test
+  public void updateMetadataInvalidatesCachedReplicaTable() throws TException, IOException {
+    existingReplicaTable.getSd().setCols(FIELDS);
+    replica.getTableAndStatistics(DB_NAME, TABLE_NAME);
+    replica.getTableAndStatistics(DB_NAME, TABLE_NAME);
+    existingReplicaTable.getParameters().put(REPLICATION_EVENT.parameterName(), "previousEventId");
+    replica.updateMetadata(EVENT_ID, tableAndStatistics, DB_NAME, TABLE_NAME, mockReplicaLocationManager);
+    replica.getTableAndStatistics(DB_NAME, TABLE_NAME);
+    // first cached lookup, the existing table check in updateMetadata and the lookup after invalidation
+    verify(mockMetaStoreClient, times(3)).getTable(DB_NAME, TABLE_NAME);
+  }
+
   @Test
   public void alteringExistingUnpartitionedReplicaTableWithNoStatsSucceeds() throws TException, IOException {
     tableAndStatistics = new TableAndStatistics(sourceTable, null);
@@ -486,8 +512,26 @@ public class ReplicaTest {
       testPartitionNames.add(partitionName((String[]) p.getValues().toArray()));
     }
 
-    when(mockMetaStoreClient.getPartitionsByNames(DB_NAME, TABLE_NAME, testPartitionNames))
-            .thenReturn(existingPartitions);
+    // Existing partitions are looked up in chunks of the batch size
+    final Map<String, Partition> existingPartitionsByName = new HashMap<>();
+    for (Partition p : existingPartitions) {
+      existingPartitionsByName.put(partitionName((String[]) p.getValues().toArray()), p);
+    }
+    Answer<List<Partition>> existingPartitionsAnswer = new Answer<List<Partition>>() {
+      @Override
+      public List<Partition> answer(InvocationOnMock invocation) {
+        List<Partition> partitions = new ArrayList<>();
+        for (Object name : (List<?>) invocation.getArguments()[2]) {
+          if (existingPartitionsByName.containsKey(name)) {
+            partitions.add(existingPartitionsByName.get(name));
+          }
+        }
+        return partitions;
+      }
+    };
+    for (List<String> chunk : Lists.partition(testPartitionNames, TEST_PARTITION_BATCH_SIZE)) {
+      when(mockMetaStoreClient.getPartitionsByNames(DB_NAME, TABLE_NAME, chunk)).thenAnswer(existingPartitionsAnswer);
+    }
 
     Map<String, List<ColumnStatisticsObj>> partitionStatsMap = new HashMap<>();
     for (int i = 0; i < numTestAddPartitions; i++) {
@@ -514,9 +558,24 @@ public class ReplicaTest {
 
     existingReplicaTable.getParameters().put(REPLICATION_EVENT.parameterName(), "previousEventId");
 
-    replica
-        .updateMetadata(EVENT_ID, tableAndStatistics, partitionsAndStatistics, DB_NAME, TABLE_NAME,
-            mockReplicaLocationManager);
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.begin();
+    try {
+      replica
+          .updateMetadata(EVENT_ID, tableAndStatistics, partitionsAndStatistics, DB_NAME, TABLE_NAME,
+              mockReplicaLocationManager);
+    } finally {
+      ReplicationPhaseMetrics.end();
+    }
+    Map<String, Long> phaseMetricValues = phaseMetrics.getMetrics();
+    assertThat(phaseMetricValues.containsKey("replica_table_update_time"), is(true));
+    // There is nothing to look up without partitions
+    assertThat(phaseMetricValues.containsKey("replica_partitions_lookup_time"),
+        is(numTestAlterPartitions + numTestAddPartitions > 0));
+    assertThat(count(phaseMetricValues, "partitions_created"), is((long) numTestAddPartitions));
+    assertThat(count(phaseMetricValues, "add_partitions_batches"), is((long) numAddBatches));
+    assertThat(count(phaseMetricValues, "partitions_altered"), is((long) numTestAlterPartitions));
+    assertThat(count(phaseMetricValues, "alter_partitions_batches"), is((long) numAlterBatches));
+    assertThat(count(phaseMetricValues, "set_partition_statistics_batches"), is((long) numStatisticsBatches));
 
     verify(alterTableService).alterTable(eq(mockMetaStoreClient), eq(existingReplicaTable), any(Table.class));
     verify(mockMetaStoreClient).updateTableColumnStatistics(columnStatistics);
@@ -587,6 +646,95 @@ public class ReplicaTest {
   }
 
 
+  @Test
+  public void unchangedPartitionsAreNotAlteredWhenSkipped() throws TException, IOException {
+    tableReplication.setSkipUnchangedPartitions(true);
+    replica = newReplica(tableReplication);
+    Partition unchangedPartition = newPartition("one", "two");
+    Partition changedPartition = newPartition("three", "four");
+    Path unchangedLocation = new Path(tableLocation, "c=one/d=two");
+    Path changedLocation = new Path(tableLocation, "c=three/d=four");
+    when(mockReplicaLocationManager.getPartitionLocation(unchangedPartition)).thenReturn(unchangedLocation);
+    when(mockReplicaLocationManager.getPartitionLocation(changedPartition)).thenReturn(changedLocation);
+    Partition oldUnchangedPartition = tableFactory.newReplicaPartition("previousEventId", sourceTable,
+        unchangedPartition, DB_NAME, TABLE_NAME, unchangedLocation, tableReplication.getReplicationMode());
+    Partition oldChangedPartition = tableFactory.newReplicaPartition("previousEventId", sourceTable,
+        changedPartition, DB_NAME, TABLE_NAME, new Path(tableLocation, "previous"),
+        tableReplication.getReplicationMode());
+    when(mockMetaStoreClient
+        .getPartitionsByNames(DB_NAME, TABLE_NAME, Lists.newArrayList("c=one/d=two", "c=three/d=four")))
+            .thenReturn(Arrays.asList(oldUnchangedPartition, oldChangedPartition));
+    existingReplicaTable.getParameters().put(REPLICATION_EVENT.parameterName(), "previousEventId");
+
+    ReplicationPhaseMetrics phaseMetrics = ReplicationPhaseMetrics.begin();
+    try {
+      replica
+          .updateMetadata(EVENT_ID, tableAndStatistics,
+              new PartitionsAndStatistics(sourceTable.getPartitionKeys(),
+                  Arrays.asList(unchangedPartition, changedPartition),
+                  Collections.<String, List<ColumnStatisticsObj>>emptyMap()),
+              DB_NAME, TABLE_NAME, mockReplicaLocationManager);
+    } finally {
+      ReplicationPhaseMetrics.end();
+    }
+
+    verify(mockMetaStoreClient).alter_partitions(eq(DB_NAME), eq(TABLE_NAME), alterPartitionCaptor.capture());
+    assertThat(alterPartitionCaptor.getValue().size(), is(1));
+    assertThat(alterPartitionCaptor.getValue().get(0).getValues(), is(Arrays.asList("three", "four")));
+    verify(mockReplicaLocationManager).addCleanUpLocation("previousEventId", new Path(tableLocation, "previous"));
+    verify(mockReplicaLocationManager, never()).addCleanUpLocation(anyString(), eq(unchangedLocation));
+    assertThat(count(phaseMetrics.getMetrics(), "partitions_unchanged"), is(1L));
+    assertThat(count(phaseMetrics.getMetrics(), "partitions_altered"), is(1L));
+  }
+
+  @Test
+  public void partitionPagesAreWrittenOneAfterAnother() throws TException, IOException {
+    Partition existingSourcePartition = newPartition("one", "two");
+    Partition newSourcePartition = newPartition("three", "four");
+    when(mockReplicaLocationManager.getPartitionLocation(existingSourcePartition))
+        .thenReturn(new Path(tableLocation, "c=one/d=two"));
+    when(mockReplicaLocationManager.getPartitionLocation(newSourcePartition))
+        .thenReturn(new Path(tableLocation, "c=three/d=four"));
+    Partition oldPartition = tableFactory.newReplicaPartition("previousEventId", sourceTable, existingSourcePartition,
+        DB_NAME, TABLE_NAME, new Path(tableLocation, "previous"), tableReplication.getReplicationMode());
+    when(mockMetaStoreClient.getPartitionsByNames(DB_NAME, TABLE_NAME, Arrays.asList("c=one/d=two")))
+        .thenReturn(Arrays.asList(oldPartition));
+    existingReplicaTable.getParameters().put(REPLICATION_EVENT.parameterName(), "previousEventId");
+    Map<String, List<ColumnStatisticsObj>> noStatistics = Collections.emptyMap();
+    Iterator<PartitionsAndStatistics> sourcePartitionPages = Arrays
+        .asList(new PartitionsAndStatistics(PARTITIONS, Arrays.asList(existingSourcePartition), noStatistics),
+            new PartitionsAndStatistics(PARTITIONS, Arrays.asList(newSourcePartition), noStatistics))
+        .iterator();
+
+    replica.updateMetadata(EVENT_ID, tableAndStatistics, sourcePartitionPages, DB_NAME, TABLE_NAME,
+        mockReplicaLocationManager);
+
+    // The first page is written before the second one is looked up
+    InOrder inOrder = inOrder(mockMetaStoreClient);
+    inOrder.verify(mockMetaStoreClient).getPartitionsByNames(DB_NAME, TABLE_NAME, Arrays.asList("c=one/d=two"));
+    inOrder.verify(mockMetaStoreClient).alter_partitions(eq(DB_NAME), eq(TABLE_NAME), alterPartitionCaptor.capture());
+    inOrder.verify(mockMetaStoreClient).getPartitionsByNames(DB_NAME, TABLE_NAME, Arrays.asList("c=three/d=four"));
+    inOrder.verify(mockMetaStoreClient).add_partitions(addPartitionCaptor.capture());
+    assertThat(alterPartitionCaptor.getValue().get(0).getValues(), is(Arrays.asList("one", "two")));
+    assertThat(addPartitionCaptor.getValue().get(0).getValues(), is(Arrays.asList("three", "four")));
+
+    // Listeners are told about the partitions of every page at once
+    ArgumentCaptor<EventPartitions> eventPartitionsCaptor = ArgumentCaptor.forClass(EventPartitions.class);
+    verify(replicaCatalogListener).existingReplicaPartitions(eventPartitionsCaptor.capture());
+    assertThat(eventPartitionsCaptor.getValue().getEventPartitions().size(), is(1));
+    verify(replicaCatalogListener).partitionsToAlter(eventPartitionsCaptor.capture());
+    assertThat(eventPartitionsCaptor.getValue().getEventPartitions().get(0).getValues(),
+        is(Arrays.asList("one", "two")));
+    verify(replicaCatalogListener).partitionsToCreate(eventPartitionsCaptor.capture());
+    assertThat(eventPartitionsCaptor.getValue().getEventPartitions().get(0).getValues(),
+        is(Arrays.asList("three", "four")));
+  }
+
+  private static long count(Map<String, Long> metrics, String name) {
+    Long value = metrics.get(name);
+    return value == null ? 0L : value;
+  }
+
   @Test
   public void alteringExistingPartitionedReplicaTableWithNewPartitionsInBatchesSucceeds_0_0() throws TException, IOException {
     alterExistingPartitionedReplicaTableWithNewPartitionsInBatches(0,0);
@@ -699,6 +847,30 @@ public class ReplicaTest {
     verify(mockReplicaLocationManager, never()).addCleanUpLocation(anyString(), any(Path.class));
   }
 
+  @Test
+  public void checksumUpgradesAreWrittenWithTheMetadata() throws TException, IOException {
+    when(checksumFunction.getVersion()).thenReturn(PathDigest.CURRENT_VERSION);
+    PartitionChecksums partitionChecksums = new PartitionChecksums(checksumFunction,
+        PartitionTaskExecutor.CALLING_THREAD, 1);
+    partitionChecksums.recordUpgrade(existingPartition, "checksum");
+    replica = new Replica(replicaCatalog, hiveConf, metaStoreClientSupplier,
+        new AddCheckSumReplicaTableFactory(hiveConf, partitionChecksums, TableTransformation.IDENTITY,
+            PartitionTransformation.IDENTITY, ColumnStatisticsTransformation.IDENTITY),
+        houseKeepingListener, replicaCatalogListener, tableReplication, alterTableService, TEST_PARTITION_BATCH_SIZE);
+    existingReplicaTable.getParameters().put(REPLICATION_EVENT.parameterName(), "previousEventId");
+
+    replica.updateMetadata(EVENT_ID, tableAndStatistics, DB_NAME, TABLE_NAME, mockReplicaLocationManager);
+
+    verify(replicaCatalogListener).partitionsToAlter(any(EventPartitions.class));
+    verify(mockMetaStoreClient)
+        .alter_partitions(eq(DB_NAME), eq(TABLE_NAME), alterPartitionCaptor.capture(), any(EnvironmentContext.class));
+    Partition upgraded = alterPartitionCaptor.getValue().get(0);
+    assertThat(upgraded.getValues(), is(existingPartition.getValues()));
+    assertThat(upgraded.getParameters().get(PARTITION_CHECKSUM.parameterName()), is("checksum"));
+    assertThat(upgraded.getParameters().get(PARTITION_CHECKSUM_VERSION.parameterName()),
+        is(String.valueOf(PathDigest.CURRENT_VERSION)));
+  }
+
   private Table newTable() {
     Table table = new Table();
     table.setDbName(DB_NAME);
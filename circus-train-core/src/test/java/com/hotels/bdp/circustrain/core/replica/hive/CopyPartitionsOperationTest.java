@@ -39,6 +39,7 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.hotels.bdp.circustrain.core.replica.AdaptiveBatcher;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -58,7 +59,7 @@ public class CopyPartitionsOperationTest {
 
   @Before
   public void setUp() {
-    operation = new CopyPartitionsOperation(BATCH_SIZE);
+    operation = new CopyPartitionsOperation(BATCH_SIZE, new AdaptiveBatcher(AdaptiveBatcher.DEFAULT_MAX_BATCH_BYTES));
     oldTable.setTableName(OLD_TABLE_NAME);
     newTable.setTableName(NEW_TABLE_NAME);
     oldTable.setDbName(OLD_DB_NAME);
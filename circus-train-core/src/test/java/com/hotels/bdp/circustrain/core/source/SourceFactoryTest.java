@@ -28,11 +28,13 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import com.google.common.base.Supplier;
 
+import com.hotels.bdp.circustrain.api.conf.PartitionStatisticsFetch;
 import com.hotels.bdp.circustrain.api.conf.ReplicationMode;
 import com.hotels.bdp.circustrain.api.conf.SourceCatalog;
 import com.hotels.bdp.circustrain.api.conf.SourceTable;
 import com.hotels.bdp.circustrain.api.conf.TableReplication;
 import com.hotels.bdp.circustrain.api.event.SourceCatalogListener;
+import com.hotels.bdp.circustrain.core.PartitionTaskExecutor;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -55,7 +57,7 @@ public class SourceFactoryTest {
     when(tableReplication.getReplicationMode()).thenReturn(ReplicationMode.FULL);
     when(sourceCatalog.isDisableSnapshots()).thenReturn(false);
     SourceFactory sourceFactory = new SourceFactory(sourceCatalog, sourceHiveConf, sourceMetaStoreClientSupplier,
-        sourceCatalogListener);
+        sourceCatalogListener, new PartitionStatisticsFetch(), PartitionTaskExecutor.CALLING_THREAD);
     Source source = sourceFactory.newInstance(tableReplication);
     assertFalse(source.isSnapshotsDisabled());
   }
@@ -65,7 +67,7 @@ public class SourceFactoryTest {
     when(tableReplication.getReplicationMode()).thenReturn(ReplicationMode.METADATA_MIRROR);
     when(sourceCatalog.isDisableSnapshots()).thenReturn(false);
     SourceFactory sourceFactory = new SourceFactory(sourceCatalog, sourceHiveConf, sourceMetaStoreClientSupplier,
-        sourceCatalogListener);
+        sourceCatalogListener, new PartitionStatisticsFetch(), PartitionTaskExecutor.CALLING_THREAD);
     Source source = sourceFactory.newInstance(tableReplication);
     assertTrue(source.isSnapshotsDisabled());
   }
@@ -75,7 +77,7 @@ public class SourceFactoryTest {
     when(tableReplication.getReplicationMode()).thenReturn(ReplicationMode.METADATA_UPDATE);
     when(sourceCatalog.isDisableSnapshots()).thenReturn(false);
     SourceFactory sourceFactory = new SourceFactory(sourceCatalog, sourceHiveConf, sourceMetaStoreClientSupplier,
-        sourceCatalogListener);
+        sourceCatalogListener, new PartitionStatisticsFetch(), PartitionTaskExecutor.CALLING_THREAD);
     Source source = sourceFactory.newInstance(tableReplication);
     assertTrue(source.isSnapshotsDisabled());
   }
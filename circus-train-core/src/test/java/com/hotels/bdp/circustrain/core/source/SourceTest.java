@@ -19,6 +19,8 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
@@ -44,15 +46,19 @@ import org.apache.hadoop.hive.metastore.api.Table;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
 
 import com.hotels.bdp.circustrain.api.SourceLocationManager;
 import com.hotels.bdp.circustrain.api.conf.SourceCatalog;
 import com.hotels.bdp.circustrain.api.copier.CopierOptions;
+import com.hotels.bdp.circustrain.api.event.EventPartitions;
 import com.hotels.bdp.circustrain.api.event.SourceCatalogListener;
+import com.hotels.bdp.circustrain.core.PartitionPredicate;
 import com.hotels.bdp.circustrain.core.PartitionsAndStatistics;
 import com.hotels.bdp.circustrain.core.TableAndStatistics;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
@@ -189,6 +195,22 @@ public class SourceTest {
     assertThat(partitionsAndStatistics.getStatisticsForPartition(partition), is(nullValue()));
   }
 
+  @Test
+  public void getPartitionsWithoutStatistics() throws Exception {
+    when(metaStoreClient.listPartitionsByFilter(DATABASE, TABLE, PARTITION_PREDICATE, (short) MAX_PARTITIONS))
+        .thenReturn(partitions);
+    PartitionPredicate partitionPredicate = mock(PartitionPredicate.class);
+    when(partitionPredicate.getPartitionNames()).thenReturn(Optional.<List<String>> absent());
+    when(partitionPredicate.getPartitionPredicate()).thenReturn(PARTITION_PREDICATE);
+    when(partitionPredicate.getPartitionPredicateLimit()).thenReturn((short) MAX_PARTITIONS);
+
+    assertThat(source.getPartitionsWithoutStatistics(table, partitionPredicate), is(partitions));
+    ArgumentCaptor<EventPartitions> eventPartitionsCaptor = ArgumentCaptor.forClass(EventPartitions.class);
+    verify(sourceCatalogListener).resolvedSourcePartitions(eventPartitionsCaptor.capture());
+    assertThat(eventPartitionsCaptor.getValue().getEventPartitions().get(0).getValues(),
+        is(Arrays.asList("one", "two")));
+  }
+
   @Test
   public void getHiveConf() throws Exception {
     assertThat(source.getHiveConf(), is(hiveConf));
@@ -15,10 +15,17 @@
  */
 package com.hotels.bdp.circustrain.hive.fetcher;
 
-import java.util.Collections;
+import java.io.Closeable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.hive.metastore.IMetaStoreClient;
 import org.apache.hadoop.hive.metastore.Warehouse;
@@ -29,19 +36,46 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
-/** Fetches partitions ahead in batches and keeps them in cache until a non-cached partition is requested. */
-public class BufferedPartitionFetcher implements PartitionFetcher {
+/**
+ * Fetches partitions ahead in batches and keeps them in cache until a non-cached partition is requested. While a batch
+ * is consumed the next one, in the direction the partitions are requested, is fetched in the background so at most two
+ * batches are held at any time. All metastore calls are made from a single background thread so the client is never
+ * used concurrently. Close the fetcher to stop prefetching.
+ */
+public class BufferedPartitionFetcher implements PartitionFetcher, Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(BufferedPartitionFetcher.class);
 
   private static final short NO_LIMIT = (short) -1;
 
+  private static class Window {
+
+    private final int start;
+    private final int end;
+    private final Future<Map<String, Partition>> partitions;
+
+    Window(int start, int end, Future<Map<String, Partition>> partitions) {
+      this.start = start;
+      this.end = end;
+      this.partitions = partitions;
+    }
+
+    boolean contains(int position) {
+      return start <= position && position < end;
+    }
+  }
+
   private final List<String> partitionNames;
+  private final Map<String, Integer> partitionPositions;
   private final IMetaStoreClient metastore;
   private final Table table;
   private final short bufferSize;
-  private Map<String, Partition> buffer;
+  private final ExecutorService executor;
+  private Window buffer;
+  private Window prefetch;
+  private int lastPosition = -1;
 
   public BufferedPartitionFetcher(IMetaStoreClient metastore, Table table, short bufferSize) {
 
@@ -52,45 +86,121 @@ public class BufferedPartitionFetcher implements PartitionFetcher {
     } catch (TException e) {
       throw new RuntimeException("Unable to fetch partition names of table " + Warehouse.getQualifiedName(table), e);
     }
+    partitionPositions = new HashMap<>(partitionNames.size() * 4 / 3 + 1);
+    for (int i = 0; i < partitionNames.size(); i++) {
+      partitionPositions.put(partitionNames.get(i), i);
+    }
 
     this.table = table;
     this.metastore = metastore;
     this.bufferSize = bufferSize;
-    buffer = Collections.emptyMap();
+    executor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setNameFormat("partition-fetcher-%d").setDaemon(true).build());
   }
 
   @Override
   public Partition fetch(String partitionName) {
-    int partitionPosition = partitionNames.indexOf(partitionName);
-    if (partitionPosition < 0) {
+    Integer partitionPosition = partitionPositions.get(partitionName);
+    if (partitionPosition == null) {
       throw new PartitionNotFoundException("Unknown partition " + partitionName);
     }
+    boolean descending = partitionPosition < lastPosition;
+    lastPosition = partitionPosition;
+
+    if (buffer == null || !buffer.contains(partitionPosition)) {
+      if (prefetch != null && prefetch.contains(partitionPosition)) {
+        buffer = prefetch;
+      } else {
+        cancelPrefetch();
+        int start = descending ? Math.max(0, partitionPosition - bufferSize + 1) : partitionPosition;
+        buffer = load(start);
+      }
+      prefetch = null;
+    }
+    Map<String, Partition> partitions = get(buffer);
 
-    if (!buffer.containsKey(partitionName)) {
-      bufferPartitions(partitionPosition);
+    if (prefetch == null) {
+      if (descending && buffer.start > 0) {
+        prefetch = load(Math.max(0, buffer.start - bufferSize), buffer.start);
+      } else if (!descending && buffer.end < partitionNames.size()) {
+        prefetch = load(buffer.end);
+      }
     }
+    return partitions.get(partitionName);
+  }
 
-    return buffer.get(partitionName);
+  private Window load(int start) {
+    return load(start, Math.min(partitionNames.size(), start + bufferSize));
+  }
+
+  private Window load(final int start, int end) {
+    Future<Map<String, Partition>> partitions = executor.submit(new Callable<Map<String, Partition>>() {
+      @Override
+      public Map<String, Partition> call() {
+        return bufferPartitions(start);
+      }
+    });
+    return new Window(start, end, partitions);
+  }
+
+  private Map<String, Partition> get(Window window) {
+    try {
+      return window.partitions.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException("Unable to fetch partitions of table " + Warehouse.getQualifiedName(table),
+          e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while fetching partitions of table " + Warehouse.getQualifiedName(table),
+          e);
+    }
+  }
+
+  private void cancelPrefetch() {
+    if (prefetch != null) {
+      prefetch.partitions.cancel(false);
+      prefetch = null;
+    }
   }
 
   @VisibleForTesting
-  void bufferPartitions(int firstPartition) {
+  Map<String, Partition> bufferPartitions(int firstPartition) {
     int totalPartitionsToLoad = Math.min(partitionNames.size(), firstPartition + bufferSize);
     List<String> partitionsToLoad = partitionNames.subList(firstPartition, totalPartitionsToLoad);
 
     try {
-      LOG.debug("Fetching {} partitions.", totalPartitionsToLoad);
+      LOG.debug("Fetching {} partitions.", partitionsToLoad.size());
       List<Partition> partitions = metastore.getPartitionsByNames(table.getDbName(), table.getTableName(),
           partitionsToLoad);
       LOG.debug("Fetched {} partitions for table {}.", partitions.size(), Warehouse.getQualifiedName(table));
 
-      buffer = new HashMap<>(partitions.size());
+      Map<String, Partition> buffer = new HashMap<>(partitions.size() * 4 / 3 + 1);
       for (Partition partition : partitions) {
         buffer.put(Warehouse.makePartName(table.getPartitionKeys(), partition.getValues()), partition);
       }
+      return buffer;
     } catch (TException e) {
       throw new RuntimeException("Unable to fetch partitions of table " + Warehouse.getQualifiedName(table), e);
     }
   }
 
+  /**
+   * Stops prefetching and waits for a metastore call in progress, so that the client can be closed afterwards.
+   */
+  @Override
+  public void close() {
+    cancelPrefetch();
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOG.warn("Partitions of table {} are still being fetched.", Warehouse.getQualifiedName(table));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
 }
@@ -18,6 +18,7 @@ package com.hotels.bdp.circustrain.hive.fetcher;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -28,6 +29,7 @@ import org.apache.hadoop.hive.metastore.IMetaStoreClient;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.thrift.TException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -111,4 +113,60 @@ public class BufferedPartitionFetcherTest {
     verify(fetcher, times(1)).bufferPartitions(2);
   }
 
+  @Test
+  public void nextBatchIsPrefetched() throws Exception {
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=01")))
+        .thenReturn(Arrays.asList(p01));
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=02")))
+        .thenReturn(Arrays.asList(p02));
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=03")))
+        .thenReturn(Arrays.asList(p03));
+
+    try (BufferedPartitionFetcher fetcher = new BufferedPartitionFetcher(metastore, table, (short) 1)) {
+      assertThat(fetcher.fetch("a=01"), is(p01));
+      verify(metastore, timeout(1000)).getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=02"));
+
+      assertThat(fetcher.fetch("a=02"), is(p02));
+      assertThat(fetcher.fetch("a=03"), is(p03));
+    }
+    verify(metastore, times(1)).getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=02"));
+    verify(metastore, times(1)).getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=03"));
+  }
+
+  @Test
+  public void descendingRequestsPrefetchPreviousBatch() throws Exception {
+    when(metastore.listPartitionNames(DATABASE_NAME, TABLE_NAME, (short) -1))
+        .thenReturn(Arrays.asList("a=01", "a=02", "a=03", "a=04", "a=05"));
+    Partition p04 = new Partition();
+    p04.setValues(Arrays.asList("04"));
+    Partition p05 = new Partition();
+    p05.setValues(Arrays.asList("05"));
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=05")))
+        .thenReturn(Arrays.asList(p05));
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=03", "a=04")))
+        .thenReturn(Arrays.asList(p03, p04));
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=01", "a=02")))
+        .thenReturn(Arrays.asList(p01, p02));
+
+    try (BufferedPartitionFetcher fetcher = new BufferedPartitionFetcher(metastore, table, (short) 2)) {
+      assertThat(fetcher.fetch("a=05"), is(p05));
+      assertThat(fetcher.fetch("a=04"), is(p04));
+      assertThat(fetcher.fetch("a=03"), is(p03));
+      assertThat(fetcher.fetch("a=02"), is(p02));
+      assertThat(fetcher.fetch("a=01"), is(p01));
+    }
+    verify(metastore, times(1)).getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=03", "a=04"));
+    verify(metastore, times(1)).getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=01", "a=02"));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void fetchFailure() throws Exception {
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=01", "a=02", "a=03")))
+        .thenThrow(new TException("failed"));
+
+    try (BufferedPartitionFetcher fetcher = new BufferedPartitionFetcher(metastore, table, (short) 3)) {
+      fetcher.fetch("a=01");
+    }
+  }
+
 }
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2016-2020 Expedia, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hotels.bdp.circustrain.hive.fetcher;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SortedPartitionIteratorTest {
+
+  private static final String TABLE_NAME = "table";
+  private static final String DATABASE_NAME = "database";
+
+  private @Mock IMetaStoreClient metastore;
+  private @Mock Table table;
+
+  private @Mock Partition p01;
+  private @Mock Partition p02;
+  private @Mock Partition p03;
+
+  @Before
+  public void init() throws Exception {
+    when(p01.getValues()).thenReturn(Arrays.asList("01"));
+    when(p02.getValues()).thenReturn(Arrays.asList("02"));
+    when(p03.getValues()).thenReturn(Arrays.asList("03"));
+
+    when(table.getDbName()).thenReturn(DATABASE_NAME);
+    when(table.getTableName()).thenReturn(TABLE_NAME);
+    when(table.getPartitionKeys()).thenReturn(Arrays.asList(new FieldSchema("a", "String", null)));
+
+    when(metastore.listPartitionNames(DATABASE_NAME, TABLE_NAME, (short) -1))
+        .thenReturn(Arrays.asList("a=02", "a=03", "a=01"));
+  }
+
+  @Test
+  public void partitionsAreSortedByName() throws Exception {
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=01", "a=02")))
+        .thenReturn(Arrays.asList(p02, p01));
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=03")))
+        .thenReturn(Arrays.asList(p03));
+
+    SortedPartitionIterator iterator = new SortedPartitionIterator(metastore, table, (short) 2,
+        Ordering.<String> natural());
+
+    assertThat(ImmutableList.copyOf(iterator), contains(p01, p02, p03));
+  }
+
+  @Test
+  public void reverseOrder() throws Exception {
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=03", "a=02")))
+        .thenReturn(Arrays.asList(p02, p03));
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=01")))
+        .thenReturn(Arrays.asList(p01));
+
+    SortedPartitionIterator iterator = new SortedPartitionIterator(metastore, table, (short) 2,
+        Ordering.<String> natural().reverse());
+
+    assertThat(ImmutableList.copyOf(iterator), contains(p03, p02, p01));
+  }
+
+  @Test
+  public void droppedPartitionsAreSkipped() throws Exception {
+    List<Partition> none = Arrays.asList();
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=01")))
+        .thenReturn(none);
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=02")))
+        .thenReturn(Arrays.asList(p02));
+    when(metastore.getPartitionsByNames(DATABASE_NAME, TABLE_NAME, Arrays.asList("a=03")))
+        .thenReturn(none);
+
+    SortedPartitionIterator iterator = new SortedPartitionIterator(metastore, table, (short) 1,
+        Ordering.<String> natural());
+
+    assertThat(ImmutableList.copyOf(iterator), contains(p02));
+  }
+
+}
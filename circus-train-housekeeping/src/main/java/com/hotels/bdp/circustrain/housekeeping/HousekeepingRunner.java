@@ -21,6 +21,7 @@ import org.joda.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Profile;
@@ -32,29 +33,56 @@ import com.google.common.collect.ImmutableMap;
 
 import com.hotels.bdp.circustrain.api.CompletionCode;
 import com.hotels.bdp.circustrain.api.Modules;
+import com.hotels.bdp.circustrain.api.event.EventReplicaCatalog;
+import com.hotels.bdp.circustrain.api.event.EventSourceCatalog;
+import com.hotels.bdp.circustrain.api.event.LocomotiveListener;
 import com.hotels.bdp.circustrain.api.metrics.MetricSender;
 import com.hotels.housekeeping.conf.Housekeeping;
 import com.hotels.housekeeping.service.HousekeepingService;
 
+/**
+ * Removes expired replica paths once all application runners have replicated. In daemon mode this runs again at the end
+ * of every scheduled replication run so that paths are also expired while Circus Train stays resident.
+ */
 @Profile({ Modules.HOUSEKEEPING })
 @Component
 @Order(Ordered.LOWEST_PRECEDENCE)
-class HousekeepingRunner implements ApplicationRunner {
+class HousekeepingRunner implements ApplicationRunner, LocomotiveListener {
   private static final Logger LOG = LoggerFactory.getLogger(HousekeepingRunner.class);
 
   private final Housekeeping housekeeping;
   private final HousekeepingService housekeepingService;
   private final MetricSender metricSender;
+  private final boolean daemonEnabled;
 
   @Autowired
-  HousekeepingRunner(Housekeeping housekeeping, HousekeepingService housekeepingService, MetricSender metricSender) {
+  HousekeepingRunner(
+      Housekeeping housekeeping,
+      HousekeepingService housekeepingService,
+      MetricSender metricSender,
+      @Value("${daemon.enabled:false}") boolean daemonEnabled) {
     this.housekeeping = housekeeping;
     this.housekeepingService = housekeepingService;
     this.metricSender = metricSender;
+    this.daemonEnabled = daemonEnabled;
   }
 
   @Override
   public void run(ApplicationArguments args) {
+    housekeep();
+  }
+
+  @Override
+  public void circusTrainStartUp(String[] args, EventSourceCatalog sourceCatalog, EventReplicaCatalog replicaCatalog) {}
+
+  @Override
+  public void circusTrainShutDown(CompletionCode completionCode, Map<String, Long> metrics) {
+    if (daemonEnabled) {
+      housekeep();
+    }
+  }
+
+  private void housekeep() {
     Instant deletionCutoff = new Instant().minus(housekeeping.getExpiredPathDuration());
     LOG.info("Housekeeping at instant {} has started", deletionCutoff);
     CompletionCode completionCode = CompletionCode.SUCCESS;
@@ -20,9 +20,13 @@ import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
+
 import org.joda.time.Duration;
 import org.joda.time.Instant;
 import org.junit.Before;
@@ -32,6 +36,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.hotels.bdp.circustrain.api.CompletionCode;
 import com.hotels.bdp.circustrain.api.metrics.MetricSender;
 import com.hotels.housekeeping.conf.Housekeeping;
 import com.hotels.housekeeping.service.HousekeepingService;
@@ -50,7 +55,7 @@ public class HousekeepingRunnerTest {
   @Before
   public void init() {
     when(housekeeping.getExpiredPathDuration()).thenReturn(TWO_DAYS_DURATION);
-    runner = new HousekeepingRunner(housekeeping, cleanUpPathService, metricSender);
+    runner = new HousekeepingRunner(housekeeping, cleanUpPathService, metricSender, false);
   }
 
   @Test
@@ -68,4 +73,18 @@ public class HousekeepingRunnerTest {
     runner.run(null);
   }
 
+  @Test
+  public void housekeepingAfterEachDaemonRun() {
+    runner = new HousekeepingRunner(housekeeping, cleanUpPathService, metricSender, true);
+    runner.circusTrainShutDown(CompletionCode.SUCCESS, Collections.<String, Long> emptyMap());
+    runner.circusTrainShutDown(CompletionCode.FAILURE, Collections.<String, Long> emptyMap());
+    verify(cleanUpPathService, times(2)).cleanUp(any(Instant.class));
+  }
+
+  @Test
+  public void noHousekeepingAfterRunOutsideDaemonMode() {
+    runner.circusTrainShutDown(CompletionCode.SUCCESS, Collections.<String, Long> emptyMap());
+    verify(cleanUpPathService, never()).cleanUp(any(Instant.class));
+  }
+
 }
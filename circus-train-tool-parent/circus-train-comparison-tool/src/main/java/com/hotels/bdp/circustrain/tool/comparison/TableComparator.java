@@ -32,7 +32,6 @@ import com.hotels.bdp.circustrain.comparator.api.DiffListener;
 import com.hotels.bdp.circustrain.comparator.hive.HiveDifferences;
 import com.hotels.bdp.circustrain.core.HiveEndpoint;
 import com.hotels.bdp.circustrain.hive.fetcher.BufferedPartitionFetcher;
-import com.hotels.bdp.circustrain.hive.fetcher.PartitionFetcher;
 import com.hotels.hcommon.hive.metastore.client.api.CloseableMetaStoreClient;
 import com.hotels.hcommon.hive.metastore.iterator.PartitionIterator;
 
@@ -80,12 +79,12 @@ class TableComparator {
     out.println();
     out.println();
     try (CloseableMetaStoreClient sourceMetastore = source.getMetaStoreClientSupplier().get()) {
-      try (CloseableMetaStoreClient replicaMetastore = replica.getMetaStoreClientSupplier().get()) {
+      try (CloseableMetaStoreClient replicaMetastore = replica.getMetaStoreClientSupplier().get();
+          BufferedPartitionFetcher replicaPartitionFetcher = new BufferedPartitionFetcher(replicaMetastore,
+              replicaTable, replicaPartitionBufferSize)) {
         LOG.info("Computing differences...");
         PartitionIterator partitionIterator = new PartitionIterator(sourceMetastore, sourceTable,
             sourcePartitionBatchSize);
-        PartitionFetcher replicaPartitionFetcher = new BufferedPartitionFetcher(replicaMetastore, replicaTable,
-            replicaPartitionBufferSize);
         HiveDifferences diffs = HiveDifferences
             .builder(diffListener)
             .comparatorRegistry(comparatorRegistry)